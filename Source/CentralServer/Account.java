@@ -0,0 +1,74 @@
+package CentralServer;
+
+/**
+ * A player's account, kept in memory by the AccountStore
+ * @author William Xu & Alex Raita
+ *
+ */
+public class Account {
+	private String name;
+	private String key;
+	private int elo;
+	private int wins;
+	private int losses;
+
+	/**
+	 * Constructor for an account
+	 * @param name the player's name
+	 * @param key the player's hashed password
+	 * @param elo the player's rating
+	 * @param wins the number of games won
+	 * @param losses the number of games lost
+	 */
+	public Account(String name, String key, int elo, int wins, int losses) {
+		this.name = name;
+		this.key = key;
+		this.elo = elo;
+		this.wins = wins;
+		this.losses = losses;
+	}
+
+	/**
+	 * Make a copy of the account
+	 * @return the copy
+	 */
+	public Account copy() {
+		return new Account(name, key, elo, wins, losses);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	public int getElo() {
+		return elo;
+	}
+
+	public void setElo(int elo) {
+		this.elo = elo;
+	}
+
+	public int getWins() {
+		return wins;
+	}
+
+	public void setWins(int wins) {
+		this.wins = wins;
+	}
+
+	public int getLosses() {
+		return losses;
+	}
+
+	public void setLosses(int losses) {
+		this.losses = losses;
+	}
+}
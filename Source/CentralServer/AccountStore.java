@@ -0,0 +1,520 @@
+package CentralServer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+import Tools.Threads;
+
+/**
+ * All the player accounts, kept in memory in a map by name. Every change is
+ * added to an append-only journal by a background writer thread, so nobody
+ * waits on the disk. Every so often the writer compacts the journal by
+ * writing all the accounts to the XML file (in the same format as before)
+ * and starting a new journal. When loading, the XML file is read and then
+ * the journal is replayed on top of it. Journal records hold the new values
+ * (not the change), so replaying a record twice does no harm. The store also
+ * remembers the IDs of the most recent games that were rated, so a game's
+ * result is never counted twice
+ * @author William Xu & Alex Raita
+ *
+ */
+public class AccountStore implements Runnable {
+
+	/**
+	 * The number of journal records written before the journal is compacted
+	 */
+	public final static int COMPACT_RECORDS = 1000;
+
+	/**
+	 * The number of rated game IDs remembered
+	 */
+	public final static int REMEMBERED_GAMES = 10000;
+
+	/**
+	 * Put in the queue of records to compact the journal or stop the writer
+	 */
+	private final static String COMPACT = new String("COMPACT");
+	private final static String STOP = new String("STOP");
+
+	private final File xmlFile;
+	private final File journalFile;
+
+	/**
+	 * The accounts by name (guarded by this)
+	 */
+	private HashMap<String, Account> accounts = new HashMap<String, Account>();
+
+	/**
+	 * The IDs of the most recently rated games, oldest first (guarded by this)
+	 */
+	private LinkedHashSet<String> games = new LinkedHashSet<String>();
+
+	/**
+	 * The journal records waiting to be written
+	 */
+	private LinkedBlockingQueue<String> records = new LinkedBlockingQueue<String>();
+
+	/**
+	 * The journal and the number of records in it (only used by the writer)
+	 */
+	private Writer journal;
+	private int journalRecords = 0;
+
+	/**
+	 * The number of records added to the queue (guarded by this) and the
+	 * number written to the journal so far (guarded by flushLock)
+	 */
+	private long recordsAdded = 0;
+	private final Object flushLock = new Object();
+	private long recordsWritten = 0;
+
+	private Thread writer;
+
+	/**
+	 * Constructor for the store, which loads the accounts and starts the
+	 * writer
+	 * @param xmlFileName the accounts XML file
+	 * @param journalFileName the journal file
+	 */
+	public AccountStore(String xmlFileName, String journalFileName) throws IOException, JDOMException {
+		xmlFile = new File(xmlFileName);
+		journalFile = new File(journalFileName);
+
+		if (xmlFile.exists()) {
+			importXML(xmlFile);
+		}
+		if (journalFile.exists()) {
+			replayJournal();
+		}
+		System.out.println("Loaded " + accounts.size() + " accounts (" + journalRecords + " journal records)");
+
+		journal = openJournal(true);
+		writer = Threads.start(this, "Account writer");
+	}
+
+	/**
+	 * Add the accounts in an XML file (the old Accounts.xml format)
+	 * @param file the file
+	 */
+	public synchronized void importXML(File file) throws IOException, JDOMException {
+		Document document = new SAXBuilder().build(file);
+		for (Element user : document.getRootElement().getChildren("User")) {
+			String name = user.getAttributeValue("name");
+			accounts.put(name, new Account(name, user.getChildText("Key"),
+					Integer.parseInt(user.getChildText("Elo")), Integer.parseInt(user.getChildText("Wins")),
+					Integer.parseInt(user.getChildText("Losses"))));
+		}
+	}
+
+	/**
+	 * Apply the records in the journal to the accounts
+	 */
+	private void replayJournal() throws IOException {
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8));
+		try {
+			String record;
+			while ((record = reader.readLine()) != null) {
+				try {
+					applyRecord(record);
+					journalRecords++;
+				} catch (RuntimeException e) {
+					// Most likely the last record, cut off when the server
+					// stopped
+					System.out.println("Skipping bad journal record: " + record);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Apply one journal record. The name always comes last since it can have
+	 * spaces in it
+	 * C key name: create an account
+	 * U elo wins losses name: set an account's stats
+	 * K key name: set an account's key
+	 * G gameID: a game was rated (only in older journals)
+	 * R gameID count (elo wins losses length name)...: a game was rated, with
+	 * the new stats of each of its players (see recordRatedGame)
+	 */
+	private void applyRecord(String record) {
+		if (record.charAt(0) == 'R') {
+			applyGameRecord(record);
+			return;
+		}
+		String[] tokens = record.split(" ", record.charAt(0) == 'U' ? 5 : 3);
+		if (record.charAt(0) == 'G') {
+			rememberGame(tokens[1]);
+			return;
+		}
+		switch (record.charAt(0)) {
+		case 'C':
+			if (!accounts.containsKey(tokens[2]))
+				accounts.put(tokens[2], new Account(tokens[2], tokens[1], CentralServer.BASE_ELO, 0, 0));
+			break;
+		case 'U':
+			Account account = accounts.get(tokens[4]);
+			if (account != null) {
+				account.setElo(Integer.parseInt(tokens[1]));
+				account.setWins(Integer.parseInt(tokens[2]));
+				account.setLosses(Integer.parseInt(tokens[3]));
+			}
+			break;
+		case 'K':
+			account = accounts.get(tokens[2]);
+			if (account != null)
+				account.setKey(tokens[1]);
+			break;
+		default:
+			throw new IllegalArgumentException(record);
+		}
+	}
+
+	/**
+	 * Apply a rated game record. Every player's stats are read before any are
+	 * set, so a record that was cut off changes nothing
+	 */
+	private void applyGameRecord(String record) {
+		String[] tokens = record.split(" ", 4);
+		int count = Integer.parseInt(tokens[2]);
+		String[] names = new String[count];
+		int[][] stats = new int[count][3];
+		String players = tokens.length > 3 ? tokens[3] : "";
+		int start = 0;
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				if (players.charAt(start) != ' ')
+					throw new IllegalArgumentException(record);
+				start++;
+			}
+			for (int j = 0; j < 3; j++) {
+				int end = players.indexOf(' ', start);
+				stats[i][j] = Integer.parseInt(players.substring(start, end));
+				start = end + 1;
+			}
+			int end = players.indexOf(' ', start);
+			int length = Integer.parseInt(players.substring(start, end));
+			start = end + 1;
+			names[i] = players.substring(start, start + length);
+			start += length;
+		}
+		if (start != players.length())
+			throw new IllegalArgumentException(record);
+
+		for (int i = 0; i < count; i++) {
+			Account account = accounts.get(names[i]);
+			if (account != null) {
+				account.setElo(stats[i][0]);
+				account.setWins(stats[i][1]);
+				account.setLosses(stats[i][2]);
+			}
+		}
+		rememberGame(tokens[1]);
+	}
+
+	/**
+	 * Open the journal for writing
+	 * @param append whether to add to the end of the journal or start a new
+	 *            one
+	 */
+	private Writer openJournal(boolean append) throws IOException {
+		return openWriter(journalFile, append);
+	}
+
+	private static Writer openWriter(File file, boolean append) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Create a new account
+	 * @param name the player's name
+	 * @param key the player's hashed password
+	 * @return false if the name is taken
+	 */
+	public synchronized boolean create(String name, String key) {
+		if (accounts.containsKey(name) || name.indexOf('\n') >= 0 || key.indexOf(' ') >= 0)
+			return false;
+		accounts.put(name, new Account(name, key, CentralServer.BASE_ELO, 0, 0));
+		addRecord("C " + key + " " + name);
+		return true;
+	}
+
+	/**
+	 * Check a player's password
+	 * @param name the player's name
+	 * @param key the player's hashed password
+	 * @return whether or not the name and key match an account
+	 */
+	public synchronized boolean login(String name, String key) {
+		Account account = accounts.get(name);
+		return account != null && key.equals(account.getKey());
+	}
+
+	/**
+	 * Get a player's rating
+	 * @param name the player's name
+	 * @return the rating, or -1 if there is no account with the name
+	 */
+	public synchronized int getElo(String name) {
+		Account account = accounts.get(name);
+		if (account == null)
+			return -1;
+		return account.getElo();
+	}
+
+	/**
+	 * Get a player's stats
+	 * @param name the player's name
+	 * @return the rating, wins and losses, or null if there is no account
+	 *         with the name
+	 */
+	public synchronized int[] getStats(String name) {
+		Account account = accounts.get(name);
+		if (account == null)
+			return null;
+		return new int[] { account.getElo(), account.getWins(), account.getLosses() };
+	}
+
+	/**
+	 * Record the result of a rated game. The new stats of every player and
+	 * the game's ID go in one journal record, so after a crash the game is
+	 * either rated completely or not at all. Each player's name has its
+	 * length in front since names can have spaces in them
+	 * @param gameID the ID the room server gave the game
+	 * @param names the players' names
+	 * @param elos the players' new ratings
+	 * @param wins whether or not each player won
+	 */
+	public synchronized void recordRatedGame(String gameID, String[] names, int[] elos, boolean[] wins) {
+		StringBuilder players = new StringBuilder();
+		int count = 0;
+		for (int i = 0; i < names.length; i++) {
+			Account account = accounts.get(names[i]);
+			if (account == null)
+				continue;
+			account.setElo(elos[i]);
+			if (wins[i])
+				account.setWins(account.getWins() + 1);
+			else
+				account.setLosses(account.getLosses() + 1);
+			players.append(' ').append(elos[i]).append(' ').append(account.getWins()).append(' ')
+					.append(account.getLosses()).append(' ').append(names[i].length()).append(' ')
+					.append(names[i]);
+			count++;
+		}
+		rememberGame(gameID);
+		addRecord("R " + gameID + " " + count + players);
+	}
+
+	/**
+	 * Change a player's hashed password
+	 * @param name the player's name
+	 * @param key the new hashed password
+	 */
+	public synchronized void setKey(String name, String key) {
+		Account account = accounts.get(name);
+		if (account == null)
+			return;
+		account.setKey(key);
+		addRecord("K " + key + " " + name);
+	}
+
+	/**
+	 * Check if a game was already rated
+	 * @param gameID the ID the room server gave the game
+	 * @return whether or not the game was rated
+	 */
+	public synchronized boolean isRated(String gameID) {
+		return games.contains(gameID);
+	}
+
+	/**
+	 * Remember a rated game, forgetting the oldest game when there are too
+	 * many
+	 */
+	private void rememberGame(String gameID) {
+		games.add(gameID);
+		if (games.size() > REMEMBERED_GAMES) {
+			games.remove(games.iterator().next());
+		}
+	}
+
+	/**
+	 * Add a record for the writer (while holding the lock)
+	 */
+	private void addRecord(String record) {
+		records.add(record);
+		recordsAdded++;
+	}
+
+	/**
+	 * Wait until every record added so far has been written to the journal
+	 */
+	public void flush() throws InterruptedException {
+		long target;
+		synchronized (this) {
+			target = recordsAdded;
+		}
+		synchronized (flushLock) {
+			while (recordsWritten < target)
+				flushLock.wait();
+		}
+	}
+
+	/**
+	 * Get a copy of every account
+	 * @return the copies
+	 */
+	public synchronized ArrayList<Account> getAccounts() {
+		ArrayList<Account> copies = new ArrayList<Account>(accounts.size());
+		for (Account account : accounts.values())
+			copies.add(account.copy());
+		return copies;
+	}
+
+	public synchronized int size() {
+		return accounts.size();
+	}
+
+	/**
+	 * Have the writer write every account to the XML file and start a new
+	 * journal
+	 */
+	public void requestCompaction() {
+		records.add(COMPACT);
+	}
+
+	/**
+	 * Write everything waiting, compact the journal and stop the writer
+	 */
+	public void close() {
+		records.add(COMPACT);
+		records.add(STOP);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Write the journal records as they come in. Everything waiting is
+	 * written before the journal is flushed
+	 */
+	public void run() {
+		long written = 0;
+		while (true) {
+			try {
+				String record = records.take();
+				boolean compact = false;
+				boolean stop = false;
+				do {
+					if (record == COMPACT)
+						compact = true;
+					else if (record == STOP)
+						stop = true;
+					else {
+						written++;
+						journal.write(record);
+						journal.write('\n');
+						journalRecords++;
+					}
+				} while ((record = records.poll()) != null);
+				journal.flush();
+				synchronized (flushLock) {
+					recordsWritten = written;
+					flushLock.notifyAll();
+				}
+
+				if (compact || journalRecords >= COMPACT_RECORDS)
+					compact();
+				if (stop) {
+					journal.close();
+					return;
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				System.out.println("Could not write the accounts journal");
+				e.printStackTrace();
+				synchronized (flushLock) {
+					recordsWritten = written;
+					flushLock.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write every account to the XML file and start a new journal (on the
+	 * writer thread). The new file is written next to the old one and then
+	 * moved over it, so there is always a whole copy on disk. If the server
+	 * stops before the journal is cleared, replaying it again is harmless
+	 */
+	private void compact() throws IOException {
+		Element root = new Element("Root");
+		ArrayList<String> rememberedGames;
+		synchronized (this) {
+			rememberedGames = new ArrayList<String>(games);
+		}
+		for (Account account : getAccounts()) {
+			Element user = new Element("User");
+			user.setAttribute("name", account.getName());
+			user.addContent(new Element("Key").setText(account.getKey()));
+			user.addContent(new Element("Elo").setText(Integer.toString(account.getElo())));
+			user.addContent(new Element("Wins").setText(Integer.toString(account.getWins())));
+			user.addContent(new Element("Losses").setText(Integer.toString(account.getLosses())));
+			root.addContent(user);
+		}
+
+		File newFile = new File(xmlFile.getPath() + ".new");
+		OutputStream output = new FileOutputStream(newFile);
+		try {
+			new XMLOutputter(Format.getPrettyFormat()).output(new Document(root), output);
+		} finally {
+			output.close();
+		}
+		Files.move(newFile.toPath(), xmlFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		// The rated games aren't in the XML file, so they start the new
+		// journal, which is also written next to the old one first
+		File newJournalFile = new File(journalFile.getPath() + ".new");
+		Writer newJournal = openWriter(newJournalFile, false);
+		try {
+			for (String gameID : rememberedGames) {
+				newJournal.write("G " + gameID);
+				newJournal.write('\n');
+			}
+		} finally {
+			newJournal.close();
+		}
+		journal.close();
+		Files.move(newJournalFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		journal = openJournal(true);
+		journalRecords = 0;
+	}
+}
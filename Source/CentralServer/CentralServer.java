@@ -3,9 +3,6 @@ package CentralServer;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
@@ -15,19 +12,13 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 
 import javax.swing.Timer;
 
-import org.jdom2.Attribute;
-import org.jdom2.Document;
-import org.jdom2.Element;
 import org.jdom2.JDOMException;
-import org.jdom2.input.SAXBuilder;
-import org.jdom2.output.Format;
-import org.jdom2.output.XMLOutputter;
 
 import ClientUDP.ClientAccountWindow;
+import Tools.Threads;
 import ClientUDP.ServerInfo;
 import Server.Creatures.ServerCreature;
 
@@ -37,7 +28,7 @@ public class CentralServer implements Runnable, ActionListener {
 	
 	//Not currently used
 	public final static int LEADERBOARD_SIZE = 20;
-	
+	
 	private DatagramSocket socket;
 	private DatagramPacket receive;
 	private DatagramPacket send;
@@ -49,19 +40,28 @@ public class CentralServer implements Runnable, ActionListener {
 	private String listServers;
 	private String delayedListServers;
 
-	private Element root;
-	private Document document;
-	private SAXBuilder builder;
 	private String FILE_NAME = "Resources//Accounts.xml";
+	private String JOURNAL_FILE_NAME = "Resources//Accounts.journal";
+
+	/**
+	 * The player accounts, indexed by name
+	 */
+	private AccountStore accounts;
 
 	// Clear servers after a period of time
 	private Timer reset;
 
 	private ServerSocket TCPSocket;
 
-	private PriorityQueue<LeaderboardPlayer> leaderboard = new PriorityQueue<LeaderboardPlayer>();
+	/**
+	 * The players ordered by rating, updated as games end
+	 */
+	private LeaderboardIndex leaderboard = new LeaderboardIndex();
 
-	private String leaderboardS = "";
+	/**
+	 * The results of finished games, rated in batches
+	 */
+	private GameResultQueue results;
 
 	public CentralServer() throws IOException, JDOMException {
 		socket = new DatagramSocket(ClientAccountWindow.PORT);
@@ -71,10 +71,17 @@ public class CentralServer implements Runnable, ActionListener {
 		delayedListServers = "";
 		reset = new Timer(200, this);
 
-		// Build XML
-		builder = new SAXBuilder();
-		document = builder.build(new File(FILE_NAME));
-		root = document.getRootElement();
+		// Load the accounts, and write them all back to the XML file when the
+		// central server stops
+		accounts = new AccountStore(FILE_NAME, JOURNAL_FILE_NAME);
+		Runtime.getRuntime().addShutdownHook(new Thread("Account store shutdown") {
+			@Override
+			public void run() {
+				accounts.close();
+			}
+		});
+
+		results = new GameResultQueue(this, accounts);
 
 		TCPSocket = new ServerSocket(ClientAccountWindow.PORT);
 		// System.out.println(login("Alex","uhoh"));
@@ -87,57 +94,19 @@ public class CentralServer implements Runnable, ActionListener {
 		createLeaderboard();
 	}
 
-	//No currently using this method
-//	public void createLeaderboard2() {
-//		leaderboard.clear();
-//		for (Element user : root.getChildren("User")) {
-//			int elo = Integer.parseInt(user.getChild("Elo").getValue());
-//			int wins = Integer.parseInt(user.getChild("Wins").getValue());
-//			int losses = Integer.parseInt(user.getChild("Losses").getValue());
-//			if (leaderboard.size() >= LEADERBOARD_SIZE && elo <= leaderboard.peek().getRating())
-//				continue;
-//			leaderboard.add(new LeaderboardPlayer(user.getAttributeValue("name"), elo, wins, losses, leaderboard.size()+1));
-//			if (leaderboard.size() > LEADERBOARD_SIZE)
-//				leaderboard.poll();
-//		}
-//		synchronized (leaderboardS) {
-//			leaderboardS = "";
-//			while (!leaderboard.isEmpty()) {
-//				LeaderboardPlayer next = leaderboard.poll();
-//				leaderboardS = next.getName().split(" ").length + " " + next.getRating() + " " + next.getWins() + " "
-//						+ next.getLosses() + " " + next.getName() + " " + leaderboardS;
-//			}
-//			leaderboardS.trim();
-//		}
-//
-//	}
-
+	/**
+	 * Put every account on the leaderboard
+	 */
 	public void createLeaderboard()
 	{
-		leaderboard.clear();
-		for (Element user : root.getChildren("User")) {
-			int elo = Integer.parseInt(user.getChild("Elo").getValue());
-			int wins = Integer.parseInt(user.getChild("Wins").getValue());
-			int losses = Integer.parseInt(user.getChild("Losses").getValue());
-			leaderboard.add(new LeaderboardPlayer(user.getAttributeValue("name"), elo, wins, losses, leaderboard.size()+1));
-		}
-		synchronized (leaderboardS) {
-			leaderboardS = "";
-			int counter = 0;
-			while (!leaderboard.isEmpty() && counter < 3000) {
-				LeaderboardPlayer next = leaderboard.poll();
-				leaderboardS = next.getName().split(" ").length + " " + next.getRating() + " " + next.getWins() + " "
-						+ next.getLosses() + " " + next.getName() + " " + leaderboardS;
-				counter++;
-			}
-			leaderboardS.trim();
+		for (Account account : accounts.getAccounts()) {
+			leaderboard.update(account.getName(), account.getElo(), account.getWins(), account.getLosses());
 		}
 	}
 	
 	public void run() {
 		reset.start();
-		Thread TCPThread = new Thread(new TCPIn());
-		TCPThread.start();
+		Threads.start(new TCPIn(), "Central server TCP");
 		while (true) {
 			receiveData = new byte[1024];
 			receive = new DatagramPacket(receiveData, receiveData.length);
@@ -192,10 +161,14 @@ public class CentralServer implements Runnable, ActionListener {
 					send = new DatagramPacket(sendData, sendData.length, receive.getAddress(), receive.getPort());
 					socket.send(send);
 					break;
+				// Send a page of the leaderboard (the first page if none is given)
 				case 'B':
-					if(leaderboardS.length() == 0)
+					int page = 0;
+					if (input.length() > 2)
+						page = Integer.parseInt(input.substring(2).trim());
+					sendData = leaderboard.getPage(page);
+					if(sendData.length == 0)
 						break;
-					sendData = leaderboardS.getBytes();
 					send = new DatagramPacket(sendData, sendData.length, receive.getAddress(), receive.getPort());
 					socket.send(send);
 					break;
@@ -209,6 +182,13 @@ public class CentralServer implements Runnable, ActionListener {
 					send = new DatagramPacket(sendData, sendData.length, receive.getAddress(), receive.getPort());
 					socket.send(send);
 					break;
+				// Get a player's place on the leaderboard
+				case 'R':
+					name = input.substring(2);
+					sendData = ("R " + leaderboard.getRank(name) + " " + name).getBytes();
+					send = new DatagramPacket(sendData, sendData.length, receive.getAddress(), receive.getPort());
+					socket.send(send);
+					break;
 				//Ping the central server to see if it's up
 				case 'P':
 					sendData = "p".getBytes();
@@ -224,7 +204,14 @@ public class CentralServer implements Runnable, ActionListener {
 
 	}
 
-	public void updateRating(GameResult[] red, GameResult[] blue, int winner) {
+	/**
+	 * Rate a finished game and record every player's new stats together
+	 * @param gameID the ID the room server gave the game
+	 * @param red the results of the red team's players
+	 * @param blue the results of the blue team's players
+	 * @param winner the winning team
+	 */
+	public void updateRating(String gameID, GameResult[] red, GameResult[] blue, int winner) {
 		double avgEloR = 0;
 		double avgKillsR = 0;
 		double avgEloB = 0;
@@ -258,6 +245,10 @@ public class CentralServer implements Runnable, ActionListener {
 			actualB = 0;
 		}
 
+		String[] names = new String[red.length + blue.length];
+		int[] elos = new int[names.length];
+		boolean[] wins = new boolean[names.length];
+		int player = 0;
 		for (GameResult acc : red) {
 			int k;
 			if (acc.getElo() <= 2100)
@@ -272,7 +263,9 @@ public class CentralServer implements Runnable, ActionListener {
 				win = true;
 			int newElo = Math.max((int) (acc.getElo() + k * (actualR - expected) + acc.getKills() - avgKillsR),
 					BASE_ELO);
-			setElo(acc.getName(), newElo, win);
+			names[player] = acc.getName();
+			elos[player] = newElo;
+			wins[player++] = win;
 		}
 		for (GameResult acc : blue) {
 			int k;
@@ -289,96 +282,44 @@ public class CentralServer implements Runnable, ActionListener {
 			// Yes ranking can go up even if you lose
 			int newElo = Math.max((int) (acc.getElo() + k * (actualB - expected) + acc.getKills() - avgKillsB),
 					BASE_ELO);
-			setElo(acc.getName(), newElo, win);
+			names[player] = acc.getName();
+			elos[player] = newElo;
+			wins[player++] = win;
 		}
-		saveXML();
 
-	}
-
-	public int getElo(String name) {
-		for (Element username : root.getChildren()) {
-			if (username.getAttribute("name").getValue().equals(name)) {
-				return Integer.parseInt(username.getChild("Elo").getValue());
-			}
+		accounts.recordRatedGame(gameID, names, elos, wins);
+		for (String name : names) {
+			int[] stats = accounts.getStats(name);
+			if (stats != null)
+				leaderboard.update(name, stats[0], stats[1], stats[2]);
 		}
-		return -1;
 	}
 
-	public void setElo(String name, int value, boolean win) {
-		for (Element username : root.getChildren()) {
-			if (username.getAttribute("name").getValue().equals(name)) {
-				username.getChild("Elo").setText(Integer.toString(value));
-				if (win)
-					username.getChild("Wins").setText(Integer.parseInt(username.getChild("Wins").getValue()) + 1 + "");
-				else
-					username.getChild("Losses")
-							.setText(Integer.parseInt(username.getChild("Losses").getValue()) + 1 + "");
-			}
-		}
+	public int getElo(String name) {
+		return accounts.getElo(name);
 	}
 
 	public int[] getStats(String name) {
-		for (Element username : root.getChildren()) {
-			if (username.getAttribute("name").getValue().equals(name)) {
-				return new int[] { Integer.parseInt(username.getChild("Elo").getValue()),
-						Integer.parseInt(username.getChild("Wins").getValue()),
-						Integer.parseInt(username.getChild("Losses").getValue()) };
-			}
-		}
-		return null;
+		return accounts.getStats(name);
 	}
 
 	public boolean login(String user, String key) {
-		for (Element username : root.getChildren()) {
-			if (username.getAttribute("name").getValue().equals(user)) {
-				return key.equals(username.getChild("Key").getValue());
-			}
-		}
-		return false;
+		return accounts.login(user, key);
 	}
 
+	/**
+	 * Write all the accounts back to Accounts.xml (done in the background by
+	 * the account store)
+	 */
 	public void saveXML() {
-		// Save with new username + key
-		XMLOutputter xmlOutputter = new XMLOutputter(Format.getPrettyFormat());
-		try {
-			xmlOutputter.output(document, new FileOutputStream(new File(FILE_NAME)));
-		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+		accounts.requestCompaction();
 	}
 
 	public boolean createAccount(String user, String key) {
-		// Wtf why are we doing O(n) search
-		for (Element username : root.getChildren()) {
-			if (username.getAttribute("name").getValue().equals(user)) {
-				return false;
-			}
-		}
+		if (!accounts.create(user, key))
+			return false;
 
-		Element newUser = new Element("User");
-		Attribute username = new Attribute("name", user);
-		Element newKey = new Element("Key");
-		newKey.setText(key);
-		newUser.addContent(newKey);
-		Element newElo = new Element("Elo");
-		newElo.setText(Integer.toString(BASE_ELO));
-		Element newWins = new Element("Wins");
-		newWins.setText("0");
-		Element newLosses = new Element("Losses");
-		newLosses.setText("0");
-		newUser.addContent(newElo);
-		newUser.addContent(newWins);
-		newUser.addContent(newLosses);
-		newUser.setAttribute(username);
-		root.addContent(newUser);
-
-		saveXML();
-
-		createLeaderboard();
+		leaderboard.update(user, BASE_ELO, 0, 0);
 
 		return true;
 	}
@@ -421,8 +362,9 @@ public class CentralServer implements Runnable, ActionListener {
 						}
 					}
 					
-					Thread inputThread = new Thread(new ReadIn(newServer));
-					inputThread.start();
+					// One thread per listed server, which can be a virtual
+					// thread since it spends its time waiting on readLine
+					Threads.start(new ReadIn(newServer), "Central server input " + IP);
 				} catch (IOException e) {
 					// TODO Auto-generated catch block
 					e.printStackTrace();
@@ -487,19 +429,23 @@ public class CentralServer implements Runnable, ActionListener {
 								send(out);
 							}
 							break;
+						// A game ended (E gameID winner numRed numBlue players...)
 						case 'E':
 							System.out.println("A Game ended");
 							tokens = command.split(" ");
-							int winner = Integer.parseInt(tokens[1]);
-							int rTeam = Integer.parseInt(tokens[2]);
-							int bTeam = Integer.parseInt(tokens[3]);
-							if (bTeam <= 0 || rTeam <= 0)
+							String gameID = tokens[1];
+							int winner = Integer.parseInt(tokens[2]);
+							int rTeam = Integer.parseInt(tokens[3]);
+							int bTeam = Integer.parseInt(tokens[4]);
+							if (bTeam <= 0 || rTeam <= 0) {
+								send("e " + gameID);
 								break;
+							}
 
 							GameResult[] red = new GameResult[rTeam];
 							GameResult[] blue = new GameResult[bTeam];
 
-							int index = 4;
+							int index = 5;
 							for (int i = 0; i < rTeam; i++) {
 								int len = Integer.parseInt(tokens[index++]);
 								String playerName = tokens[index++];
@@ -518,8 +464,7 @@ public class CentralServer implements Runnable, ActionListener {
 								int kills = Integer.parseInt(tokens[index++]);
 								blue[i] = new GameResult(playerName, kills);
 							}
-							updateRating(red, blue, winner);
-							createLeaderboard();
+							results.add(new GameResultQueue.Game(gameID, winner, red, blue, output));
 							break;
 						}
 					} catch (NullPointerException e) {
@@ -577,11 +522,10 @@ public class CentralServer implements Runnable, ActionListener {
 
 	// Do not use this method
 	public void resetPassowrd() {
-		for (Element username : root.getChildren()) {
-			String name = username.getAttribute("name").getValue();
-			String pass = username.getChild("Key").getValue().substring(name.length());
-			username.getChild("Key").setText(ClientAccountWindow.hash(name, pass));
+		for (Account account : accounts.getAccounts()) {
+			String name = account.getName();
+			String pass = account.getKey().substring(name.length());
+			accounts.setKey(name, ClientAccountWindow.hash(name, pass));
 		}
-		saveXML();
 	}
 }
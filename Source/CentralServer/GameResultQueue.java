@@ -0,0 +1,143 @@
+package CentralServer;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import Tools.Threads;
+
+/**
+ * The results of finished games, waiting to be rated. The connection threads
+ * just add results to the queue, and one consumer thread rates them in
+ * batches: it collects the results that arrive within a short window, rates
+ * them all, waits once for the accounts journal to be written and then tells
+ * each room server its result was recorded. Every result has a game ID from
+ * the room server, and a result whose game was already rated is only
+ * acknowledged again, so a room server can safely resend results it never
+ * got an acknowledgement for
+ * @author William Xu & Alex Raita
+ *
+ */
+public class GameResultQueue implements Runnable {
+
+	/**
+	 * How long (in milliseconds) to keep collecting results after the first
+	 * one in a batch arrives
+	 */
+	public final static int BATCH_WINDOW = 200;
+
+	/**
+	 * The most results rated in one batch
+	 */
+	public final static int MAX_BATCH = 64;
+
+	/**
+	 * A finished game
+	 */
+	public static class Game {
+		private final String gameID;
+		private final int winner;
+		private final GameResult[] red;
+		private final GameResult[] blue;
+		private final PrintWriter reply;
+
+		/**
+		 * Constructor for a finished game
+		 * @param gameID the ID the room server gave the game
+		 * @param winner the winning team
+		 * @param red the results of the red team's players
+		 * @param blue the results of the blue team's players
+		 * @param reply where to send the acknowledgement
+		 */
+		public Game(String gameID, int winner, GameResult[] red, GameResult[] blue, PrintWriter reply) {
+			this.gameID = gameID;
+			this.winner = winner;
+			this.red = red;
+			this.blue = blue;
+			this.reply = reply;
+		}
+	}
+
+	private final CentralServer centralServer;
+	private final AccountStore accounts;
+
+	private LinkedBlockingQueue<Game> games = new LinkedBlockingQueue<Game>();
+
+	// Statistics for the queue
+	private long batches = 0;
+	private long rated = 0;
+	private long duplicates = 0;
+
+	/**
+	 * Constructor for the queue, which starts the consumer
+	 * @param centralServer the central server (which rates the games)
+	 * @param accounts the accounts
+	 */
+	public GameResultQueue(CentralServer centralServer, AccountStore accounts) {
+		this.centralServer = centralServer;
+		this.accounts = accounts;
+		Threads.start(this, "Game results");
+	}
+
+	/**
+	 * Add a finished game to be rated
+	 * @param game the game
+	 */
+	public void add(Game game) {
+		games.add(game);
+	}
+
+	/**
+	 * Rate the games in batches
+	 */
+	public void run() {
+		ArrayList<Game> batch = new ArrayList<Game>();
+		while (true) {
+			try {
+				batch.add(games.take());
+				long end = System.currentTimeMillis() + BATCH_WINDOW;
+				long left;
+				while (batch.size() < MAX_BATCH && (left = end - System.currentTimeMillis()) > 0) {
+					Game next = games.poll(left, TimeUnit.MILLISECONDS);
+					if (next == null)
+						break;
+					batch.add(next);
+				}
+
+				for (Game game : batch) {
+					if (accounts.isRated(game.gameID)) {
+						duplicates++;
+						continue;
+					}
+					centralServer.updateRating(game.gameID, game.red, game.blue, game.winner);
+					rated++;
+				}
+
+				// Only acknowledge the results once they are on disk
+				accounts.flush();
+				for (Game game : batch) {
+					game.reply.println("e " + game.gameID);
+					game.reply.flush();
+				}
+				batches++;
+				System.out.println("Rated " + batch.size() + " game(s): " + getStatistics());
+			} catch (InterruptedException e) {
+				return;
+			} catch (RuntimeException e) {
+				System.out.println("Exception rating game results");
+				e.printStackTrace();
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Get a summary of the queue statistics
+	 * @return the summary
+	 */
+	public String getStatistics() {
+		return rated + " rated in " + batches + " batches, " + duplicates + " duplicates, " + games.size()
+				+ " waiting";
+	}
+}
@@ -0,0 +1,253 @@
+package CentralServer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * The players ordered by rating (highest first, then by name), kept in a
+ * treap where every node knows the size of its subtree. A player's entry is
+ * moved when their stats change instead of the whole leaderboard being
+ * rebuilt, and their rank can be found in O(log n). The leaderboard is sent
+ * to clients in pages that fit in one client packet, which are built once
+ * and kept until the leaderboard changes
+ * @author William Xu & Alex Raita
+ *
+ */
+public class LeaderboardIndex {
+
+	/**
+	 * The most bytes in one page (the size of the client's receive buffer)
+	 */
+	public final static int PAGE_BYTES = 1024;
+
+	/**
+	 * A player in the treap
+	 */
+	private static class Node {
+		private final String name;
+		private final int rating;
+		private final int wins;
+		private final int losses;
+		private final int priority;
+		private int size = 1;
+		private Node left;
+		private Node right;
+
+		private Node(String name, int rating, int wins, int losses, int priority) {
+			this.name = name;
+			this.rating = rating;
+			this.wins = wins;
+			this.losses = losses;
+			this.priority = priority;
+		}
+	}
+
+	private Node root;
+
+	/**
+	 * Each player's node, by name
+	 */
+	private HashMap<String, Node> nodes = new HashMap<String, Node>();
+
+	private Random random = new Random();
+
+	/**
+	 * The pages built since the leaderboard last changed, and the rank the
+	 * next page starts at
+	 */
+	private ArrayList<byte[]> pages = new ArrayList<byte[]>();
+	private int nextPageRank = 1;
+
+	/**
+	 * Add a player, or move them to their place for their new stats
+	 * @param name the player's name
+	 * @param rating the player's rating
+	 * @param wins the number of games won
+	 * @param losses the number of games lost
+	 */
+	public synchronized void update(String name, int rating, int wins, int losses) {
+		Node old = nodes.get(name);
+		if (old != null) {
+			if (old.rating == rating && old.wins == wins && old.losses == losses)
+				return;
+			root = remove(root, old);
+		}
+		Node node = new Node(name, rating, wins, losses, random.nextInt());
+		root = insert(root, node);
+		nodes.put(name, node);
+
+		pages.clear();
+		nextPageRank = 1;
+	}
+
+	/**
+	 * Get a player's place on the leaderboard
+	 * @param name the player's name
+	 * @return the rank (starting at 1), or -1 if the player isn't on it
+	 */
+	public synchronized int getRank(String name) {
+		Node node = nodes.get(name);
+		if (node == null)
+			return -1;
+		int rank = 0;
+		Node current = root;
+		while (current != null) {
+			int compare = compare(node, current);
+			if (compare < 0) {
+				current = current.left;
+			} else {
+				rank += size(current.left) + 1;
+				if (compare == 0)
+					return rank;
+				current = current.right;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get a page of the leaderboard, as sent to clients. Each player is
+	 * "words rating wins losses name", where words is the number of words in
+	 * the name
+	 * @param page the page (starting at 0)
+	 * @return the page, or an empty array if there are no players on it
+	 */
+	public synchronized byte[] getPage(int page) {
+		while (pages.size() <= page && nextPageRank <= size(root)) {
+			StringBuilder builder = new StringBuilder();
+			int length = 0;
+			while (nextPageRank <= size(root)) {
+				Node node = select(nextPageRank);
+				String entry = node.name.split(" ").length + " " + node.rating + " " + node.wins + " "
+						+ node.losses + " " + node.name;
+				int entryLength = entry.getBytes().length + (length == 0 ? 0 : 1);
+				if (length > 0 && length + entryLength > PAGE_BYTES)
+					break;
+				if (length > 0)
+					builder.append(' ');
+				builder.append(entry);
+				length += entryLength;
+				nextPageRank++;
+			}
+			pages.add(builder.toString().getBytes());
+		}
+		if (page < pages.size())
+			return pages.get(page);
+		return new byte[0];
+	}
+
+	public synchronized int size() {
+		return size(root);
+	}
+
+	/**
+	 * Get the player at a rank
+	 */
+	private Node select(int rank) {
+		Node current = root;
+		while (true) {
+			int leftSize = size(current.left);
+			if (rank <= leftSize) {
+				current = current.left;
+			} else if (rank == leftSize + 1) {
+				return current;
+			} else {
+				rank -= leftSize + 1;
+				current = current.right;
+			}
+		}
+	}
+
+	/**
+	 * Compare two players' places (negative if the first goes higher)
+	 */
+	private static int compare(Node first, Node second) {
+		if (first.rating != second.rating)
+			return second.rating > first.rating ? 1 : -1;
+		return first.name.compareTo(second.name);
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static void resize(Node node) {
+		node.size = size(node.left) + size(node.right) + 1;
+	}
+
+	/**
+	 * Insert a node into a subtree, rotating it up past nodes with lower
+	 * priorities
+	 * @return the new root of the subtree
+	 */
+	private static Node insert(Node subtree, Node node) {
+		if (subtree == null)
+			return node;
+		if (compare(node, subtree) < 0) {
+			subtree.left = insert(subtree.left, node);
+			if (subtree.left.priority > subtree.priority)
+				subtree = rotateRight(subtree);
+		} else {
+			subtree.right = insert(subtree.right, node);
+			if (subtree.right.priority > subtree.priority)
+				subtree = rotateLeft(subtree);
+		}
+		resize(subtree);
+		return subtree;
+	}
+
+	/**
+	 * Remove a node from a subtree
+	 * @return the new root of the subtree
+	 */
+	private static Node remove(Node subtree, Node node) {
+		if (subtree == null)
+			return null;
+		if (subtree == node)
+			return merge(subtree.left, subtree.right);
+		if (compare(node, subtree) < 0)
+			subtree.left = remove(subtree.left, node);
+		else
+			subtree.right = remove(subtree.right, node);
+		resize(subtree);
+		return subtree;
+	}
+
+	/**
+	 * Join two subtrees where everything in the first goes before everything
+	 * in the second
+	 */
+	private static Node merge(Node first, Node second) {
+		if (first == null)
+			return second;
+		if (second == null)
+			return first;
+		if (first.priority > second.priority) {
+			first.right = merge(first.right, second);
+			resize(first);
+			return first;
+		}
+		second.left = merge(first, second.left);
+		resize(second);
+		return second;
+	}
+
+	private static Node rotateRight(Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		resize(node);
+		resize(left);
+		return left;
+	}
+
+	private static Node rotateLeft(Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		resize(node);
+		resize(right);
+		return right;
+	}
+}
@@ -1,6 +1,9 @@
 package Client;
 
 import java.awt.Color;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
@@ -12,9 +15,12 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.ConcurrentModificationException;
+import java.util.concurrent.locks.LockSupport;
 import java.awt.Graphics;
 
 import javax.swing.BorderFactory;
@@ -23,6 +29,7 @@ import javax.swing.JLayeredPane;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.PlainDocument;
@@ -35,6 +42,9 @@ import Server.ServerWorld;
 import Server.Buildings.ServerCastle;
 import Server.Creatures.ServerCreature;
 import Server.Creatures.ServerPlayer;
+import Tools.MessageRing;
+import Tools.Snapshot;
+import Tools.SnapshotHistory;
 
 @SuppressWarnings("serial")
 /**
@@ -90,6 +100,12 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 	 */
 	private double playerY = 0;
 
+	/**
+	 * Guards the player's position and speed, which are moved by the render
+	 * loop, corrected by the server messages and changed by the keys
+	 */
+	private final Object playerLock = new Object();
+
 	/**
 	 * Stores the visible world of the client
 	 */
@@ -207,9 +223,41 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 	private ClientCastleShop castleShop = null;
 
 	/**
-	 * All the leftover lines to read in to the client
+	 * The most messages from the server waiting to be applied
+	 */
+	public final static int MESSAGE_CAPACITY = 4096;
+
+	/**
+	 * The longest time (in nanoseconds) the game thread waits for messages
+	 * before checking if the game is over
+	 */
+	public final static long MAX_READ_WAIT = 100000000;
+
+	/**
+	 * The refresh rate to draw at if the display's isn't known
+	 */
+	public final static int DEFAULT_REFRESH_RATE = 60;
+
+	/**
+	 * The messages from the server (already split into tokens, the first
+	 * being the time it was received) waiting to be applied to the game
+	 */
+	private MessageRing<String[]> messages = new MessageRing<String[]>(MESSAGE_CAPACITY);
+
+	/**
+	 * The most recent snapshots received from the server
 	 */
-	private ArrayList<String> lines = new ArrayList<String>();
+	private SnapshotHistory snapshots = new SnapshotHistory();
+
+	/**
+	 * The last snapshot applied to the world
+	 */
+	private Snapshot lastSnapshot = null;
+
+	/**
+	 * Works out the server tick to draw the other objects at
+	 */
+	private ClientInterpolation interpolation = new ClientInterpolation();
 
 	/**
 	 * The name of the player
@@ -364,6 +412,9 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 		gameThread = new Thread(new ReadServer());
 		gameThread.start();
 
+		gameThread = new Thread(new RenderLoop());
+		gameThread.start();
+
 		System.out.println("Game started");
 
 		direction = 'R';
@@ -412,8 +463,8 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 		@Override
 		public void run() {
 			while (!leaveGame) {
-				if (!lines.isEmpty()) {
-					String message = lines.remove(0);
+				String[] tokens = messages.poll();
+				if (tokens != null) {
 
 					// Update the FPS counter
 					if (FPScounter2 >= (1000.0 / ServerEngine.UPDATE_RATE + 0.5)) {
@@ -422,30 +473,14 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 
 					FPScounter2++;
 
-					if (message != null) {
+					if (tokens.length > 0) {
 						addPacketNo();
-						String[] tokens = message.split(" ");
 
 						for (int token = 1; token < tokens.length && !leaveGame; token++) {
 							if (tokens[token].equals(""))
 								continue;
 							try {
 								switch (tokens[token].charAt(0)) {
-								case 'L':
-									setHP(Integer.parseInt(tokens[++token]));
-									break;
-								case 'A':
-									armour = Double.parseDouble(tokens[++token]);
-									break;
-								case 'M':
-									maxHP = Integer.parseInt(tokens[++token]);
-									break;
-								case 'Q':
-									mana = Integer.parseInt(tokens[++token]);
-									break;
-								case 'K':
-									maxMana = Integer.parseInt(tokens[++token]);
-									break;
 								case 'B':
 									// End the game
 									leaveGame = true;
@@ -493,9 +528,13 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 									world.removeHologram();
 									break;
 								case 'p':
-									playerX = Double.parseDouble(tokens[++token]);
-									playerY = Double.parseDouble(tokens[++token]);
-									setPos((int) playerX, (int) playerY);
+									double newX = Double.parseDouble(tokens[++token]);
+									double newY = Double.parseDouble(tokens[++token]);
+									synchronized (playerLock) {
+										playerX = newX;
+										playerY = newY;
+										setPos((int) playerX, (int) playerY);
+									}
 									break;
 								case 'e':			
 									ClientObject object = world.get(toInt(tokens[++token]));
@@ -505,70 +544,19 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 									object.setY(player.getY());
 									break;
 								case '*':
-									hSpeed = Double.parseDouble(tokens[++token]);
-									vSpeed = Double.parseDouble(tokens[++token]);
-									break;
-								case 'O':
-									int id = toInt(tokens[++token]);
-									int x = toInt(tokens[++token]);
-									int y = toInt(tokens[++token]);
-									if (id == player.getID()) {
-										player.setTeam(Integer.parseInt(tokens[token + 3]));
-										inAction = tokens[++token].charAt(0) == '1';
-										if (inAction) {
-											onSurface = true;
-											isDropping = false;
-										}
-										else
-										{
-											if (hSpeed == 0)
-											{
-												if (moveHeld == 'R')
-												{
-													hSpeed = speed;
-												}
-												else if (moveHeld == 'L')
-												{
-													hSpeed = -speed;
-												}
-											}
-										}
-										x = player.getX();
-										y = player.getY();
-									}
-									if (tokens[token + 4].equals("{")) {
-										try {
-											world.setObject(id, x, y,
-													Images.getImageName(Integer.parseInt(tokens[++token])),
-													Integer.parseInt(tokens[++token]), tokens[++token], tokens[++token],
-													Integer.parseInt(tokens[++token]));
-										} catch (ArrayIndexOutOfBoundsException e) {
-											e.printStackTrace();
-										}
-									} else {
-										int len = 0;
-										try {
-											len = Integer.parseInt(tokens[token + 4]);
-										} catch (NumberFormatException E) {
-											System.out.println("Bug with {");
-											token += 4;
-											continue;
-										}
-										String name = "";
-										for (int i = 0; i < len; i++) {
-											name += tokens[token + 5 + i] + " ";
-										}
-										
-										world.setObject(id, x, y,
-												Images.getImageName(Integer.parseInt(tokens[++token])),
-												Integer.parseInt(tokens[++token]), tokens[++token], name.trim(),
-												Integer.parseInt(tokens[token + len + 2]));
-										token += len + 2;
+									double newHSpeed = Double.parseDouble(tokens[++token]);
+									double newVSpeed = Double.parseDouble(tokens[++token]);
+									synchronized (playerLock) {
+										hSpeed = newHSpeed;
+										vSpeed = newVSpeed;
 									}
 									break;
+								case 'Y':
+									applySnapshot(tokens[++token]);
+									break;
 								case 't':
-									world.setObject(new ClientText(toInt(tokens[++token]), toInt(tokens[++token]),
-											toInt(tokens[++token]), tokens[++token], ServerPlayer.NEUTRAL, world));
+									world.addText(new ClientText(toInt(tokens[++token]), toInt(tokens[++token]),
+											tokens[++token]));
 									break;
 								case 'P':
 									long calcPing = System.currentTimeMillis() - ping;
@@ -587,16 +575,6 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 											Integer.parseInt(tokens[++token]));
 									inventory.repaint();
 									break;
-								case 'D':
-									damage = Integer.parseInt(tokens[++token]);
-									baseDamage = Integer.parseInt(tokens[++token]);
-									break;
-								case 'S':
-									speed = Integer.parseInt(tokens[++token]);
-									break;
-								case 'J':
-									jump = Integer.parseInt(tokens[++token]);
-									break;
 								case 'a':
 									Audio.playAudio(Integer.parseInt(tokens[++token]),
 											(float) (Math.sqrt((toInt(tokens[++token]) - playerX)
@@ -660,9 +638,6 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 									if (castleShop != null)
 										closeCastleShop();
 									break;
-								case 'T':
-									world.setWorldTime(toInt(tokens[++token]));
-									break;
 								case 'i':
 									String type = tokens[++token];
 									inventory.removeThis(type);
@@ -746,26 +721,6 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 										name3 += tokens[++token] + " ";
 									chatQueue.add("RO " + name3.trim());
 									break;
-								case 'X':
-									redCastleHP = Math.max(Integer.parseInt(tokens[++token]),0);
-									redCastleTier = Integer.parseInt(tokens[++token]);
-									redCastleMoney = Integer.parseInt(tokens[++token]);
-									if (castleShop != null && player.getTeam() == ServerCreature.RED_TEAM)
-										castleShop.setMoney(redCastleMoney);
-									redCastleMaxHP = Integer.parseInt(tokens[++token]);
-									redCastleXP = toInt(tokens[++token]);
-									redCastleX =  toInt(tokens[++token]);
-									break;
-								case 'x':
-									blueCastleHP = Math.max(Integer.parseInt(tokens[++token]),0);
-									blueCastleTier = Integer.parseInt(tokens[++token]);
-									blueCastleMoney = Integer.parseInt(tokens[++token]);
-									if (castleShop != null && player.getTeam() == ServerCreature.BLUE_TEAM)
-										castleShop.setMoney(blueCastleMoney);
-									blueCastleMaxHP = Integer.parseInt(tokens[++token]);
-									blueCastleXP = toInt(tokens[++token]);
-									blueCastleX =  toInt(tokens[++token]);
-									break;
 								case 'b':
 									int weap = Integer.parseInt(tokens[++token]);
 									if (inventory.getEquippedWeapons()[weap] != null
@@ -773,14 +728,6 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 											.contains(ServerWorld.BUILDING_ITEM_TYPE))
 										inventory.removeItem(inventory.getEquippedWeapons()[weap], weap);
 									break;
-								case 'w':
-									redPop = Integer.parseInt(tokens[++token]);
-									redPopLimit = Integer.parseInt(tokens[++token]);
-									break;
-								case 'u':
-									bluePop = Integer.parseInt(tokens[++token]);
-									bluePopLimit = Integer.parseInt(tokens[++token]);
-									break;
 								case 'r':
 									respawnTime = 5 - Integer.parseInt(tokens[++token]) / 60;
 									break;
@@ -796,7 +743,7 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 								}
 
 							} catch (NumberFormatException e) {
-								System.out.println(message);
+								System.out.println(String.join(" ", tokens));
 								e.printStackTrace();
 								break;
 							} catch (Exception e) {
@@ -808,29 +755,222 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 					}
 				}
 
-				if (System.nanoTime() - startPaint > 15000000) {
-					clientUpdatePlayer(System.nanoTime() - startPaint);
-					startPaint = System.nanoTime();
-					repaint();
+				// Wait for the next message once they have all been applied
+				if (tokens == null) {
+					messages.await(MAX_READ_WAIT);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Thread that draws the game once every refresh of the display. Each
+	 * frame is painted right away (and waited for) on the event thread
+	 * instead of being requested with repaint(), so frames never queue up
+	 * behind the messages from the server
+	 * 
+	 * @author William Xu && Alex Raita
+	 *
+	 */
+	class RenderLoop implements Runnable {
+		@Override
+		public void run() {
+			Runnable paintFrame = new Runnable() {
+				public void run() {
+					paintImmediately(0, 0, getWidth(), getHeight());
 				}
+			};
+
+			long framePeriod = getFramePeriod();
+			long nextFrame = System.nanoTime();
+			while (!leaveGame) {
+				long now = System.nanoTime();
+				clientUpdatePlayer(now - startPaint);
+				startPaint = now;
 
 				try {
-					Thread.sleep(1);
-				} catch (InterruptedException e) {
+					SwingUtilities.invokeAndWait(paintFrame);
+				} catch (InvocationTargetException e) {
 					e.printStackTrace();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				// Wait for the next frame, or start again from now if the
+				// frames have fallen behind
+				nextFrame += framePeriod;
+				long wait = nextFrame - System.nanoTime();
+				if (wait > 0) {
+					LockSupport.parkNanos(wait);
+				} else if (wait < -framePeriod) {
+					nextFrame = System.nanoTime();
 				}
 			}
 		}
 	}
 
+	/**
+	 * Get the time between frames (in nanoseconds) from the display's refresh
+	 * rate
+	 */
+	private static long getFramePeriod() {
+		int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+		try {
+			refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode()
+					.getRefreshRate();
+		} catch (HeadlessException e) {
+			e.printStackTrace();
+		}
+		if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+			refreshRate = DEFAULT_REFRESH_RATE;
+		}
+		return 1000000000L / refreshRate;
+	}
+
+	/**
+	 * Decode a snapshot from the server and update the objects and stats
+	 * with it
+	 * 
+	 * @param encoded
+	 *            the snapshot in base 64
+	 */
+	private void applySnapshot(String encoded) {
+		byte[] data = Base64.getDecoder().decode(encoded);
+
+		Snapshot baseline = null;
+		int baselineSequence = Snapshot.readBaselineSequence(data);
+		if (baselineSequence != Snapshot.NO_BASELINE) {
+			baseline = snapshots.get(baselineSequence);
+			if (baseline == null) {
+				// We don't have the snapshot the server is comparing
+				// against, so ask for a full one
+				printToServer("k " + Snapshot.NO_BASELINE);
+				return;
+			}
+		}
+
+		Snapshot snapshot = snapshots.next(Snapshot.readSequence(data));
+		snapshot.decode(data, baseline);
+		printToServer("k " + snapshot.getSequence());
+		interpolation.addSnapshot(snapshot.getTick(), System.nanoTime());
+
+		// Remove the objects that are no longer in the snapshot
+		if (lastSnapshot != null) {
+			for (int index = 0; index < lastSnapshot.size(); index++) {
+				if (!snapshot.contains(lastSnapshot.getID(index))) {
+					world.remove(lastSnapshot.getID(index));
+				}
+			}
+		}
+		lastSnapshot = snapshot;
+
+		for (int index = 0; index < snapshot.size(); index++) {
+			int id = snapshot.getID(index);
+			int x = snapshot.getX(index);
+			int y = snapshot.getY(index);
+			if (id == player.getID()) {
+				player.setTeam(snapshot.getTeam(index));
+				synchronized (playerLock) {
+					inAction = (snapshot.getFlags(index) & Snapshot.FLAG_IN_ACTION) != 0;
+					if (inAction) {
+						onSurface = true;
+						isDropping = false;
+					}
+					else
+					{
+						if (hSpeed == 0)
+						{
+							if (moveHeld == 'R')
+							{
+								hSpeed = speed;
+							}
+							else if (moveHeld == 'L')
+							{
+								hSpeed = -speed;
+							}
+						}
+					}
+					x = player.getX();
+					y = player.getY();
+				}
+			}
+
+			// Objects without a name are sent with an empty name
+			String name = snapshot.getName(index);
+			if (name.isEmpty()) {
+				name = "{";
+			}
+			world.setObject(id, x, y, Images.getImageName(snapshot.getImage(index)),
+					snapshot.getTeam(index), snapshot.getType(index), name, snapshot.getHP(index), snapshot.getTick(),
+					(snapshot.getFlags(index) & Snapshot.FLAG_ATTACHED) != 0);
+		}
+
+		setHP(snapshot.getStat(Snapshot.HP));
+		maxHP = snapshot.getStat(Snapshot.MAX_HP);
+		mana = snapshot.getStat(Snapshot.MANA);
+		maxMana = snapshot.getStat(Snapshot.MAX_MANA);
+		speed = snapshot.getStat(Snapshot.SPEED);
+		jump = snapshot.getStat(Snapshot.JUMP);
+		armour = snapshot.getStat(Snapshot.ARMOUR) / 100.0;
+		damage = snapshot.getStat(Snapshot.DAMAGE);
+		baseDamage = snapshot.getStat(Snapshot.BASE_DAMAGE);
+		world.setWorldTime(snapshot.getStat(Snapshot.WORLD_TIME));
+
+		redCastleHP = Math.max(snapshot.getStat(Snapshot.RED_HP), 0);
+		redCastleTier = snapshot.getStat(Snapshot.RED_TIER);
+		redCastleMoney = snapshot.getStat(Snapshot.RED_MONEY);
+		if (castleShop != null && player.getTeam() == ServerCreature.RED_TEAM)
+			castleShop.setMoney(redCastleMoney);
+		redCastleMaxHP = snapshot.getStat(Snapshot.RED_MAX_HP);
+		redCastleXP = snapshot.getStat(Snapshot.RED_XP);
+		redCastleX = snapshot.getStat(Snapshot.RED_X);
+		redPop = snapshot.getStat(Snapshot.RED_POP);
+		redPopLimit = snapshot.getStat(Snapshot.RED_POP_LIMIT);
+
+		blueCastleHP = Math.max(snapshot.getStat(Snapshot.BLUE_HP), 0);
+		blueCastleTier = snapshot.getStat(Snapshot.BLUE_TIER);
+		blueCastleMoney = snapshot.getStat(Snapshot.BLUE_MONEY);
+		if (castleShop != null && player.getTeam() == ServerCreature.BLUE_TEAM)
+			castleShop.setMoney(blueCastleMoney);
+		blueCastleMaxHP = snapshot.getStat(Snapshot.BLUE_MAX_HP);
+		blueCastleXP = snapshot.getStat(Snapshot.BLUE_XP);
+		blueCastleX = snapshot.getStat(Snapshot.BLUE_X);
+		bluePop = snapshot.getStat(Snapshot.BLUE_POP);
+		bluePopLimit = snapshot.getStat(Snapshot.BLUE_POP_LIMIT);
+	}
+
 	/**
 	 * Move the player on the client side if the server side hasn't yet
-	 * responded
+	 * responded, and send the server where the player is now
 	 */
 	public void clientUpdatePlayer(long timeForTick) {
 		if (startPaint == 0) {
 			return;
 		}
+		String position;
+		String movement;
+		synchronized (playerLock) {
+			movePlayer(timeForTick);
+
+			char surface = '0';
+			if (onSurface) {
+				surface = '1';
+			}
+			position = "p " + playerX + " " + playerY;
+			movement = "& " + hSpeed + " " + vSpeed + " " + surface;
+		}
+
+		// Sent outside the lock so a slow connection doesn't hold up the
+		// server messages
+		printToServer(position);
+		printToServer(movement);
+	}
+
+	/**
+	 * Move the player by its speed and gravity for the time since the last
+	 * frame (while holding playerLock)
+	 */
+	private void movePlayer(long timeForTick) {
 		double currHSpeed = 0;
 		double currVSpeed = 0;
 		
@@ -1050,13 +1190,6 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 		}
 
 		setPos((int) playerX, (int) playerY);
-		printToServer("p " + playerX + " " + playerY);
-
-		char surface = '0';
-		if (onSurface) {
-			surface = '1';
-		}
-		printToServer("& " + hSpeed + " " + vSpeed + " " + surface);
 	}
 
 	public void setPos(int x, int y) {
@@ -1077,9 +1210,14 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 				startTime = System.currentTimeMillis();
 
 				while (!leaveGame) {
-					String message = System.currentTimeMillis() + " " + input.readLine();
+					String message = input.readLine();
+					if (message == null) {
+						throw new IOException("The server closed the connection");
+					}
 
-					lines.add(message);
+					// Split the message here, so the game thread only has to
+					// apply it
+					messages.put((System.currentTimeMillis() + " " + message).split(" "));
 
 					// Update the ping after half a second
 					if (startTimer >= 0 && System.currentTimeMillis() - startTimer >= 500) {
@@ -1092,12 +1230,6 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 						// currentFPS2 + " /// noOfLines: " + lines.size() +"
 						// /// noOfObjects: " + world.getNoOfObjects());
 					}
-
-					try {
-						Thread.sleep(1);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
 				}
 
 			} catch (NumberFormatException e1) {
@@ -1456,8 +1588,10 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 				// R for right
 				currentMessage = "R";
 				printToServer(currentMessage);
-				hSpeed = speed;
-				moveHeld = 'R';
+				synchronized (playerLock) {
+					hSpeed = speed;
+					moveHeld = 'R';
+				}
 			}
 			break;
 		case KeyEvent.VK_A:
@@ -1465,8 +1599,10 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 				// L for left
 				currentMessage = "L";
 				printToServer(currentMessage);
-				hSpeed = -speed;
-				moveHeld = 'L';
+				synchronized (playerLock) {
+					hSpeed = -speed;
+					moveHeld = 'L';
+				}
 			}
 			break;
 		case KeyEvent.VK_SPACE:
@@ -1475,9 +1611,11 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 				// U for up
 				currentMessage = "U";
 				printToServer(currentMessage);
-				if (onSurface) {
-					vSpeed = -jump;
-					onSurface = false;
+				synchronized (playerLock) {
+					if (onSurface) {
+						vSpeed = -jump;
+						onSurface = false;
+					}
 				}
 			}
 			break;
@@ -1556,8 +1694,10 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 		case KeyEvent.VK_D:
 			if (!currentMessage.equals("r")) {
 				currentMessage = "r";
-				if (hSpeed > 0) {
-					hSpeed = 0;
+				synchronized (playerLock) {
+					if (hSpeed > 0) {
+						hSpeed = 0;
+					}
 				}
 			}
 			moveHeld = 0;
@@ -1565,8 +1705,10 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 		case KeyEvent.VK_A:
 			if (!currentMessage.equals("l")) {
 				currentMessage = "l";
-				if (hSpeed < 0) {
-					hSpeed = 0;
+				synchronized (playerLock) {
+					if (hSpeed < 0) {
+						hSpeed = 0;
+					}
 				}
 			}
 			moveHeld = 0;
@@ -1602,8 +1744,10 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 			// A for action
 			currentMessage = "A " + event.getX() + " " + event.getY() + " t";
 			printToServer(currentMessage);
-			inAction = true;
-			this.hSpeed = 0;
+			synchronized (playerLock) {
+				inAction = true;
+				this.hSpeed = 0;
+			}
 			// System.out.println("Pressed");
 		} else if (event.getButton() == MouseEvent.BUTTON3 && currentMessage.charAt(0) != 'a') {
 			// A for action
@@ -1996,12 +2140,8 @@ public class Client extends JPanel implements KeyListener, MouseListener, Action
 		this.frame = frame;
 	}
 
-	public ArrayList<String> getLines() {
-		return lines;
-	}
-
-	public void setLines(ArrayList<String> lines) {
-		this.lines = lines;
+	public ClientInterpolation getInterpolation() {
+		return interpolation;
 	}
 
 	public String getPlayerName() {
@@ -0,0 +1,87 @@
+package Client;
+
+import Server.ServerEngine;
+
+/**
+ * Works out which server tick to draw the other objects at. Each snapshot
+ * from the server is stamped with the tick it was taken on, and the time it
+ * arrives gives an estimate of when the server was on that tick. Objects are
+ * drawn a short delay behind the newest tick, so there is almost always a
+ * position from the server on both sides of the time being drawn and
+ * objects move smoothly between them (see ClientObject), even when
+ * snapshots arrive unevenly or only every few ticks
+ * 
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ClientInterpolation {
+
+	/**
+	 * The default delay (in milliseconds) objects are drawn behind the server
+	 */
+	public final static int DEFAULT_DELAY = 100;
+
+	/**
+	 * The delay (in milliseconds) objects are drawn behind the server (run
+	 * with -DinterpolationDelay=... to change it)
+	 */
+	public final static int DELAY = Integer.getInteger("interpolationDelay", DEFAULT_DELAY);
+
+	/**
+	 * The length of a server tick in nanoseconds
+	 */
+	public final static long TICK_NANOS = ServerEngine.UPDATE_RATE * 1000000L;
+
+	/**
+	 * How quickly the estimate follows snapshots arriving later than
+	 * expected (snapshots arriving earlier are followed right away)
+	 */
+	public final static double DRIFT = 0.02;
+
+	/**
+	 * The local time (in nanoseconds) the server was on tick 0, estimated
+	 * from the earliest arriving snapshots
+	 */
+	private double tickZeroTime;
+
+	/**
+	 * Whether or not a snapshot has arrived yet
+	 */
+	private boolean started = false;
+
+	/**
+	 * Add a snapshot's tick and the time it arrived
+	 * 
+	 * @param tick
+	 *            the server tick of the snapshot
+	 * @param arrivalTime
+	 *            the time it arrived (from System.nanoTime)
+	 */
+	public synchronized void addSnapshot(int tick, long arrivalTime) {
+		double sample = arrivalTime - tick * (double) TICK_NANOS;
+
+		// The earliest snapshots had the least delay, the rest are covered by
+		// the interpolation delay. Later snapshots are still followed slowly
+		// in case the server is running behind
+		if (!started || sample < tickZeroTime) {
+			tickZeroTime = sample;
+			started = true;
+		} else {
+			tickZeroTime += (sample - tickZeroTime) * DRIFT;
+		}
+	}
+
+	/**
+	 * Get the tick to draw the objects at
+	 * 
+	 * @param time
+	 *            the current time (from System.nanoTime)
+	 * @return the tick (between ticks), or -1 if no snapshots have arrived
+	 */
+	public synchronized double getRenderTick(long time) {
+		if (!started) {
+			return -1;
+		}
+		return (time - tickZeroTime - DELAY * 1000000.0) / TICK_NANOS;
+	}
+}
@@ -14,6 +14,24 @@ import Server.ServerWorld;
 public class ClientObject implements Comparable<ClientObject>
 {
 
+	/**
+	 * The number of positions from the server kept for drawing the object
+	 * between them
+	 */
+	public final static int NO_OF_POSITIONS = 16;
+
+	/**
+	 * The most ticks an object keeps moving past its newest position when the
+	 * next one is late
+	 */
+	public final static int MAX_EXTRAPOLATION = 10;
+
+	/**
+	 * Moving faster than this (pixels per tick) between two positions is
+	 * treated as a jump (like respawning), which is not drawn in between
+	 */
+	public final static int MAX_SPEED = ServerWorld.TILE_SIZE * 2;
+
 	/**
 	 * The team of the object Objects with neutral teams won't have number
 	 * displayed above them
@@ -30,11 +48,37 @@ public class ClientObject implements Comparable<ClientObject>
 	 */
 	private int y;
 
+	/**
+	 * The latest positions from the server (oldest first) and the ticks they
+	 * were for
+	 */
+	private int[] positionTicks = new int[NO_OF_POSITIONS];
+	private int[] positionXs = new int[NO_OF_POSITIONS];
+	private int[] positionYs = new int[NO_OF_POSITIONS];
+	private int noOfPositions = 0;
+
+	/**
+	 * Where the object is drawn this frame
+	 */
+	private int drawX;
+	private int drawY;
+
+	/**
+	 * Whether the object is attached to the player (its weapon swings and
+	 * held weapon), which is drawn at its newest position like the player
+	 */
+	private boolean attached = false;
+
 	/**
 	 * The image of the object to draw
 	 */
 	private Image image;
 
+	/**
+	 * The game image of the object (drawn from its sheet)
+	 */
+	private GameImage gameImage;
+
 	/**
 	 * The name of the image of the object to draw
 	 */
@@ -102,6 +146,7 @@ public class ClientObject implements Comparable<ClientObject>
 			{
 				GameImage gameImage = Images.getGameImage(image);
 				this.image = gameImage.getImage();
+				this.gameImage = gameImage;
 				height = gameImage.getHeight();
 				width = gameImage.getWidth();
 			}
@@ -155,6 +200,7 @@ public class ClientObject implements Comparable<ClientObject>
 		{
 			GameImage gameImage = Images.getGameImage(image);
 			this.image = gameImage.getImage();
+			this.gameImage = gameImage;
 			height = gameImage.getHeight();
 			width = gameImage.getWidth();
 		}
@@ -207,6 +253,7 @@ public class ClientObject implements Comparable<ClientObject>
 		{
 			GameImage gameImage = Images.getGameImage(image);
 			this.image = gameImage.getImage();
+			this.gameImage = gameImage;
 			height = gameImage.getHeight();
 			width = gameImage.getWidth();
 		}
@@ -248,6 +295,11 @@ public class ClientObject implements Comparable<ClientObject>
 		return image;
 	}
 
+	public GameImage getGameImage()
+	{
+		return gameImage;
+	}
+
 	/**
 	 * Change the image of the object
 	 * 
@@ -265,6 +317,7 @@ public class ClientObject implements Comparable<ClientObject>
 				GameImage gameImage = Images.getGameImage(image);
 				try{
 				this.image = gameImage.getImage();
+				this.gameImage = gameImage;
 				}
 				catch(NullPointerException e)
 				{
@@ -308,9 +361,10 @@ public class ClientObject implements Comparable<ClientObject>
 		return x;
 	}
 
-	public void setX(int x)
+	public synchronized void setX(int x)
 	{
 		this.x = x;
+		noOfPositions = 0;
 	}
 
 	public int getY()
@@ -318,9 +372,129 @@ public class ClientObject implements Comparable<ClientObject>
 		return y;
 	}
 
-	public void setY(int y)
+	public synchronized void setY(int y)
 	{
 		this.y = y;
+		noOfPositions = 0;
+	}
+
+	/**
+	 * Move the object to a position from the server, keeping the older
+	 * positions to draw it between them
+	 * 
+	 * @param tick
+	 *            the server tick of the position
+	 * @param x
+	 * @param y
+	 */
+	public synchronized void addPosition(int tick, int x, int y)
+	{
+		this.x = x;
+		this.y = y;
+
+		if (noOfPositions > 0 && tick <= positionTicks[noOfPositions - 1])
+		{
+			if (tick < positionTicks[noOfPositions - 1])
+			{
+				// The server's ticks started again
+				noOfPositions = 0;
+			}
+			else
+			{
+				noOfPositions--;
+			}
+		}
+		else if (noOfPositions == NO_OF_POSITIONS)
+		{
+			System.arraycopy(positionTicks, 1, positionTicks, 0, NO_OF_POSITIONS - 1);
+			System.arraycopy(positionXs, 1, positionXs, 0, NO_OF_POSITIONS - 1);
+			System.arraycopy(positionYs, 1, positionYs, 0, NO_OF_POSITIONS - 1);
+			noOfPositions--;
+		}
+		positionTicks[noOfPositions] = tick;
+		positionXs[noOfPositions] = x;
+		positionYs[noOfPositions] = y;
+		noOfPositions++;
+	}
+
+	/**
+	 * Work out where to draw the object for a server tick: between the two
+	 * positions around it, past the newest position (for a while) if the
+	 * tick is after it, or at its current position if it has no positions
+	 * from the server or is attached to the player
+	 * 
+	 * @param renderTick
+	 *            the tick to draw (see ClientInterpolation)
+	 */
+	public synchronized void updateDrawPosition(double renderTick)
+	{
+		drawX = x;
+		drawY = y;
+		if (noOfPositions == 0 || renderTick < 0 || attached)
+		{
+			return;
+		}
+
+		int newest = noOfPositions - 1;
+		if (renderTick >= positionTicks[newest])
+		{
+			// The next position is late, so keep moving the same way
+			if (newest > 0 && !isJump(newest - 1, newest))
+			{
+				double ticks = Math.min(renderTick - positionTicks[newest], MAX_EXTRAPOLATION)
+						/ (positionTicks[newest] - positionTicks[newest - 1]);
+				drawX = (int) Math.round(positionXs[newest] + (positionXs[newest] - positionXs[newest - 1])
+						* ticks);
+				drawY = (int) Math.round(positionYs[newest] + (positionYs[newest] - positionYs[newest - 1])
+						* ticks);
+			}
+			return;
+		}
+		if (renderTick <= positionTicks[0])
+		{
+			drawX = positionXs[0];
+			drawY = positionYs[0];
+			return;
+		}
+
+		int next = 1;
+		while (positionTicks[next] <= renderTick)
+		{
+			next++;
+		}
+		int previous = next - 1;
+		if (isJump(previous, next))
+		{
+			drawX = positionXs[previous];
+			drawY = positionYs[previous];
+		}
+		else
+		{
+			double fraction = (renderTick - positionTicks[previous])
+					/ (positionTicks[next] - positionTicks[previous]);
+			drawX = (int) Math.round(positionXs[previous] + (positionXs[next] - positionXs[previous]) * fraction);
+			drawY = (int) Math.round(positionYs[previous] + (positionYs[next] - positionYs[previous]) * fraction);
+		}
+	}
+
+	/**
+	 * Check if the object jumped between two of its positions instead of
+	 * moving
+	 */
+	private boolean isJump(int first, int second)
+	{
+		return Math.abs(positionXs[second] - positionXs[first]) + Math.abs(positionYs[second] - positionYs[first])
+				> MAX_SPEED * (positionTicks[second] - positionTicks[first]);
+	}
+
+	public synchronized int getDrawX()
+	{
+		return drawX;
+	}
+
+	public synchronized int getDrawY()
+	{
+		return drawY;
 	}
 
 	public int getHeight()
@@ -398,5 +572,10 @@ public class ClientObject implements Comparable<ClientObject>
 	{
 		this.hp = hp;
 	}
+
+	public synchronized void setAttached(boolean attached)
+	{
+		this.attached = attached;
+	}
 	
 }
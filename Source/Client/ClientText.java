@@ -4,6 +4,7 @@ import java.awt.Color;
 
 import Imports.Images;
 import Server.ServerWorld;
+import Server.Creatures.ServerPlayer;
 import Server.Effects.ServerText;
 
 public class ClientText extends ClientObject
@@ -40,11 +41,6 @@ public class ClientText extends ClientObject
 	 */
 	private String text;
 
-	/**
-	 * Reference to the world
-	 */
-	private ClientWorld world;
-
 	/**
 	 * Whether or not the object exists
 	 */
@@ -56,20 +52,18 @@ public class ClientText extends ClientObject
 	private Color[] colorArray;
 
 	/**
+	 * Constructor for a piece of floating text. It is not a server object so
+	 * it has no ID
 	 * 
-	 * @param id
 	 * @param x
 	 * @param y
-	 * @param image
-	 * @param team
-	 * @param type
+	 * @param image the colour of the text followed by the text
 	 */
-	public ClientText(int id, int x, int y, String image, int team, ClientWorld world)
+	public ClientText(int x, int y, String image)
 	{
-		super(id, x, y, image, team, ServerWorld.TEXT_TYPE + "");
+		super(-1, x, y, image, ServerPlayer.NEUTRAL, ServerWorld.TEXT_TYPE + "");
 		this.exists = true;
 		this.y = y;
-		this.world = world;
 		char colour = image.charAt(0);
 		this.text = image.substring(1).replace('_', ' ');
 		
@@ -123,7 +117,6 @@ public class ClientText extends ClientObject
 		{
 			if (aliveTime-- <= 0)
 			{
-				world.addToRemove(this);
 				destroy();
 				return;
 			}
@@ -0,0 +1,190 @@
+package Client;
+
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import Imports.ImageAtlas;
+import Imports.ImageReferencePair;
+import Server.ServerWorld;
+
+/**
+ * A layer of tiles (the background or the foreground) drawn in chunks. The
+ * tiles never change during a game, so each chunk of tiles is drawn once into
+ * an image the first time it is on the screen, and after that the chunk image
+ * is drawn instead of every tile in it. Only the most recently drawn chunks
+ * are kept, so big maps don't keep every chunk in memory
+ * 
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ClientTileLayer {
+
+	/**
+	 * The number of tiles across (and down) a chunk
+	 */
+	public final static int CHUNK_TILES = 32;
+
+	/**
+	 * The width and height of a chunk in pixels
+	 */
+	public final static int CHUNK_SIZE = CHUNK_TILES * ServerWorld.TILE_SIZE;
+
+	/**
+	 * The most chunk images kept at once
+	 */
+	public final static int MAX_CHUNKS = 24;
+
+	/**
+	 * The tiles in the layer (' ' for no tile)
+	 */
+	private char[][] grid;
+
+	/**
+	 * The number of rows and columns of tiles before a chunk that can still
+	 * be seen in it (tile images bigger than a tile hang over to the right
+	 * and down)
+	 */
+	private int overhangRows;
+	private int overhangColumns;
+
+	private int chunkRows;
+	private int chunkColumns;
+
+	/**
+	 * The chunks without any tiles in them, which are never drawn
+	 */
+	private boolean[][] emptyChunks;
+
+	/**
+	 * The chunk images by chunk number (row * chunkColumns + column), least
+	 * recently drawn first
+	 */
+	private LinkedHashMap<Integer, BufferedImage> chunks;
+
+	/**
+	 * Constructor for a tile layer
+	 * 
+	 * @param grid
+	 *            the tiles in the layer
+	 */
+	public ClientTileLayer(char[][] grid) {
+		this.grid = grid;
+
+		// Find how far the tile images hang over
+		int maxWidth = ServerWorld.TILE_SIZE;
+		int maxHeight = ServerWorld.TILE_SIZE;
+		for (int row = 0; row < grid.length; row++) {
+			for (int column = 0; column < grid[0].length; column++) {
+				Image image = getTileImage(row, column);
+				if (image != null) {
+					maxWidth = Math.max(maxWidth, image.getWidth(null));
+					maxHeight = Math.max(maxHeight, image.getHeight(null));
+				}
+			}
+		}
+		overhangColumns = (maxWidth - 1) / ServerWorld.TILE_SIZE;
+		overhangRows = (maxHeight - 1) / ServerWorld.TILE_SIZE;
+
+		chunkRows = (grid.length + overhangRows) / CHUNK_TILES + 1;
+		chunkColumns = (grid[0].length + overhangColumns) / CHUNK_TILES + 1;
+		emptyChunks = new boolean[chunkRows][chunkColumns];
+
+		chunks = new LinkedHashMap<Integer, BufferedImage>(MAX_CHUNKS * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+				if (size() > MAX_CHUNKS) {
+					eldest.getValue().flush();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Draw the part of the layer on the screen
+	 * 
+	 * @param graphics
+	 * @param left
+	 *            the x coordinate in the world at the left of the screen
+	 * @param top
+	 *            the y coordinate in the world at the top of the screen
+	 */
+	public void draw(Graphics graphics, int left, int top) {
+		int startRow = Math.max(0, Math.floorDiv(top, CHUNK_SIZE));
+		int endRow = Math.min(chunkRows - 1, Math.floorDiv(top + Client.SCREEN_HEIGHT, CHUNK_SIZE));
+		int startColumn = Math.max(0, Math.floorDiv(left, CHUNK_SIZE));
+		int endColumn = Math.min(chunkColumns - 1, Math.floorDiv(left + Client.SCREEN_WIDTH, CHUNK_SIZE));
+
+		for (int row = startRow; row <= endRow; row++) {
+			for (int column = startColumn; column <= endColumn; column++) {
+				if (emptyChunks[row][column]) {
+					continue;
+				}
+				BufferedImage chunk = chunks.get(row * chunkColumns + column);
+				if (chunk == null) {
+					chunk = createChunk(row, column);
+					if (chunk == null) {
+						emptyChunks[row][column] = true;
+						continue;
+					}
+					chunks.put(row * chunkColumns + column, chunk);
+				}
+				graphics.drawImage(chunk, column * CHUNK_SIZE - left, row * CHUNK_SIZE - top, null);
+			}
+		}
+	}
+
+	/**
+	 * Draw the tiles in a chunk into a new image, in the same order they
+	 * would be drawn on the screen
+	 * 
+	 * @return the image, or null if there are no tiles in the chunk
+	 */
+	private BufferedImage createChunk(int chunkRow, int chunkColumn) {
+		int firstRow = chunkRow * CHUNK_TILES;
+		int firstColumn = chunkColumn * CHUNK_TILES;
+
+		BufferedImage chunk = null;
+		Graphics graphics = null;
+		for (int row = Math.max(0, firstRow - overhangRows); row < Math.min(grid.length,
+				firstRow + CHUNK_TILES); row++) {
+			for (int column = Math.max(0, firstColumn - overhangColumns); column < Math.min(grid[0].length,
+					firstColumn + CHUNK_TILES); column++) {
+				if (getTileImage(row, column) == null) {
+					continue;
+				}
+				if (chunk == null) {
+					chunk = ImageAtlas.createSheet(CHUNK_SIZE, CHUNK_SIZE);
+					graphics = chunk.createGraphics();
+				}
+				ImageReferencePair.getImages()[grid[row][column]].draw(graphics,
+						(column - firstColumn) * ServerWorld.TILE_SIZE, (row - firstRow) * ServerWorld.TILE_SIZE);
+			}
+		}
+		if (graphics != null) {
+			graphics.dispose();
+		}
+		return chunk;
+	}
+
+	/**
+	 * Get the image of a tile
+	 * 
+	 * @return the image, or null if there is no tile there
+	 */
+	private Image getTileImage(int row, int column) {
+		if (grid[row][column] == ' ') {
+			return null;
+		}
+		ImageReferencePair tile = ImageReferencePair.getImages()[grid[row][column]];
+		if (tile == null) {
+			return null;
+		}
+		return tile.getImage();
+	}
+}
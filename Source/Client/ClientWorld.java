@@ -35,6 +35,12 @@ public class ClientWorld {
 	 */
 	private char[][] foregroundGrid;
 
+	/**
+	 * The background and foreground tiles, drawn in chunks
+	 */
+	private ClientTileLayer backgroundLayer;
+	private ClientTileLayer foregroundLayer;
+
 	/**
 	 * The grid of solid tiles and platforms
 	 */
@@ -46,13 +52,37 @@ public class ClientWorld {
 	 */
 	private ClientObject[] objects = new ClientObject[ServerEngine.NUMBER_OF_IDS];
 
+	/**
+	 * The objects in the world, packed together and sorted by ID (which is
+	 * the order they are drawn in, so buildings are drawn behind everything
+	 * else). Drawing goes through these instead of every possible ID
+	 */
+	private ClientObject[] liveObjects = new ClientObject[256];
+
+	/**
+	 * A copy of the live objects made at the start of each frame, so the
+	 * objects can be drawn while the network thread adds and removes them
+	 */
+	private ClientObject[] drawnObjects = new ClientObject[256];
+
+	/**
+	 * Guards the objects and the live objects
+	 */
+	private final Object objectsLock = new Object();
+
 	/**
 	 * List of objects to remove
 	 */
 	private ArrayList<ClientObject> objectsToRemove = new ArrayList<ClientObject>();
 
 	/**
-	 * Number of objects in the client
+	 * The floating text on the screen (it isn't part of the objects since it
+	 * isn't a server object)
+	 */
+	private ArrayList<ClientText> texts = new ArrayList<ClientText>();
+
+	/**
+	 * Number of objects in the client (the number of live objects)
 	 */
 	private int noOfObjects;
 
@@ -554,6 +584,8 @@ public class ClientWorld {
 
 		// Import tile drawing referenes
 		ImageReferencePair.importReferences();
+		backgroundLayer = new ClientTileLayer(backgroundGrid);
+		foregroundLayer = new ClientTileLayer(foregroundGrid);
 
 		backgroundChoice = (int) (Math.random() * 2);
 		if (backgroundChoice == 1) {
@@ -703,9 +735,14 @@ public class ClientWorld {
 	 *            the object to add
 	 * @param hp
 	 *            the hp out of 100
+	 * @param tick
+	 *            the server tick the position is for
+	 * @param attached
+	 *            whether the object is attached to the player
 	 */
-	public void setObject(int id, int x, int y, String image, int team, String type, String name, int hp) {
-		synchronized (objects)
+	public void setObject(int id, int x, int y, String image, int team, String type, String name, int hp, int tick,
+			boolean attached) {
+		synchronized (objectsLock)
 		{
 			try {
 				if (objects[id] == null) {
@@ -714,12 +751,14 @@ public class ClientWorld {
 					} else {
 						objects[id] = new ClientObject(id, x, y, image, team, type, name, hp);
 					}
-					addObjectNo();
+					objects[id].addPosition(tick, x, y);
+					objects[id].setAttached(attached);
+					addLiveObject(objects[id]);
 				} else {
 					if (id != client.getPlayer().getID() || !image.toLowerCase().contains("go")) // Hacky fix for goblin image replacing player
 					{
-						objects[id].setX(x);
-						objects[id].setY(y);
+						objects[id].addPosition(tick, x, y);
+						objects[id].setAttached(attached);
 						objects[id].setTeam(team);
 						objects[id].setImage(image);
 						if (name != null && name.length() > 0) {
@@ -757,11 +796,14 @@ public class ClientWorld {
 	 *            the object to add
 	 */
 	public void setObject(ClientObject object) {
-		if (objects[object.getID()] == null) {
-			addObjectNo();
+		synchronized (objectsLock)
+		{
+			if (objects[object.getID()] != null) {
+				removeLiveObject(object.getID());
+			}
+			objects[object.getID()] = object;
+			addLiveObject(object);
 		}
-		objects[object.getID()] = object;
-
 	}
 
 	/**
@@ -771,14 +813,68 @@ public class ClientWorld {
 	 *            the object to remove
 	 */
 	public void remove(int id) {
-		try {
-			if (objects[id] != null) {
-				subtractObjectNo();
+		synchronized (objectsLock)
+		{
+			try {
+				if (objects[id] != null) {
+					removeLiveObject(id);
+				}
+				objects[id] = null;
+			} catch (ArrayIndexOutOfBoundsException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Find where an ID is (or would go) in the live objects
+	 * 
+	 * @return the index of the object, or -(insertion point + 1) if it isn't
+	 *         there
+	 */
+	private int findLiveObject(int id) {
+		int low = 0;
+		int high = noOfObjects - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleID = liveObjects[middle].getID();
+			if (middleID < id) {
+				low = middle + 1;
+			} else if (middleID > id) {
+				high = middle - 1;
+			} else {
+				return middle;
 			}
-			objects[id] = null;
-		} catch (ArrayIndexOutOfBoundsException e) {
-			e.printStackTrace();
 		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Add an object to the live objects, keeping them sorted by ID
+	 */
+	private void addLiveObject(ClientObject object) {
+		int index = -(findLiveObject(object.getID()) + 1);
+		if (noOfObjects == liveObjects.length) {
+			ClientObject[] newLiveObjects = new ClientObject[liveObjects.length * 2];
+			System.arraycopy(liveObjects, 0, newLiveObjects, 0, noOfObjects);
+			liveObjects = newLiveObjects;
+		}
+		System.arraycopy(liveObjects, index, liveObjects, index + 1, noOfObjects - index);
+		liveObjects[index] = object;
+		noOfObjects++;
+	}
+
+	/**
+	 * Remove an object from the live objects
+	 */
+	private void removeLiveObject(int id) {
+		int index = findLiveObject(id);
+		if (index < 0) {
+			return;
+		}
+		noOfObjects--;
+		System.arraycopy(liveObjects, index + 1, liveObjects, index, noOfObjects - index);
+		liveObjects[noOfObjects] = null;
 	}
 
 	/**
@@ -881,60 +977,35 @@ public class ClientWorld {
 		// stars.remove(star);
 		// }
 
-		// Draw tiles (draw based on player's position later)
-		int startRow = (int) ((playerY - Client.SCREEN_HEIGHT / 2 - ServerPlayer.DEFAULT_HEIGHT)
-				/ ServerWorld.TILE_SIZE);
-		if (startRow < 0) {
-			startRow = 0;
-		}
-		int endRow = (int) ((Client.SCREEN_HEIGHT / 2 + playerY + ServerPlayer.DEFAULT_HEIGHT) / ServerWorld.TILE_SIZE);
-		if (endRow >= backgroundGrid.length) {
-			endRow = backgroundGrid.length - 1;
-		}
-		int startColumn = (int) ((playerX - Client.SCREEN_WIDTH / 2 - ServerPlayer.DEFAULT_WIDTH)
-				/ ServerWorld.TILE_SIZE);
-		if (startColumn < 0) {
-			startColumn = 0;
-		}
-		int endColumn = (int) ((Client.SCREEN_WIDTH / 2 + playerX + ServerPlayer.DEFAULT_WIDTH)
-				/ ServerWorld.TILE_SIZE);
-		if (endColumn >= backgroundGrid[0].length) {
-			endColumn = backgroundGrid[0].length - 1;
-		}
-
-		// Draw background tiles
-		for (int row = startRow; row <= endRow; row++) {
-			for (int column = startColumn; column <= endColumn; column++) {
-
-				if (backgroundGrid[row][column] != ' ') {
-					graphics.drawImage(ImageReferencePair.getImages()[(int) (backgroundGrid[row][column])].getImage(),
-							centreX + column * ServerWorld.TILE_SIZE - playerX,
-							centreY + row * ServerWorld.TILE_SIZE - playerY, null);
-				}
-			}
-
-		}
+		// Draw background tiles (in chunks, based on the player's position)
+		backgroundLayer.draw(graphics, playerX - centreX, playerY - centreY);
 
 		// The text to display to the player in the centre of the screen
 		String displayedText = null;
 
-		int objectNo = 0;
+		// The server tick to draw the other objects at
+		double renderTick = client.getInterpolation().getRenderTick(System.nanoTime());
+
+		int noOfDrawnObjects;
+		synchronized (objectsLock) {
+			if (drawnObjects.length < noOfObjects) {
+				drawnObjects = new ClientObject[liveObjects.length];
+			}
+			noOfDrawnObjects = noOfObjects;
+			System.arraycopy(liveObjects, 0, drawnObjects, 0, noOfDrawnObjects);
+		}
 
 		// Go through each object in the world and draw it relative to the
 		// player's position. If it is outside of the screen, don't draw it just
 		// remove it
 		try {
-			for (ClientObject object : objects) {
-				if (object == null) {
-					continue;
-				}
-				if (objectNo == noOfObjects) {
-					break;
-				}
-				objectNo++;
+			for (int objectNo = 0; objectNo < noOfDrawnObjects; objectNo++) {
+				ClientObject object = drawnObjects[objectNo];
+				drawnObjects[objectNo] = null;
 
-				int x = centreX + object.getX() - playerX;
-				int y = centreY + object.getY() - playerY;
+				object.updateDrawPosition(renderTick);
+				int x = centreX + object.getDrawX() - playerX;
+				int y = centreY + object.getDrawY() - playerY;
 				
 				if (object.getID() == player.getID())
 				{
@@ -955,103 +1026,90 @@ public class ClientWorld {
 					}
 				}
 
-				if (object.getType().equals(ServerWorld.TEXT_TYPE + "")) {
-					ClientText textObject = (ClientText) object;
+				if (x > Client.SCREEN_WIDTH || x + object.getWidth() < 0 || y > Client.SCREEN_HEIGHT
+						|| y + object.getHeight() < 0
+						|| (Client.getPacketNo() > 600 && Client.getPacketNo() - object.getLastCounter() >= 99
+						&& object.getID() != player.getID())) // If
+					// the
+					// object
+					// wasn't
+					// present
+					// in
+					// the
+					// last
+					// update
+				{
+					objectsToRemove.add(object);
+					continue;
+				}
 
-					textObject.updateText();
-					if (textObject.exists()) {
-						graphics.setColor(textObject.getColor());
-						graphics.setFont(DAMAGE_FONT);
-						graphics.drawString(textObject.getText(), x, y);
-					}
-					// System.out.println("Drawing floating text");
-				} else {
+				switch (object.getTeam()) {
+				case ServerCreature.RED_TEAM:
+					graphics.setColor(Color.red);
+					break;
+				case ServerCreature.BLUE_TEAM:
+					graphics.setColor(Color.blue);
+					break;
+				}
+				
+				graphics.setFont(DAMAGE_FONT);
+				
+				if (object.getTeam() != ServerCreature.NEUTRAL) {
+					if (object.getName().equals("") && !object.getType().equals(ServerWorld.CASTLE_TYPE)) {
+						if (object.getType().contains(ServerWorld.BUILDING_TYPE)) {
+							if (object.getHP() > 0) {
+								Color col = graphics.getColor();
+								graphics.setColor(Color.black);
+								graphics.fillRect(x + object.getWidth() / 7, y - 10, 5 * object.getWidth() / 7, 3);
+								graphics.setColor(col);
+								graphics.fillRect(x + object.getWidth() / 7, y - 10,
+										(int) (5 * object.getWidth() / 7 * (object.getHP() / 100.0)), 3);
+							}
+						} else
+							graphics.fillRect(x + object.getWidth() / 2 - 5, y + object.getHeight() / 4, 10, 10);
+					} else {
+						if (object.getType().equals(ServerWorld.PLAYER_TYPE) || object.getType().equals(ServerWorld.PLAYER_AI_TYPE)) {
+							String[] tokens = object.getName().split("`");
+							String name = tokens[0];
+							graphics.drawString(name, (int) (x + object.getWidth() / 2
+									- name.trim().length() * DAMAGE_FONT_WIDTH / 2), y + 25);
+
+							if (object.getHP() > 0) {
+								Color col = graphics.getColor();
+								graphics.setColor(Color.black);
+								graphics.fillRect(x, y + 5, object.getWidth(), 3);
+								graphics.setColor(col);
+								graphics.fillRect(x, y + 5, (int) (object.getWidth() * object.getHP() / 100.0), 3);
+							}
 
-					if (x > Client.SCREEN_WIDTH || x + object.getWidth() < 0 || y > Client.SCREEN_HEIGHT
-							|| y + object.getHeight() < 0
-							|| (Client.getPacketNo() > 600 && Client.getPacketNo() - object.getLastCounter() >= 99
-							&& object.getID() != player.getID())) // If
-						// the
-						// object
-						// wasn't
-						// present
-						// in
-						// the
-						// last
-						// update
-					{
-						objectsToRemove.add(object);
-						continue;
-					}
+							if (tokens.length > 1) {
+								String currentText = tokens[1];
 
-					Image image = object.getImage();
+								graphics.setColor(Images.YELLOW);
 
-					switch (object.getTeam()) {
-					case ServerCreature.RED_TEAM:
-						graphics.setColor(Color.red);
-						break;
-					case ServerCreature.BLUE_TEAM:
-						graphics.setColor(Color.blue);
-						break;
-					}
-					
-					graphics.setFont(DAMAGE_FONT);
-					
-					if (object.getTeam() != ServerCreature.NEUTRAL) {
-						if (object.getName().equals("") && !object.getType().equals(ServerWorld.CASTLE_TYPE)) {
-							if (object.getType().contains(ServerWorld.BUILDING_TYPE)) {
-								if (object.getHP() > 0) {
-									Color col = graphics.getColor();
-									graphics.setColor(Color.black);
-									graphics.fillRect(x + object.getWidth() / 7, y - 10, 5 * object.getWidth() / 7, 3);
-									graphics.setColor(col);
-									graphics.fillRect(x + object.getWidth() / 7, y - 10,
-											(int) (5 * object.getWidth() / 7 * (object.getHP() / 100.0)), 3);
-								}
-							} else
-								graphics.fillRect(x + object.getWidth() / 2 - 5, y + object.getHeight() / 4, 10, 10);
+								graphics.drawString(currentText, (int) (x + object.getWidth() / 2
+										- currentText.length() * DAMAGE_FONT_WIDTH / 2), y - 7);
+							}
 						} else {
-							if (object.getType().equals(ServerWorld.PLAYER_TYPE) || object.getType().equals(ServerWorld.PLAYER_AI_TYPE)) {
-								String[] tokens = object.getName().split("`");
-								String name = tokens[0];
-								graphics.drawString(name, (int) (x + object.getWidth() / 2
-										- name.trim().length() * DAMAGE_FONT_WIDTH / 2), y + 25);
-
-								if (object.getHP() > 0) {
-									Color col = graphics.getColor();
-									graphics.setColor(Color.black);
-									graphics.fillRect(x, y + 5, object.getWidth(), 3);
-									graphics.setColor(col);
-									graphics.fillRect(x, y + 5, (int) (object.getWidth() * object.getHP() / 100.0), 3);
-								}
-
-								if (tokens.length > 1) {
-									String currentText = tokens[1];
-
-									graphics.setColor(Images.YELLOW);
-
-									graphics.drawString(currentText, (int) (x + object.getWidth() / 2
-											- currentText.length() * DAMAGE_FONT_WIDTH / 2), y - 7);
-								}
-							} else {
-								if (object.getName().length()>=1)
-								{
-									graphics.drawString(object.getName(), (int) (x + object.getWidth() / 2
-											- object.getName().trim().length() * DAMAGE_FONT_WIDTH / 2), y + 15);
-								}
+							if (object.getName().length()>=1)
+							{
+								graphics.drawString(object.getName(), (int) (x + object.getWidth() / 2
+										- object.getName().trim().length() * DAMAGE_FONT_WIDTH / 2), y + 15);
 							}
 						}
 					}
+				}
 
-					graphics.drawImage(image, x, y, null);
+				if (object.getGameImage() != null) {
+					object.getGameImage().draw(graphics, x, y);
+				}
 
-					// Draw a hint if necessary
-					// DOES NOT DRAW OVER SOLID TILES
-					if (player.collidesWith(object) && !object.getHint().equals("")) {
-						if (!object.getType().equals(ServerWorld.CASTLE_TYPE) || object.getTeam()==player.getTeam())
-						{
-							displayedText = object.getHint();
-						}
+				// Draw a hint if necessary
+				// DOES NOT DRAW OVER SOLID TILES
+				if (player.collidesWith(object) && !object.getHint().equals("")) {
+					if (!object.getType().equals(ServerWorld.CASTLE_TYPE) || object.getTeam()==player.getTeam())
+					{
+						displayedText = object.getHint();
 					}
 				}
 			}
@@ -1065,18 +1123,27 @@ public class ClientWorld {
 			System.out.println("Tried to access the object list while it was being used");
 		}
 
-		// Draw solid tiles at the very front
-		for (int row = startRow; row <= endRow; row++) {
-			for (int column = startColumn; column <= endColumn; column++) {
-
-				if (foregroundGrid[row][column] != ' ') {
-					graphics.drawImage(ImageReferencePair.getImages()[(int) (foregroundGrid[row][column])].getImage(),
-							centreX + column * ServerWorld.TILE_SIZE - playerX,
-							centreY + row * ServerWorld.TILE_SIZE - playerY, null);
+		// Draw and move the floating text, removing the text that has faded
+		synchronized (texts) {
+			graphics.setFont(DAMAGE_FONT);
+			for (int index = 0; index < texts.size(); index++) {
+				ClientText text = texts.get(index);
+				text.updateText();
+				if (!text.exists()) {
+					texts.set(index, texts.get(texts.size() - 1));
+					texts.remove(texts.size() - 1);
+					index--;
+					continue;
 				}
+				graphics.setColor(text.getColor());
+				graphics.drawString(text.getText(), centreX + text.getX() - playerX,
+						centreY + text.getY() - playerY);
 			}
 		}
 
+		// Draw solid tiles at the very front
+		foregroundLayer.draw(graphics, playerX - centreX, playerY - centreY);
+
 		if (displayedText != null) {
 			graphics.setColor(Images.PURPLE);
 			graphics.setFont(MESSAGE_FONT);
@@ -1208,7 +1275,13 @@ public class ClientWorld {
 	}
 
 	public void clear() {
-		objects = new ClientObject[ServerEngine.NUMBER_OF_IDS];
+		synchronized (objectsLock) {
+			objects = new ClientObject[ServerEngine.NUMBER_OF_IDS];
+			for (int index = 0; index < noOfObjects; index++) {
+				liveObjects[index] = null;
+			}
+			noOfObjects = 0;
+		}
 	}
 
 	public ClientObject[] getObjects() {
@@ -1231,26 +1304,25 @@ public class ClientWorld {
 		ClientWorld.worldTime = worldTime;
 	}
 
-	public void addToRemove(ClientObject object) {
-		objectsToRemove.add(object);
-	}
-
-	public synchronized void addObjectNo() {
-		noOfObjects++;
+	/**
+	 * Add a piece of floating text to the screen
+	 * 
+	 * @param text the text
+	 */
+	public void addText(ClientText text) {
+		synchronized (texts) {
+			texts.add(text);
+		}
 	}
 
-	public synchronized void subtractObjectNo() {
-		noOfObjects--;
+	public void addToRemove(ClientObject object) {
+		objectsToRemove.add(object);
 	}
 
 	public int getNoOfObjects() {
 		return noOfObjects;
 	}
 
-	public void setNoOfObjects(int noOfObjects) {
-		this.noOfObjects = noOfObjects;
-	}
-
 	public ClientHologram getHologram() {
 		return hologram;
 	}
@@ -1,6 +1,9 @@
 package Imports;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -38,6 +41,16 @@ public class GameImage implements Comparable<GameImage> {
 	 */
 	private Color color;
 
+	/**
+	 * The sheet the image is drawn from (see ImageAtlas) and where the image
+	 * is in it
+	 */
+	private BufferedImage sheet;
+	private int sheetX;
+	private int sheetY;
+	private int sheetWidth;
+	private int sheetHeight;
+
 	/**
 	 * Create a fake GameImage to compare in the binary tree
 	 * 
@@ -91,9 +104,9 @@ public class GameImage implements Comparable<GameImage> {
 			MainMenu.imageLoadFailed = true;
 			e.printStackTrace();
 		}
-		if (Math.abs(bufferedImage.getWidth()-width)>2
-				|| Math.abs(bufferedImage.getHeight()-height)>2) {
-			image = bufferedImage.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+		if (!hostingServer && (Math.abs(bufferedImage.getWidth()-width)>2
+				|| Math.abs(bufferedImage.getHeight()-height)>2)) {
+			image = scale(bufferedImage, width, height, Image.SCALE_SMOOTH);
 		} else {
 			image = bufferedImage;
 		}
@@ -143,9 +156,9 @@ public class GameImage implements Comparable<GameImage> {
 	public GameImage(String name, BufferedImage image, int width, int height) {
 		this.name = name.substring(0, name.indexOf('.'));
 
-		if (Math.abs(image.getWidth()-width)>2
-				|| Math.abs(image.getHeight()-height)>2) {
-			this.image = image.getScaledInstance(width, height, 0);
+		if (!hostingServer && (Math.abs(image.getWidth()-width)>2
+				|| Math.abs(image.getHeight()-height)>2)) {
+			this.image = scale(image, width, height, Image.SCALE_DEFAULT);
 		} else {
 			this.image = image;
 		}
@@ -162,6 +175,72 @@ public class GameImage implements Comparable<GameImage> {
 		}
 	}
 
+	/**
+	 * Constructor for a game image loaded from the saved sheets (the sheet is
+	 * set after)
+	 * 
+	 * @param name
+	 *            the name (without the file extension)
+	 */
+	public GameImage(String name, int width, int height, Color color) {
+		this.name = name;
+		this.width = width;
+		this.height = height;
+		this.color = color;
+	}
+
+	/**
+	 * Scale an image into a new buffered image (instead of keeping the
+	 * scaled instance, which Java2D can't keep in video memory)
+	 */
+	private static BufferedImage scale(BufferedImage image, int width, int height, int hints) {
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = scaled.createGraphics();
+		graphics.setComposite(AlphaComposite.Src);
+		graphics.drawImage(image.getScaledInstance(width, height, hints), 0, 0, null);
+		graphics.dispose();
+		return scaled;
+	}
+
+	/**
+	 * Draw the image from a part of a sheet from now on
+	 * 
+	 * @param sheet
+	 *            the sheet
+	 * @param x
+	 *            the left of the image in the sheet
+	 * @param y
+	 *            the top of the image in the sheet
+	 * @param width
+	 *            the width of the image in the sheet
+	 * @param height
+	 *            the height of the image in the sheet
+	 */
+	public void setSheet(BufferedImage sheet, int x, int y, int width, int height) {
+		this.sheet = sheet;
+		sheetX = x;
+		sheetY = y;
+		sheetWidth = width;
+		sheetHeight = height;
+		image = sheet.getSubimage(x, y, width, height);
+	}
+
+	/**
+	 * Draw the image, straight from its sheet if it has one
+	 * 
+	 * @param graphics
+	 * @param x
+	 * @param y
+	 */
+	public void draw(Graphics graphics, int x, int y) {
+		if (sheet == null) {
+			graphics.drawImage(image, x, y, null);
+		} else {
+			graphics.drawImage(sheet, x, y, x + sheetWidth, y + sheetHeight, sheetX, sheetY, sheetX + sheetWidth,
+					sheetY + sheetHeight, null);
+		}
+	}
+
 	// ///////////////////////
 	// GETTERS AND SETTERS //
 	// ///////////////////////
@@ -198,4 +277,24 @@ public class GameImage implements Comparable<GameImage> {
 		this.name = name;
 	}
 
+	public BufferedImage getSheet() {
+		return sheet;
+	}
+
+	public int getSheetX() {
+		return sheetX;
+	}
+
+	public int getSheetY() {
+		return sheetY;
+	}
+
+	public int getSheetWidth() {
+		return sheetWidth;
+	}
+
+	public int getSheetHeight() {
+		return sheetHeight;
+	}
+
 }
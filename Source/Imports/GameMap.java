@@ -1,72 +1,175 @@
 package Imports;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.StringTokenizer;
 
-import Server.ServerObject;
+import Server.ServerEngine;
+import Server.ServerNavGraph;
+import Server.ServerObjectGrid;
+import Server.ServerWorld;
 
 /**
- * A map object
+ * A map object. A map is only loaded once and its tile and collision grids
+ * are shared by every room playing it, so the grids are kept private and can
+ * only be read one tile at a time. Each room gets its own object grid from
+ * newObjectGrid
  * @author William
  *
  */
 public class GameMap
 {
-	private String name;
-	private char[][]tileGrid;
-	private char[][]collisionGrid;
-	private ArrayList<ServerObject>[][]objectGrid;
-	private ArrayList<String> startingObjects;
-	public GameMap(String name, char[][] tileGrid, char[][] collisionGrid, ArrayList<ServerObject>[][]objectGrid, ArrayList<String> startingObjects)
+	private final String name;
+	private final char[][]tileGrid;
+	private final char[][]collisionGrid;
+
+	/**
+	 * The row, column (in the tile grid) and image reference of each object
+	 * the map starts with, parsed when the map is loaded
+	 */
+	private final int[] startingRows;
+	private final int[] startingColumns;
+	private final char[] startingReferences;
+	private int noOfStartingObjects = 0;
+
+	/**
+	 * The navigation graphs built for the map, one for each kind of mover.
+	 * Like the grids they are shared by every room playing the map
+	 */
+	private final HashMap<String, ServerNavGraph> navGraphs = new HashMap<String, ServerNavGraph>();
+
+	public GameMap(String name, char[][] tileGrid, char[][] collisionGrid, ArrayList<String> startingObjects)
 	{
 		this.name=name;
 		this.tileGrid = tileGrid;
 		this.collisionGrid = collisionGrid;
-		this.objectGrid = objectGrid;
-		this.startingObjects = startingObjects;
+
+		startingRows = new int[startingObjects.size()];
+		startingColumns = new int[startingObjects.size()];
+		startingReferences = new char[startingObjects.size()];
+		for (String object : startingObjects)
+		{
+			try {
+				// Add 3 for the invisible walls around the map
+				StringTokenizer tokenizer = new StringTokenizer(object);
+				startingRows[noOfStartingObjects] = Integer.parseInt(tokenizer.nextToken()) + 3;
+				startingColumns[noOfStartingObjects] = Integer.parseInt(tokenizer.nextToken()) + 3;
+				startingReferences[noOfStartingObjects] = tokenizer.nextToken().charAt(0);
+				noOfStartingObjects++;
+			} catch (RuntimeException e) {
+				System.out.println("Invalid object in map " + name + ": " + object);
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Constructor for a map whose starting objects were already parsed (like
+	 * a compiled map)
+	 */
+	public GameMap(String name, char[][] tileGrid, char[][] collisionGrid, int[] startingRows,
+			int[] startingColumns, char[] startingReferences)
+	{
+		this.name = name;
+		this.tileGrid = tileGrid;
+		this.collisionGrid = collisionGrid;
+		this.startingRows = startingRows;
+		this.startingColumns = startingColumns;
+		this.startingReferences = startingReferences;
+		noOfStartingObjects = startingRows.length;
+	}
+
+	/**
+	 * Make an empty object grid the size of the map for a new room
+	 * @return the object grid
+	 */
+	public ServerObjectGrid newObjectGrid() {
+		int tilesPerObjectTile = ServerWorld.OBJECT_TILE_SIZE / ServerWorld.TILE_SIZE;
+		return new ServerObjectGrid(tileGrid.length / tilesPerObjectTile + 1,
+				tileGrid[0].length / tilesPerObjectTile + 1);
 	}
+
+	/**
+	 * Get the navigation graph for a kind of mover. The first time it is
+	 * asked for it is built on the navigation thread (see
+	 * ServerNavGraph.buildLater), so no room waits for it
+	 * @param jumpSpeed the vertical speed of the mover's jump
+	 * @param movementSpeed the mover's horizontal speed
+	 * @param clearance the number of tiles tall the mover is
+	 * @return the graph, or null if it isn't built yet
+	 */
+	public synchronized ServerNavGraph getNavGraph(final int jumpSpeed, final int movementSpeed,
+			final int clearance) {
+		final String key = jumpSpeed + " " + movementSpeed + " " + clearance;
+		if (!navGraphs.containsKey(key)) {
+			navGraphs.put(key, null);
+			ServerNavGraph.buildLater(new Runnable() {
+				@Override
+				public void run() {
+					long start = System.nanoTime();
+					ServerNavGraph navGraph = new ServerNavGraph(GameMap.this, jumpSpeed, movementSpeed, clearance);
+					synchronized (GameMap.this) {
+						navGraphs.put(key, navGraph);
+					}
+					if (ServerEngine.DETAILED_STATISTICS) {
+						System.out.printf("Built navigation graph for %s (%s): %d nodes, %d links in %.1f ms%n", name,
+								key, navGraph.getNoOfNodes(), navGraph.getNoOfLinks(),
+								(System.nanoTime() - start) / 1000000.0);
+					}
+				}
+			});
+		}
+		return navGraphs.get(key);
+	}
+
 	public String getName() {
 		return name;
 	}
-	public void setName(String name) {
-		this.name = name;
+	public int getRows() {
+		return tileGrid.length;
 	}
-	public char[][] getTileGrid() {
-		return tileGrid;
+	public int getColumns() {
+		return tileGrid[0].length;
 	}
-	public void setTileGrid(char[][] tileGrid) {
-		this.tileGrid = tileGrid;
+	public char getTile(int row, int column) {
+		return tileGrid[row][column];
 	}
-	public char[][] getCollisionGrid() {
-		return collisionGrid;
+	public char getCollision(int row, int column) {
+		return collisionGrid[row][column];
 	}
-	public void setCollisionGrid(char[][] collisionGrid) {
-		this.collisionGrid = collisionGrid;
+
+	/**
+	 * Get a row of the tile grid (as sent to clients)
+	 * @param row the row
+	 * @return the row's tiles
+	 */
+	public String getTileRow(int row) {
+		return new String(tileGrid[row]);
 	}
-	public LinkedList<ServerObject>[][] getObjectGrid() {
-		@SuppressWarnings("unchecked")
-		LinkedList<ServerObject>[][]newObjectGrid = new LinkedList[objectGrid.length][objectGrid[0].length];
-		for (int row = 0; row < objectGrid.length; row++)
-		{
-			for (int col = 0; col < objectGrid[0].length; col++)
-			{
-				newObjectGrid[row][col] = new LinkedList<ServerObject>();
-				for (ServerObject object:objectGrid[row][col])
-				{
-					newObjectGrid[row][col].add(object);
-				}
-			}
+
+	/**
+	 * Make a copy of the tile grid that can be changed without affecting the
+	 * rooms playing the map
+	 * @return the copy
+	 */
+	public char[][] copyTileGrid() {
+		char[][] copy = new char[tileGrid.length][];
+		for (int row = 0; row < tileGrid.length; row++) {
+			copy[row] = tileGrid[row].clone();
 		}
-		return newObjectGrid;
+		return copy;
+	}
+	public int getNoOfStartingObjects() {
+		return noOfStartingObjects;
 	}
-	public void setObjectGrid(ArrayList<ServerObject>[][] objectGrid) {
-		this.objectGrid = objectGrid;
+	public int getStartingRow(int object) {
+		return startingRows[object];
 	}
-	public ArrayList<String> getStartingObjects() {
-		return startingObjects;
+	public int getStartingColumn(int object) {
+		return startingColumns[object];
 	}
-	public void setStartingObjects(ArrayList<String> startingObjects) {
-		this.startingObjects = startingObjects;
+	public char getStartingReference(int object) {
+		return startingReferences[object];
 	}
 
-}
\ No newline at end of file
+}
@@ -2,13 +2,11 @@ package Imports;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.StringTokenizer;
 
-import Server.ServerObject;
 import Server.ServerWorld;
 
 public class GameMaps 
@@ -25,44 +23,91 @@ public class GameMaps
 			return;
 		imported = true;
 		
-		BufferedReader mapCheck = null;
+		ArrayList<String> mapFiles;
 		try {
-			mapCheck = new BufferedReader(new FileReader(new File("Resources","Maps")));
-		} catch (FileNotFoundException e3) {
-			e3.printStackTrace();
-		}
-		int noOfMaps = 0;
-		try {
-			noOfMaps = Integer.parseInt(mapCheck.readLine());
-		} catch (NumberFormatException | IOException e2) {
-			e2.printStackTrace();
+			mapFiles = readMapList();
+		} catch (IOException | NumberFormatException e) {
+			e.printStackTrace();
+			return;
 		}
-		String mapFile = "";
-		BufferedReader worldInput = null;
 		
-		for (int no = 0; no < noOfMaps; no++)
+		for (String mapFile : mapFiles)
 		{
+			mapFile = mapFile.toLowerCase();
 			try {
-				mapFile = mapCheck.readLine().trim().toLowerCase();
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-			try {
-				worldInput = new BufferedReader(new FileReader(new File(
-						"Resources", mapFile)));
-			} catch (FileNotFoundException e) {
+				maps.add(loadMap(mapFile.replace(' ', '_'), new File("Resources", mapFile)));
+			} catch (IOException | RuntimeException e) {
+				System.out.println("Could not load map " + mapFile);
 				e.printStackTrace();
 			}
-			
-			mapFile = mapFile.replace(' ', '_');
-			
-			StringTokenizer tokenizer = null;
+		}
+	}
+	
+	/**
+	 * Read the names of the maps listed in Resources/Maps
+	 * @return the map files
+	 */
+	public static ArrayList<String> readMapList() throws IOException
+	{
+		ArrayList<String> mapFiles = new ArrayList<String>();
+		BufferedReader mapCheck = new BufferedReader(new FileReader(new File("Resources","Maps")));
+		try {
+			int noOfMaps = Integer.parseInt(mapCheck.readLine());
+			for (int no = 0; no < noOfMaps; no++)
+			{
+				mapFiles.add(mapCheck.readLine().trim());
+			}
+		} finally {
+			mapCheck.close();
+		}
+		return mapFiles;
+	}
+	
+	/**
+	 * Load a map, from its compiled file when it is up to date. Otherwise the
+	 * text map is read and compiled for next time
+	 * @param name the name of the map
+	 * @param textFile the text map
+	 * @return the map
+	 */
+	public static GameMap loadMap(String name, File textFile) throws IOException
+	{
+		long start = System.nanoTime();
+		File compiledFile = MapFile.getCompiledFile(textFile);
+		if (MapFile.isUpToDate(compiledFile, textFile))
+		{
 			try {
-				tokenizer = new StringTokenizer(worldInput.readLine());
-			} catch (IOException e1) {
-				// TODO Auto-generated catch block
-				e1.printStackTrace();
+				GameMap map = MapFile.read(name, compiledFile);
+				System.out.printf("Loaded compiled map %s in %.1f ms%n", name, (System.nanoTime() - start) / 1000000.0);
+				return map;
+			} catch (IOException | RuntimeException e) {
+				System.out.println("Compiled map " + compiledFile + " is corrupt, reading the text map");
+				e.printStackTrace();
 			}
+		}
+		
+		GameMap map = readTextMap(name, textFile);
+		System.out.printf("Loaded text map %s in %.1f ms%n", name, (System.nanoTime() - start) / 1000000.0);
+		try {
+			MapFile.write(map, textFile, compiledFile);
+		} catch (IOException e) {
+			System.out.println("Could not compile map " + name);
+			e.printStackTrace();
+		}
+		return map;
+	}
+	
+	/**
+	 * Read a text map (made by hand or with the WorldCreator)
+	 * @param name the name of the map
+	 * @param textFile the text map
+	 * @return the map
+	 */
+	public static GameMap readTextMap(String name, File textFile) throws IOException
+	{
+		BufferedReader worldInput = new BufferedReader(new FileReader(textFile));
+		try {
+			StringTokenizer tokenizer = new StringTokenizer(worldInput.readLine());
 
 			// Add to both sides to make room for the invisible walls
 			char [][] tileGrid = new char[Integer.parseInt(tokenizer.nextToken()) + 6][Integer
@@ -71,26 +116,9 @@ public class GameMaps
 			// Collision grid mirrors tileGrid but is simpler
 			char [][] collisionGrid = new char[tileGrid.length][tileGrid[0].length];
 
-			// Make object grid
-			@SuppressWarnings("unchecked")
-			ArrayList<ServerObject>[][]objectGrid = new ArrayList[tileGrid.length
-					/ (ServerWorld.OBJECT_TILE_SIZE / ServerWorld.TILE_SIZE) + 1][tileGrid[0].length
-					/ (ServerWorld.OBJECT_TILE_SIZE / ServerWorld.TILE_SIZE) + 1];
-
-			// Initialize each arraylist of objects in the objectGridWo
-			for (int row = 0; row < objectGrid.length; row++) {
-				for (int column = 0; column < objectGrid[0].length; column++) {
-					objectGrid[row][column] = new ArrayList<ServerObject>();
-				}
-			}
-
 			String line=null;
 			for (int row = 3; row < tileGrid.length - 3; row++) {
-				try {
-					line = worldInput.readLine();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
+				line = worldInput.readLine();
 				for (int col = 3; col < tileGrid[row].length - 3; col++)
 					tileGrid[row][col] = line.charAt(col - 3);
 			}
@@ -133,28 +161,19 @@ public class GameMaps
 			}
 
 			ArrayList<String> startingObjects = new ArrayList<String>();
-			int numObjects;
 			try {
-				numObjects = Integer.parseInt(worldInput.readLine());
+				int numObjects = Integer.parseInt(worldInput.readLine());
 				for (int object = 0; object < numObjects; object++) {
 					startingObjects.add(worldInput.readLine());
 				}
 			} catch (NumberFormatException e) {
 				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
 			}
 			
-			maps.add(new GameMap(mapFile, tileGrid, collisionGrid, objectGrid, startingObjects));
-		}
-		
-		try {
-			mapCheck.close();
+			return new GameMap(name, tileGrid, collisionGrid, startingObjects);
+		} finally {
 			worldInput.close();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
-		
 	}
 	
 	/**
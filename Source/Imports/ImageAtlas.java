@@ -0,0 +1,413 @@
+package Imports;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import Client.Client;
+
+/**
+ * Packs the game images into a few large images (sheets) made for the
+ * screen, so Java2D can keep them in video memory, and each game image is
+ * drawn as a part of its sheet. Sprites are packed together into atlas pages,
+ * and big images (backgrounds and buildings) get a sheet for each picture
+ * they were cut out of. The sheets are saved in Resources, so the next time
+ * the game starts they are loaded instead of decoding and scaling every image
+ * again
+ * 
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ImageAtlas {
+
+	/**
+	 * The version of the saved sheets. Change this when the images imported
+	 * in Images change, so old sheets aren't used
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The width and height of an atlas page
+	 */
+	public static final int PAGE_SIZE = 2048;
+
+	/**
+	 * The biggest image (in both directions) packed into the atlas pages
+	 */
+	public static final int MAX_SPRITE_SIZE = 256;
+
+	/**
+	 * The folder the sheets are saved in
+	 */
+	public static final String CACHE_FOLDER = "Resources//ImageCache";
+
+	/**
+	 * The file listing the images in the saved sheets
+	 */
+	private static final String INDEX_FILE = "atlas.txt";
+
+	/**
+	 * The extension of the saved sheets, which are the width and height
+	 * followed by the ARGB pixels, compressed (much faster to load than PNGs)
+	 */
+	private static final String SHEET_EXTENSION = ".sheet";
+
+	/**
+	 * Create an empty sheet in the screen's format (so it can be kept in video
+	 * memory)
+	 * 
+	 * @param width
+	 * @param height
+	 * @return the sheet
+	 */
+	public static BufferedImage createSheet(int width, int height) {
+		if (GraphicsEnvironment.isHeadless()) {
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		}
+		return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+				.getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+	}
+
+	/**
+	 * Copy the images into sheets and have each game image draw from its
+	 * sheet
+	 * 
+	 * @param images
+	 *            the game images
+	 * @param noOfImages
+	 *            the number of game images
+	 * @return the sheets
+	 */
+	public static ArrayList<BufferedImage> pack(GameImage[] images, int noOfImages) {
+		ArrayList<BufferedImage> sheets = new ArrayList<BufferedImage>();
+
+		// Split the images into sprites and big images, grouping the big
+		// images by the picture they were cut out of
+		ArrayList<GameImage> sprites = new ArrayList<GameImage>();
+		ArrayList<ArrayList<GameImage>> groups = new ArrayList<ArrayList<GameImage>>();
+		IdentityHashMap<DataBuffer, ArrayList<GameImage>> groupsByData = new IdentityHashMap<DataBuffer, ArrayList<GameImage>>();
+		for (int no = 0; no < noOfImages; no++) {
+			GameImage gameImage = images[no];
+			if (!(gameImage.getImage() instanceof BufferedImage)) {
+				continue;
+			}
+			BufferedImage image = (BufferedImage) gameImage.getImage();
+			if (image.getWidth() <= MAX_SPRITE_SIZE && image.getHeight() <= MAX_SPRITE_SIZE) {
+				sprites.add(gameImage);
+			} else {
+				DataBuffer data = image.getRaster().getDataBuffer();
+				ArrayList<GameImage> group = groupsByData.get(data);
+				if (group == null) {
+					group = new ArrayList<GameImage>();
+					groupsByData.put(data, group);
+					groups.add(group);
+				}
+				group.add(gameImage);
+			}
+		}
+
+		// Pack the sprites in rows, tallest first
+		Collections.sort(sprites, new Comparator<GameImage>() {
+			public int compare(GameImage first, GameImage second) {
+				return second.getImage().getHeight(null) - first.getImage().getHeight(null);
+			}
+		});
+		BufferedImage page = null;
+		Graphics2D graphics = null;
+		int x = 0;
+		int y = 0;
+		int rowHeight = 0;
+		for (GameImage sprite : sprites) {
+			BufferedImage image = (BufferedImage) sprite.getImage();
+			if (page != null && x + image.getWidth() > PAGE_SIZE) {
+				x = 0;
+				y += rowHeight;
+				rowHeight = 0;
+			}
+			if (page == null || y + image.getHeight() > PAGE_SIZE) {
+				if (graphics != null) {
+					graphics.dispose();
+				}
+				page = createSheet(PAGE_SIZE, PAGE_SIZE);
+				graphics = page.createGraphics();
+				graphics.setComposite(AlphaComposite.Src);
+				sheets.add(page);
+				x = 0;
+				y = 0;
+				rowHeight = 0;
+			}
+			graphics.drawImage(image, x, y, null);
+			sprite.setSheet(page, x, y, image.getWidth(), image.getHeight());
+			x += image.getWidth();
+			rowHeight = Math.max(rowHeight, image.getHeight());
+		}
+		if (graphics != null) {
+			graphics.dispose();
+		}
+
+		// Give each group of big images one sheet covering the parts of the
+		// picture they use
+		for (ArrayList<GameImage> group : groups) {
+			int left = Integer.MAX_VALUE;
+			int top = Integer.MAX_VALUE;
+			int right = 0;
+			int bottom = 0;
+			for (GameImage gameImage : group) {
+				BufferedImage image = (BufferedImage) gameImage.getImage();
+				WritableRaster raster = image.getRaster();
+				left = Math.min(left, -raster.getSampleModelTranslateX());
+				top = Math.min(top, -raster.getSampleModelTranslateY());
+				right = Math.max(right, -raster.getSampleModelTranslateX() + image.getWidth());
+				bottom = Math.max(bottom, -raster.getSampleModelTranslateY() + image.getHeight());
+			}
+
+			BufferedImage sheet = createSheet(right - left, bottom - top);
+			graphics = sheet.createGraphics();
+			graphics.setComposite(AlphaComposite.Src);
+			for (GameImage gameImage : group) {
+				BufferedImage image = (BufferedImage) gameImage.getImage();
+				WritableRaster raster = image.getRaster();
+				int sheetX = -raster.getSampleModelTranslateX() - left;
+				int sheetY = -raster.getSampleModelTranslateY() - top;
+				graphics.drawImage(image, sheetX, sheetY, null);
+				gameImage.setSheet(sheet, sheetX, sheetY, image.getWidth(), image.getHeight());
+			}
+			graphics.dispose();
+			sheets.add(sheet);
+		}
+		return sheets;
+	}
+
+	/**
+	 * Get the key the saved sheets are checked against. It changes when the
+	 * version, the screen size (some images are scaled to it) or any file in
+	 * the Images folder changes
+	 * 
+	 * @return the key
+	 */
+	public static String getCacheKey() {
+		CRC32 checksum = new CRC32();
+		int noOfFiles = addToChecksum(new File("Images"), "", checksum);
+		return VERSION + " " + Client.SCREEN_WIDTH + "x" + Client.SCREEN_HEIGHT + " " + noOfFiles + " "
+				+ Long.toHexString(checksum.getValue());
+	}
+
+	/**
+	 * Add the names, sizes and modified times of the files in a folder (and
+	 * its subfolders) to a checksum
+	 * 
+	 * @return the number of files
+	 */
+	private static int addToChecksum(File folder, String path, CRC32 checksum) {
+		File[] files = folder.listFiles();
+		if (files == null) {
+			return 0;
+		}
+		Arrays.sort(files);
+		int noOfFiles = 0;
+		for (File file : files) {
+			String filePath = path + "/" + file.getName();
+			if (file.isDirectory()) {
+				noOfFiles += addToChecksum(file, filePath, checksum);
+			} else {
+				checksum.update((filePath + " " + file.length() + " " + file.lastModified() + "\n").getBytes());
+				noOfFiles++;
+			}
+		}
+		return noOfFiles;
+	}
+
+	/**
+	 * Save the sheets and where each game image is in them. The list of
+	 * images is written last, so sheets that weren't completely saved are
+	 * never loaded
+	 * 
+	 * @param key
+	 *            the key from getCacheKey
+	 * @param images
+	 *            the game images
+	 * @param noOfImages
+	 *            the number of game images
+	 * @param sheets
+	 *            the sheets from pack
+	 */
+	public static void save(String key, GameImage[] images, int noOfImages, ArrayList<BufferedImage> sheets) {
+		long start = System.currentTimeMillis();
+		File folder = new File(CACHE_FOLDER);
+		File indexFile = new File(folder, INDEX_FILE);
+		File newIndexFile = new File(folder, INDEX_FILE + ".new");
+		try {
+			folder.mkdirs();
+			indexFile.delete();
+
+			IdentityHashMap<BufferedImage, Integer> sheetNumbers = new IdentityHashMap<BufferedImage, Integer>();
+			for (int sheetNo = 0; sheetNo < sheets.size(); sheetNo++) {
+				writeSheet(sheets.get(sheetNo), new File(folder, "sheet" + sheetNo + SHEET_EXTENSION));
+				sheetNumbers.put(sheets.get(sheetNo), sheetNo);
+			}
+
+			PrintWriter output = new PrintWriter(newIndexFile);
+			try {
+				output.println(key);
+				output.println(sheets.size());
+				for (int no = 0; no < noOfImages; no++) {
+					GameImage gameImage = images[no];
+					Integer sheetNo = sheetNumbers.get(gameImage.getSheet());
+					Color color = gameImage.getCentreColor();
+					output.println(gameImage.getName() + "\t" + (sheetNo == null ? -1 : sheetNo) + "\t"
+							+ gameImage.getSheetX() + "\t" + gameImage.getSheetY() + "\t"
+							+ gameImage.getSheetWidth() + "\t" + gameImage.getSheetHeight() + "\t"
+							+ gameImage.getWidth() + "\t" + gameImage.getHeight() + "\t"
+							+ (color == null ? "-" : Integer.toString(color.getRGB())));
+				}
+			} finally {
+				output.close();
+			}
+			Files.move(newIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			System.out.println("Saved " + noOfImages + " images in " + sheets.size() + " sheets ("
+					+ (System.currentTimeMillis() - start) + " ms)");
+		} catch (IOException e) {
+			System.out.println("Error saving the image sheets");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Save a sheet's pixels
+	 */
+	private static void writeSheet(BufferedImage sheet, File file) throws IOException {
+		int width = sheet.getWidth();
+		int height = sheet.getHeight();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)), deflater, 1 << 16));
+		try {
+			output.writeInt(width);
+			output.writeInt(height);
+			ByteBuffer row = ByteBuffer.allocate(width * 4);
+			int[] pixels = new int[width];
+			for (int y = 0; y < height; y++) {
+				sheet.getRGB(0, y, width, 1, pixels, 0, width);
+				row.clear();
+				row.asIntBuffer().put(pixels);
+				output.write(row.array());
+			}
+		} finally {
+			output.close();
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Load a saved sheet
+	 */
+	private static BufferedImage readSheet(File file) throws IOException {
+		Inflater inflater = new Inflater();
+		DataInputStream input = new DataInputStream(new InflaterInputStream(new BufferedInputStream(
+				new FileInputStream(file)), inflater, 1 << 16));
+		try {
+			int width = input.readInt();
+			int height = input.readInt();
+			byte[] bytes = new byte[width * height * 4];
+			input.readFully(bytes);
+
+			BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			ByteBuffer.wrap(bytes).asIntBuffer().get(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+
+			// Copy the pixels into a sheet in the screen's format
+			BufferedImage sheet = createSheet(width, height);
+			Graphics2D graphics = sheet.createGraphics();
+			graphics.setComposite(AlphaComposite.Src);
+			graphics.drawImage(image, 0, 0, null);
+			graphics.dispose();
+			return sheet;
+		} finally {
+			input.close();
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Load the saved sheets and the game images in them
+	 * 
+	 * @param key
+	 *            the key from getCacheKey
+	 * @return the game images in the order they were imported, or null if
+	 *         there are no saved sheets for this key
+	 */
+	public static GameImage[] load(String key) {
+		File folder = new File(CACHE_FOLDER);
+		File indexFile = new File(folder, INDEX_FILE);
+		if (!indexFile.isFile()) {
+			return null;
+		}
+
+		long start = System.currentTimeMillis();
+		try {
+			BufferedReader input = new BufferedReader(new FileReader(indexFile));
+			try {
+				if (!key.equals(input.readLine())) {
+					return null;
+				}
+				BufferedImage[] sheets = new BufferedImage[Integer.parseInt(input.readLine())];
+				for (int sheetNo = 0; sheetNo < sheets.length; sheetNo++) {
+					sheets[sheetNo] = readSheet(new File(folder, "sheet" + sheetNo + SHEET_EXTENSION));
+				}
+
+				ArrayList<GameImage> images = new ArrayList<GameImage>();
+				String line;
+				while ((line = input.readLine()) != null) {
+					String[] tokens = line.split("\t");
+					int sheetNo = Integer.parseInt(tokens[1]);
+					Color color = tokens[8].equals("-") ? null : new Color(Integer.parseInt(tokens[8]));
+					GameImage gameImage = new GameImage(tokens[0], Integer.parseInt(tokens[6]),
+							Integer.parseInt(tokens[7]), color);
+					if (sheetNo >= 0) {
+						gameImage.setSheet(sheets[sheetNo], Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]),
+								Integer.parseInt(tokens[4]), Integer.parseInt(tokens[5]));
+					}
+					images.add(gameImage);
+				}
+				System.out.println("Loaded " + images.size() + " images from " + sheets.length + " sheets ("
+						+ (System.currentTimeMillis() - start) + " ms)");
+				return images.toArray(new GameImage[images.size()]);
+			} finally {
+				input.close();
+			}
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Error loading the image sheets, importing the images instead");
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
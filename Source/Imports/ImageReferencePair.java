@@ -1,6 +1,7 @@
 package Imports;
 
 import java.awt.Color;
+import java.awt.Graphics;
 import java.awt.Image;
 import java.io.BufferedReader;
 import java.io.File;
@@ -21,6 +22,7 @@ public class ImageReferencePair {
 	private char reference;
 	private String imageName;
 	private Image image;
+	private GameImage gameImage;
 	private Color color;
 
 	/**
@@ -35,7 +37,7 @@ public class ImageReferencePair {
 		reference = ref;
 		imageName = name;
 
-		GameImage gameImage = Images.getGameImage(name);
+		gameImage = Images.getGameImage(name);
 		image = Images.getImage(name);
 		color = gameImage.getCentreColor();
 	}
@@ -108,6 +110,22 @@ public class ImageReferencePair {
 
 	public void setImage(Image image) {
 		this.image = image;
+		gameImage = null;
+	}
+
+	/**
+	 * Draw the image (from its sheet when it is still the game image's)
+	 * 
+	 * @param graphics
+	 * @param x
+	 * @param y
+	 */
+	public void draw(Graphics graphics, int x, int y) {
+		if (gameImage != null) {
+			gameImage.draw(graphics, x, y);
+		} else {
+			graphics.drawImage(image, x, y, null);
+		}
 	}
 
 	public Color getColor() {
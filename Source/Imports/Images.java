@@ -7,6 +7,8 @@ import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,6 +19,7 @@ import Client.ClientFrame;
 import Client.ClientInventory;
 import Client.ClientShop;
 import Server.ServerWorld;
+import Tools.Threads;
 import WorldCreator.CreatorObject;
 
 /**
@@ -239,8 +242,22 @@ public class Images {
 		
 		imageArray = new GameImage[10000];
 
+		// Load the images from the saved sheets if they are up to date
+		String atlasKey = null;
+		boolean loadedSheets = false;
+		if (imageMap.isEmpty() && !GameImage.hostingServer) {
+			atlasKey = ImageAtlas.getCacheKey();
+			GameImage[] savedImages = ImageAtlas.load(atlasKey);
+			if (savedImages != null) {
+				for (GameImage gameImage : savedImages) {
+					addtoImageArray(gameImage);
+				}
+				loadedSheets = true;
+			}
+		}
+
 		// Only import if the images haven't been imported already
-		if (imageMap.isEmpty()) {
+		if (imageMap.isEmpty() && !loadedSheets) {
 			BufferedImage image = null;
 
 			// Import sprite sheets to create images with
@@ -1481,6 +1498,23 @@ public class Images {
 			}
 
 			image = null;
+
+			// Pack the images into sheets and save them in the background for
+			// next time
+			if (!GameImage.hostingServer) {
+				long start = System.currentTimeMillis();
+				final ArrayList<BufferedImage> sheets = ImageAtlas.pack(imageArray, noOfImages);
+				System.out.println("Packed " + noOfImages + " images into " + sheets.size() + " sheets ("
+						+ (System.currentTimeMillis() - start) + " ms)");
+
+				final String key = atlasKey;
+				final GameImage[] images = Arrays.copyOf(imageArray, noOfImages);
+				Threads.start(new Runnable() {
+					public void run() {
+						ImageAtlas.save(key, images, images.length, sheets);
+					}
+				}, "Image sheets");
+			}
 		}
 
 		// Create a correctly sized array of the game images
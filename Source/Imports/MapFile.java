@@ -0,0 +1,299 @@
+package Imports;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import Server.ServerWorld;
+
+/**
+ * The compiled (binary) map format. Text maps are compiled the first time
+ * they are loaded (or with main), and after that the compiled file is
+ * memory-mapped and decoded straight into the grids, instead of parsing the
+ * text again. The format is (big-endian):
+ * <pre>
+ * header:     magic, version, rows, columns (ints), the length and last
+ *             modified time of the text map it came from (longs)
+ * tiles:      the number of runs (int), then each run's tile (byte) and
+ *             length (unsigned short), row by row
+ * collision:  2 bits per tile (background, solid or platform), 4 tiles to
+ *             a byte
+ * objects:    the number of starting objects (int), then each object's row
+ *             and column (ints) and image reference (byte)
+ * </pre>
+ * The grids include the invisible walls, and the starting objects' rows and
+ * columns are already moved in by the walls
+ * @author William Xu & Alex Raita
+ *
+ */
+public class MapFile
+{
+	public static final int MAGIC = 0x57514D50;
+	public static final int VERSION = 1;
+
+	/**
+	 * The folder the compiled maps are kept in (inside Resources)
+	 */
+	public static final String COMPILED_FOLDER = "CompiledMaps";
+
+	/**
+	 * The extension of compiled maps
+	 */
+	public static final String EXTENSION = ".wqm";
+
+	/**
+	 * The size of the header in bytes
+	 */
+	private static final int HEADER_SIZE = 4 * 4 + 8 * 2;
+
+	/**
+	 * The collision codes in the collision layer
+	 */
+	private static final int BACKGROUND_CODE = 0;
+	private static final int SOLID_CODE = 1;
+	private static final int PLATFORM_CODE = 2;
+
+	/**
+	 * Get the compiled file for a text map
+	 * @param textFile the text map
+	 * @return the compiled file
+	 */
+	public static File getCompiledFile(File textFile)
+	{
+		return new File(new File(textFile.getParentFile(), COMPILED_FOLDER), textFile.getName() + EXTENSION);
+	}
+
+	/**
+	 * Check if a compiled map was compiled from the current version of a text
+	 * map. The header is read rather than memory-mapped, since a mapping
+	 * stays open after the channel is closed and would stop the file from
+	 * being replaced on Windows
+	 * @param compiledFile the compiled map
+	 * @param textFile the text map
+	 * @return whether or not the compiled map can be used
+	 */
+	public static boolean isUpToDate(File compiledFile, File textFile)
+	{
+		if (!compiledFile.isFile())
+			return false;
+		try (FileChannel channel = FileChannel.open(compiledFile.toPath(), StandardOpenOption.READ))
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining())
+			{
+				if (channel.read(header) < 0)
+					return false;
+			}
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+				return false;
+
+			// A compiled map with no text map can be used as is
+			return !textFile.isFile() || header.getLong(16) == textFile.length()
+					&& header.getLong(24) == textFile.lastModified();
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Write a map to a compiled file. The file is written next to the old
+	 * one and then moved over it, so a room loading the map never sees half
+	 * a file
+	 * @param map the map
+	 * @param textFile the text map it came from (or null)
+	 * @param compiledFile the compiled file
+	 */
+	public static void write(GameMap map, File textFile, File compiledFile) throws IOException
+	{
+		int rows = map.getRows();
+		int columns = map.getColumns();
+
+		compiledFile.getParentFile().mkdirs();
+		File newFile = new File(compiledFile.getPath() + ".new");
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newFile)));
+		boolean written = false;
+		try
+		{
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(rows);
+			output.writeInt(columns);
+			output.writeLong(textFile == null ? 0 : textFile.length());
+			output.writeLong(textFile == null ? 0 : textFile.lastModified());
+
+			// Tiles as runs of the same tile
+			int noOfRuns = 0;
+			for (int tile = 0; tile < rows * columns; noOfRuns++)
+			{
+				tile += getRunLength(map, tile, columns);
+			}
+			output.writeInt(noOfRuns);
+			for (int tile = 0; tile < rows * columns;)
+			{
+				int length = getRunLength(map, tile, columns);
+				output.writeByte(checkReference(map.getTile(tile / columns, tile % columns)));
+				output.writeShort(length);
+				tile += length;
+			}
+
+			// Collision, 4 tiles to a byte
+			int packed = 0;
+			for (int tile = 0; tile < rows * columns; tile++)
+			{
+				char collision = map.getCollision(tile / columns, tile % columns);
+				int code = BACKGROUND_CODE;
+				if (collision == ServerWorld.SOLID_TILE)
+					code = SOLID_CODE;
+				else if (collision == ServerWorld.PLATFORM_TILE)
+					code = PLATFORM_CODE;
+				packed |= code << ((tile % 4) * 2);
+				if (tile % 4 == 3)
+				{
+					output.writeByte(packed);
+					packed = 0;
+				}
+			}
+			if ((rows * columns) % 4 != 0)
+				output.writeByte(packed);
+
+			// Starting objects
+			output.writeInt(map.getNoOfStartingObjects());
+			for (int object = 0; object < map.getNoOfStartingObjects(); object++)
+			{
+				output.writeInt(map.getStartingRow(object));
+				output.writeInt(map.getStartingColumn(object));
+				output.writeByte(checkReference(map.getStartingReference(object)));
+			}
+			written = true;
+		}
+		finally
+		{
+			output.close();
+			if (!written)
+				newFile.delete();
+		}
+		Files.move(newFile.toPath(), compiledFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Check that an image reference fits in the byte it is written to
+	 * @param reference the reference
+	 * @return the reference
+	 */
+	private static char checkReference(char reference) throws IOException
+	{
+		if (reference > 0xFF)
+			throw new IOException("Image reference " + (int) reference + " doesn't fit in a compiled map");
+		return reference;
+	}
+
+	/**
+	 * Get the length of the run of tiles starting at a tile (at most the
+	 * longest run that fits in an unsigned short)
+	 */
+	private static int getRunLength(GameMap map, int start, int columns)
+	{
+		int end = Math.min(map.getRows() * columns, start + 0xFFFF);
+		char tile = map.getTile(start / columns, start % columns);
+		int next = start + 1;
+		while (next < end && map.getTile(next / columns, next % columns) == tile)
+			next++;
+		return next - start;
+	}
+
+	/**
+	 * Load a compiled map by memory-mapping it
+	 * @param name the name of the map
+	 * @param compiledFile the compiled file
+	 * @return the map
+	 */
+	public static GameMap read(String name, File compiledFile) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(compiledFile.toPath(), StandardOpenOption.READ))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+				throw new IOException("Not a compiled map: " + compiledFile);
+			int rows = buffer.getInt();
+			int columns = buffer.getInt();
+			buffer.getLong();
+			buffer.getLong();
+
+			char[][] tileGrid = new char[rows][columns];
+			int noOfRuns = buffer.getInt();
+			int tile = 0;
+			for (int run = 0; run < noOfRuns; run++)
+			{
+				char tileType = (char) (buffer.get() & 0xFF);
+				int length = buffer.getShort() & 0xFFFF;
+				for (int end = tile + length; tile < end; tile++)
+					tileGrid[tile / columns][tile % columns] = tileType;
+			}
+			if (tile != rows * columns)
+				throw new IOException("Compiled map is missing tiles: " + compiledFile);
+
+			char[][] collisionGrid = new char[rows][columns];
+			int packed = 0;
+			for (tile = 0; tile < rows * columns; tile++)
+			{
+				if (tile % 4 == 0)
+					packed = buffer.get();
+				switch ((packed >> ((tile % 4) * 2)) & 3)
+				{
+				case SOLID_CODE:
+					collisionGrid[tile / columns][tile % columns] = ServerWorld.SOLID_TILE;
+					break;
+				case PLATFORM_CODE:
+					collisionGrid[tile / columns][tile % columns] = ServerWorld.PLATFORM_TILE;
+					break;
+				default:
+					collisionGrid[tile / columns][tile % columns] = ServerWorld.BACKGROUND_TILE;
+				}
+			}
+
+			int noOfObjects = buffer.getInt();
+			int[] startingRows = new int[noOfObjects];
+			int[] startingColumns = new int[noOfObjects];
+			char[] startingReferences = new char[noOfObjects];
+			for (int object = 0; object < noOfObjects; object++)
+			{
+				startingRows[object] = buffer.getInt();
+				startingColumns[object] = buffer.getInt();
+				startingReferences[object] = (char) (buffer.get() & 0xFF);
+			}
+			return new GameMap(name, tileGrid, collisionGrid, startingRows, startingColumns, startingReferences);
+		}
+	}
+
+	/**
+	 * Compile text maps (made by hand or with the WorldCreator). With no
+	 * arguments every map listed in Resources/Maps is compiled
+	 * @param args the names of the maps in Resources to compile
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			args = GameMaps.readMapList().toArray(new String[0]);
+		}
+		for (String mapFile : args)
+		{
+			File textFile = new File("Resources", mapFile.toLowerCase());
+			File compiledFile = getCompiledFile(textFile);
+			GameMap map = GameMaps.readTextMap(mapFile.toLowerCase().replace(' ', '_'), textFile);
+			write(map, textFile, compiledFile);
+			System.out.println("Compiled " + textFile + " (" + textFile.length() + " bytes) to " + compiledFile
+					+ " (" + compiledFile.length() + " bytes)");
+		}
+	}
+}
@@ -1,10 +1,8 @@
 package Server.Buildings;
 
-import java.util.LinkedList;
 import Server.ServerObject;
 import Server.ServerWorld;
 import Server.Creatures.ServerCreature;
-import Server.Creatures.ServerPlayer;
 import Server.Items.ServerProjectile;
 
 public class ServerArrowSource extends ServerObject
@@ -85,8 +83,8 @@ public class ServerArrowSource extends ServerObject
 					
 				double angle = getAngle(xDist, yDist, speed, ServerProjectile.ARROW_GRAVITY);
 
-				ServerProjectile arrow = new ServerProjectile(getX(),
-						getY(), owner, angle, arrowType,getWorld());
+				ServerProjectile arrow = getWorld().newProjectile(getX(),
+						getY(), owner, angle, arrowType);
 
 				getWorld().add(arrow);
 			}
@@ -99,20 +97,7 @@ public class ServerArrowSource extends ServerObject
 	 * from the enemy team)
 	 */
 	public ServerCreature findTarget(int range) {
-		LinkedList<ServerCreature> enemyTeam = null;
-
-		if (team == ServerPlayer.BLUE_TEAM) {
-			enemyTeam = getWorld().getRedTeam();
-		} else if (team == ServerPlayer.RED_TEAM) {
-			enemyTeam = getWorld().getBlueTeam();
-		}
-		for (ServerCreature enemy : enemyTeam) {
-			if (enemy.isAlive() && quickInRange(enemy, range)) 
-			{
-				return enemy;
-			}
-		}
-		return null;
+		return getWorld().findNearestEnemy(this, team, range);
 	}
 	
 	/**
@@ -280,7 +280,7 @@ public class ServerCastle extends ServerBuilding {
 			{
 				getWorld().playSound("level_up",
 						player.getX() + player.getWidth()/2, player.getY() + player.getHeight()/2);
-				getWorld().add(new ServerText(player.getX()+player.getWidth()/2, player.getY() - 30, "***Level Up***", ServerText.LIGHT_GREEN_TEXT, getWorld()));
+				getWorld().addText(player.getX()+player.getWidth()/2, player.getY() - 30, "***Level Up***", ServerText.LIGHT_GREEN_TEXT);
 			}
 		}
 		
@@ -290,7 +290,7 @@ public class ServerCastle extends ServerBuilding {
 			{
 				getWorld().playSound("level_up",
 						player.getX() + player.getWidth()/2, player.getY() + player.getHeight()/2);
-				getWorld().add(new ServerText(player.getX()+player.getWidth()/2, player.getY() - 30, "***Level Up***", ServerText.LIGHT_GREEN_TEXT, getWorld()));
+				getWorld().addText(player.getX()+player.getWidth()/2, player.getY() - 30, "***Level Up***", ServerText.LIGHT_GREEN_TEXT);
 			}
 		}
 	}
@@ -66,7 +66,7 @@ public class ServerMine extends ServerBuilding {
 		{
 			castle.addMoney(gold);
 			
-			getWorld().add(new ServerText(getX()+getWidth()/2, getY() - 20, gold + " gold added to castle", ServerText.LIGHT_YELLOW_TEXT, getWorld()));
+			getWorld().addText(getX()+getWidth()/2, getY() - 20, gold + " gold added to castle", ServerText.LIGHT_YELLOW_TEXT);
 			gold = 0;
 			
 		}
@@ -8,6 +8,7 @@ import java.util.Queue;
 import Server.Server;
 import Server.ServerObject;
 import Server.ServerObjectShown;
+import Server.ServerThinkScheduler;
 import Server.ServerWorld;
 import Server.Buildings.ServerCastle;
 import Server.Effects.ServerText;
@@ -16,7 +17,6 @@ import Server.Items.ServerArmour;
 import Server.Items.ServerItem;
 import Server.Items.ServerProjectile;
 import Server.Items.ServerWeapon;
-import Server.Items.ServerWeaponSwing;
 
 /**
  * The player (Type 'P')
@@ -226,6 +226,11 @@ public class ServerAIPlayer extends ServerCreature{
 	public final static int BOW_RANGE = 650;
 	public final static int WAND_TYPE = 2;
 	public final static int WAND_RANGE = 400;
+
+	/**
+	 * The number of ticks between choosing an action while on target
+	 */
+	public final static int ACTION_THINK_PERIOD = 5;
 	private int weaponType;
 	private int myRangedType;
 	
@@ -518,7 +523,7 @@ public class ServerAIPlayer extends ServerCreature{
 				
 				// Have the bot move towards the enemy base when it has no target
 				if (getTarget() == null) {
-					if (getWorld().getWorldCounter() % 15 == 0) {
+					if (getWorld().getThinkScheduler().shouldThink(this, ServerThinkScheduler.TARGET_THINK, ServerThinkScheduler.TARGET_PERIOD)) {
 						setTarget(findTarget(targetRange));
 					}
 	
@@ -527,6 +532,8 @@ public class ServerAIPlayer extends ServerCreature{
 						if (getTeam() == ServerPlayer.BLUE_TEAM) {
 							if (quickInRange(getWorld().getRedCastle(), (double) targetRange)) {
 								setTarget(getWorld().getRedCastle());
+							} else if (followPath(getWorld().getRedCastle(), horizontalMovement, verticalMovement)) {
+								// Following the path to the castle
 							} else if (getX() - getWorld().getRedCastleX() < 0) {
 								setHSpeed(horizontalMovement);
 							} else if (getX() - getWorld().getRedCastleX() > 0) {
@@ -536,6 +543,8 @@ public class ServerAIPlayer extends ServerCreature{
 						} else if (getTeam() == ServerPlayer.RED_TEAM) {
 							if (quickInRange(getWorld().getBlueCastle(), (double) targetRange)) {
 								setTarget(getWorld().getBlueCastle());
+							} else if (followPath(getWorld().getBlueCastle(), horizontalMovement, verticalMovement)) {
+								// Following the path to the castle
 							} else if (getX() - getWorld().getBlueCastleX() < 0) {
 								setHSpeed(horizontalMovement);
 							} else {
@@ -556,7 +565,7 @@ public class ServerAIPlayer extends ServerCreature{
 						// System.out.println(getTarget().getImage() + " " +
 						// getTarget().getX());
 						onTarget = true;
-						if (isOnSurface() && getWorld().getWorldCounter() % 5 == 0) {
+						if (isOnSurface() && getWorld().getThinkScheduler().shouldThink(this, ServerThinkScheduler.ACTION_THINK, ACTION_THINK_PERIOD)) {
 							int actionChoice = (int) (Math.random() * 36);
 							canPerformAction = false;
 							
@@ -604,10 +613,10 @@ public class ServerAIPlayer extends ServerCreature{
 									}
 									actionDelay = meleeWeapon.getActionDelay() + meleeWeapon.getActionDelay()/2;
 									actionSpeed = meleeWeapon.getActionSpeed();
-									if (heldWeapon != null) {
+									if (isHolding(heldWeapon)) {
 										heldWeapon.destroy();
 									}
-									heldWeapon = new ServerWeaponSwing(this,
+									heldWeapon = getWorld().newWeaponSwing(this,
 											0, -20, meleeWeapon.getActionImage(),
 											(int) (Math.toDegrees(angle) + 0.5),
 											meleeWeapon.getActionSpeed(),
@@ -757,9 +766,9 @@ public class ServerAIPlayer extends ServerCreature{
 	
 									if (canAttack) {
 										getWorld().add(
-												new ServerProjectile(getX() + getWidth() / 2,
+												getWorld().newProjectile(getX() + getWidth() / 2,
 														getY() + getHeight() / 3, this, angle,
-														arrowType, getWorld()));
+														arrowType));
 	
 										if (getDirection().equals("LEFT")) {
 	
@@ -767,7 +776,7 @@ public class ServerAIPlayer extends ServerCreature{
 										} else {
 											image += "_RIGHT";
 										}
-										if (heldWeapon != null) {
+										if (isHolding(heldWeapon)) {
 											heldWeapon.destroy();
 										}
 										
@@ -779,11 +788,10 @@ public class ServerAIPlayer extends ServerCreature{
 									} else {
 										action = ServerCreature.OUT_OF_MANA;
 										actionDelay = 0;
-										ServerText message = new ServerText(
-												getX() + getWidth() / 2, getY() - getHeight() / 2,
-												"!M", ServerText.PURPLE_TEXT, getWorld());
 										this.setWeaponType(MELEE_TYPE);
-										getWorld().add(message);
+										getWorld().addText(getX() + getWidth() / 2,
+												getY() - getHeight() / 2, "!M",
+												ServerText.PURPLE_TEXT);
 									}
 								}
 							}
@@ -820,7 +828,7 @@ public class ServerAIPlayer extends ServerCreature{
 					actionCounter++;
 				}
 			} else {
-				if (heldWeapon != null) {
+				if (isHolding(heldWeapon)) {
 					heldWeapon.destroy();
 					heldWeapon = null;
 				}
@@ -920,13 +928,13 @@ public class ServerAIPlayer extends ServerCreature{
 					}
 				} else if (action == ServerPlayer.BOW) {
 					setRowCol(2, 7);
-					if (heldWeapon != null) {
+					if (isHolding(heldWeapon)) {
 						heldWeapon.setX(getDrawX());
 						heldWeapon.setY(getDrawY());
 					}
 				} else if (action == ServerPlayer.WAND) {
 					setRowCol(2, 5);
-					if (heldWeapon != null) {
+					if (isHolding(heldWeapon)) {
 						if (getDirection().equals("LEFT")) {
 							heldWeapon.setX(getDrawX() - (90 - 64));
 						} else {
@@ -1105,9 +1113,8 @@ public class ServerAIPlayer extends ServerCreature{
 			double damageY = Math.random() * getHeight() / 2 + getY()
 			- getHeight() / 3;
 
-			getWorld().add(
-					new ServerText(damageX, damageY, Integer.toString(amount),
-							textColour, getWorld()));
+			getWorld().addText(damageX, damageY, Integer.toString(amount),
+					textColour);
 
 			// Play the death animation of the player when the HP drops to 0 or
 			// below, and eventually respawn the player
@@ -1145,7 +1152,7 @@ public class ServerAIPlayer extends ServerCreature{
 					}
 				}
 				setAlive(false);
-				if (heldWeapon != null)
+				if (isHolding(heldWeapon))
 				{
 					heldWeapon.destroy();
 				}
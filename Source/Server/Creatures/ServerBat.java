@@ -1,6 +1,8 @@
 package Server.Creatures;
 
 import Server.ServerObject;
+import Server.ServerObjectType;
+import Server.ServerThinkScheduler;
 import Server.ServerWorld;
 import Server.Items.ServerItem;
 import Server.Spawners.ServerBatSpawner;
@@ -200,7 +202,10 @@ public class ServerBat extends ServerEnemy
 				}
 
 			}
-			findPlayerTarget();
+			if (getWorld().getThinkScheduler().shouldThink(this, ServerThinkScheduler.TARGET_THINK, ServerThinkScheduler.TARGET_PERIOD))
+			{
+				findPlayerTarget();
+			}
 
 		}
 		else if (getTarget().getHP() <= 0 || getTarget().isDisconnected()
@@ -275,7 +280,7 @@ public class ServerBat extends ServerEnemy
 	public void inflictDamage(int amount, ServerCreature source)
 	{
 		super.inflictDamage(amount, source);
-		if (source.getType().equals(ServerWorld.PLAYER_TYPE)
+		if (source.getTypeID() == ServerObjectType.PLAYER_ID
 				&& source != getTarget())
 		{
 			setTarget((ServerPlayer) source);
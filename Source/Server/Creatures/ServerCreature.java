@@ -1,13 +1,16 @@
 package Server.Creatures;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 
+import Server.ServerNavGraph;
 import Server.ServerObject;
+import Server.ServerObjectType;
+import Server.ServerThinkScheduler;
 import Server.ServerWorld;
 import Server.Effects.ServerText;
 import Server.Items.ServerItem;
 import Server.Items.ServerPotion;
+import Server.Items.ServerWeaponSwing;
 import Tools.RowCol;
 
 /**
@@ -63,6 +66,22 @@ public abstract class ServerCreature extends ServerObject
 	 */
 	private int team = NEUTRAL;
 
+	/**
+	 * The ticks the creature next gets to look for a target and choose an
+	 * action on (see ServerThinkScheduler), or -1 if it hasn't been given one
+	 * yet
+	 */
+	private long nextTargetThink = -1;
+	private long nextActionThink = -1;
+
+	/**
+	 * The navigation graph and the paths the creature is following (found
+	 * again when the creature's movement or destination changes)
+	 */
+	private ServerNavGraph navGraph;
+	private ServerNavGraph.FlowField navPaths;
+	private ServerObject navDestination;
+
 	/**
 	 * Stores the inventory of the creature
 	 */
@@ -106,6 +125,12 @@ public abstract class ServerCreature extends ServerObject
 	 */
 	private RowCol rowCol;
 
+	/**
+	 * Used to hold the objects found near the creature (so a new list isn't
+	 * made every time)
+	 */
+	private ArrayList<ServerObject> nearbyObjects = new ArrayList<ServerObject>();
+
 	/**
 	 * Whether or not the creature is alive
 	 */
@@ -149,6 +174,25 @@ public abstract class ServerCreature extends ServerObject
 		this.rowCol = new RowCol(0, 0);
 	}
 
+	/**
+	 * Get the tick the creature next gets to make a kind of decision on
+	 * @param kind ServerThinkScheduler.TARGET_THINK or ACTION_THINK
+	 */
+	public long getNextThink(int kind)
+	{
+		if (kind == ServerThinkScheduler.ACTION_THINK)
+			return nextActionThink;
+		return nextTargetThink;
+	}
+
+	public void setNextThink(int kind, long nextThink)
+	{
+		if (kind == ServerThinkScheduler.ACTION_THINK)
+			nextActionThink = nextThink;
+		else
+			nextTargetThink = nextThink;
+	}
+
 	public boolean isAttackable()
 	{
 		return attackable;
@@ -224,7 +268,7 @@ public abstract class ServerCreature extends ServerObject
 	public void addCastleXP(int amount, ServerCreature source)
 	{
 		//Add xp to the team of the source
-		if (source.getType().equals(ServerWorld.PLAYER_TYPE))
+		if (source.getTypeID() == ServerObjectType.PLAYER_ID)
 		{
 			((ServerPlayer)source).addTotalDamage(amount);
 			if (source.getTeam() == RED_TEAM)
@@ -232,7 +276,7 @@ public abstract class ServerCreature extends ServerObject
 			else
 				world.getBlueCastle().addXP(amount);
 		}
-		else if (source.getType().equals(ServerWorld.PLAYER_AI_TYPE))
+		else if (source.getTypeID() == ServerObjectType.PLAYER_AI_ID)
 		{
 			((ServerAIPlayer)source).addTotalDamage(amount);
 			if (source.getTeam() == RED_TEAM)
@@ -266,13 +310,13 @@ public abstract class ServerCreature extends ServerObject
 			{
 				colour = ServerText.BLUE_TEXT;
 			}
-			if (getType().equals(ServerWorld.PLAYER_TYPE))
+			if (getTypeID() == ServerObjectType.PLAYER_ID)
 			{
 				colour = ServerText.RED_TEXT;
 			}
 
-			world.add(new ServerText(damageX, damageY, Integer
-					.toString(amount), colour, world));
+			world.addText(damageX, damageY, Integer.toString(amount),
+					colour);
 		}
 
 		// Drop the creature's inventory and kill it when its HP drops below 0
@@ -430,11 +474,6 @@ public abstract class ServerCreature extends ServerObject
 	 */
 	public void punch(int damage)
 	{
-		// List of creatures we've already punched so we dont hit them
-		// twice
-		ArrayList<ServerCreature> alreadyPunched = new
-				ArrayList<ServerCreature>();
-
 		int startRow = (int) (getY() / ServerWorld.OBJECT_TILE_SIZE);
 		int endRow = (int) ((getY() + getHeight()) /
 				ServerWorld.OBJECT_TILE_SIZE);
@@ -460,29 +499,24 @@ public abstract class ServerCreature extends ServerObject
 		}
 
 		// Inflict damage to every creature in range of the player's
-		// punch
-		for (int row = startRow; row <= endRow; row++)
+		// punch (each object is only found once so we dont hit them twice)
+		getWorld().getObjectGrid().getObjects(startRow, endRow, startColumn,
+				endColumn, nearbyObjects);
+		for (int index = 0; index < nearbyObjects.size(); index++)
 		{
-			for (int column = startColumn; column <= endColumn; column++)
+			ServerObject otherObject = nearbyObjects.get(index);
+			if (otherObject.is(ServerObjectType.CREATURE)
+					&& ((ServerCreature) otherObject)
+					.isAttackable()
+					&& ((ServerCreature) otherObject)
+					.getTeam() != getTeam()
+					&& otherObject.collidesWith(x1,y1,x2,y2))
 			{
-				for (ServerObject otherObject : getWorld().getObjectGrid()[row][column])
-				{
-					if (otherObject.getType().charAt(0) == ServerWorld.CREATURE_TYPE
-							&& ((ServerCreature) otherObject)
-							.isAttackable()
-							&& ((ServerCreature) otherObject)
-							.getTeam() != getTeam()
-							&& otherObject.collidesWith(x1,y1,x2,y2)
-							&& !alreadyPunched.contains(otherObject))
-					{
-						((ServerCreature) otherObject)
-						.inflictDamage(damage, this);
-						alreadyPunched
-						.add((ServerCreature) otherObject);
-					}
-				}
+				((ServerCreature) otherObject)
+				.inflictDamage(damage, this);
 			}
 		}
+		nearbyObjects.clear();
 	}
 
 	/**
@@ -490,22 +524,85 @@ public abstract class ServerCreature extends ServerObject
 	 * from the enemy team)
 	 */
 	public ServerCreature findTarget(int range) {
-		LinkedList<ServerCreature> enemyTeam = null;
+		return getWorld().findNearestEnemy(this, getTeam(), range);
+	}
+
+	/**
+	 * Check if a weapon this creature added to the world is still its own.
+	 * Weapon swings are reused once they are removed from the world, so an
+	 * old reference to a swing may now be another creature's swing
+	 * 
+	 * @param weapon the weapon
+	 * @return whether or not the creature still holds the weapon
+	 */
+	protected boolean isHolding(ServerObject weapon)
+	{
+		return weapon != null && (!(weapon instanceof ServerWeaponSwing)
+				|| ((ServerWeaponSwing) weapon).getWielder() == this);
+	}
 
-		if (getTeam() == ServerPlayer.BLUE_TEAM) {
-			enemyTeam = getWorld().getRedTeam();
-		} else if (getTeam() == ServerPlayer.RED_TEAM) {
-			enemyTeam = getWorld().getBlueTeam();
+	/**
+	 * Take the next step on the map's shortest path to a destination, walking
+	 * or jumping towards the next node. While the creature is in the air it
+	 * keeps going the way it was
+	 * 
+	 * @param destination the object to go to
+	 * @param movementSpeed the creature's horizontal speed
+	 * @param jumpSpeed the vertical speed of the creature's jump
+	 * @return false if there is no path from where the creature is (or it is
+	 *         already there, or the path isn't ready yet), so it should find
+	 *         its own way
+	 */
+	protected boolean followPath(ServerObject destination, double movementSpeed, double jumpSpeed)
+	{
+		if (navGraph == null || !navGraph.fits((int) jumpSpeed, (int) movementSpeed,
+				(int) Math.ceil(getHeight() / ServerWorld.TILE_SIZE)))
+		{
+			navGraph = getWorld().getNavGraph(jumpSpeed, movementSpeed, getHeight());
+			navPaths = null;
+			if (navGraph == null)
+			{
+				return false;
+			}
 		}
-		for (ServerCreature enemy : enemyTeam) {
-			if (enemy.isAlive() && quickInRange(enemy, range))
+		if (navPaths == null || navDestination != destination)
+		{
+			navPaths = navGraph.getFlowField(destination.getX(), destination.getY(),
+					destination.getX() + destination.getWidth(), destination.getY() + destination.getHeight());
+			navDestination = destination;
+			if (navPaths == null)
 			{
-				return enemy;
+				return false;
 			}
 		}
-		return null;
+
+		int node = navGraph.getNode(getX() + getWidth() / 2, getY() + getHeight());
+		if (node == ServerNavGraph.NO_NODE)
+		{
+			return !isOnSurface();
+		}
+		int next = navPaths.getNext(node);
+		if (next == ServerNavGraph.NO_NODE)
+		{
+			return false;
+		}
+
+		if (navGraph.getColumn(next) > navGraph.getColumn(node))
+		{
+			setHSpeed(movementSpeed);
+		}
+		else
+		{
+			setHSpeed(-movementSpeed);
+		}
+		if (navPaths.isJump(node) && isOnSurface())
+		{
+			setVSpeed(-jumpSpeed);
+			setOnSurface(false);
+		}
+		return true;
 	}
-
+
 	/////////////////////////
 	// GETTERS AND SETTERS //
 	/////////////////////////
@@ -1,13 +1,14 @@
 package Server.Creatures;
 
 import Server.ServerObject;
+import Server.ServerObjectType;
+import Server.ServerThinkScheduler;
 import Server.ServerWorld;
 import Server.Buildings.ServerCastle;
 import Server.Effects.ServerText;
 import Server.Items.ServerItem;
 import Server.Items.ServerProjectile;
 import Server.Items.ServerWeapon;
-import Server.Items.ServerWeaponSwing;
 import Tools.RowCol;
 
 /**
@@ -31,6 +32,11 @@ public class ServerGoblin extends ServerCreature {
 	public final static int GOBLIN_ARCHER_NO = 1;
 	public final static int ARCHER_FIGHTING_RANGE = 550;
 
+	/**
+	 * The number of ticks between choosing an action while on target
+	 */
+	public final static int ACTION_THINK_PERIOD = 30;
+
 	public final static int GOBLIN_SOLDIER_HP = 70;
 	public final static int GOBLIN_SOLDIER_NO = 2;
 	
@@ -403,7 +409,7 @@ public class ServerGoblin extends ServerCreature {
 
 			// Have the goblin move towards the enemy base when it has no target
 			if (getTarget() == null) {
-				if (getWorld().getWorldCounter() % 15 == 0) {
+				if (getWorld().getThinkScheduler().shouldThink(this, ServerThinkScheduler.TARGET_THINK, ServerThinkScheduler.TARGET_PERIOD)) {
 					setTarget(findTarget(targetRange));
 				}
 
@@ -412,6 +418,8 @@ public class ServerGoblin extends ServerCreature {
 					if (getTeam() == ServerPlayer.BLUE_TEAM) {
 						if (quickInRange(getWorld().getRedCastle(), (double) targetRange)) {
 							setTarget(getWorld().getRedCastle());
+						} else if (followPath(getWorld().getRedCastle(), movementSpeed, jumpSpeed)) {
+							// Following the path to the castle
 						} else if (getX() - getWorld().getRedCastleX() < 0) {
 							setHSpeed(movementSpeed);
 						} else if (getX() - getWorld().getRedCastleX() > 0) {
@@ -421,6 +429,8 @@ public class ServerGoblin extends ServerCreature {
 					} else if (getTeam() == ServerPlayer.RED_TEAM) {
 						if (quickInRange(getWorld().getBlueCastle(), (double) targetRange)) {
 							setTarget(getWorld().getBlueCastle());
+						} else if (followPath(getWorld().getBlueCastle(), movementSpeed, jumpSpeed)) {
+							// Following the path to the castle
 						} else if (getX() - getWorld().getBlueCastleX() < 0) {
 							setHSpeed(movementSpeed);
 						} else {
@@ -432,7 +442,7 @@ public class ServerGoblin extends ServerCreature {
 			// Remove the target when it is out of range or dies
 			else if (!getTarget().isAlive() || !getTarget().exists() || !quickInRange(getTarget(), targetRange)) {
 				setTarget(null);
-				if (getType().equals(ServerWorld.GOBLIN_ARCHER_TYPE)) {
+				if (getTypeID() == ServerObjectType.GOBLIN_ARCHER_ID) {
 					fightingRange = privateFightingRange;
 				}
 			}
@@ -444,7 +454,7 @@ public class ServerGoblin extends ServerCreature {
 					// getTarget().getX());
 					onTarget = true;
 					
-					if (getWorld().getWorldCounter() % 30 == 0)
+					if (getWorld().getThinkScheduler().shouldThink(this, ServerThinkScheduler.ACTION_THINK, ACTION_THINK_PERIOD))
 					{
 						int actionChoice = (int) (Math.random() * 10);
 	
@@ -465,7 +475,7 @@ public class ServerGoblin extends ServerCreature {
 							actionDelay = 55;
 						} else {
 							if (isMelee) {
-								if (getType().equals(ServerWorld.GOBLIN_GIANT_TYPE)) {
+								if (getTypeID() == ServerObjectType.GOBLIN_GIANT_ID) {
 									action = ServerCreature.PUNCH;
 									setHasPunched(false);
 									actionDelay = 60;
@@ -478,12 +488,12 @@ public class ServerGoblin extends ServerCreature {
 										angle = 0;
 									}
 	
-									if (getType().equals(ServerWorld.GOBLIN_SAMURAI_TYPE)) {
-										heldWeapon = new ServerWeaponSwing(this, 0, -16, weapon, angle, actionDelay,
+									if (getTypeID() == ServerObjectType.GOBLIN_SAMURAI_ID) {
+										heldWeapon = getWorld().newWeaponSwing(this, 0, -16, weapon, angle, actionDelay,
 												damage);
 										getWorld().add(heldWeapon);
 									} else {
-										heldWeapon = new ServerWeaponSwing(this, 4, -19, weapon, angle, actionDelay,
+										heldWeapon = getWorld().newWeaponSwing(this, 4, -19, weapon, angle, actionDelay,
 												damage);
 										getWorld().add(heldWeapon);
 									}
@@ -505,7 +515,7 @@ public class ServerGoblin extends ServerCreature {
 	
 								double angle = 0;
 								double targetHeightFactor = 5;
-								if (getTarget().getType().equals(ServerWorld.CASTLE_TYPE)) {
+								if (getTarget().getTypeID() == ServerObjectType.CASTLE_ID) {
 									targetHeightFactor = 1.3;
 								}
 								
@@ -544,8 +554,8 @@ public class ServerGoblin extends ServerCreature {
 									angle += (Math.PI / 8) * (random - 1);
 								}
 	
-								ServerProjectile projectile = new ServerProjectile(getX() + getWidth() / 2,
-										getY() + getHeight() / 3, this, angle, weapon, getWorld());
+								ServerProjectile projectile = getWorld().newProjectile(getX() + getWidth() / 2,
+										getY() + getHeight() / 3, this, angle, weapon);
 								projectile.setDamage(damage);
 								getWorld().add(projectile);
 							}
@@ -709,12 +719,12 @@ public class ServerGoblin extends ServerCreature {
 
 		double damageX = Math.random() * getWidth() + getX();
 		double damageY = Math.random() * getHeight() / 2 + getY() - getHeight() / 3;
-		getWorld().add(new ServerText(damageX, damageY, Integer.toString(amount), textColour, getWorld()));
+		getWorld().addText(damageX, damageY, Integer.toString(amount), textColour);
 
 		// Play the death animation for a goblin when it dies
 		if (getHP() <= 0 && isAlive()) {
 			setAlive(false);
-			if (heldWeapon != null)
+			if (isHolding(heldWeapon))
 			{
 				heldWeapon.destroy();
 			}
@@ -1,22 +1,22 @@
 package Server.Creatures;
 
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.Socket;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.ConcurrentModificationException;
-import java.util.LinkedList;
-import java.util.Queue;
 
-import Imports.Audio;
+import Imports.GameMap;
 import Imports.Images;
+import Server.ServerConnection;
 import Server.ServerEngine;
-import Server.ServerManager;
 import Server.SavedPlayer;
 import Server.ServerObject;
+import Server.ServerObjectGrid;
 import Server.ServerObjectShown;
+import Server.ServerObjectType;
 import Server.ServerWorld;
 import Server.Buildings.*;
+import Server.Effects.ServerEffects;
 import Server.Effects.ServerText;
 import Server.Items.ServerAccessory;
 import Server.Items.ServerArmour;
@@ -27,6 +27,8 @@ import Server.Items.ServerProjectile;
 import Server.Items.ServerWeapon;
 import Server.Items.ServerWeaponSwing;
 import Tools.RowCol;
+import Tools.Snapshot;
+import Tools.SnapshotHistory;
 
 /**
  * The player (Type 'P')
@@ -34,7 +36,7 @@ import Tools.RowCol;
  * @author William Xu & Alex Raita
  *
  */
-public class ServerPlayer extends ServerCreature implements Runnable {
+public class ServerPlayer extends ServerCreature implements ServerConnection.LineHandler {
 	// The starting locations of the player, to change later on
 	public final static int PLAYER_X = 50;
 	public final static int PLAYER_Y = 50;
@@ -67,13 +69,60 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 	public final static int PLAYER_MAX_HP = 250;
 	public final static int PLAYER_MAX_MANA = 250;
 
+	/**
+	 * How far past the edge of the client's screen (in pixels) objects are
+	 * sent, for objects whose images are bigger than their hitboxes
+	 */
+	public final static int INTEREST_MARGIN = ServerWorld.OBJECT_TILE_SIZE;
+
+	/**
+	 * How much further away an object the client already has can go before it
+	 * stops being sent, so objects moving along the edge of the screen aren't
+	 * added and removed over and over
+	 */
+	public final static int INTEREST_HYSTERESIS = ServerWorld.OBJECT_TILE_SIZE * 2;
+
+	/**
+	 * The default number of ticks between snapshots sent to the client
+	 */
+	public final static int DEFAULT_SNAPSHOT_INTERVAL = 2;
+
+	/**
+	 * The number of ticks between snapshots sent to the client (run with
+	 * -DsnapshotInterval=... to change it). The client draws the other
+	 * objects between snapshots
+	 */
+	public final static int SNAPSHOT_INTERVAL = Math.max(1,
+			Integer.getInteger("snapshotInterval", DEFAULT_SNAPSHOT_INTERVAL));
+
 	private StringBuilder message = new StringBuilder();
-	private Queue<StringBuilder> messageQueue = new LinkedList<StringBuilder>();
+
+	/**
+	 * The most recent snapshots sent to the client
+	 */
+	private SnapshotHistory snapshots = new SnapshotHistory();
+
+	/**
+	 * The sequence number of the last snapshot sent to the client
+	 */
+	private int snapshotSequence = Snapshot.NO_BASELINE;
+
+	/**
+	 * The sequence number of the last snapshot the client received, used as
+	 * the baseline for the next snapshot
+	 */
+	private volatile int lastAckedSnapshot = Snapshot.NO_BASELINE;
+
+	/**
+	 * Move and jump speeds sent while the player was last alive
+	 */
+	private int snapshotSpeed;
+	private int snapshotJump;
 
 	private boolean disconnected = false;
 
 	private PrintWriter output;
-	private BufferedReader input;
+	private ServerConnection connection;
 	private ServerEngine engine;
 
 	private int respawnXSpeed;
@@ -89,7 +138,6 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 	 * Whether the game is over or not
 	 */
 	private boolean endGame = false;
-	private boolean closeWriter = false;
 	private int losingTeam;
 
 	/**
@@ -295,9 +343,8 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 	 *            the image of the player
 	 */
 	public ServerPlayer(String name, double x, double y, int width, int height,
-			double gravity, String skinColour, String hair, Socket socket,
-			ServerEngine engine, ServerWorld world, BufferedReader input,
-			PrintWriter output) {
+			double gravity, String skinColour, String hair,
+			ServerEngine engine, ServerWorld world, ServerConnection connection) {
 		super(x, y, width, height, RELATIVE_X, RELATIVE_Y, gravity, "BASE_"
 				+ skinColour + "_RIGHT_0_0", ServerWorld.PLAYER_TYPE,
 				world.getBluePlayerStartHP(), world, true);
@@ -325,8 +372,8 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 		yUpdated = true;
 		this.lastPing = Integer.MAX_VALUE;
 
-		this.output = output;
-		this.input = input;
+		this.connection = connection;
+		this.output = connection.getWriter();
 		// Send the 2D grid of the world to the client
 		sendMap();
 
@@ -346,12 +393,6 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 
 		forcePlayerPos(x, y);
 		forcePlayerSpeed(getHSpeed(), getVSpeed());
-
-		// Use a separate thread to print to the client to prevent the client
-		// from lagging the server itself
-		Thread writer = new Thread(new WriterThread());
-		ServerManager.trackService(writer);
-		writer.start();
 	}
 
 	public void initPlayer()
@@ -397,19 +438,15 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 	 * Send the player the entire map
 	 */
 	public void sendMap() {
-		char[][] grid = getWorld().getGrid();
+		GameMap map = getWorld().getGameMap();
 
 		// Send to the client the height and width of the grid, the starting x
 		// and y position of the grid (top left) and the side length of each
 		// tile
-		printMessage(grid.length + " " + grid[0].length + " "
+		printMessage(map.getRows() + " " + map.getColumns() + " "
 				+ ServerWorld.TILE_SIZE);
-		for (int row = 0; row < grid.length; row++) {
-			String message = "";
-			for (int column = 0; column < grid[0].length; column++) {
-				message += grid[row][column];
-			}
-			printMessage(message);
+		for (int row = 0; row < map.getRows(); row++) {
+			printMessage(map.getTileRow(row));
 		}
 		flush();
 	}
@@ -452,7 +489,7 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 			double x = getX()+getWidth()/2;
 			double y = getY()+getHeight()/2;
 			
-			if (getWorld().getCollisionGrid()[(int)(y/ServerWorld.TILE_SIZE)][(int)(x/ServerWorld.TILE_SIZE)]==ServerWorld.SOLID_TILE)
+			if (getWorld().getCollision((int)(y/ServerWorld.TILE_SIZE), (int)(x/ServerWorld.TILE_SIZE))==ServerWorld.SOLID_TILE)
 			{
 				if (System.currentTimeMillis() - lastCollisionStrike > 10000)
 				{
@@ -709,34 +746,111 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 		}
 
 		if (exists()) {
-			// Send all the objects within all the object tiles in the
-			// player's screen
-			int startRow = (int) ((getY() + getHeight() / 2 - playerScreenHeight) / ServerWorld.OBJECT_TILE_SIZE);
-			int endRow = (int) ((getY() + getHeight() / 2 + playerScreenHeight) / ServerWorld.OBJECT_TILE_SIZE);
-			int startColumn = (int) ((getX() + getWidth() / 2 - playerScreenWidth) / ServerWorld.OBJECT_TILE_SIZE);
-			int endColumn = (int) ((getX() + getWidth() / 2 + playerScreenWidth) / ServerWorld.OBJECT_TILE_SIZE);
+			// The area the client can see (centred on the player) and the
+			// larger area that objects the client already has are kept in
+			int centreX = (int) (getX() + getWidth() / 2);
+			int centreY = (int) (getY() + getHeight() / 2);
+			int viewX1 = centreX - playerScreenWidth / 2 - INTEREST_MARGIN;
+			int viewX2 = centreX + playerScreenWidth / 2 + INTEREST_MARGIN;
+			int viewY1 = centreY - playerScreenHeight / 2 - INTEREST_MARGIN;
+			int viewY2 = centreY + playerScreenHeight / 2 + INTEREST_MARGIN;
+			int keepX1 = viewX1 - INTEREST_HYSTERESIS;
+			int keepX2 = viewX2 + INTEREST_HYSTERESIS;
+			int keepY1 = viewY1 - INTEREST_HYSTERESIS;
+			int keepY2 = viewY2 + INTEREST_HYSTERESIS;
+
+			// Queue the text and sounds from this tick that are on the
+			// client's screen. They are sent with the next snapshot
+			ServerEffects effects = getWorld().getPublishedEffects();
+			for (int effect = 0; effect < effects.size(); effect++) {
+				int effectX = effects.getX(effect);
+				int effectY = effects.getY(effect);
+				if (effectX >= viewX1 && effectX <= viewX2 && effectY >= viewY1
+						&& effectY <= viewY2) {
+					queueMessage(effects.getMessage(effect));
+				}
+			}
+
+			// Try to move the player in the direction that the key is
+			// holding
+			if (movingDirection != 0) {
+				setHSpeed(movingDirection * horizontalMovement);
+			}
+
+			// Check if the vendor is out of range
+			if (vendor != null
+					&& (!collidesWith(vendor) || getHP() <= 0 || isDisconnected())) {
+				vendor.setIsBusy(false);
+				vendor = null;
+				queueMessage("C");
+			}
+
+			if (castle != null
+					&& castleOpen
+					&& (!collidesWith(castle) || getHP() <= 0 || isDisconnected())) {
+				castleOpen = false;
+				System.out.println("closing: " + collidesWith(castle));
+				queueMessage("C");
+			}
+
+			// Only send a snapshot every few ticks (spread out between the
+			// players by their IDs), and always send the last one
+			if (!endGame && (getWorld().getWorldCounter() + getID()) % SNAPSHOT_INTERVAL != 0) {
+				return;
+			}
+
+			// The objects in the last snapshot are the ones the client has
+			Snapshot lastSnapshot = snapshots.get(snapshotSequence);
+
+			// Check all the objects within all the object tiles in the
+			// larger area
+			int startRow = keepY1 / ServerWorld.OBJECT_TILE_SIZE;
+			int endRow = keepY2 / ServerWorld.OBJECT_TILE_SIZE;
+			int startColumn = keepX1 / ServerWorld.OBJECT_TILE_SIZE;
+			int endColumn = keepX2 / ServerWorld.OBJECT_TILE_SIZE;
 
+			ServerObjectGrid objectGrid = getWorld().getObjectGrid();
 			if (startRow < 0) {
 				startRow = 0;
 			}
-			if (endRow > getWorld().getObjectGrid().length - 1) {
-				endRow = getWorld().getObjectGrid().length - 1;
+			if (endRow > objectGrid.getRows() - 1) {
+				endRow = objectGrid.getRows() - 1;
 			}
 			if (startColumn < 0) {
 				startColumn = 0;
 			}
-			if (endColumn > getWorld().getObjectGrid()[0].length - 1) {
-				endColumn = getWorld().getObjectGrid()[0].length - 1;
+			if (endColumn > objectGrid.getColumns() - 1) {
+				endColumn = objectGrid.getColumns() - 1;
 			}
 
 			// Only checks collisions for the hologram once
 			boolean holoChecked = false;
 
+			Snapshot snapshot = snapshots.next(++snapshotSequence);
+			snapshot.reset(snapshotSequence, (int) getWorld().getWorldCounter());
+
 			// Send information to the client about all the objects
 			for (int row = startRow; row <= endRow; row++) {
 				for (int column = startColumn; column <= endColumn; column++) {
-					for (ServerObject object : getWorld().getObjectGrid()[row][column]) {
-						if (object.exists() && object.isVisible()) {
+					int count = objectGrid.getCount(row, column);
+					for (int index = 0; index < count; index++) {
+						ServerObject object = objectGrid.get(row, column, index);
+
+						// Objects in more than one tile are only sent once
+						if (object.exists() && object.isVisible()
+								&& ServerObjectGrid.isFirstTile(object, row, column,
+										startRow, startColumn)) {
+							// Send objects on the client's screen, and keep
+							// sending the ones the client has until they are
+							// outside the larger area. Objects left out are
+							// removed by the client
+							if (!object.collidesWith(viewX1, viewY1, viewX2, viewY2)
+									&& (lastSnapshot == null
+									|| !lastSnapshot.contains(object.getID())
+									|| !object.collidesWith(keepX1, keepY1, keepX2, keepY2))) {
+								continue;
+							}
+
 							int x = (int) (object.getX() + 0.5);
 							int y = (int) (object.getY() + 0.5);
 							int team = ServerCreature.NEUTRAL;
@@ -746,98 +860,52 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 								x = ((ServerCreature) object).getDrawX();
 								y = ((ServerCreature) object).getDrawY();
 								team = ((ServerCreature) object).getTeam();
-								if (object.getType().equals(
-										ServerWorld.PLAYER_TYPE)) {
+								if (object.getTypeID() == ServerObjectType.PLAYER_ID) {
 									if (object.getID() == getID()) {
-										char inAction = '0';
+										int inAction = 0;
 										if (inAction() || !isAlive()) {
-											inAction = '1';
+											inAction = Snapshot.FLAG_IN_ACTION;
 										}
 
-										queueMessage("O "
-												+ toChars(object.getID())
-												+ " "
-												+ toChars(x)
-												+ " "
-												+ toChars(y)
-												+ " "
-												+ inAction
-												+ " "
-												+ object.getImageIndex()
-												+ " "
-												+ team
-												+ " "
-												+ object.getType()
-												+ " "
-												+ ((ServerPlayer) object)
-												.getName().split(" ").length
-												+ " "
-												+ ((ServerPlayer) object)
-												.getName()
+										snapshot.addEntity(object.getID(), x, y,
+												object.getImageIndex(), team,
+												object.getType(),
+												((ServerPlayer) object).getName()
 												+ '`'
 												+ ((ServerPlayer) object)
-												.getCurrentText()
-												+ " "
-												+ Math.max(0, Math.round(100.0
+												.getCurrentText(),
+												(int) Math.max(0, Math.round(100.0
 													* ((ServerPlayer) object).getHP()
-													/ ((ServerPlayer) object).getMaxHP())));
+													/ ((ServerPlayer) object).getMaxHP())),
+												inAction);
 									} else {
-										queueMessage("O "
-												+ toChars(object.getID())
-												+ " "
-												+ toChars(x)
-												+ " "
-												+ toChars(y)
-												+ " "
-												+ object.getImageIndex()
-												+ " "
-												+ team
-												+ " "
-												+ object.getType()
-												+ " "
-												+ ((ServerPlayer) object)
-												.getName().split(" ").length
-												+ " "
-												+ ((ServerPlayer) object)
-												.getName()
+										snapshot.addEntity(object.getID(), x, y,
+												object.getImageIndex(), team,
+												object.getType(),
+												((ServerPlayer) object).getName()
 												+ '`'
 												+ ((ServerPlayer) object)
-												.getCurrentText()
-												+ " "
-												+ Math.max(0, Math.round(100.0 
-														* ((ServerPlayer) object).getHP()
-														/ ((ServerPlayer) object).getMaxHP())));
+												.getCurrentText(),
+												(int) Math.max(0, Math.round(100.0
+													* ((ServerPlayer) object).getHP()
+													/ ((ServerPlayer) object).getMaxHP())),
+												0);
 									}
 									continue;
 								}
-								else if (object.getType().equals(
-												ServerWorld.PLAYER_AI_TYPE))
+								else if (object.getTypeID() == ServerObjectType.PLAYER_AI_ID)
 								{
-									queueMessage("O "
-											+ toChars(object.getID())
-											+ " "
-											+ toChars(x)
-											+ " "
-											+ toChars(y)
-											+ " "
-											+ object.getImageIndex()
-											+ " "
-											+ team
-											+ " "
-											+ object.getType()
-											+ " "
-											+ ((ServerAIPlayer) object)
-											.getName().split(" ").length
-											+ " "
-											+ ((ServerAIPlayer) object)
-											.getName()
+									snapshot.addEntity(object.getID(), x, y,
+											object.getImageIndex(), team,
+											object.getType(),
+											((ServerAIPlayer) object).getName()
 											+ '`'
 											+ ((ServerAIPlayer) object)
-											.getCurrentText()
-											+ " "
-											+ Math.max(0, Math.round(100.0 
+											.getCurrentText(),
+											(int) Math.max(0, Math.round(100.0
 													* ((ServerAIPlayer) object).getHP()
-													/ ((ServerAIPlayer) object).getMaxHP())));
+													/ ((ServerAIPlayer) object).getMaxHP())),
+											0);
 									continue;
 								}
 								break;
@@ -845,52 +913,35 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 								x = ((ServerProjectile) object).getDrawX();
 								y = ((ServerProjectile) object).getDrawY();
 								break;
-							case ServerWorld.TEXT_TYPE:
-								queueMessage("t " + toChars(object.getID())
-								+ " " + toChars(x) + " " + toChars(y)
-								+ " " + object.getImage());
-								continue;
-							case ServerWorld.SOUND_TYPE:
-								queueMessage("a "
-										+ Audio.getIndex(object.getImage())
-										+ " " + toChars((int) object.getX())
-										+ " " + toChars((int) object.getY()));
-								continue;
 							}
 
 							// If it's any other object
-							if (object.getType().contains(
-									ServerWorld.BUILDING_TYPE)) {
-								queueMessage("O "
-										+ toChars(object.getID())
-										+ " "
-										+ toChars(x)
-										+ " "
-										+ toChars(y)
-										+ " "
-										+ object.getImageIndex()
-										+ " "
-										+ team
-										+ " "
-										+ object.getType()
-										+ " "
-										+ "{ "
-										+ Math.max(0, Math.round(100.0
+							if (object.is(ServerObjectType.BUILDING)) {
+								snapshot.addEntity(object.getID(), x, y,
+										object.getImageIndex(), team,
+										object.getType(), "",
+										(int) Math.max(0, Math.round(100.0
 												* ((ServerBuilding) object)
 												.getHP()
 												/ ((ServerBuilding) object)
-												.getMaxHP())));
+												.getMaxHP())), 0);
 							} else {
-								queueMessage("O " + toChars(object.getID())
-								+ " " + toChars(x) + " " + toChars(y)
-								+ " " + object.getImageIndex() + " "
-								+ team + " " + object.getType() + " "
-								+ "{ 0");
+								// The player's own swing and held weapon move
+								// with it, so the client draws them with the
+								// player instead of between snapshots
+								int attached = 0;
+								if (object == heldWeapon
+										|| object.is(ServerObjectType.WEAPON_SWING)
+										&& ((ServerWeaponSwing) object).getWielder() == this) {
+									attached = Snapshot.FLAG_ATTACHED;
+								}
+								snapshot.addEntity(object.getID(), x, y,
+										object.getImageIndex(), team,
+										object.getType(), "", 0, attached);
 							}
 
 						} else if (object.exists()
-								&& object.getType().contains(
-										ServerWorld.HOLOGRAM_TYPE)
+								&& object.is(ServerObjectType.HOLOGRAM)
 								&& ((ServerHologram) object).getOwner() == this) {
 							int weap = weaponSelected - '0';
 							if (weap == DEFAULT_WEAPON_SLOT
@@ -924,17 +975,17 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 									for (int tileRow = (int) ((y + object
 											.getHeight()) / ServerWorld.TILE_SIZE) + 1; tileRow <= (int) ((getY()
 													+ getHeight() / 2 + playerScreenHeight / 2) / ServerWorld.TILE_SIZE); tileRow++) {
-										if (getWorld().getCollisionGrid()[tileRow][tileCol] == ServerWorld.SOLID_TILE
+										if (getWorld().getCollision(tileRow, tileCol) == ServerWorld.SOLID_TILE
 												&& getWorld()
-												.getCollisionGrid()[tileRow - 1][tileCol] == ServerWorld.BACKGROUND_TILE) {
+												.getCollision(tileRow - 1, tileCol) == ServerWorld.BACKGROUND_TILE) {
 											boolean canPlace = true;
 											for (int tileCol2 = tileCol; tileCol2 <= tileCol
 													+ object.getWidth()
 													/ ServerWorld.TILE_SIZE; tileCol2++) {
 												if (getWorld()
-														.getCollisionGrid()[tileRow][tileCol2] != ServerWorld.SOLID_TILE
+														.getCollision(tileRow, tileCol2) != ServerWorld.SOLID_TILE
 														|| getWorld()
-														.getCollisionGrid()[tileRow - 1][tileCol2] == ServerWorld.SOLID_TILE) {
+														.getCollision(tileRow - 1, tileCol2) == ServerWorld.SOLID_TILE) {
 													canPlace = false;
 													break;
 												}
@@ -958,17 +1009,17 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 										for (int tileRow = (int) ((y + object
 												.getHeight()) / ServerWorld.TILE_SIZE); tileRow >= (int) ((getY()
 														+ getHeight() / 2 - playerScreenHeight / 2) / ServerWorld.TILE_SIZE); tileRow--) {
-											if (getWorld().getCollisionGrid()[tileRow][tileCol] == ServerWorld.SOLID_TILE
+											if (getWorld().getCollision(tileRow, tileCol) == ServerWorld.SOLID_TILE
 													&& getWorld()
-													.getCollisionGrid()[tileRow - 1][tileCol] == ServerWorld.BACKGROUND_TILE) {
+													.getCollision(tileRow - 1, tileCol) == ServerWorld.BACKGROUND_TILE) {
 												boolean canPlace = true;
 												for (int tileCol2 = tileCol; tileCol2 <= tileCol
 														+ object.getWidth()
 														/ ServerWorld.TILE_SIZE; tileCol2++) {
 													if (getWorld()
-															.getCollisionGrid()[tileRow][tileCol2] != ServerWorld.SOLID_TILE
+															.getCollision(tileRow, tileCol2) != ServerWorld.SOLID_TILE
 															|| getWorld()
-															.getCollisionGrid()[tileRow - 1][tileCol2] == ServerWorld.SOLID_TILE) {
+															.getCollision(tileRow - 1, tileCol2) == ServerWorld.SOLID_TILE) {
 														canPlace = false;
 														break;
 													}
@@ -1017,65 +1068,52 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 									holoChecked = true;
 								}
 							}
-						} else if (object.getType().charAt(0) != ServerWorld.TEXT_TYPE) {
-							if (object.getType().equals(
-									ServerWorld.HOLOGRAM_TYPE))
-								queueMessage("h");
-							else if (object.getType().charAt(0) != ServerWorld.SOUND_TYPE)
-								queueMessage("R " + toChars(object.getID()));
+						} else if (object.getType().equals(
+								ServerWorld.HOLOGRAM_TYPE)) {
+							// Objects that are gone are removed by leaving
+							// them out of the snapshot
+							queueMessage("h");
 						}
 					}
 				}
 			}
 
-			// Try to move the player in the direction that the key is
-			// holding
-			if (movingDirection != 0) {
-				setHSpeed(movingDirection * horizontalMovement);
-			}
-
-			// Check if the vendor is out of range
-			if (vendor != null
-					&& (!collidesWith(vendor) || getHP() <= 0 || isDisconnected())) {
-				vendor.setIsBusy(false);
-				vendor = null;
-				queueMessage("C");
-			}
-
-			if (castle != null
-					&& castleOpen
-					&& (!collidesWith(castle) || getHP() <= 0 || isDisconnected())) {
-				castleOpen = false;
-				System.out.println("closing: " + collidesWith(castle));
-				queueMessage("C");
-			}
-
 			// Send the player's HP, Mana, and speed
-			queueMessage("Q " + mana);
-			queueMessage("K " + maxMana);
-			queueMessage("L " + getHP());
-			queueMessage("M " + getMaxHP());
+			snapshot.setStat(Snapshot.MANA, mana);
+			snapshot.setStat(Snapshot.MAX_MANA, maxMana);
+			snapshot.setStat(Snapshot.HP, getHP());
+			snapshot.setStat(Snapshot.MAX_HP, getMaxHP());
 			if (isAlive()) {
-				queueMessage("S " + horizontalMovement);
-				queueMessage("J " + verticalMovement);
+				snapshotSpeed = horizontalMovement;
+				snapshotJump = verticalMovement;
 			}
-			queueMessage("x " + getWorld().getBlueCastle().getHP() + " "
-					+ getWorld().getBlueCastle().getTier() + " "
-					+ getWorld().getBlueCastle().getMoney() + " "
-					+ getWorld().getBlueCastle().getMaxHP() + " "
-					+ toChars(getWorld().getBlueCastle().getXP()) + " "
-					+ toChars((int)(getWorld().getBlueCastle().getX())));
-			queueMessage("X " + getWorld().getRedCastle().getHP() + " "
-					+ getWorld().getRedCastle().getTier() + " "
-					+ getWorld().getRedCastle().getMoney() + " "
-					+ getWorld().getRedCastle().getMaxHP() + " "
-					+ toChars(getWorld().getRedCastle().getXP()) + " "
-					+ toChars((int)(getWorld().getRedCastle().getX())));
+			snapshot.setStat(Snapshot.SPEED, snapshotSpeed);
+			snapshot.setStat(Snapshot.JUMP, snapshotJump);
+
+			ServerCastle blueCastle = getWorld().getBlueCastle();
+			snapshot.setStat(Snapshot.BLUE_HP, blueCastle.getHP());
+			snapshot.setStat(Snapshot.BLUE_TIER, blueCastle.getTier());
+			snapshot.setStat(Snapshot.BLUE_MONEY, blueCastle.getMoney());
+			snapshot.setStat(Snapshot.BLUE_MAX_HP, blueCastle.getMaxHP());
+			snapshot.setStat(Snapshot.BLUE_XP, blueCastle.getXP());
+			snapshot.setStat(Snapshot.BLUE_X, (int) blueCastle.getX());
+			snapshot.setStat(Snapshot.BLUE_POP, blueCastle.getPopulation());
+			snapshot.setStat(Snapshot.BLUE_POP_LIMIT, blueCastle.getPopLimit());
+			ServerCastle redCastle = getWorld().getRedCastle();
+			snapshot.setStat(Snapshot.RED_HP, redCastle.getHP());
+			snapshot.setStat(Snapshot.RED_TIER, redCastle.getTier());
+			snapshot.setStat(Snapshot.RED_MONEY, redCastle.getMoney());
+			snapshot.setStat(Snapshot.RED_MAX_HP, redCastle.getMaxHP());
+			snapshot.setStat(Snapshot.RED_XP, redCastle.getXP());
+			snapshot.setStat(Snapshot.RED_X, (int) redCastle.getX());
+			snapshot.setStat(Snapshot.RED_POP, redCastle.getPopulation());
+			snapshot.setStat(Snapshot.RED_POP_LIMIT, redCastle.getPopLimit());
+
+			// Armour is sent in hundredths
 			if (equippedArmour != null)
-				queueMessage(String
-						.format("A %.2f", equippedArmour.getArmour()));
+				snapshot.setStat(Snapshot.ARMOUR, (int) Math.round(equippedArmour.getArmour() * 100));
 			else
-				queueMessage(String.format("A 0"));
+				snapshot.setStat(Snapshot.ARMOUR, 0);
 
 			// Send the player's current damage
 			int currentDamage = PUNCHING_DAMAGE;
@@ -1089,20 +1127,23 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 				else
 					currentDamage = 0;
 			}
-			queueMessage("D " + currentDamage + " " + getBaseDamage());
-
-			// while (message.length() < 4000)
-			// {
-			// queueMessage("L " + getHP());
-			// }
-			// Send the current time in the world (Must be the last thing)
-			queueMessage("T " + toChars(getWorld().getWorldTime()));
-
-			// Send population for red and blue castles
-			queueMessage("w " + getWorld().getRedCastle().getPopulation()
-					+ " " + getWorld().getRedCastle().getPopLimit());
-			queueMessage("u " + getWorld().getBlueCastle().getPopulation()
-					+ " " + getWorld().getBlueCastle().getPopLimit());
+			snapshot.setStat(Snapshot.DAMAGE, currentDamage);
+			snapshot.setStat(Snapshot.BASE_DAMAGE, getBaseDamage());
+
+			// Send the current time in the world
+			snapshot.setStat(Snapshot.WORLD_TIME, getWorld().getWorldTime());
+
+			// Send the snapshot, delta encoded against the last one the
+			// client received if we still have it
+			snapshot.finish();
+			Snapshot baseline = null;
+			int acked = lastAckedSnapshot;
+			if (snapshotSequence - acked < SnapshotHistory.SIZE) {
+				baseline = snapshots.get(acked);
+			}
+			int length = snapshot.encode(baseline);
+			queueMessage("Y " + Base64.getEncoder().encodeToString(
+					Arrays.copyOf(snapshot.getBuffer(), length)));
 
 			if (body != null) {
 				queueMessage("e " + toChars(body.getID()));
@@ -1117,45 +1158,19 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 			// Signal a repaint
 			queueMessage("U");
 			
-			synchronized (messageQueue)
-			{
-				messageQueue.add(this.message);
-			}
+			// The network thread sends this without holding up the game loop
+			output.println(this.message);
+			output.flush();
 			this.message = new StringBuilder("Z");
-		}
-
-	}
 
-	/**
-	 * Thread for printing the writer to the client
-	 * 
-	 * @author William Xu && Alex Raita
-	 *
-	 */
-	class WriterThread implements Runnable {
-		@Override
-		public void run() {
-			while (!closeWriter && engine.getServer().isRunning()) {
-				
-				if (!messageQueue.isEmpty()) {
-					flushWriter();
-				}
-				try {
-					Thread.sleep(1);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-					break;
-				} catch (Exception e)
-				{
-					e.printStackTrace();
-					break;
-				}
+			if (endGame) {
+				// Close the connection once the last message reaches the player
+				connection.closeAfterFlush();
 			}
-			
-			disconnect();
 		}
+
 	}
-	
+
 	public long getLastPing()
 	{
 		return lastPing;
@@ -1163,11 +1178,7 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 	
 	public void closeInput()
 	{
-		try {
-			input.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		connection.close();
 	}
 	
 	public void closeOutput()
@@ -1178,301 +1189,308 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 
 	@Override
 	/**
-	 * Main thread of the class receiving input from the player
+	 * Handle a line the player sent in (called on a network thread)
 	 */
-	public void run() {
-		while (!endGame && this.engine.getServer().isRunning()) {
+	public void handleLine(String command) {
+		if (endGame || !this.engine.getServer().isRunning()) {
+			return;
+		}
 
-			if (disconnect)
-			{
-				disconnect = false;
-				sendMessage("-");
-				break;
-			}
+		if (disconnect)
+		{
+			disconnect = false;
+			sendMessage("-");
+			connection.closeAfterFlush();
+			return;
+		}
 
-			try {
-				// Read the next line the player sent in
-				String command = input.readLine();
-				String[] tokens = command.split(" ");
+		try {
+			String[] tokens = command.split(" ");
 
-				lastPing = System.currentTimeMillis();
-				
-				if (tokens.length == 0) {
-					continue;
-				}
+			lastPing = System.currentTimeMillis();
+			
+			if (tokens.length == 0) {
+				return;
+			}
 
-				// Execute the player's action based on the command received
-				// from the client
-				switch (tokens[0].charAt(0)) {
-				case '&':
-					setHSpeed(Double.parseDouble(tokens[1]));
-					setVSpeed(Double.parseDouble(tokens[2]));
-					if (tokens[3].charAt(0) == '1') {
-						setOnSurface(true);
-					} else {
-						setOnSurface(false);
-					}
-					break;
-				case 'A':
-				case 'a':
-					try {
-						newMouseX = Integer.parseInt(tokens[1]);
-						newMouseY = Integer.parseInt(tokens[2]);
-						if (isOnSurface() && !performingAction && isAlive()) {
-
-							// If the client tries to send an invalid message
-							if (command.charAt(0) == 'a'
-									|| tokens[3].charAt(0) == 't')
-								performingAction = true;
-							if (command.charAt(0) == 'a') {
-								rightClick = true;
-							} else {
-								rightClick = false;
-							}
+			// Execute the player's action based on the command received
+			// from the client
+			switch (tokens[0].charAt(0)) {
+			case 'k':
+				// The client received a snapshot
+				lastAckedSnapshot = Integer.parseInt(tokens[1]);
+				break;
+			case '&':
+				setHSpeed(Double.parseDouble(tokens[1]));
+				setVSpeed(Double.parseDouble(tokens[2]));
+				if (tokens[3].charAt(0) == '1') {
+					setOnSurface(true);
+				} else {
+					setOnSurface(false);
+				}
+				break;
+			case 'A':
+			case 'a':
+				try {
+					newMouseX = Integer.parseInt(tokens[1]);
+					newMouseY = Integer.parseInt(tokens[2]);
+					if (isOnSurface() && !performingAction && isAlive()) {
+
+						// If the client tries to send an invalid message
+						if (command.charAt(0) == 'a'
+								|| tokens[3].charAt(0) == 't')
+							performingAction = true;
+						if (command.charAt(0) == 'a') {
+							rightClick = true;
+						} else {
+							rightClick = false;
 						}
-					} catch (Exception e) {
-						break;
 					}
+				} catch (Exception e) {
 					break;
-				case 'c':
-					if (isAlive()) {
-						actionCounter = actionDelay;
-					}
-					break;
-				case 'D':
-					if (isAlive()) {
-						isDropping = true;
-					}
-					break;
-				case 'd':
-					if (isAlive()) {
-						isDropping = false;
-					}
-					break;
-				case 'R':
-					if (isAlive()) {
-						setHSpeed(horizontalMovement);
-						movingDirection = 1;
-					}
-					break;
-				case 'r':
-					movingDirection = 0;
-					if (getHSpeed() > 0) {
-						setHSpeed(0);
-					}
-					break;
-				case 'L':
-					if (isAlive()) {
-						movingDirection = -1;
-						setHSpeed(-horizontalMovement);
-					}
-					break;
-				case 'l':
-					movingDirection = 0;
-					if (getHSpeed() < 0) {
-						setHSpeed(0);
-					}
-					break;
-				case 'U':
-					if (isOnSurface() && isAlive() && !inAction()) {
-						setVSpeed(-verticalMovement);
-						setOnSurface(false);
+				}
+				break;
+			case 'c':
+				if (isAlive()) {
+					actionCounter = actionDelay;
+				}
+				break;
+			case 'D':
+				if (isAlive()) {
+					isDropping = true;
+				}
+				break;
+			case 'd':
+				if (isAlive()) {
+					isDropping = false;
+				}
+				break;
+			case 'R':
+				if (isAlive()) {
+					setHSpeed(horizontalMovement);
+					movingDirection = 1;
+				}
+				break;
+			case 'r':
+				movingDirection = 0;
+				if (getHSpeed() > 0) {
+					setHSpeed(0);
+				}
+				break;
+			case 'L':
+				if (isAlive()) {
+					movingDirection = -1;
+					setHSpeed(-horizontalMovement);
+				}
+				break;
+			case 'l':
+				movingDirection = 0;
+				if (getHSpeed() < 0) {
+					setHSpeed(0);
+				}
+				break;
+			case 'U':
+				if (isOnSurface() && isAlive() && !inAction()) {
+					setVSpeed(-verticalMovement);
+					setOnSurface(false);
+				}
+				break;
+			case 'Q':
+				setDirection("RIGHT");
+				break;
+			case 'q':
+				setDirection("LEFT");
+				break;
+			case 'p':
+				if (!ignoreClient && isAlive()) {
+					double x =Double.parseDouble(tokens[1]);
+					double y = Double.parseDouble(tokens[2]);
+					if (x > 0 && x < getWorld().getColumns()*ServerWorld.TILE_SIZE-50 && y > 0 && y < getWorld().getRows()*ServerWorld.TILE_SIZE-50)
+					{
+						setX(x);
+						setY(y);
 					}
-					break;
-				case 'Q':
-					setDirection("RIGHT");
-					break;
-				case 'q':
-					setDirection("LEFT");
-					break;
-				case 'p':
-					if (!ignoreClient && isAlive()) {
-						double x =Double.parseDouble(tokens[1]);
-						double y = Double.parseDouble(tokens[2]);
-						if (x > 0 && x < getWorld().getCollisionGrid()[0].length*ServerWorld.TILE_SIZE-50 && y > 0 && y < getWorld().getCollisionGrid().length*ServerWorld.TILE_SIZE-50)
-						{
-							setX(x);
-							setY(y);
-						}
+				}
+				break;
+			case 'P':
+				sendMessage("P");
+				break;
+			case 'y':
+				ping = Integer.parseInt(command.substring(2));
+				break;
+			case 'C':
+				// Player uses the chat
+				if (command.length() >= 3) {
+					String message = command.substring(2);
+					String[] tokens2 = message.split(" ");
+					if (tokens2[0].equals("/t")) {
+						engine.broadCastTeam("l " + "T "
+								+ (getTeam() + getName()).split(" ").length
+								+ " " + getTeam() + getName() + " "
+								+ tokens2.length + " " + message, getTeam());
+					} else {
+						engine.broadcast("l " + "E "
+								+ (getTeam() + getName()).split(" ").length
+								+ " " + getTeam() + getName() + " "
+								+ tokens2.length + " " + message);
 					}
-					break;
-				case 'P':
-					sendMessage("P");
-					break;
-				case 'y':
-					ping = Integer.parseInt(command.substring(2));
-					break;
-				case 'C':
-					// Player uses the chat
-					if (command.length() >= 3) {
-						String message = command.substring(2);
-						String[] tokens2 = message.split(" ");
-						if (tokens2[0].equals("/t")) {
-							engine.broadCastTeam("l " + "T "
-									+ (getTeam() + getName()).split(" ").length
-									+ " " + getTeam() + getName() + " "
-									+ tokens2.length + " " + message, getTeam());
-						} else {
-							engine.broadcast("l " + "E "
-									+ (getTeam() + getName()).split(" ").length
-									+ " " + getTeam() + getName() + " "
-									+ tokens2.length + " " + message);
-						}
 
-						if (message.length() > 0) {
-							currentText = message.replace(' ', '_');
-							textStartTime = getWorld().getWorldCounter();
-							textDuration = (int) (60 * 3 + currentText.length() * 60 * 0.1);
-						}
-					}
-					break;
-				case 'v':
-					try {
-						switch (command.charAt(2)) {
-						case 'I':
-							// If dropping from inventory
-							super.drop(command.substring(4));
-							break;
-						case 'W':
-							// If dropping from equipped
-							drop(Integer.parseInt(command.substring(4)));
-							break;
-						case 'U':
-							// If using a potion
-							super.use(command.substring(4));
-							break;
-						}
+					if (message.length() > 0) {
+						currentText = message.replace(' ', '_');
+						textStartTime = getWorld().getWorldCounter();
+						textDuration = (int) (60 * 3 + currentText.length() * 60 * 0.1);
 					}
-					// If the player sends a bad message
-					catch (Exception E) {
+				}
+				break;
+			case 'v':
+				try {
+					switch (command.charAt(2)) {
+					case 'I':
+						// If dropping from inventory
+						super.drop(command.substring(4));
+						break;
+					case 'W':
+						// If dropping from equipped
+						drop(Integer.parseInt(command.substring(4)));
+						break;
+					case 'U':
+						// If using a potion
+						super.use(command.substring(4));
+						break;
 					}
-					break;
+				}
+				// If the player sends a bad message
+				catch (Exception E) {
+				}
+				break;
 
-				case 'M':
-					try {
-						switch (command.charAt(2)) {
-						// Move to inventory
-						case 'I':
-							unequip(Integer.parseInt(command.substring(4)));
-							break;
-							// Move to equipped weapons
-						case 'W':
-							equipWeapon(command.substring(4));
-							break;
-							// Move to equipped armors
-						case 'A':
-							equipArmour(command.substring(4));
-							break;
-						}
-					} catch (Exception E) {
-						System.out.println(command.substring(4));
-						E.printStackTrace();
+			case 'M':
+				try {
+					switch (command.charAt(2)) {
+					// Move to inventory
+					case 'I':
+						unequip(Integer.parseInt(command.substring(4)));
+						break;
+						// Move to equipped weapons
+					case 'W':
+						equipWeapon(command.substring(4));
+						break;
+						// Move to equipped armors
+					case 'A':
+						equipArmour(command.substring(4));
+						break;
 					}
-					break;
+				} catch (Exception E) {
+					System.out.println(command.substring(4));
+					E.printStackTrace();
+				}
+				break;
 
-				case 'W':
-					try {
-						weaponSelected = command.charAt(2);
-						int weap = weaponSelected - '0';
-						System.out
-						.println("Selected weapon: " + weaponSelected);
-						if (weap != DEFAULT_WEAPON_SLOT
-								&& equippedWeapons[weap] != null
-								&& equippedWeapons[weap].getType().contains(
-										ServerWorld.BUILDING_ITEM_TYPE)) {
-							hologram = new ServerHologram(
-									getNewMouseX() + getX() - playerScreenWidth
-									/ 2,
-									getNewMouseY() + getY()
-									- playerScreenHeight / 2,
-									((ServerBuildingItem) equippedWeapons[weap])
-									.getBuildingType(), this, engine);
-							getWorld().add(hologram);
-							System.out.println("Added HOLOGRAM to world at "
-									+ getNewMouseX() + " " + getNewMouseY());
-						} else if (hologram != null) {
-							hologram.destroy();
-							System.out.println("Removed HOLOGRAM from world");
-							hologram = null;
-						}
-					} catch (Exception E) {
-						E.printStackTrace();
-					}
-					break;
-				case 'B':
-					if (vendor != null) {
-						ServerItem vendorItem = null;
-						tokens = command.split(" ");
-						String itemName = tokens[1];
-						for (ServerItem item : vendor.getInventory())
-							if (item.getType().equals(itemName))
-								vendorItem = item;
-
-						if (vendorItem != null
-								&& getMoney() >= vendorItem.getCost()) {						
-							if ((vendorItem.getAmount() > 1 && addItem(ServerItem.copy(vendorItem))==1) || addItem(vendorItem) == 1)
-							{
-								decreaseMoney(vendorItem.getCost());
-								vendor.drop(vendorItem.getType());
-								queueMessage("Vb "+tokens[2]+" "+tokens[3]);
-							}
-						}
-					}
-					break;
-				case 'b':
-					try {
-						buyCastleItem(command.substring(2));
-					} catch (Exception e) {
-						continue;
+			case 'W':
+				try {
+					weaponSelected = command.charAt(2);
+					int weap = weaponSelected - '0';
+					System.out
+					.println("Selected weapon: " + weaponSelected);
+					if (weap != DEFAULT_WEAPON_SLOT
+							&& equippedWeapons[weap] != null
+							&& equippedWeapons[weap].getType().contains(
+									ServerWorld.BUILDING_ITEM_TYPE)) {
+						hologram = new ServerHologram(
+								getNewMouseX() + getX() - playerScreenWidth
+								/ 2,
+								getNewMouseY() + getY()
+								- playerScreenHeight / 2,
+								((ServerBuildingItem) equippedWeapons[weap])
+								.getBuildingType(), this, engine);
+						getWorld().add(hologram);
+						System.out.println("Added HOLOGRAM to world at "
+								+ getNewMouseX() + " " + getNewMouseY());
+					} else if (hologram != null) {
+						hologram.destroy();
+						System.out.println("Removed HOLOGRAM from world");
+						hologram = null;
 					}
-					break;
-				case 'E':
-					interact();
-					break;
-				case 'S':
-					if (vendor != null) {
-						String type = "";
-						try {
-							type = command.substring(2);
-						} catch (Exception E) {
-							continue;
-						}
-						if (!type.equals(ServerWorld.MONEY_TYPE)
-								&& !type.contains(ServerWorld.BUILDING_ITEM_TYPE)) {
-							sell(type);
-							queueMessage("i " + type);
+				} catch (Exception E) {
+					E.printStackTrace();
+				}
+				break;
+			case 'B':
+				if (vendor != null) {
+					ServerItem vendorItem = null;
+					tokens = command.split(" ");
+					String itemName = tokens[1];
+					for (ServerItem item : vendor.getInventory())
+						if (item.getType().equals(itemName))
+							vendorItem = item;
+
+					if (vendorItem != null
+							&& getMoney() >= vendorItem.getCost()) {						
+						if ((vendorItem.getAmount() > 1 && addItem(ServerItem.copy(vendorItem))==1) || addItem(vendorItem) == 1)
+						{
+							decreaseMoney(vendorItem.getCost());
+							vendor.drop(vendorItem.getType());
+							queueMessage("Vb "+tokens[2]+" "+tokens[3]);
 						}
 					}
-					break;
-				case 's':
+				}
+				break;
+			case 'b':
+				try {
+					buyCastleItem(command.substring(2));
+				} catch (Exception e) {
+					return;
+				}
+				break;
+			case 'E':
+				interact();
+				break;
+			case 'S':
+				if (vendor != null) {
+					String type = "";
 					try {
-						playerScreenWidth = Integer.parseInt(tokens[1]);
-						playerScreenHeight = Integer.parseInt(tokens[2]);
+						type = command.substring(2);
 					} catch (Exception E) {
-						continue;
+						return;
+					}
+					if (!type.equals(ServerWorld.MONEY_TYPE)
+							&& !type.contains(ServerWorld.BUILDING_ITEM_TYPE)) {
+						sell(type);
+						queueMessage("i " + type);
 					}
-					break;
-				case 'm':
-					castle.hireMerc();
-					break;
 				}
-			} catch (IOException e) {
-				//e.printStackTrace();
-				break;
-			} catch (NullPointerException e) {
-				//e.printStackTrace();
 				break;
-			} catch (IndexOutOfBoundsException e) {
-				System.out.println("Indexing problem caught");
-				e.printStackTrace();
+			case 's':
+				try {
+					playerScreenWidth = Integer.parseInt(tokens[1]);
+					playerScreenHeight = Integer.parseInt(tokens[2]);
+				} catch (Exception E) {
+					return;
+				}
 				break;
-			} catch (Exception e) {
-				e.printStackTrace();
-				System.out.println("Something broke for this player");
+			case 'm':
+				castle.hireMerc();
 				break;
 			}
+		} catch (NullPointerException e) {
+			//e.printStackTrace();
+			connection.close();
+		} catch (IndexOutOfBoundsException e) {
+			System.out.println("Indexing problem caught");
+			e.printStackTrace();
+			connection.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("Something broke for this player");
+			connection.close();
 		}
+	}
 
+	@Override
+	/**
+	 * Called once the player's connection closes
+	 */
+	public void connectionClosed() {
 		if (endGame)
 		{
 			return;
@@ -1485,20 +1503,12 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 			engine.getSavedPlayers().add(new SavedPlayer(getName(), getMoney(), kills, deaths, totalDamageDealt, totalMoneySpent, getTeam(),hair, skinColour, bestWeapon, bestArmour,getWorld().getWorldCounter()));
 		}
 
-		// If the buffered reader breaks, the player has disconnected
+		// The connection closed, so the player has disconnected
 		if (vendor != null) {
 			vendor.setIsBusy(false);
 			vendor = null;
 		}
 		System.out.println("A client has disconnected");
-		try {
-			input.close();
-		} catch (IOException e1) {
-			e1.printStackTrace();
-			System.out.println("Error closing buffered reader");
-		}
-
-		output.close();
 		disconnected = true;
 
 		// Destroy all the accessories the player has
@@ -1659,7 +1669,7 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 				actionSpeed = ((ServerWeapon) equippedWeapons[weaponNo])
 						.getActionSpeed();
 				getWorld()
-				.add(new ServerWeaponSwing(
+				.add(getWorld().newWeaponSwing(
 						this,
 						0,
 						-20,
@@ -1755,9 +1765,9 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 
 				if (canAttack) {
 					getWorld().add(
-							new ServerProjectile(getX() + getWidth() / 2,
+							getWorld().newProjectile(getX() + getWidth() / 2,
 									getY() + getHeight() / 3, this, angle,
-									arrowType, getWorld()));
+									arrowType));
 
 					if (getDirection().equals("LEFT")) {
 
@@ -1774,10 +1784,9 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 				} else {
 					action = ServerCreature.OUT_OF_MANA;
 					actionDelay = 0;
-					ServerText message = new ServerText(
-							getX() + getWidth() / 2, getY() - getHeight() / 2,
-							"!M", ServerText.PURPLE_TEXT, getWorld());
-					getWorld().add(message);
+					getWorld().addText(getX() + getWidth() / 2,
+							getY() - getHeight() / 2, "!M",
+							ServerText.PURPLE_TEXT);
 				}
 			} else if (equippedWeapons[weaponNo].getType().contains(
 					ServerWorld.BUILDING_ITEM_TYPE)) {
@@ -1940,9 +1949,8 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 			double damageY = Math.random() * getHeight() / 2 + getY()
 			- getHeight() / 3;
 
-			getWorld().add(
-					new ServerText(damageX, damageY, Integer.toString(amount),
-							textColour, getWorld()));
+			getWorld().addText(damageX, damageY, Integer.toString(amount),
+					textColour);
 
 			// Play the death animation of the player when the HP drops to 0 or
 			// below, and eventually respawn the player
@@ -2023,24 +2031,26 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 		int startColumn = (int) (getX() / ServerWorld.OBJECT_TILE_SIZE);
 		int endColumn = (int) ((getX() + getWidth()) / ServerWorld.OBJECT_TILE_SIZE);
 
+		ServerObjectGrid objectGrid = getWorld().getObjectGrid();
 		if (startRow < 0) {
 			startRow = 0;
-		} else if (endRow > getWorld().getObjectGrid().length - 1) {
-			endRow = getWorld().getObjectGrid().length - 1;
+		} else if (endRow > objectGrid.getRows() - 1) {
+			endRow = objectGrid.getRows() - 1;
 		}
 
 		if (startColumn < 0) {
 			startColumn = 0;
-		} else if (endColumn > getWorld().getObjectGrid()[0].length - 1) {
-			endColumn = getWorld().getObjectGrid()[0].length - 1;
+		} else if (endColumn > objectGrid.getColumns() - 1) {
+			endColumn = objectGrid.getColumns() - 1;
 		}
 
 		while (true) {
 			try {
 				for (int row = startRow; row <= endRow; row++) {
 					for (int column = startColumn; column <= endColumn; column++) {
-						for (ServerObject object : getWorld().getObjectGrid()[row][column]) {
-							if (object.exists() && object.collidesWith(this)) {
+						for (int index = 0; index < objectGrid.getCount(row, column); index++) {
+							ServerObject object = objectGrid.get(row, column, index);
+							if (object != null && object.exists() && object.collidesWith(this)) {
 								// If vendor send shop to client
 								if (object.getType().equals(
 										ServerWorld.VENDOR_TYPE)) {
@@ -2064,7 +2074,7 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 										}
 										else
 										{
-											getWorld().add(new ServerText(getX()+getWidth()/2, getY()-20, "Shop is being used", 'p', getWorld()));
+											getWorld().addText(getX()+getWidth()/2, getY()-20, "Shop is being used", ServerText.PURPLE_TEXT);
 										}
 									} else if (vendor != null) {
 										vendor.setIsBusy(false);
@@ -2156,39 +2166,6 @@ public class ServerPlayer extends ServerCreature implements Runnable {
 		output.println(message);
 	}
 
-	/**
-	 * Flush all queued messages to the client
-	 */
-	public void flushWriter() {
-		
-		StringBuilder flushMessage;
-		
-		synchronized (messageQueue)
-		{
-			 flushMessage = messageQueue.remove();
-		}
-		
-		output.println(flushMessage);
-		output.flush();
-
-		if (endGame) {
-			//Make sure the message reaches the player before we close the connection
-			try {
-				Thread.sleep(200);
-			} catch (InterruptedException e1) {
-				e1.printStackTrace();
-			}
-			output.close();
-			try {
-				input.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-			closeWriter = true;
-
-		}
-	}
-
 	/**
 	 * Flushes all messages
 	 */
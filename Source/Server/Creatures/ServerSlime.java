@@ -1,5 +1,6 @@
 package Server.Creatures;
 
+import Server.ServerThinkScheduler;
 import Server.ServerWorld;
 import Server.Items.ServerItem;
 import Server.Spawners.ServerSlimeSpawner;
@@ -153,10 +154,10 @@ public class ServerSlime extends ServerEnemy
 				setHSpeed(direction * speed);
 			}
 
-			// if (getWorld().getWorldCounter() % 10 == 0)
-			// {
-			findPlayerTarget();
-			// }
+			if (getWorld().getThinkScheduler().shouldThink(this, ServerThinkScheduler.TARGET_THINK, ServerThinkScheduler.TARGET_PERIOD))
+			{
+				findPlayerTarget();
+			}
 
 		}
 		else if (getTarget().getHP() <= 0 || getTarget().isDisconnected()
@@ -86,8 +86,8 @@ public class ServerDemolition extends ServerObject{
 			setImage(base + "_4");
 			setY(getY()+moveAmount);
 			setHeight(getHeight()-moveAmount);
-			world.add(new ServerSmoke(getX()+getWidth()/2 + Math.max(0, getWidth()-500),getY()+getHeight()-180,true,world));
-			world.add(new ServerSmoke(getX()+getWidth()/2-320 - + Math.max(0, getWidth()-500),getY()+getHeight()-180,false,world));
+			world.add(world.newSmoke(getX()+getWidth()/2 + Math.max(0, getWidth()-500),getY()+getHeight()-180,true));
+			world.add(world.newSmoke(getX()+getWidth()/2-320 - + Math.max(0, getWidth()-500),getY()+getHeight()-180,false));
 			break;
 		case 10:
 			setImage(base + "_5");
@@ -0,0 +1,145 @@
+package Server.Effects;
+
+import Imports.Audio;
+import Server.ServerWorld;
+import Server.Creatures.ServerPlayer;
+
+/**
+ * The short-lived effects (damage numbers, messages and sounds) created
+ * during one tick. They never become objects in the world: each effect is
+ * just a position and the message for the client, which is built once and
+ * sent as is to every client that can see it
+ *
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerEffects
+{
+	/**
+	 * Sounds closer than this to a sound already in the batch are dropped
+	 */
+	public static final int SOUND_RANGE = ServerWorld.OBJECT_TILE_SIZE * 5;
+
+	/**
+	 * The kinds of effects
+	 */
+	public static final byte TEXT = 0;
+	public static final byte SOUND = 1;
+
+	private byte[] kinds = new byte[64];
+	private int[] xs = new int[64];
+	private int[] ys = new int[64];
+	private String[] messages = new String[64];
+
+	/**
+	 * The number of effects in the batch
+	 */
+	private int size = 0;
+
+	/**
+	 * Add a piece of floating text
+	 *
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param text the text
+	 * @param colour the colour of the text (one of the ServerText colours)
+	 */
+	public void addText(double x, double y, String text, char colour)
+	{
+		int textX = (int) (x + 0.5);
+		int textY = (int) (y + 0.5);
+		add(TEXT, textX, textY, "t " + ServerPlayer.toChars(textX) + " " + ServerPlayer.toChars(textY) + " "
+				+ (colour + text).replace(' ', '_'));
+	}
+
+	/**
+	 * Add a sound, unless there is already a sound close to it this tick
+	 *
+	 * @param name the name of the sound
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 */
+	public void addSound(String name, double x, double y)
+	{
+		int soundX = (int) x;
+		int soundY = (int) y;
+		for (int effect = 0; effect < size; effect++)
+		{
+			if (kinds[effect] == SOUND && Math.abs(xs[effect] - soundX) <= SOUND_RANGE
+					&& Math.abs(ys[effect] - soundY) <= SOUND_RANGE)
+			{
+				return;
+			}
+		}
+		add(SOUND, soundX, soundY, "a " + Audio.getIndex(name) + " " + ServerPlayer.toChars(soundX) + " "
+				+ ServerPlayer.toChars(soundY));
+	}
+
+	/**
+	 * Add an effect to the end of the batch
+	 */
+	private void add(byte kind, int x, int y, String message)
+	{
+		if (size == kinds.length)
+		{
+			int newLength = size * 2;
+			byte[] newKinds = new byte[newLength];
+			int[] newXs = new int[newLength];
+			int[] newYs = new int[newLength];
+			String[] newMessages = new String[newLength];
+			System.arraycopy(kinds, 0, newKinds, 0, size);
+			System.arraycopy(xs, 0, newXs, 0, size);
+			System.arraycopy(ys, 0, newYs, 0, size);
+			System.arraycopy(messages, 0, newMessages, 0, size);
+			kinds = newKinds;
+			xs = newXs;
+			ys = newYs;
+			messages = newMessages;
+		}
+		kinds[size] = kind;
+		xs[size] = x;
+		ys[size] = y;
+		messages[size] = message;
+		size++;
+	}
+
+	/**
+	 * Remove all the effects from the batch
+	 */
+	public void clear()
+	{
+		for (int effect = 0; effect < size; effect++)
+		{
+			messages[effect] = null;
+		}
+		size = 0;
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	public int size()
+	{
+		return size;
+	}
+
+	public byte getKind(int effect)
+	{
+		return kinds[effect];
+	}
+
+	public int getX(int effect)
+	{
+		return xs[effect];
+	}
+
+	public int getY(int effect)
+	{
+		return ys[effect];
+	}
+
+	public String getMessage(int effect)
+	{
+		return messages[effect];
+	}
+}
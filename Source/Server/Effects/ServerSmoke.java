@@ -11,7 +11,20 @@ public class ServerSmoke extends ServerObject{
 	
 	public ServerSmoke(double x, double y, boolean isRight, ServerWorld world) {
 		super(x, y, 0, 0, 0, "SMOKE_RIGHT_0", ServerWorld.SMOKE_TYPE, world.getEngine());
-		
+		setUp(isRight, world);
+	}
+	
+	/**
+	 * Start a puff of smoke from the world's pool again, as if it was just
+	 * constructed
+	 */
+	public void reuse(double x, double y, boolean isRight, ServerWorld world) {
+		reuse(x, y, 0, 0, 0, "SMOKE_RIGHT_0", ServerWorld.SMOKE_TYPE, world.getEngine());
+		setUp(isRight, world);
+	}
+	
+	private void setUp(boolean isRight, ServerWorld world) {
+		direction = "RIGHT";
 		if (!isRight)
 		{
 			direction = "LEFT";
@@ -108,12 +108,48 @@ public class ServerProjectile extends ServerFlyingObject
 			double angle, String type, ServerWorld world)
 	{
 		super(x, y, 0, 0, 0, "", 0, angle, type,world.getEngine());
+		objectsCollided = new ArrayList<Integer>();
+		setUp(owner, angle, type);
+	}
+
+	/**
+	 * Fire a projectile from the world's pool again, as if it was just
+	 * constructed
+	 */
+	public void reuse(double x, double y, ServerCreature owner,
+			double angle, String type, ServerWorld world)
+	{
+		reuse(x, y, 0, 0, 0, "", 0, angle, type, world.getEngine());
+		counter = 0;
+		damage = 0;
+		knockBack = 10;
+		faceAngle = false;
+		animated = false;
+		animationCounter = 0;
+		noOfExplosionFrames = 0;
+		animationFrames = 2;
+		objectsCollided.clear();
+		setUp(owner, angle, type);
+	}
+
+	/**
+	 * Let go of the owner once the projectile is put back in the pool
+	 */
+	public void release()
+	{
+		owner = null;
+	}
+
+	/**
+	 * Set up the projectile for its type
+	 */
+	private void setUp(ServerCreature owner, double angle, String type)
+	{
 		this.owner = owner;
 		ownerID = owner.getID();
 
 		setAngle(angle, true);
 
-		objectsCollided = new ArrayList<Integer>();
 		int soundNo = 0;
 		switch (type)
 		{
@@ -220,10 +256,18 @@ public class ServerProjectile extends ServerFlyingObject
 		if (faceAngle)
 		{
 			length = Images.getGameImage(getImage()).getWidth();
-			hitbox = new Line2D.Double(getX(), getY(), getX()
+			if (hitbox == null)
+			{
+				hitbox = new Line2D.Double();
+			}
+			hitbox.setLine(getX(), getY(), getX()
 					+ ((length / 2) * Math.cos(getAngle())), getY()
 					+ ((length / 2) * Math.sin(getAngle())));
 		}
+		else
+		{
+			length = 0;
+		}
 	}
 
 	/**
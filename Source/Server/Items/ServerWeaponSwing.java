@@ -103,7 +103,41 @@ public class ServerWeaponSwing extends ServerObject
 	{
 		super(owner.getX(), owner.getY(), -1, -1, 0, image,
 				ServerWorld.WEAPON_SWING_TYPE, owner.getWorld().getEngine());
+		objectsCollided = new ArrayList<Integer>();
+		hitbox = new Line2D.Double();
+		setUp(owner, relativeX, relativeY, image, timeInFrames, damage);
+	}
 
+	/**
+	 * Swing a weapon swing from the world's pool again, as if it was just
+	 * constructed
+	 */
+	public void reuse(ServerCreature owner, double relativeX,
+			double relativeY, String image, int angle,
+			int timeInFrames, int damage)
+	{
+		reuse(owner.getX(), owner.getY(), -1, -1, 0, image,
+				ServerWorld.WEAPON_SWING_TYPE, owner.getWorld().getEngine());
+		knockBack = 0;
+		objectsCollided.clear();
+		setUp(owner, relativeX, relativeY, image, timeInFrames, damage);
+	}
+
+	/**
+	 * Let go of the owner once the swing is put back in the pool
+	 */
+	public void release()
+	{
+		wielder = null;
+		owner = null;
+	}
+
+	/**
+	 * Lock the swing onto its owner and set its starting angle
+	 */
+	private void setUp(ServerCreature owner, double relativeX,
+			double relativeY, String image, int timeInFrames, int damage)
+	{
 		this.relativeX = relativeX;
 		this.relativeY = relativeY;
 
@@ -113,8 +147,6 @@ public class ServerWeaponSwing extends ServerObject
 		this.owner = owner;
 		ownerID = owner.getID();
 
-		objectsCollided = new ArrayList<Integer>();
-
 		setMapVisible(false);
 		setSolid(false);
 
@@ -139,7 +171,7 @@ public class ServerWeaponSwing extends ServerObject
 		setY(owner.getY() + owner.getHeight() / 2 - height / 2 + 10 + relativeY);
 
 		// Set the hitbox for the weapon based on the angle
-		hitbox = new Line2D.Double(
+		hitbox.setLine(
 				getX()
 						+ width
 						/ 2
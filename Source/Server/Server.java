@@ -2,15 +2,15 @@ package Server;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.net.Socket;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import Server.Creatures.ServerAIPlayer;
 import Server.Creatures.ServerCreature;
@@ -59,8 +59,10 @@ public class Server implements Runnable {
 
 	private PrintWriter output = null;
 
-	private ArrayList<Triple> newPlayerWaiting = new ArrayList<Triple>();
-	private int sizeIndex = 0;
+	/**
+	 * Clients handed over by the manager, waiting to be taken by this room
+	 */
+	private LinkedBlockingQueue<Triple> newPlayerWaiting = new LinkedBlockingQueue<Triple>();
 	public static String defaultMap;
 
 	// Lobby variables
@@ -80,6 +82,13 @@ public class Server implements Runnable {
 	private boolean running;
 	private LinkedList<String> namesList;
 
+	// These only store this room's services, which are discarded when the
+	// room ends
+	private ArrayList<ServerConnection> connections = new ArrayList<ServerConnection>();
+	private ArrayList<Thread> threads = new ArrayList<Thread>();
+	private ArrayList<BufferedReader> readers = new ArrayList<BufferedReader>();
+	private ArrayList<ServerTickLoop> tickLoops = new ArrayList<ServerTickLoop>();
+
 	public Server(ServerManager manager)
 	{
 		this.manager = manager;
@@ -122,50 +131,42 @@ public class Server implements Runnable {
 		return start;
 	}
 
-	public void addClient(Socket newClient, BufferedReader input, String name) {
-		while (true) {
-			try {
-				newPlayerWaiting.add(new Triple(newClient, input, name));
-				break;
-			} catch (ConcurrentModificationException E) {
-				System.out
-				.println("Concurrnet modification adding players to game");
-			}
-		}
+	public void addClient(ServerConnection newClient, String name) {
+		trackService(newClient);
+		newPlayerWaiting.add(new Triple(newClient, name));
 	}
 
-	public Socket nextClient() throws Exception {
-		while (newPlayerWaiting.size() == sizeIndex) {
-			try {
-				Thread.sleep(200);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-
+	/**
+	 * Wait for the next client to join the lobby. The wait wakes up as soon as
+	 * a client is added, and every 200ms to check if the game has started
+	 * @return the next client
+	 * @throws Exception if the game started
+	 */
+	public ServerConnection nextClient() throws Exception {
+		while (true) {
 			if (start) {
 				throw new Exception();
 			}
+			Triple next = newPlayerWaiting.poll(200, TimeUnit.MILLISECONDS);
+			if (next != null) {
+				return next.connection;
+			}
 		}
-		sizeIndex++;
-		return newPlayerWaiting.get(sizeIndex - 1).socket;
 	}
 
 	public Triple nextGameClient() {
-		while (newPlayerWaiting.size() == sizeIndex && !closeServer) {
+		Triple next = null;
+		while (next == null && !closeServer) {
 			try {
-				Thread.sleep(200);
+				next = newPlayerWaiting.poll(200, TimeUnit.MILLISECONDS);
 			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+				return null;
 			}
 		}
-		// System.out.printf("%s %d %d", "New player", newPlayerWaiting.size(),
-		// sizeIndex);
 		if(closeServer)
 			return null;
 
-		sizeIndex++;
-		return newPlayerWaiting.get(sizeIndex - 1);
+		return next;
 	}
 
 	public void terminate()
@@ -174,6 +175,69 @@ public class Server implements Runnable {
 		close();
 		System.out.println("Server closed");
 	}
+
+	public synchronized void trackService(ServerConnection connection)
+	{
+		connections.add(connection);
+	}
+	public synchronized void trackService(Thread thread)
+	{
+		threads.add(thread);
+	}
+	public synchronized void trackService(BufferedReader reader)
+	{
+		readers.add(reader);
+	}
+	public synchronized void trackService(ServerTickLoop tickLoop)
+	{
+		tickLoops.add(tickLoop);
+	}
+
+	/**
+	 * Shut down everything this room was using
+	 */
+	public synchronized void purgeServices()
+	{
+		for (ServerConnection connection: connections)
+		{
+			if (!connection.isClosed())
+			{
+				System.out.println("Connection was still alive");
+				connection.close();
+			}
+		}
+		connections.clear();
+		
+		for (Thread thread: threads)
+		{
+			if (thread.isAlive())
+			{
+				System.out.println("Thread was still alive");
+				thread.interrupt();
+			}
+		}
+		threads.clear();
+		
+		for (BufferedReader reader: readers)
+		{
+			try {
+				reader.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		readers.clear();
+		
+		for (ServerTickLoop tickLoop: tickLoops)
+		{
+			if (tickLoop.isRunning())
+			{
+				System.out.println("Tick loop was still alive");
+				tickLoop.stop();
+			}
+		}
+		tickLoops.clear();
+	}
 	
 	@Override
 	public void run() {
@@ -181,14 +245,9 @@ public class Server implements Runnable {
 		
 		while (running && !Thread.interrupted()) {
 			try {
-				Socket newClient = nextClient();
-				output = new PrintWriter(newClient.getOutputStream());
-				ServerManager.trackService(output);
-				BufferedReader input = new BufferedReader(
-						new InputStreamReader(newClient.getInputStream()));
-				ServerManager.trackService(input);
+				ServerConnection newClient = nextClient();
 				ServerLobbyPlayer newPlayer = new ServerLobbyPlayer(newClient, namesToSend,
-						input, output, this);
+						this);
 
 				if (needLeader) {
 					newPlayer.setLeader();
@@ -196,9 +255,9 @@ public class Server implements Runnable {
 				}
 				lobbyPlayers.add(newPlayer);
 				
-				Thread playerThread = new Thread(newPlayer);
-				ServerManager.trackService(playerThread);
-				playerThread.start();
+				// The network thread passes everything the client sends to
+				// the lobby player
+				newClient.setHandler(newPlayer);
 				System.out.println("A new client has connected");
 
 				if (ServerManager.HAS_FRAME) {
@@ -217,7 +276,6 @@ public class Server implements Runnable {
 			} catch (Exception E) {
 				System.out.println("Exited the lobby");
 				newPlayerWaiting.clear();
-				sizeIndex = 0;
 				break;
 			}
 		}
@@ -268,30 +326,26 @@ public class Server implements Runnable {
 		while (running && !Thread.interrupted()) {
 			try {
 				Triple next = nextGameClient();
-				Socket newClient = next.socket;
+				ServerConnection newClient = next.connection;
 				String name = next.name;
 				if(closeServer)
 					return;
 
 				try {
-					newClient.setReceiveBufferSize(1024);
-					newClient.setSendBufferSize(1024*16);
+					newClient.getChannel().socket().setReceiveBufferSize(1024);
+					newClient.getChannel().socket().setSendBufferSize(1024*16);
 				} catch (SocketException e) {
 					// TODO Auto-generated catch block
 					e.printStackTrace();
 				}
 
-				output = new PrintWriter(newClient.getOutputStream());
-				ServerManager.trackService(output);
+				output = newClient.getWriter();
 				noOfPlayers++;
 
-				BufferedReader input = new BufferedReader(
-						new InputStreamReader(newClient.getInputStream()));
-				ServerManager.trackService(input);
-				String IP = newClient.getInetAddress().toString();
+				String IP = newClient.getAddress();
 				ServerLobbyPlayer playerToRemove = null;
 
-				String message = input.readLine();
+				String message = newClient.readLine();
 
 				// If someone connects late, get them to start the client
 				if (message.equals("Lobby")) {
@@ -318,9 +372,7 @@ public class Server implements Runnable {
 					{
 						output.println("Start");
 					}
-					output.flush();
-					output.close();
-					input.close();
+					newClient.closeAfterFlush();
 					noOfPlayers--;
 
 					// Close input and socket
@@ -350,7 +402,7 @@ public class Server implements Runnable {
 									ServerPlayer.DEFAULT_WIDTH,
 									ServerPlayer.DEFAULT_HEIGHT,
 									ServerWorld.GRAVITY, p.skinColour, p.hair,
-									newClient, engine, engine.getWorld(), input, output);
+									engine, engine.getWorld(), newClient);
 
 							newPlayer.increaseMoney(p.money);
 							newPlayer.setKills(p.kills);
@@ -428,7 +480,7 @@ public class Server implements Runnable {
 								ServerPlayer.DEFAULT_WIDTH,
 								ServerPlayer.DEFAULT_HEIGHT,
 								ServerWorld.GRAVITY, playerColours[characterSelection], playerHairs[randomHair],
-								newClient, engine, engine.getWorld(), input, output);
+								engine, engine.getWorld(), newClient);
 						newPlayer.setTeam(team);
 						newPlayer.initPlayer();
 					}
@@ -456,14 +508,11 @@ public class Server implements Runnable {
 				}
 				allConnectedPlayers.add(newPlayer);
 
-				Thread playerThread = new Thread(newPlayer);
-				ServerManager.trackService(playerThread);
-				playerThread.start();
+				// The network thread passes everything the client sends to
+				// the player
+				newClient.setHandler(newPlayer);
 
 				System.out.println("A new client has connected");
-			} catch (IOException e) {
-				System.out.println("Error connecting to client");
-				e.printStackTrace();
 			} catch (NullPointerException e) {
 				return;
 			}
@@ -555,14 +604,12 @@ public class Server implements Runnable {
 	}
 
 	public class Triple{
-		Socket socket;
-		BufferedReader reader;
+		ServerConnection connection;
 		String name;
 
-		public Triple(Socket socket, BufferedReader reader, String name)
+		public Triple(ServerConnection connection, String name)
 		{
-			this.socket = socket;
-			this.reader = reader;
+			this.connection = connection;
 			this.name = name;
 		}
 	}
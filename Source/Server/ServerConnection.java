@@ -0,0 +1,534 @@
+package Server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A non-blocking connection to a client, run by one of the ServerNetwork I/O
+ * loops. Lines read from the client are passed to the connection's handler
+ * (or queued until it has one). Everything written is added to a pending
+ * buffer and sent by the I/O thread, so messages queued together go out in as
+ * few writes as possible and nobody ever blocks on a slow client
+ *
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerConnection
+{
+	/**
+	 * The size of the direct buffers used for reading and writing
+	 */
+	public static final int READ_BUFFER_SIZE = 8 * 1024;
+	public static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The most unsent data a client can have before it is disconnected
+	 */
+	public static final int MAX_PENDING_BYTES = 4 * 1024 * 1024;
+
+	/**
+	 * The longest line a client can send
+	 */
+	public static final int MAX_LINE_LENGTH = 64 * 1024;
+
+	/**
+	 * The charset used by the clients' readers and writers
+	 */
+	public static final Charset CHARSET = Charset.defaultCharset();
+
+	/**
+	 * Put in the queue of unhandled lines when the connection closes
+	 */
+	private static final String CLOSED = new String("CLOSED");
+
+	/**
+	 * Handles the lines sent by a client
+	 */
+	public interface LineHandler
+	{
+		/**
+		 * Called on the I/O thread with each line the client sends
+		 */
+		public void handleLine(String line);
+
+		/**
+		 * Called on the I/O thread once the connection closes
+		 */
+		public void connectionClosed();
+	}
+
+	private SocketChannel channel;
+	private ServerNetwork.IOLoop loop;
+	private SelectionKey key;
+	private String address;
+
+	private ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+	private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+	/**
+	 * The line currently being read
+	 */
+	private byte[] line = new byte[256];
+	private int lineLength = 0;
+
+	/**
+	 * Data waiting to be moved to the write buffer (guarded by outputLock).
+	 * The data starts at pendingStart
+	 */
+	private final Object outputLock = new Object();
+	private byte[] pending = new byte[4096];
+	private int pendingStart = 0;
+	private int pendingLength = 0;
+	private boolean writeRequested = false;
+	private boolean closeWhenFlushed = false;
+
+	/**
+	 * The handler for the lines (only used on the I/O thread)
+	 */
+	private LineHandler handler;
+
+	/**
+	 * Lines received while there was no handler
+	 */
+	private LinkedBlockingQueue<String> unhandledLines = new LinkedBlockingQueue<String>();
+
+	private volatile boolean closed = false;
+
+	/**
+	 * A writer for the connection. Nothing is sent until it is flushed
+	 */
+	private PrintWriter writer;
+
+	/**
+	 * Starts writing the pending data on the I/O thread
+	 */
+	private Runnable writeTask = new Runnable()
+	{
+		@Override
+		public void run()
+		{
+			write();
+		}
+	};
+
+	/**
+	 * Constructor for a connection
+	 *
+	 * @param channel the connected channel
+	 * @param loop the loop running the connection
+	 */
+	ServerConnection(SocketChannel channel, ServerNetwork.IOLoop loop)
+	{
+		this.channel = channel;
+		this.loop = loop;
+		address = channel.socket().getInetAddress().toString();
+		writer = new PrintWriter(new OutputStreamWriter(new ConnectionOutputStream(), CHARSET));
+	}
+
+	/**
+	 * Register the channel with the loop's selector (on the I/O thread)
+	 */
+	void register(Selector selector)
+	{
+		if (closed)
+		{
+			return;
+		}
+		try
+		{
+			key = channel.register(selector, SelectionKey.OP_READ, this);
+		}
+		catch (ClosedChannelException e)
+		{
+			close();
+			return;
+		}
+		write();
+	}
+
+	/**
+	 * Set the handler for the lines from the client. Any lines that were
+	 * queued are passed to it first. Null queues the lines to be read with
+	 * readLine
+	 *
+	 * @param newHandler the handler
+	 */
+	public void setHandler(final LineHandler newHandler)
+	{
+		loop.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				handler = newHandler;
+				if (handler == null)
+				{
+					return;
+				}
+				String queued;
+				while (handler == newHandler && (queued = unhandledLines.poll()) != null)
+				{
+					if (queued == CLOSED)
+					{
+						newHandler.connectionClosed();
+						return;
+					}
+					dispatch(queued);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Wait for the next line from the client. Only used while the connection
+	 * has no handler
+	 *
+	 * @return the line, or null if the connection closed
+	 */
+	public String readLine()
+	{
+		try
+		{
+			String next = unhandledLines.take();
+			if (next == CLOSED)
+			{
+				unhandledLines.add(CLOSED);
+				return null;
+			}
+			return next;
+		}
+		catch (InterruptedException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Called by the I/O loop when the channel is ready
+	 */
+	void handleReady(SelectionKey key)
+	{
+		if (key.isReadable())
+		{
+			read();
+		}
+		if (!closed && key.isValid() && key.isWritable())
+		{
+			write();
+		}
+	}
+
+	/**
+	 * Read what the client sent and pass on the complete lines
+	 */
+	private void read()
+	{
+		int read;
+		try
+		{
+			read = channel.read(readBuffer);
+		}
+		catch (IOException e)
+		{
+			close();
+			return;
+		}
+		if (read < 0)
+		{
+			close();
+			return;
+		}
+
+		readBuffer.flip();
+		while (readBuffer.hasRemaining() && !closed)
+		{
+			byte next = readBuffer.get();
+			if (next == '\n')
+			{
+				int length = lineLength;
+				if (length > 0 && line[length - 1] == '\r')
+				{
+					length--;
+				}
+				lineLength = 0;
+				dispatch(new String(line, 0, length, CHARSET));
+			}
+			else
+			{
+				if (lineLength == line.length)
+				{
+					if (line.length >= MAX_LINE_LENGTH)
+					{
+						System.out.println("Client sent a line that was too long");
+						close();
+						return;
+					}
+					byte[] longerLine = new byte[line.length * 2];
+					System.arraycopy(line, 0, longerLine, 0, lineLength);
+					line = longerLine;
+				}
+				line[lineLength++] = next;
+			}
+		}
+		readBuffer.clear();
+	}
+
+	/**
+	 * Pass a line to the handler, or queue it if there isn't one
+	 */
+	private void dispatch(String nextLine)
+	{
+		if (handler == null)
+		{
+			unhandledLines.add(nextLine);
+			return;
+		}
+		try
+		{
+			handler.handleLine(nextLine);
+		}
+		catch (RuntimeException e)
+		{
+			System.out.println("Exception handling a client message");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Queue data to be sent to the client
+	 *
+	 * @param data the data
+	 * @param offset where the data starts
+	 * @param length the number of bytes
+	 */
+	public void send(byte[] data, int offset, int length)
+	{
+		boolean startWrite = false;
+		synchronized (outputLock)
+		{
+			if (closed || closeWhenFlushed)
+			{
+				return;
+			}
+			if (pendingLength + length > MAX_PENDING_BYTES)
+			{
+				System.out.println("Client is not reading its messages, disconnecting " + address);
+				close();
+				return;
+			}
+			if (pendingStart + pendingLength + length > pending.length)
+			{
+				// Only move the data back to the start once at least half the
+				// buffer has been sent, otherwise make the buffer bigger
+				if (pendingStart >= pending.length / 2 && pendingLength + length <= pending.length)
+				{
+					System.arraycopy(pending, pendingStart, pending, 0, pendingLength);
+				}
+				else
+				{
+					byte[] larger = new byte[Math.max(pending.length * 2, pendingLength + length)];
+					System.arraycopy(pending, pendingStart, larger, 0, pendingLength);
+					pending = larger;
+				}
+				pendingStart = 0;
+			}
+			System.arraycopy(data, offset, pending, pendingStart + pendingLength, length);
+			pendingLength += length;
+			if (!writeRequested)
+			{
+				writeRequested = true;
+				startWrite = true;
+			}
+		}
+		if (startWrite)
+		{
+			loop.execute(writeTask);
+		}
+	}
+
+	/**
+	 * Write as much of the pending data as the socket will take (on the I/O
+	 * thread). Everything pending is packed into the direct buffer so it goes
+	 * out in as few writes as possible
+	 */
+	private void write()
+	{
+		if (closed || key == null)
+		{
+			return;
+		}
+		boolean done;
+		try
+		{
+			int written;
+			do
+			{
+				synchronized (outputLock)
+				{
+					int amount = Math.min(writeBuffer.remaining(), pendingLength);
+					writeBuffer.put(pending, pendingStart, amount);
+					pendingStart += amount;
+					pendingLength -= amount;
+					if (pendingLength == 0)
+					{
+						pendingStart = 0;
+					}
+				}
+				writeBuffer.flip();
+				written = channel.write(writeBuffer);
+				writeBuffer.compact();
+			}
+			while (written > 0 && writeBuffer.position() > 0);
+
+			synchronized (outputLock)
+			{
+				done = writeBuffer.position() == 0 && pendingLength == 0;
+				if (done)
+				{
+					writeRequested = false;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			close();
+			return;
+		}
+
+		if (done)
+		{
+			key.interestOps(SelectionKey.OP_READ);
+			if (closeWhenFlushed)
+			{
+				close();
+			}
+		}
+		else
+		{
+			key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * Close the connection once everything queued has been sent
+	 */
+	public void closeAfterFlush()
+	{
+		writer.flush();
+		closeWhenSent();
+	}
+
+	/**
+	 * Close the connection once the pending data has been sent
+	 */
+	private void closeWhenSent()
+	{
+		synchronized (outputLock)
+		{
+			closeWhenFlushed = true;
+			writeRequested = true;
+		}
+		loop.execute(writeTask);
+	}
+
+	/**
+	 * Close the connection right away
+	 */
+	public void close()
+	{
+		if (!loop.inLoop())
+		{
+			loop.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					close();
+				}
+			});
+			return;
+		}
+		if (closed)
+		{
+			return;
+		}
+		closed = true;
+		if (key != null)
+		{
+			key.cancel();
+		}
+		try
+		{
+			channel.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+
+		if (handler != null)
+		{
+			handler.connectionClosed();
+		}
+		else
+		{
+			unhandledLines.add(CLOSED);
+		}
+	}
+
+	/**
+	 * Sends whatever is written to it once the writer is flushed
+	 */
+	private class ConnectionOutputStream extends OutputStream
+	{
+		@Override
+		public void write(int data)
+		{
+			send(new byte[] { (byte) data }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] data, int offset, int length)
+		{
+			send(data, offset, length);
+		}
+
+		@Override
+		public void close()
+		{
+			closeWhenSent();
+		}
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	public PrintWriter getWriter()
+	{
+		return writer;
+	}
+
+	public String getAddress()
+	{
+		return address;
+	}
+
+	public SocketChannel getChannel()
+	{
+		return channel;
+	}
+
+	public boolean isClosed()
+	{
+		return closed;
+	}
+}
@@ -1,7 +1,5 @@
 package Server;
 
-import java.awt.event.ActionEvent; 
-import java.awt.event.ActionListener;
 import java.io.IOException;
 import java.time.Clock;
 import java.time.LocalDateTime;
@@ -10,8 +8,6 @@ import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.LinkedList;
 
-import javax.swing.Timer;
-
 import Imports.Audio;
 import Imports.ImageReferencePair;
 import Imports.Images;
@@ -26,7 +22,7 @@ import Server.Creatures.ServerPlayer;
  * @author William Xu & Alex Raita
  *
  */
-public class ServerEngine implements ActionListener {
+public class ServerEngine {
 
 	/**
 	 * A list of all the players in the server
@@ -52,23 +48,9 @@ public class ServerEngine implements ActionListener {
 	private final int normalIDStart = 500;
 
 	/**
-	 * The highest ID not used yet for normal objects
+	 * The IDs used by the objects (buildings get the IDs below normalIDStart)
 	 */
-	private int nextID = normalIDStart;
-
-	/**
-	 * The highest ID not used yet for building objects
-	 */
-	private int nextBuildingID = 0;
-
-	private boolean[] usedIDs= new boolean[NUMBER_OF_IDS];
-
-
-
-	// /**
-	// * Stack of freeIDs to use
-	// */
-	// private PriorityQueue<Integer> freeIDs = new PriorityQueue<Integer>();
+	private ServerIDPool idPool = new ServerIDPool(0, normalIDStart, NUMBER_OF_IDS);
 
 	/**
 	 * The world the engine works with
@@ -81,14 +63,11 @@ public class ServerEngine implements ActionListener {
 	public final static int UPDATE_RATE = 15;
 
 	/**
-	 * The startTime for checking FPS
+	 * Whether or not each room prints its detailed statistics (tick time
+	 * histogram, ID pool, object pools and A.I. thinks) along with its status
+	 * line (run with -DserverStatistics=true to turn them on)
 	 */
-	private long startTime = 0;
-
-	/**
-	 * The current FPS of the client
-	 */
-	private int currentFPS = 60;
+	public final static boolean DETAILED_STATISTICS = Boolean.getBoolean("serverStatistics");
 
 	/**
 	 * The team of the last player added
@@ -96,9 +75,9 @@ public class ServerEngine implements ActionListener {
 	private int lastTeam = 1;
 
 	/**
-	 * The game loop timer
+	 * The game loop for this room
 	 */
-	private Timer updateTimer;
+	private ServerTickLoop tickLoop;
 
 	/**
 	 * The map for the server
@@ -128,10 +107,9 @@ public class ServerEngine implements ActionListener {
 		listOfAIPlayers = new LinkedList<ServerAIPlayer>();
 		world = new ServerWorld(this, map);
 		
-		updateTimer = new Timer(UPDATE_RATE, this);
-		ServerManager.trackService(updateTimer);
-		startTime = System.currentTimeMillis();
-		updateTimer.start();
+		tickLoop = new ServerTickLoop(this, UPDATE_RATE);
+		server.trackService(tickLoop);
+		tickLoop.start();
 	}
 
 	/**
@@ -177,15 +155,18 @@ public class ServerEngine implements ActionListener {
 
 			try{
 				for (ServerPlayer player : listOfPlayers) {
+					// Players are told the game ended before their last
+					// update, so it is always sent and then closes the
+					// connection
+					if (endGame) {
+						player.setEndGame(true, losingTeam);
+					}
 					try {
 						player.updateClient();
 					} catch(Exception e) {
 						System.out.println("Caught exception");
 						e.printStackTrace();
 					}
-					if (endGame) {
-						player.setEndGame(true, losingTeam);
-					}
 				}
 				if (endGame) {
 					String redPlayers ="";
@@ -207,7 +188,7 @@ public class ServerEngine implements ActionListener {
 						}
 					}
 					if(server.getAllConnectedPlayers().size() > 1)
-						server.getManager().send("E "+winner+" "+numRed+" "+numBlue+redPlayers+bluePlayers);
+						server.getManager().sendGameResult(winner+" "+numRed+" "+numBlue+redPlayers+bluePlayers);
 					server.getManager().removeRoom(server);
 					closeEngine();
 					server.close();
@@ -222,21 +203,14 @@ public class ServerEngine implements ActionListener {
 
 	public void endGame(int losingTeam) {
 		this.broadcast("B " + losingTeam);
-		try {
-			Thread.sleep(200);
-		} catch (InterruptedException e1) {
-			e1.printStackTrace();
-		}
 		this.losingTeam = losingTeam;
-		usedIDs= new boolean[NUMBER_OF_IDS];
-		nextID = normalIDStart;
-		nextBuildingID = 0;
+		idPool.reset();
 		endGame = true;
-		updateTimer.stop();
+		tickLoop.stop();
 	}
 
 	public void closeEngine() {
-		updateTimer.stop();
+		tickLoop.stop();
 		listOfPlayers.clear();
 		toRemove.clear();
 		server.close();
@@ -562,64 +536,46 @@ public class ServerEngine implements ActionListener {
 	}
 
 	/**
-	 * Use and reserve the next available ID in the list of booleans
+	 * Use and reserve the next available ID
 	 * 
 	 * @return the id
 	 */
-	public synchronized int useNextID() {
-
-		while (true) {
-			for (int no = nextID; no < NUMBER_OF_IDS; no++) {
-				if (!usedIDs[no]) {
-					usedIDs[no] = true;
-					nextID = no+1;
-					return no;
-				}
-			}
-			nextID = normalIDStart;
-		}
-
+	public int useNextID() {
+		return idPool.useID();
 	}
 
 	/**
-	 * Use and reserve the next available building ID (to make sure they underlap other objects) in the list of booleans
+	 * Use and reserve the next available building ID (to make sure they underlap other objects)
 	 * 
 	 * @return the id
 	 */
-	public synchronized int useNextBuildingID()
+	public int useNextBuildingID()
 	{
-		while (true) {
-			for (int no = nextBuildingID; no < normalIDStart; no++) {
-				if (!usedIDs[no]) {
-					usedIDs[no] = true;
-					nextBuildingID = no+1;
-					return no;
-				}
-			}
-			nextBuildingID = 1;
-		}
+		return idPool.useBuildingID();
 	}
 
 	/**
-	 * Remove an object's id after it is destroyed
+	 * Remove an object's id after it is destroyed (it is reused after a delay)
 	 * 
 	 * @return
 	 */
 	public void removeID(int id) {
-		usedIDs[id] = false;
+		idPool.free(id);
 	}
 
-	@Override
 	/**
 	 * Update the game after every game tick (15 milliseconds)
 	 */
-	public void actionPerformed(ActionEvent e) {
+	public void tick() {
 
 		if (!server.isRunning())
 		{
 			this.closeEngine();
 			return;
 		}
+
+		// Let the IDs freed long enough ago be used again
+		idPool.nextTick();
 		
 		// Remove disconnected players and update all player scores/pings
 		synchronized(listOfPlayers)
@@ -638,7 +594,14 @@ public class ServerEngine implements ActionListener {
 
 		if (world.getWorldCounter() % 300 == 0)
 		{
-			System.out.println("Server running");
+			System.out.println("Server running " + tickLoop.getStatistics());
+			if (DETAILED_STATISTICS)
+			{
+				System.out.println(tickLoop.getHistogram());
+				System.out.println(idPool.getStatistics());
+				System.out.println(world.getPoolStatistics());
+				System.out.println(world.getThinkScheduler().getStatistics());
+			}
 			for (ServerPlayer player : listOfPlayers) {
 				if (System.currentTimeMillis() - player.getLastPing() >= 3000 && System.currentTimeMillis() - player.getJoinTime() >= 10000)
 				{
@@ -652,6 +615,7 @@ public class ServerEngine implements ActionListener {
 		
 		// Move all the objects around and update them
 		world.update();
+		world.publishEffects();
 		
 		// Update all the clients with the new player data
 		updateClients();
@@ -667,6 +631,7 @@ public class ServerEngine implements ActionListener {
 		if (world.getWorldCounter() > 1000 && getCurrentFPS() < 30 && !lagSpike) {
 			System.out.println("~LAG DETECTED~");
 			System.out.println("CURRENT SERVER FPS: " + getCurrentFPS());
+			System.out.println(tickLoop.getStatistics());
 			System.out.println("Number of objects in this world: "
 					+ world.getObjects().size());
 			lagSpike = true;
@@ -675,16 +640,6 @@ public class ServerEngine implements ActionListener {
 		if (world.getWorldCounter() % 500 == 0) {
 			lagSpike = false;
 		}
-
-		// Check how long a game loop took
-		long loopTime = System.nanoTime() - startTime;
-
-		if (world.getWorldCounter() % 60 == 0) {
-			currentFPS = Math.min(60, (int) ((1000000000.0 / loopTime)
-					/ (1000.0 / UPDATE_RATE) * 60 + 0.5));
-		}
-
-		startTime = System.nanoTime();
 	}
 
 	boolean lagSpike = false;
@@ -722,12 +677,16 @@ public class ServerEngine implements ActionListener {
 	// ///////////////////////
 	// GETTERS AND SETTERS //
 	// ///////////////////////
+	/**
+	 * Get the measured tick rate scaled so a full speed room shows 60
+	 */
 	public int getCurrentFPS() {
-		return currentFPS;
+		return Math.min(60, (int) (tickLoop.getTicksPerSecond() * 60.0
+				/ tickLoop.getTargetTicksPerSecond() + 0.5));
 	}
 
-	public void setCurrentFPS(int currentFPS) {
-		this.currentFPS = currentFPS;
+	public ServerTickLoop getTickLoop() {
+		return tickLoop;
 	}
 
 	public int nextTeam() {
@@ -759,8 +718,8 @@ public class ServerEngine implements ActionListener {
 		return server;
 	}
 
-	public int getNextID() {
-		return nextID;
+	public ServerIDPool getIDPool() {
+		return idPool;
 	}
 	
 	
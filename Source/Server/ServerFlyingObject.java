@@ -37,6 +37,21 @@ public abstract class ServerFlyingObject extends ServerObject
 		setVSpeed((Math.round(speed * Math.sin(angle) * 100)) / 100);
 	}
 
+	/**
+	 * Set up a flying object that was removed from the world again, as if it
+	 * was just constructed
+	 */
+	protected void reuse(double x, double y, int width, int height,
+			double gravity, String image, double speed, double angle,
+			String type, ServerEngine engine)
+	{
+		super.reuse(x, y, width, height, gravity, image, type, engine);
+		this.speed = 0;
+		this.angle = 0;
+		setHSpeed((Math.round(speed * Math.cos(angle) * 100)) / 100);
+		setVSpeed((Math.round(speed * Math.sin(angle) * 100)) / 100);
+	}
+
 	/**
 	 * Get the absolute speed of the flying object
 	 * @return
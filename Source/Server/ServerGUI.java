@@ -244,7 +244,8 @@ MouseWheelListener, MouseListener, MouseMotionListener, ActionListener
 	
 	private void setUpTileGrids()
 	{
-		this.grid = world.getGrid();
+		// The GUI draws from its own copy of the map's shared tile grid
+		this.grid = world.getGameMap().copyTileGrid();
 		this.columnSkipGrid = new int[grid.length][grid[0].length];
 		this.sideLengthGrid = new int[grid.length][grid[0].length];
 		for (int row = 0; row < this.sideLengthGrid.length; row++)
@@ -0,0 +1,362 @@
+package Server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hands out the IDs for the objects in a room. Used IDs are kept in a bitset
+ * of atomic words, so IDs can be taken from any thread without locking. Each
+ * range (buildings, which get low IDs so they are drawn under everything
+ * else, and normal objects) keeps a cursor to the last ID it gave out, so
+ * finding a free ID is a scan of a few words rather than of every ID
+ * 
+ * A freed ID isn't reused right away: clients may still have the old object
+ * (in a snapshot that hasn't been acknowledged yet), so the ID only becomes
+ * free again once REUSE_DELAY ticks have passed
+ * 
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerIDPool
+{
+	/**
+	 * The number of ticks before a freed ID can be used again
+	 */
+	public static final int REUSE_DELAY = 200;
+
+	/**
+	 * The bits for the IDs (1 means used or waiting to be reused)
+	 */
+	private final AtomicLongArray usedIDs;
+
+	private final Range buildingRange;
+	private final Range normalRange;
+
+	/**
+	 * The current tick, used to know when freed IDs can be used again
+	 */
+	private volatile long generation = 0;
+
+	/**
+	 * The IDs waiting to be reused (a queue in the order they were freed) and
+	 * the tick each one was freed on
+	 */
+	private final Object freedLock = new Object();
+	private int[] freedIDs = new int[256];
+	private long[] freedGenerations = new long[256];
+	private int freedStart = 0;
+	private int noOfFreed = 0;
+
+	/**
+	 * The number of times the pool had to reuse IDs early because a range was
+	 * full
+	 */
+	private final AtomicLong noOfEarlyReuses = new AtomicLong(0);
+
+	/**
+	 * Constructor for a pool
+	 * 
+	 * @param buildingStart the first building ID
+	 * @param normalStart the first normal ID (the end of the building IDs)
+	 * @param numberOfIDs the number of IDs (the end of the normal IDs)
+	 */
+	public ServerIDPool(int buildingStart, int normalStart, int numberOfIDs)
+	{
+		usedIDs = new AtomicLongArray((numberOfIDs + 63) / 64);
+		buildingRange = new Range(buildingStart, normalStart);
+		normalRange = new Range(normalStart, numberOfIDs);
+	}
+
+	/**
+	 * Use and reserve the next available building ID
+	 * 
+	 * @return the id
+	 */
+	public int useBuildingID()
+	{
+		return use(buildingRange);
+	}
+
+	/**
+	 * Use and reserve the next available normal ID
+	 * 
+	 * @return the id
+	 */
+	public int useID()
+	{
+		return use(normalRange);
+	}
+
+	/**
+	 * Use an ID from a range. If the range is full, the IDs waiting to be
+	 * reused are freed early rather than running out
+	 */
+	private int use(Range range)
+	{
+		int id = range.claim();
+		if (id < 0)
+		{
+			System.out.println("Ran out of object IDs, reusing freed IDs early");
+			noOfEarlyReuses.incrementAndGet();
+			releaseFreed(Long.MAX_VALUE);
+			id = range.claim();
+			if (id < 0)
+			{
+				throw new IllegalStateException("No object IDs left between "
+						+ range.start + " and " + range.end);
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * Free an object's ID after it is destroyed. The ID can be used again
+	 * after REUSE_DELAY ticks
+	 * 
+	 * @param id the id
+	 */
+	public void free(int id)
+	{
+		synchronized (freedLock)
+		{
+			if (noOfFreed == freedIDs.length)
+			{
+				int[] newIDs = new int[noOfFreed * 2];
+				long[] newGenerations = new long[noOfFreed * 2];
+				for (int index = 0; index < noOfFreed; index++)
+				{
+					newIDs[index] = freedIDs[(freedStart + index) % noOfFreed];
+					newGenerations[index] = freedGenerations[(freedStart + index)
+							% noOfFreed];
+				}
+				freedIDs = newIDs;
+				freedGenerations = newGenerations;
+				freedStart = 0;
+			}
+			int end = (freedStart + noOfFreed) % freedIDs.length;
+			freedIDs[end] = id;
+			freedGenerations[end] = generation;
+			noOfFreed++;
+		}
+	}
+
+	/**
+	 * Move on to the next tick, making the IDs freed long enough ago available
+	 * again. Called once per tick
+	 */
+	public void nextTick()
+	{
+		generation++;
+		releaseFreed(generation - REUSE_DELAY);
+	}
+
+	/**
+	 * Make the IDs freed on or before a tick available again
+	 */
+	private void releaseFreed(long lastGeneration)
+	{
+		synchronized (freedLock)
+		{
+			while (noOfFreed > 0 && freedGenerations[freedStart] <= lastGeneration)
+			{
+				release(freedIDs[freedStart]);
+				freedStart = (freedStart + 1) % freedIDs.length;
+				noOfFreed--;
+			}
+		}
+	}
+
+	/**
+	 * Clear an ID's bit
+	 */
+	private void release(int id)
+	{
+		int word = id >>> 6;
+		long mask = 1L << (id & 63);
+		while (true)
+		{
+			long bits = usedIDs.get(word);
+			if ((bits & mask) == 0)
+			{
+				// Freed twice
+				return;
+			}
+			if (usedIDs.compareAndSet(word, bits, bits & ~mask))
+			{
+				(id < normalRange.start ? buildingRange : normalRange).used
+						.decrementAndGet();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Free every ID (for a new game)
+	 */
+	public void reset()
+	{
+		synchronized (freedLock)
+		{
+			for (int word = 0; word < usedIDs.length(); word++)
+			{
+				usedIDs.set(word, 0);
+			}
+			freedStart = 0;
+			noOfFreed = 0;
+			buildingRange.reset();
+			normalRange.reset();
+		}
+	}
+
+	/**
+	 * Get a summary of the pool's usage
+	 * 
+	 * @return the summary
+	 */
+	public String getStatistics()
+	{
+		return String.format(
+				"IDs used: %d/%d (peak %d) Buildings: %d/%d (peak %d) Waiting for reuse: %d Early reuses: %d",
+				normalRange.used.get(), normalRange.end - normalRange.start,
+				normalRange.peak, buildingRange.used.get(),
+				buildingRange.end - buildingRange.start, buildingRange.peak,
+				getNoOfWaiting(), noOfEarlyReuses.get());
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	/**
+	 * Get the number of IDs in use (including the ones waiting to be reused)
+	 */
+	public int getNoOfUsed()
+	{
+		return normalRange.used.get() + buildingRange.used.get();
+	}
+
+	public int getNoOfUsedBuildingIDs()
+	{
+		return buildingRange.used.get();
+	}
+
+	public int getNoOfWaiting()
+	{
+		synchronized (freedLock)
+		{
+			return noOfFreed;
+		}
+	}
+
+	public int getPeakUsed()
+	{
+		return normalRange.peak;
+	}
+
+	public int getPeakUsedBuildingIDs()
+	{
+		return buildingRange.peak;
+	}
+
+	public int getCapacity()
+	{
+		return normalRange.end - normalRange.start;
+	}
+
+	public int getBuildingCapacity()
+	{
+		return buildingRange.end - buildingRange.start;
+	}
+
+	public long getNoOfEarlyReuses()
+	{
+		return noOfEarlyReuses.get();
+	}
+
+	/**
+	 * A range of IDs in the pool
+	 * 
+	 * @author William Xu & Alex Raita
+	 *
+	 */
+	private class Range
+	{
+		private final int start;
+		private final int end;
+
+		/**
+		 * Where to start looking for the next free ID
+		 */
+		private final AtomicInteger next;
+
+		private final AtomicInteger used = new AtomicInteger(0);
+		private volatile int peak = 0;
+
+		private Range(int start, int end)
+		{
+			this.start = start;
+			this.end = end;
+			next = new AtomicInteger(start);
+		}
+
+		/**
+		 * Claim the next free ID in the range, starting after the last one
+		 * claimed and wrapping around to the start
+		 * 
+		 * @return the ID or -1 if the range is full
+		 */
+		private int claim()
+		{
+			int id = next.get();
+			if (id < start || id >= end)
+			{
+				id = start;
+			}
+			int checked = 0;
+			while (checked <= end - start)
+			{
+				int word = id >>> 6;
+				int wordStart = word << 6;
+				long bits = usedIDs.get(word);
+
+				// Only the IDs in the range from this ID on
+				long free = ~bits & (-1L << (id - wordStart));
+				if (end - wordStart < 64)
+				{
+					free &= (1L << (end - wordStart)) - 1;
+				}
+
+				if (free != 0)
+				{
+					int bit = Long.numberOfTrailingZeros(free);
+					if (usedIDs.compareAndSet(word, bits, bits | (1L << bit)))
+					{
+						int claimed = wordStart + bit;
+						next.set(claimed + 1);
+						int noOfUsed = used.incrementAndGet();
+						if (noOfUsed > peak)
+						{
+							peak = noOfUsed;
+						}
+						return claimed;
+					}
+
+					// Another thread changed the word, so check it again
+					continue;
+				}
+
+				int nextWordStart = wordStart + 64;
+				checked += nextWordStart - id;
+				id = nextWordStart >= end ? start : nextWordStart;
+			}
+			return -1;
+		}
+
+		private void reset()
+		{
+			next.set(start);
+			used.set(0);
+			peak = 0;
+		}
+	}
+}
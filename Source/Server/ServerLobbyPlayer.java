@@ -5,14 +5,13 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.Socket;
 
 import Server.Creatures.ServerCreature;
 
-public class ServerLobbyPlayer implements Runnable
+public class ServerLobbyPlayer implements ServerConnection.LineHandler
 {
 	private PrintWriter output;
-	private BufferedReader input;
+	private ServerConnection connection;
 	private boolean isLeader = false;
 	private Server server;
 
@@ -27,9 +26,10 @@ public class ServerLobbyPlayer implements Runnable
 
 	private String allMaps = "";
 
-	public ServerLobbyPlayer(Socket socket, String namesToSend, BufferedReader input, PrintWriter output, Server server)
+	public ServerLobbyPlayer(ServerConnection connection, String namesToSend, Server server)
 	{
-		this.IP = socket.getInetAddress().toString();
+		this.connection = connection;
+		this.IP = connection.getAddress();
 		this.server = server;
 		this.team = nextTeam % 2 + 1;
 		nextTeam++;
@@ -46,14 +46,14 @@ public class ServerLobbyPlayer implements Runnable
 		// Set up the output
 		try
 		{
-			this.output = output;
+			this.output = connection.getWriter();
 
 			sendMessage("Good to go");
 
 			allMaps = "";
 			BufferedReader inputMap = new BufferedReader(new FileReader(
 					new File("Resources", "Maps")));
-			ServerManager.trackService(inputMap);
+			server.trackService(inputMap);
 			int numMaps = Integer.parseInt(inputMap.readLine());
 			for (int i = 0; i < numMaps; i++)
 			{
@@ -79,37 +79,33 @@ public class ServerLobbyPlayer implements Runnable
 		sendMessage("M " + server.getMap());
 		
 		sendMessage(namesToSend);
-
-		this.input = input;
 	}
 
 	/**
-	 * Input thread
+	 * Handle a line sent by the client (called on a network thread)
 	 */
-	public void run()
+	public void handleLine(String command)
 	{
-		while (server.isRunning())
+		if (!server.isRunning())
 		{
-			try
-			{
-				// Read the next line the player sent in
-				String command = input.readLine();
+			return;
+		}
 
-				if (command.length() >= 3 && command.charAt(0) == 'C')
-				{
-					String message = command.substring(2);
-					String[] tokens = message.split(" ");
+		if (command.length() >= 3 && command.charAt(0) == 'C')
+		{
+			String message = command.substring(2);
+			String[] tokens = message.split(" ");
 
-					server.broadcast("CH " + "E "
-							+ (getTeam() + getName()).split(" ").length
-							+ " " + getTeam() + getName() + " "
-							+ tokens.length + " " + message);
-				}
-				else if (command.equals("S") && isLeader)
-				{
-					started = true;
-					server.start();
-					
+			server.broadcast("CH " + "E "
+					+ (getTeam() + getName()).split(" ").length
+					+ " " + getTeam() + getName() + " "
+					+ tokens.length + " " + message);
+		}
+		else if (command.equals("S") && isLeader)
+		{
+			started = true;
+			server.start();
+			
 //					if (Math.abs(numBlue - numRed) < 2)
 //					{
 //						started = true;
@@ -121,95 +117,80 @@ public class ServerLobbyPlayer implements Runnable
 //								+ "Server " + 5 + " "
 //								+ "Balance the teams to start");
 //					}
-				}
-				else if (command.length() > 2
-						&& command.substring(0, 2).equals("Na"))
-				{
-					try
-					{
-						name = command.substring(3);
-					}
-					catch (Exception E)
-					{
-						continue;
-					}
-					server.broadcast("JO " + getName().split(" ").length + " "
-							+ getTeam() + getName());
-
-					for (ServerLobbyPlayer player : server.getPlayers())
-					{
-						// Send every player to this one and send all other
-						// players that this player just joined
-						sendMessage("P true " + player.getTeam() + " "
-								+ player.getName());
-						if (player != this)
-							player.sendMessage("P true " + team + " " + name);
-
-						if (player.isLeader())
-							server.broadcast("LE " + player.getTeam() + " "
-									+ player.getName());
-					}
-				}
-				else if (command.equals("X"))
-				{
-					if (team == ServerCreature.RED_TEAM)
-					{
-						team = ServerCreature.BLUE_TEAM;
-						numRed--;
-						numBlue++;
-						server.broadcast("P false " + team + " " + name);
-						if (isLeader)
-							setLeader();
-					}
-					else
-					{
-						team = ServerCreature.RED_TEAM;
-						numRed++;
-						numBlue--;
-						server.broadcast("P false " + team + " " + name);
-						if (isLeader)
-							setLeader();
-					}
-
-					System.out.printf("red:%d blue:%d%n", numRed, numBlue);
-					//Start the game if teams are full
-					if(numRed + numBlue == Server.MAX_PLAYERS)			
-					{
-						started = true;
-						server.start();
-					}
-				}
-				else if (command.length() > 2 && command.charAt(0) == 'M'
-						&& isLeader)
-				{
-					String map = command.substring(2);
-					server.broadcast("M " + map);
-					server.setMap(map);
-					System.out.println(map);
-				}
+		}
+		else if (command.length() > 2
+				&& command.substring(0, 2).equals("Na"))
+		{
+			try
+			{
+				name = command.substring(3);
 			}
-			catch (IOException e)
+			catch (Exception E)
 			{
-				break;
+				return;
 			}
-			catch (NullPointerException e)
+			server.broadcast("JO " + getName().split(" ").length + " "
+					+ getTeam() + getName());
+
+			for (ServerLobbyPlayer player : server.getPlayers())
 			{
-				break;
+				// Send every player to this one and send all other
+				// players that this player just joined
+				sendMessage("P true " + player.getTeam() + " "
+						+ player.getName());
+				if (player != this)
+					player.sendMessage("P true " + team + " " + name);
+
+				if (player.isLeader())
+					server.broadcast("LE " + player.getTeam() + " "
+							+ player.getName());
 			}
 		}
-		
-		System.out.println("A client has disconnected");
-		output.close();
-		
-		try
+		else if (command.equals("X"))
 		{
-			input.close();
+			if (team == ServerCreature.RED_TEAM)
+			{
+				team = ServerCreature.BLUE_TEAM;
+				numRed--;
+				numBlue++;
+				server.broadcast("P false " + team + " " + name);
+				if (isLeader)
+					setLeader();
+			}
+			else
+			{
+				team = ServerCreature.RED_TEAM;
+				numRed++;
+				numBlue--;
+				server.broadcast("P false " + team + " " + name);
+				if (isLeader)
+					setLeader();
+			}
+
+			System.out.printf("red:%d blue:%d%n", numRed, numBlue);
+			//Start the game if teams are full
+			if(numRed + numBlue == Server.MAX_PLAYERS)			
+			{
+				started = true;
+				server.start();
+			}
 		}
-		catch (IOException e1)
+		else if (command.length() > 2 && command.charAt(0) == 'M'
+				&& isLeader)
 		{
-			e1.printStackTrace();
-			System.out.println("Error closing buffered reader");
+			String map = command.substring(2);
+			server.broadcast("M " + map);
+			server.setMap(map);
+			System.out.println(map);
 		}
+	}
+
+	/**
+	 * Called once the client's connection closes
+	 */
+	public void connectionClosed()
+	{
+		System.out.println("A client has disconnected");
 
 		if (!started)
 		{
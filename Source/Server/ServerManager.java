@@ -1,6 +1,4 @@
 package Server;
-import java.awt.event.ActionEvent; 
-import java.awt.event.ActionListener;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -8,30 +6,40 @@ import java.io.PrintWriter;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
-import java.util.ArrayDeque;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.UUID;
 
 import javax.swing.JOptionPane;
-import javax.swing.Timer;
 
 import Client.ClientFrame;
 import ClientUDP.ClientAccountWindow;
 import Imports.GameMaps;
 import Server.Creatures.ServerPlayer;
+import Tools.Threads;
 
-public class ServerManager implements Runnable, ActionListener{
+public class ServerManager implements Runnable{
 
-	private ServerSocket socket;
+	private ServerSocketChannel socket;
 	private static ArrayList<Server> rooms = new ArrayList<Server>();
 
 	private int maxRooms;
 	private ClientFrame mainFrame;
 	public static boolean HAS_FRAME = true;
-	private Timer updateCentral;
+
+	/**
+	 * How often (in milliseconds) the room info is sent to the central server
+	 */
+	public static final int CENTRAL_UPDATE_RATE = 50;
+
+	/**
+	 * How long (in milliseconds) a new connection has to send its login
+	 */
+	public static final int LOGIN_TIMEOUT = 400;
 	private String name = "Default";
 
 	//Variables for central server comm
@@ -49,90 +57,19 @@ public class ServerManager implements Runnable, ActionListener{
 
 	private ArrayList<AddNewPlayer> listOfNewPlayers;
 
-	private ArrayDeque<String> messageQueue = new ArrayDeque<String>();
+	/**
+	 * The game results sent to the central server that it hasn't acknowledged
+	 * yet, by game ID. They are sent again whenever we reconnect
+	 */
+	private LinkedHashMap<String, String> unacknowledgedResults = new LinkedHashMap<String, String>();
 
 	private boolean canConnectCentral = false;
 	
-	// These only store services that will be discarded when a room ends
-	private static ArrayList<Socket> sockets = new ArrayList<Socket>();
-	private static ArrayList<Thread> threads = new ArrayList<Thread>();
-	private static ArrayList<BufferedReader> readers = new ArrayList<BufferedReader>();
-	private static ArrayList<PrintWriter> writers = new ArrayList<PrintWriter>();
-	private static ArrayList<Timer> timers = new ArrayList<Timer>();
-
-	public static synchronized void trackService(Socket socket)
-	{
-		sockets.add(socket);
-	}
-	public static synchronized void trackService(Thread thread)
-	{
-		threads.add(thread);
-	}
-	public static synchronized void trackService(PrintWriter writer)
-	{
-		writers.add(writer);
-	}
-	public static synchronized void trackService(BufferedReader reader)
-	{
-		readers.add(reader);
-	}
-	public static synchronized void trackService(Timer timer)
-	{
-		timers.add(timer);
-	}
-	
-	public static synchronized void purgeServices()
-	{
-		for (Socket socket: sockets)
-		{
-			if (!socket.isClosed())
-			{
-				System.out.println("Socket was still alive");
-				try {
-					socket.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-			}
-		}
-		sockets.clear();
-		
-		for (Thread thread: threads)
-		{
-			if (thread.isAlive())
-			{
-				System.out.println("Thread was still alive");
-				thread.interrupt();
-			}
-		}
-		threads.clear();
-		
-		for (PrintWriter writer : writers)
-		{
-			writer.close();
-		}
-		writers.clear();
-		
-		for (BufferedReader reader: readers)
-		{
-			try {
-				reader.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
-		readers.clear();
-		
-		for (Timer timer: timers)
-		{
-			if (timer.isRunning())
-			{
-				System.out.println("Timer was still alive");
-				timer.stop();
-			}
-		}
-		timers.clear();
-	}
+	/**
+	 * How long (in milliseconds) a finished room's connections are left open
+	 * so its last messages can reach the players
+	 */
+	public static final int ROOM_CLOSE_DELAY = 1000;
 	
 	/**
 	 * 
@@ -166,7 +103,8 @@ public class ServerManager implements Runnable, ActionListener{
 		Thread pingThread = new Thread(ping);
 		pingThread.start();
 		try {
-			socket = new ServerSocket(thisPort);
+			socket = ServerSocketChannel.open();
+			socket.bind(new InetSocketAddress(thisPort));
 		} catch (IOException e) {
 			System.out.println("Server cannot be created with given port");
 			e.printStackTrace();
@@ -174,10 +112,10 @@ public class ServerManager implements Runnable, ActionListener{
 
 		if (isListed)
 		{
-			Thread centralServerThread = new Thread(new CentralServerReceive());
-			centralServerThread.start();
-			updateCentral = new Timer(50,this);
-			updateCentral.start();
+			Threads.start(new CentralServerReceive(), "Central server receive");
+			Thread updateCentralThread = new Thread(new CentralServerUpdate());
+			updateCentralThread.setDaemon(true);
+			updateCentralThread.start();
 		}
 		GameMaps.importMaps();
 	}
@@ -185,25 +123,24 @@ public class ServerManager implements Runnable, ActionListener{
 	@Override
 	public void run() {
 		listOfNewPlayers = new ArrayList<AddNewPlayer>();
-		while (true) {
-			try {
-				Socket newClient = socket.accept();
-				trackService(newClient);
-				System.out.println("New player JOINED");
-				AddNewPlayer toAdd = new AddNewPlayer(newClient);
-				synchronized(listOfNewPlayers)
-				{
-					listOfNewPlayers.add(toAdd);
-				}
-				Thread newPlayerAccept = new Thread(toAdd);
-				trackService(newPlayerAccept);
-				newPlayerAccept.start();
 
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		// New connections are accepted by the network threads
+		try {
+			ServerNetwork.listen(socket, new ServerNetwork.Acceptor() {
+				@Override
+				public void accept(ServerConnection newClient) {
+					System.out.println("New player JOINED");
+					AddNewPlayer toAdd = new AddNewPlayer(newClient);
+					synchronized(listOfNewPlayers)
+					{
+						listOfNewPlayers.add(toAdd);
+					}
+					newClient.setHandler(toAdd);
+				}
+			});
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
-
 	}
 
 	private class CentralServerReceive implements Runnable
@@ -237,13 +174,12 @@ public class ServerManager implements Runnable, ActionListener{
 					e1.printStackTrace();
 				}
 
-				try{
-					while(!messageQueue.isEmpty())
+				synchronized(unacknowledgedResults)
+				{
+					for(String result : unacknowledgedResults.values())
 					{
-						send(messageQueue.pop());
+						send(result);
 					}
-				} catch(ConcurrentModificationException e) {
-					e.printStackTrace();
 				}
 
 				while(true)
@@ -273,6 +209,13 @@ public class ServerManager implements Runnable, ActionListener{
 								listOfNewPlayers.remove(toRemove);
 							}
 							break;
+						// The central server recorded a game result
+						case 'e':
+							synchronized(unacknowledgedResults)
+							{
+								unacknowledgedResults.remove(input.substring(2));
+							}
+							break;
 						}
 					}
 					catch (IOException e) {
@@ -303,161 +246,209 @@ public class ServerManager implements Runnable, ActionListener{
 
 	}
 
-	private class AddNewPlayer implements Runnable, ActionListener
+	/**
+	 * Regularly sends the room info to the central server
+	 */
+	private class CentralServerUpdate implements Runnable
 	{
-		Socket newClientSocket;
-		boolean timeout = false;
+		@Override
+		public void run() {
+			while(true)
+			{
+				try {
+					Thread.sleep(CENTRAL_UPDATE_RATE);
+				} catch (InterruptedException e) {
+					break;
+				}
+				sendRoomInfo();
+			}
+		}
+	}
+
+	/**
+	 * Logs in a new connection and adds it to a room
+	 */
+	private class AddNewPlayer implements ServerConnection.LineHandler
+	{
+		ServerConnection connection;
+		PrintWriter output;
+		boolean loggedIn = false;
 		boolean validCredentials = false;
 		String key = null;
 		String name = null;
-		public AddNewPlayer(Socket socket)
+		public AddNewPlayer(ServerConnection connection)
 		{
-			this.newClientSocket = socket;
+			this.connection = connection;
+			this.output = connection.getWriter();
+
+			// Drop the connection if it doesn't log in in time
+			ServerNetwork.schedule(new Runnable() {
+				@Override
+				public void run() {
+					synchronized(AddNewPlayer.this)
+					{
+						if (loggedIn)
+						{
+							return;
+						}
+						loggedIn = true;
+					}
+					reject("ERROR");
+				}
+			}, LOGIN_TIMEOUT);
 		}
 
 		@Override
-		public void run() {
+		public void handleLine(String command) {
+			synchronized(this)
+			{
+				if (loggedIn)
+				{
+					return;
+				}
+				loggedIn = true;
+			}
+
+			// Hold on to anything else the client sends until it is in a room
+			connection.setHandler(null);
+
+			// Checking the name and asking the central server can block, so
+			// it is done on a worker instead of the I/O thread
+			final String login = command;
+			ServerNetwork.execute(new Runnable() {
+				@Override
+				public void run() {
+					logIn(login);
+				}
+			});
+		}
+
+		/**
+		 * Check the client's login with the rooms and the central server, then
+		 * add it to a room
+		 */
+		private void logIn(String command)
+		{
+			String[] tokens = command.split(" ");
 			try{
-				PrintWriter output = new PrintWriter(
-						newClientSocket.getOutputStream());
-				trackService(output);
-				BufferedReader input = new BufferedReader(
-						new InputStreamReader(newClientSocket.getInputStream()));
-				trackService(input);
-				Timer inputTimer = new Timer(400,this);
-				trackService(inputTimer);
-				inputTimer.start();
-				while(!input.ready())
+				if(tokens[0].equals("Na"))
 				{
-					//System.out.println("Stuck on input.ready");
-					if(timeout)
+					key = tokens[1];
+					name = tokens[2];
+					for(int i = 3; i < tokens.length;i++)
 					{
-						output.println("ERROR");
-						output.flush();
-						input.close();
-						output.close();
-						newClientSocket.close();
-						return;
+						name += " "+tokens[i];
 					}
-				}
-				String command = input.readLine();
-				String[] tokens = command.split(" ");
-				try{
-					if(tokens[0].equals("Na"))
-					{
-						key = tokens[1];
-						name = tokens[2];
-						for(int i = 3; i < tokens.length;i++)
-						{
-							name += " "+tokens[i];
-						}
 
-						//Check to make sure the player isn't already logged in
-						synchronized(rooms){
-							for(Server room : rooms)
+					//Check to make sure the player isn't already logged in
+					synchronized(rooms){
+						for(Server room : rooms)
+						{
+							if(!room.started())
 							{
-								if(!room.started())
+								for(ServerLobbyPlayer player : room.getPlayers())
 								{
-									for(ServerLobbyPlayer player : room.getPlayers())
+									if(player.getName().equals(name))
 									{
-										if(player.getName().equals(name))
-										{
-											output.println("DOUBLEACC");
-											output.flush();
-											input.close();
-											output.close();
-											newClientSocket.close();
-											return;
-										}
+										reject("DOUBLEACC");
+										return;
 									}
 								}
-								else
+							}
+							else
+							{
+								for(ServerPlayer player : room.getEngine().getListOfPlayers())
 								{
-									for(ServerPlayer player : room.getEngine().getListOfPlayers())
+									if(player.getName().equals(name))
 									{
-										if(player.getName().equals(name))
-										{
-											output.println("DOUBLEACC");
-											output.flush();
-											input.close();
-											output.close();
-											newClientSocket.close();
-											return;
-										}
+										reject("DOUBLEACC");
+										return;
 									}
 								}
 							}
 						}
-						//Check with the central server to validate the account info
-						validCredentials = false;
-						String data = "l "+ key+" "+name;
-						send(data);
-						Thread.sleep(200);
-						if(!validCredentials)
-						{
-							//throw new Exception();
-						}
-						//validCredentials = false;
-
 					}
-					else throw new Exception();	
+					//Check with the central server to validate the account info
+					validCredentials = false;
+					String data = "l "+ key+" "+name;
+					send(data);
 				}
-				catch(Exception e)
-				{
-					//e.printStackTrace();
-					output.println("INVALID");
-					output.flush();
-					input.close();
-					output.close();
-					newClientSocket.close();
-					return;
-				}
-
-				synchronized(rooms){
-					for (Server room : rooms) {
-						if (!room.isFull()) {
-							if (room.started()) {
-								output.println("CONNECTED");
-								System.out.println("CONNECTED GAME STARTED");
-								output.flush();
-								room.addClient(newClientSocket, input, name);
-							} else {
-								output.println("CONNECTED");
-								System.out.println("CONNECTED TO LOBBY");
-								output.flush();
-								room.addClient(newClientSocket, input, name);
-							}
-							return; // Once the client is added wait for
-							// a new one
-						}
-					}
+				else throw new Exception();	
+			}
+			catch(Exception e)
+			{
+				//e.printStackTrace();
+				reject("INVALID");
+				return;
+			}
 
-					if (rooms.size() < maxRooms) {
-						output.println("CONNECTED");
-						System.out.println("CONNECTED NEW ROOM");
-						output.flush();
-						addNewRoom();
-						rooms.get(rooms.size() - 1).addClient(newClientSocket, input, name);
-					} else // No More Space
+			// Give the central server time to reply before adding the player
+			ServerNetwork.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if(!validCredentials)
 					{
-						System.out.println("Sent full message to client");
-						output.println("FULL");
-						output.flush();
-						output.close();
-						newClientSocket.close();
+						//throw new Exception();
 					}
+					//validCredentials = false;
+					addToRoom();
 				}
-			}
-			catch(Exception e)
+			}, 200);
+		}
+
+		@Override
+		public void connectionClosed() {
+			synchronized(listOfNewPlayers)
 			{
-				e.printStackTrace();
+				listOfNewPlayers.remove(this);
 			}
 		}
 
-		@Override
-		public void actionPerformed(ActionEvent arg0) {
-			((Timer)arg0.getSource()).stop();
-			timeout = true;
+		/**
+		 * Send the client a reason for refusing it and close the connection
+		 */
+		private void reject(String reason)
+		{
+			output.println(reason);
+			connection.closeAfterFlush();
+		}
+
+		/**
+		 * Add the client to the first room with space
+		 */
+		private void addToRoom()
+		{
+			synchronized(rooms){
+				for (Server room : rooms) {
+					if (!room.isFull()) {
+						if (room.started()) {
+							output.println("CONNECTED");
+							System.out.println("CONNECTED GAME STARTED");
+							output.flush();
+							room.addClient(connection, name);
+						} else {
+							output.println("CONNECTED");
+							System.out.println("CONNECTED TO LOBBY");
+							output.flush();
+							room.addClient(connection, name);
+						}
+						return; // Once the client is added wait for
+						// a new one
+					}
+				}
+
+				if (rooms.size() < maxRooms) {
+					output.println("CONNECTED");
+					System.out.println("CONNECTED NEW ROOM");
+					output.flush();
+					addNewRoom();
+					rooms.get(rooms.size() - 1).addClient(connection, name);
+				} else // No More Space
+				{
+					System.out.println("Sent full message to client");
+					reject("FULL");
+				}
+			}
 		}
 
 	}
@@ -469,17 +460,37 @@ public class ServerManager implements Runnable, ActionListener{
 			out.println(s);
 			out.flush();
 		}
-		else if(s.charAt(0) == 'E')
-		{		
-			messageQueue.add(s);
+	}
+
+	/**
+	 * Send the result of a game to the central server. The game is given a
+	 * unique ID so the central server can tell when a result is sent again,
+	 * and the result is kept (and sent again after reconnecting) until the
+	 * central server acknowledges it. It is sent on a network worker, since
+	 * the room calls this on its tick
+	 * @param result the winner, team sizes and players of the game
+	 */
+	public void sendGameResult(String result)
+	{
+		String gameID = UUID.randomUUID().toString();
+		final String message = "E " + gameID + " " + result;
+		synchronized(unacknowledgedResults)
+		{
+			unacknowledgedResults.put(gameID, message);
 		}
+		ServerNetwork.execute(new Runnable() {
+			@Override
+			public void run() {
+				send(message);
+			}
+		});
 	}
 
 	public void addNewRoom() {
 		Server newServer = new Server(this);
 		rooms.add(newServer);
-		Thread serverThread = new Thread(newServer);
-		trackService(serverThread);
+		Thread serverThread = Threads.newThread(newServer, "Room " + rooms.size());
+		newServer.trackService(serverThread);
 		serverThread.start();
 
 		if (HAS_FRAME)
@@ -498,16 +509,25 @@ public class ServerManager implements Runnable, ActionListener{
 		}
 	}
 
-	public void removeRoom(Server remove)
+	/**
+	 * Remove a finished room. Only the room's own services are shut down,
+	 * once its last messages have had time to go out, so the other rooms
+	 * keep running (called on the room's tick, so it never waits)
+	 * @param remove the room
+	 */
+	public void removeRoom(final Server remove)
 	{
 		remove.terminate();
-		try {
-			Thread.sleep(1000);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		synchronized(rooms)
+		{
+			rooms.remove(remove);
 		}
-		purgeServices();
-		rooms.remove(remove);
+		ServerNetwork.schedule(new Runnable() {
+			@Override
+			public void run() {
+				remove.purgeServices();
+			}
+		}, ROOM_CLOSE_DELAY);
 		
 		// No longer restart games automatically
 		if (rooms.size() < maxRooms) {
@@ -519,11 +539,14 @@ public class ServerManager implements Runnable, ActionListener{
 			//addNewRoom();
 			//rooms.get(rooms.size() - 1).start();
 			//System.out.println("Game restarted");
-			//rooms.get(rooms.size() - 1).addClient(newClientSocket, input, name);
+			//rooms.get(rooms.size() - 1).addClient(connection, name);
 		}
 	}
 
-	public void actionPerformed(ActionEvent arg0) {
+	/**
+	 * Send the number of players in this server to the central server
+	 */
+	public void sendRoomInfo() {
 		synchronized(rooms)
 		{
 			int numPlayers = 0;
@@ -0,0 +1,583 @@
+package Server;
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import Imports.GameMap;
+
+/**
+ * The places a walking creature can stand on a map (the tops of solid tiles
+ * and platforms) and how it can get between them: walking to the next tile,
+ * dropping off a ledge, or jumping up to (or across a gap to) another
+ * surface. Jumps are worked out from the world's gravity and the creature's
+ * jump and movement speeds, so there is one graph per map for each kind of
+ * mover (see GameMap.getNavGraph). Paths to a destination are found once, as
+ * a flow field pointing every node to its next step, and shared by every
+ * creature going there. Graphs and flow fields are built on one navigation
+ * thread shared by every room, and creatures find their own way until they
+ * are ready
+ *
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerNavGraph
+{
+	/**
+	 * Returned when there is no node or no next step
+	 */
+	public static final int NO_NODE = -1;
+
+	/**
+	 * The extra cost of a jump (in pixels walked), so creatures only jump
+	 * when it saves them a real detour
+	 */
+	public static final int JUMP_COST = ServerWorld.TILE_SIZE * 2;
+
+	private final GameMap map;
+	private final int rows;
+	private final int columns;
+
+	/**
+	 * The movement the graph was built for
+	 */
+	private final int jumpSpeed;
+	private final int movementSpeed;
+	private final int clearance;
+
+	/**
+	 * The node standing in each tile (row * columns + column), or NO_NODE
+	 */
+	private final int[] nodeAt;
+	private int[] nodeRows;
+	private int[] nodeColumns;
+	private int noOfNodes = 0;
+
+	/**
+	 * The links out of each node are linkStart[node] to linkStart[node + 1]
+	 */
+	private int[] linkStart;
+	private int[] linkTargets = new int[256];
+	private int[] linkCosts = new int[256];
+	private boolean[] linkJumps = new boolean[256];
+	private int noOfLinks = 0;
+
+	/**
+	 * The links into each node (indexes into the link arrays) are
+	 * reverseLinks[reverseStart[node]] to reverseLinks[reverseStart[node + 1]],
+	 * coming from the nodes in reverseSources
+	 */
+	private int[] reverseStart;
+	private int[] reverseLinks;
+	private int[] reverseSources;
+
+	/**
+	 * The flow fields found so far, by destination (null while one is being
+	 * found)
+	 */
+	private HashMap<String, FlowField> flowFields = new HashMap<String, FlowField>();
+
+	/**
+	 * Builds the graphs and flow fields off the rooms' tick threads
+	 */
+	private static ExecutorService builder;
+
+	/**
+	 * Constructor for a navigation graph
+	 *
+	 * @param map the map
+	 * @param jumpSpeed the vertical speed of a jump
+	 * @param movementSpeed the horizontal speed while walking or jumping
+	 * @param clearance the number of tiles tall the creature is
+	 */
+	public ServerNavGraph(GameMap map, int jumpSpeed, int movementSpeed, int clearance)
+	{
+		this.map = map;
+		this.jumpSpeed = jumpSpeed;
+		this.movementSpeed = Math.max(1, movementSpeed);
+		this.clearance = Math.max(1, clearance);
+		rows = map.getRows();
+		columns = map.getColumns();
+
+		// Find every tile a creature can stand in
+		nodeAt = new int[rows * columns];
+		nodeRows = new int[256];
+		nodeColumns = new int[256];
+		for (int row = 0; row < rows; row++)
+		{
+			for (int column = 0; column < columns; column++)
+			{
+				if (canStand(row, column))
+				{
+					if (noOfNodes == nodeRows.length)
+					{
+						nodeRows = grow(nodeRows);
+						nodeColumns = grow(nodeColumns);
+					}
+					nodeRows[noOfNodes] = row;
+					nodeColumns[noOfNodes] = column;
+					nodeAt[row * columns + column] = noOfNodes;
+					noOfNodes++;
+				}
+				else
+				{
+					nodeAt[row * columns + column] = NO_NODE;
+				}
+			}
+		}
+
+		// The highest a jump goes (in pixels and whole tiles)
+		double jumpHeight = jumpSpeed * (double) jumpSpeed / (2 * ServerWorld.GRAVITY);
+		int jumpRows = (int) (jumpHeight / ServerWorld.TILE_SIZE);
+
+		linkStart = new int[noOfNodes + 1];
+		for (int node = 0; node < noOfNodes; node++)
+		{
+			linkStart[node] = noOfLinks;
+			int row = nodeRows[node];
+			int column = nodeColumns[node];
+
+			for (int direction = -1; direction <= 1; direction += 2)
+			{
+				int nextColumn = column + direction;
+				if (nextColumn < 0 || nextColumn >= columns)
+				{
+					continue;
+				}
+
+				// Walk to the next tile, or walk off the ledge and fall
+				if (nodeAt[row * columns + nextColumn] != NO_NODE)
+				{
+					addLink(nodeAt[row * columns + nextColumn], ServerWorld.TILE_SIZE, false);
+				}
+				else if (isClear(row - this.clearance + 1, row, nextColumn))
+				{
+					for (int fallRow = row + 1; fallRow < rows; fallRow++)
+					{
+						if (map.getCollision(fallRow, nextColumn) == ServerWorld.SOLID_TILE)
+						{
+							break;
+						}
+						if (nodeAt[fallRow * columns + nextColumn] != NO_NODE)
+						{
+							addLink(nodeAt[fallRow * columns + nextColumn],
+									ServerWorld.TILE_SIZE + (fallRow - row) * ServerWorld.TILE_SIZE / 2, false);
+							break;
+						}
+					}
+				}
+
+				// Jump up to, or across a gap to, another surface
+				for (int landingRow = Math.max(0, row - jumpRows); landingRow <= Math.min(rows - 1, row
+						+ jumpRows); landingRow++)
+				{
+					double rise = (row - landingRow) * ServerWorld.TILE_SIZE;
+					double airTime = jumpSpeed / ServerWorld.GRAVITY
+							+ Math.sqrt(2 * (jumpHeight - rise) / ServerWorld.GRAVITY);
+					int reach = (int) (this.movementSpeed * airTime / ServerWorld.TILE_SIZE);
+
+					for (int distance = 1; distance <= reach; distance++)
+					{
+						int landingColumn = column + direction * distance;
+						if (landingColumn < 0 || landingColumn >= columns)
+						{
+							break;
+						}
+						int target = nodeAt[landingRow * columns + landingColumn];
+						if (target != NO_NODE && !(landingRow == row && isWalkable(row, column, landingColumn))
+								&& canJump(row, column, landingRow, landingColumn))
+						{
+							addLink(target, (distance + Math.abs(row - landingRow)) * ServerWorld.TILE_SIZE
+									+ JUMP_COST, true);
+						}
+					}
+				}
+			}
+		}
+		linkStart[noOfNodes] = noOfLinks;
+
+		// Index the links by where they go, for finding paths backwards from a
+		// destination
+		reverseStart = new int[noOfNodes + 1];
+		reverseLinks = new int[noOfLinks];
+		reverseSources = new int[noOfLinks];
+		for (int link = 0; link < noOfLinks; link++)
+		{
+			reverseStart[linkTargets[link] + 1]++;
+		}
+		for (int node = 0; node < noOfNodes; node++)
+		{
+			reverseStart[node + 1] += reverseStart[node];
+		}
+		int[] filled = new int[noOfNodes];
+		for (int node = 0; node < noOfNodes; node++)
+		{
+			for (int link = linkStart[node]; link < linkStart[node + 1]; link++)
+			{
+				int target = linkTargets[link];
+				reverseLinks[reverseStart[target] + filled[target]] = link;
+				reverseSources[reverseStart[target] + filled[target]] = node;
+				filled[target]++;
+			}
+		}
+	}
+
+	/**
+	 * Check if a creature can stand in a tile (there is a solid tile or
+	 * platform under it and enough room above it)
+	 */
+	private boolean canStand(int row, int column)
+	{
+		if (row + 1 >= rows || row - clearance + 1 < 0)
+		{
+			return false;
+		}
+		char under = map.getCollision(row + 1, column);
+		return (under == ServerWorld.SOLID_TILE || under == ServerWorld.PLATFORM_TILE)
+				&& isClear(row - clearance + 1, row, column);
+	}
+
+	/**
+	 * Check that none of the tiles in a column between two rows are solid
+	 * (creatures can move through platforms)
+	 */
+	private boolean isClear(int startRow, int endRow, int column)
+	{
+		if (startRow < 0)
+		{
+			return false;
+		}
+		for (int row = startRow; row <= endRow; row++)
+		{
+			if (map.getCollision(row, column) == ServerWorld.SOLID_TILE)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check if a creature can walk along a row between two columns without a
+	 * gap
+	 */
+	private boolean isWalkable(int row, int startColumn, int endColumn)
+	{
+		int step = endColumn > startColumn ? 1 : -1;
+		for (int column = startColumn; column != endColumn; column += step)
+		{
+			if (nodeAt[row * columns + column + step] == NO_NODE)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check that there are no solid tiles in the way of a jump. The creature
+	 * goes straight up from where it is, across at the height of the higher
+	 * of the two surfaces and then down to where it lands
+	 */
+	private boolean canJump(int row, int column, int landingRow, int landingColumn)
+	{
+		int topRow = Math.min(row, landingRow) - clearance + 1;
+		if (!isClear(topRow, row, column) || !isClear(topRow, landingRow, landingColumn))
+		{
+			return false;
+		}
+		int step = landingColumn > column ? 1 : -1;
+		for (int next = column + step; next != landingColumn; next += step)
+		{
+			if (!isClear(topRow, Math.min(row, landingRow), next))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add a link from the node being built
+	 */
+	private void addLink(int target, int cost, boolean jump)
+	{
+		if (noOfLinks == linkTargets.length)
+		{
+			linkTargets = grow(linkTargets);
+			linkCosts = grow(linkCosts);
+			boolean[] newJumps = new boolean[linkJumps.length * 2];
+			System.arraycopy(linkJumps, 0, newJumps, 0, noOfLinks);
+			linkJumps = newJumps;
+		}
+		linkTargets[noOfLinks] = target;
+		linkCosts[noOfLinks] = cost;
+		linkJumps[noOfLinks] = jump;
+		noOfLinks++;
+	}
+
+	/**
+	 * Make a copy of an array twice as long
+	 */
+	private static int[] grow(int[] array)
+	{
+		int[] newArray = new int[array.length * 2];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		return newArray;
+	}
+
+	/**
+	 * Get the node a creature is standing on
+	 *
+	 * @param x the x coordinate of the middle of the creature
+	 * @param y the y coordinate of the bottom of the creature
+	 * @return the node, or NO_NODE if the creature isn't standing on one
+	 */
+	public int getNode(double x, double y)
+	{
+		int row = (int) ((y - 1) / ServerWorld.TILE_SIZE);
+		int column = (int) (x / ServerWorld.TILE_SIZE);
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+		{
+			return NO_NODE;
+		}
+		return nodeAt[row * columns + column];
+	}
+
+	/**
+	 * Get the paths from every node to a destination. The first time they
+	 * are asked for they are found on the navigation thread
+	 *
+	 * @param left the left of the destination
+	 * @param top the top of the destination
+	 * @param right the right of the destination
+	 * @param bottom the bottom of the destination
+	 * @return the flow field to the destination, or null if it isn't found
+	 *         yet
+	 */
+	public synchronized FlowField getFlowField(double left, double top, double right, double bottom)
+	{
+		int startRow = Math.max(0, (int) (top / ServerWorld.TILE_SIZE));
+		int endRow = Math.min(rows - 1, (int) (bottom / ServerWorld.TILE_SIZE) + 1);
+		int startColumn = Math.max(0, (int) (left / ServerWorld.TILE_SIZE));
+		int endColumn = Math.min(columns - 1, (int) (right / ServerWorld.TILE_SIZE));
+
+		final String key = startRow + " " + startColumn + " " + endRow + " " + endColumn;
+		if (!flowFields.containsKey(key))
+		{
+			flowFields.put(key, null);
+			final int fieldStartRow = startRow;
+			final int fieldEndRow = endRow;
+			final int fieldStartColumn = startColumn;
+			final int fieldEndColumn = endColumn;
+			buildLater(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					FlowField flowField = new FlowField(fieldStartRow, fieldStartColumn, fieldEndRow, fieldEndColumn);
+					synchronized (ServerNavGraph.this)
+					{
+						flowFields.put(key, flowField);
+					}
+				}
+			});
+		}
+		return flowFields.get(key);
+	}
+
+	/**
+	 * Run a build on the navigation thread
+	 *
+	 * @param task the build
+	 */
+	public static synchronized void buildLater(Runnable task)
+	{
+		if (builder == null)
+		{
+			builder = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "Navigation");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		}
+		builder.execute(task);
+	}
+
+	/**
+	 * Check if the graph was built for the given movement
+	 *
+	 * @param jumpSpeed the vertical speed of a jump
+	 * @param movementSpeed the horizontal speed
+	 * @param clearance the number of tiles tall the creature is
+	 * @return whether or not the graph fits the movement
+	 */
+	public boolean fits(int jumpSpeed, int movementSpeed, int clearance)
+	{
+		return this.jumpSpeed == jumpSpeed && this.movementSpeed == Math.max(1, movementSpeed)
+				&& this.clearance == Math.max(1, clearance);
+	}
+
+	/**
+	 * The shortest path from every node in the graph to a destination. Each
+	 * node just stores its next step, so following the path is one lookup a
+	 * tick
+	 *
+	 * @author William Xu & Alex Raita
+	 *
+	 */
+	public class FlowField
+	{
+		/**
+		 * The next node on the path from each node (NO_NODE at the
+		 * destination or when the destination can't be reached)
+		 */
+		private final int[] next;
+
+		/**
+		 * Whether the creature has to jump to get to the next node
+		 */
+		private final boolean[] jump;
+
+		/**
+		 * The cost of the path from each node (Integer.MAX_VALUE when the
+		 * destination can't be reached)
+		 */
+		private final int[] distance;
+
+		/**
+		 * Constructor for a flow field, which finds the paths from every node
+		 * to the nodes inside the destination
+		 */
+		FlowField(int startRow, int startColumn, int endRow, int endColumn)
+		{
+			next = new int[noOfNodes];
+			jump = new boolean[noOfNodes];
+			distance = new int[noOfNodes];
+			for (int node = 0; node < noOfNodes; node++)
+			{
+				next[node] = NO_NODE;
+				distance[node] = Integer.MAX_VALUE;
+			}
+
+			// Search backwards from the destination (Dijkstra). Each entry is
+			// the distance in the high bits and the node in the low bits
+			PriorityQueue<Long> queue = new PriorityQueue<Long>();
+			for (int row = startRow; row <= endRow; row++)
+			{
+				for (int column = startColumn; column <= endColumn; column++)
+				{
+					int node = nodeAt[row * columns + column];
+					if (node != NO_NODE)
+					{
+						distance[node] = 0;
+						queue.add((long) node);
+					}
+				}
+			}
+
+			while (!queue.isEmpty())
+			{
+				long entry = queue.poll();
+				int node = (int) entry;
+				if ((int) (entry >>> 32) > distance[node])
+				{
+					continue;
+				}
+				for (int index = reverseStart[node]; index < reverseStart[node + 1]; index++)
+				{
+					int link = reverseLinks[index];
+					int from = reverseSources[index];
+					int newDistance = distance[node] + linkCosts[link];
+					if (newDistance < distance[from])
+					{
+						distance[from] = newDistance;
+						next[from] = node;
+						jump[from] = linkJumps[link];
+						queue.add(((long) newDistance << 32) | from);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Get the next node on the path from a node
+		 *
+		 * @param node the node
+		 * @return the next node, or NO_NODE if the node is at the destination
+		 *         or has no path to it
+		 */
+		public int getNext(int node)
+		{
+			return next[node];
+		}
+
+		/**
+		 * Check if getting to the next node on the path needs a jump
+		 *
+		 * @param node the node
+		 * @return whether or not to jump
+		 */
+		public boolean isJump(int node)
+		{
+			return jump[node];
+		}
+
+		/**
+		 * Check if the destination can be reached from a node
+		 *
+		 * @param node the node
+		 * @return whether or not there is a path
+		 */
+		public boolean reaches(int node)
+		{
+			return distance[node] != Integer.MAX_VALUE;
+		}
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	public int getNoOfNodes()
+	{
+		return noOfNodes;
+	}
+
+	public int getNoOfLinks()
+	{
+		return noOfLinks;
+	}
+
+	public int getRow(int node)
+	{
+		return nodeRows[node];
+	}
+
+	public int getColumn(int node)
+	{
+		return nodeColumns[node];
+	}
+
+	public int getJumpSpeed()
+	{
+		return jumpSpeed;
+	}
+
+	public int getMovementSpeed()
+	{
+		return movementSpeed;
+	}
+
+	public int getClearance()
+	{
+		return clearance;
+	}
+}
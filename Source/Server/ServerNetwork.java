@@ -0,0 +1,332 @@
+package Server;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The network layer shared by every room. A small fixed number of I/O threads
+ * each run a selector that accepts new connections and does all the reading
+ * and writing for their share of the connections, instead of every player
+ * having its own reader and writer thread
+ *
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerNetwork
+{
+	/**
+	 * The number of I/O threads
+	 */
+	public static final int IO_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * The I/O loops, one per thread
+	 */
+	private static IOLoop[] loops;
+
+	/**
+	 * Used to spread new connections between the loops
+	 */
+	private static AtomicInteger nextLoop = new AtomicInteger(0);
+
+	/**
+	 * Runs delayed network tasks (like login timeouts)
+	 */
+	private static ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * Runs network tasks that can block (like logging in through the central
+	 * server), so they never hold up an I/O loop
+	 */
+	private static ExecutorService workers;
+
+	/**
+	 * Called on an I/O thread with every new connection
+	 */
+	public interface Acceptor
+	{
+		public void accept(ServerConnection connection);
+	}
+
+	/**
+	 * Get the I/O loops, starting them if needed
+	 *
+	 * @return the loops
+	 */
+	private static synchronized IOLoop[] getLoops()
+	{
+		if (loops == null)
+		{
+			loops = new IOLoop[IO_THREADS];
+			for (int loop = 0; loop < IO_THREADS; loop++)
+			{
+				try
+				{
+					loops[loop] = new IOLoop("Network I/O " + (loop + 1));
+				}
+				catch (IOException e)
+				{
+					System.out.println("Could not open a selector");
+					e.printStackTrace();
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		return loops;
+	}
+
+	/**
+	 * Start accepting connections on a server channel
+	 *
+	 * @param serverChannel the channel to accept connections from
+	 * @param acceptor called with each new connection
+	 */
+	public static void listen(final ServerSocketChannel serverChannel, final Acceptor acceptor) throws IOException
+	{
+		serverChannel.configureBlocking(false);
+		final IOLoop loop = getLoops()[0];
+		loop.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					serverChannel.register(loop.selector, SelectionKey.OP_ACCEPT, acceptor);
+				}
+				catch (IOException e)
+				{
+					System.out.println("Could not listen for new connections");
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Add a connected channel to one of the I/O loops
+	 *
+	 * @param channel the channel
+	 * @return the connection for the channel
+	 */
+	public static ServerConnection register(SocketChannel channel) throws IOException
+	{
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+
+		IOLoop[] allLoops = getLoops();
+		final IOLoop loop = allLoops[(nextLoop.getAndIncrement() & Integer.MAX_VALUE) % allLoops.length];
+		final ServerConnection connection = new ServerConnection(channel, loop);
+		loop.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				connection.register(loop.selector);
+			}
+		});
+		return connection;
+	}
+
+	/**
+	 * Run a task after a delay on the network timer thread
+	 *
+	 * @param task the task
+	 * @param delay the delay in milliseconds
+	 * @return the scheduled task
+	 */
+	public static synchronized ScheduledFuture<?> schedule(Runnable task, long delay)
+	{
+		if (timer == null)
+		{
+			timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "Network timer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return timer.schedule(task, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Run a task that can block on a worker thread instead of an I/O thread
+	 *
+	 * @param task the task
+	 */
+	public static synchronized void execute(Runnable task)
+	{
+		if (workers == null)
+		{
+			workers = Executors.newCachedThreadPool(new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "Network worker");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		workers.execute(task);
+	}
+
+	/**
+	 * A selector and the thread that runs it
+	 *
+	 * @author William Xu & Alex Raita
+	 *
+	 */
+	static class IOLoop implements Runnable
+	{
+		private Selector selector;
+		private Thread thread;
+
+		/**
+		 * Tasks to run on the loop thread (registering channels, starting
+		 * writes, closing)
+		 */
+		private ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+		/**
+		 * Constructor for a loop, which starts its thread
+		 *
+		 * @param name the name of the thread
+		 */
+		IOLoop(String name) throws IOException
+		{
+			selector = Selector.open();
+			thread = new Thread(this, name);
+			thread.start();
+		}
+
+		/**
+		 * Run a task on the loop thread (right away if we are already on it)
+		 *
+		 * @param task the task
+		 */
+		void execute(Runnable task)
+		{
+			if (Thread.currentThread() == thread)
+			{
+				task.run();
+			}
+			else
+			{
+				tasks.add(task);
+				selector.wakeup();
+			}
+		}
+
+		/**
+		 * Check if the current thread is this loop's thread
+		 */
+		boolean inLoop()
+		{
+			return Thread.currentThread() == thread;
+		}
+
+		@Override
+		public void run()
+		{
+			while (true)
+			{
+				try
+				{
+					selector.select();
+
+					Runnable task;
+					while ((task = tasks.poll()) != null)
+					{
+						try
+						{
+							task.run();
+						}
+						catch (RuntimeException e)
+						{
+							e.printStackTrace();
+						}
+					}
+
+					Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+					while (selected.hasNext())
+					{
+						SelectionKey key = selected.next();
+						selected.remove();
+						try
+						{
+							if (!key.isValid())
+							{
+								continue;
+							}
+							if (key.attachment() instanceof ServerConnection)
+							{
+								((ServerConnection) key.attachment()).handleReady(key);
+							}
+							else if (key.isAcceptable())
+							{
+								acceptAll((ServerSocketChannel) key.channel(), (Acceptor) key.attachment());
+							}
+						}
+						catch (CancelledKeyException e)
+						{
+							// The connection was closed while handling it
+						}
+						catch (RuntimeException e)
+						{
+							System.out.println("Exception in the network loop");
+							e.printStackTrace();
+						}
+					}
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+		}
+
+		/**
+		 * Accept all the connections waiting on a server channel
+		 */
+		private void acceptAll(ServerSocketChannel serverChannel, Acceptor acceptor)
+		{
+			while (true)
+			{
+				SocketChannel channel;
+				try
+				{
+					channel = serverChannel.accept();
+					if (channel == null)
+					{
+						return;
+					}
+					acceptor.accept(register(channel));
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+					return;
+				}
+			}
+		}
+	}
+}
@@ -1,7 +1,5 @@
 package Server;
 
-import java.util.ArrayList;
-
 import Imports.Images;
 import Server.Buildings.ServerBarracks;
 import Server.Buildings.ServerCastle;
@@ -13,7 +11,6 @@ import Server.Creatures.ServerVendor;
 import Server.Spawners.ServerBatSpawner;
 import Server.Spawners.ServerGoblinSpawner;
 import Server.Spawners.ServerSlimeSpawner;
-import Tools.RowCol;
 
 /**
  * A generic object existing somewhere in the world with a unique ID, x,y
@@ -85,6 +82,12 @@ public abstract class ServerObject implements Comparable<ServerObject>
 	 */
 	private String type;
 
+	/**
+	 * The number and category bits of the type (see ServerObjectType)
+	 */
+	private int typeID;
+	private int typeCategories;
+
 	/**
 	 * Whether or not the MAP can see the object
 	 */
@@ -96,10 +99,25 @@ public abstract class ServerObject implements Comparable<ServerObject>
 	private boolean solid;
 
 	/**
-	 * An arraylist of indexes (row and column) of the object tiles that this
-	 * object is inside
+	 * The first and last rows and columns of the object tiles that this object
+	 * is inside (it is in no tiles when the end row is before the start row)
+	 */
+	private int tileStartRow = 0;
+	private int tileEndRow = -1;
+	private int tileStartColumn = 0;
+	private int tileEndColumn = -1;
+
+	/**
+	 * The object's index in each of its object tiles (in row major order),
+	 * managed by the object grid
+	 */
+	private int[] gridSlots;
+
+	/**
+	 * The last collision check that found this object, used so the object is
+	 * only collided with once per check even if it is in many object tiles
 	 */
-	private ArrayList<RowCol> objectTiles;
+	private int collisionMark = 0;
 
 	/**
 	 * Whether the object is visible in the game
@@ -123,12 +141,44 @@ public abstract class ServerObject implements Comparable<ServerObject>
 	public ServerObject(double x, double y, int width, int height,
 			double gravity, String image, String type,
 			ServerEngine engine)
+	{
+		initialise(x, y, width, height, gravity, image, type, engine);
+	}
+
+	/**
+	 * Set up an object that was removed from the world again, as if it was
+	 * just constructed. It is given a new ID
+	 * 
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @param gravity
+	 * @param image
+	 * @param type
+	 * @param engine
+	 */
+	protected void reuse(double x, double y, int width, int height,
+			double gravity, String image, String type,
+			ServerEngine engine)
+	{
+		hSpeed = 0;
+		vSpeed = 0;
+		collisionMark = 0;
+		initialise(x, y, width, height, gravity, image, type, engine);
+	}
+
+	/**
+	 * Set the starting values for the object and give it an ID
+	 */
+	private void initialise(double x, double y, int width, int height,
+			double gravity, String image, String type,
+			ServerEngine engine)
 	{
 		playedSound = false;
-		objectTiles = new ArrayList<RowCol>();
 		solid = true;
 		mapVisible = true;
-		this.type = type;
+		setType(type);
 		exists = true;
 		onSurface = false;
 		this.visible = true;
@@ -183,10 +233,9 @@ public abstract class ServerObject implements Comparable<ServerObject>
 	public ServerObject(double x, double y, int width, int height,
 			double gravity, String type, ServerEngine engine)
 	{
-		objectTiles = new ArrayList<RowCol>();
 		solid = true;
 		mapVisible = true;
-		this.type = type;
+		setType(type);
 		exists = true;
 		onSurface = false;
 		this.visible = false;
@@ -448,14 +497,67 @@ public abstract class ServerObject implements Comparable<ServerObject>
 	// GETTERS AND SETTERS //
 	// ///////////////////////
 
-	public ArrayList<RowCol> getObjectTiles()
+	public int getTileStartRow()
+	{
+		return tileStartRow;
+	}
+
+	public int getTileEndRow()
 	{
-		return objectTiles;
+		return tileEndRow;
 	}
 
-	public void setObjectTiles(ArrayList<RowCol> objectTiles)
+	public int getTileStartColumn()
 	{
-		this.objectTiles = objectTiles;
+		return tileStartColumn;
+	}
+
+	public int getTileEndColumn()
+	{
+		return tileEndColumn;
+	}
+
+	/**
+	 * Set the object tiles that the object is inside
+	 */
+	public void setObjectTiles(int startRow, int endRow, int startColumn,
+			int endColumn)
+	{
+		tileStartRow = startRow;
+		tileEndRow = endRow;
+		tileStartColumn = startColumn;
+		tileEndColumn = endColumn;
+	}
+
+	/**
+	 * Mark the object as being in no object tiles
+	 */
+	public void clearObjectTiles()
+	{
+		tileStartRow = 0;
+		tileEndRow = -1;
+		tileStartColumn = 0;
+		tileEndColumn = -1;
+	}
+
+	public int[] getGridSlots()
+	{
+		return gridSlots;
+	}
+
+	public void setGridSlots(int[] gridSlots)
+	{
+		this.gridSlots = gridSlots;
+	}
+
+	public int getCollisionMark()
+	{
+		return collisionMark;
+	}
+
+	public void setCollisionMark(int collisionMark)
+	{
+		this.collisionMark = collisionMark;
 	}
 
 	public boolean exists()
@@ -595,6 +697,23 @@ public abstract class ServerObject implements Comparable<ServerObject>
 	public void setType(String type)
 	{
 		this.type = type;
+		typeID = ServerObjectType.getID(type);
+		typeCategories = ServerObjectType.getCategories(typeID);
+	}
+
+	public int getTypeID()
+	{
+		return typeID;
+	}
+
+	/**
+	 * Check if the object is in any of the given categories
+	 * 
+	 * @param categories the ServerObjectType category bits
+	 */
+	public boolean is(int categories)
+	{
+		return (typeCategories & categories) != 0;
 	}
 
 	public boolean isMapVisible()
@@ -0,0 +1,309 @@
+package Server;
+
+import java.util.ArrayList;
+
+/**
+ * A uniform grid of object tiles, used to find the objects near a point
+ * without checking every object in the world. Each tile keeps its objects in
+ * an array, and each object remembers its index (slot) in every tile it is
+ * in, so objects can be added and removed in constant time by swapping the
+ * last object in the tile into the empty slot. Nothing is allocated once the
+ * tile arrays have grown to fit the busiest tiles
+ * 
+ * Only the room's tick thread changes the grid. Other threads may read it,
+ * but might miss an object that is moving between tiles at the time
+ * 
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerObjectGrid
+{
+	/**
+	 * The number of objects each tile has room for when it is first used
+	 */
+	private static final int INITIAL_TILE_CAPACITY = 8;
+
+	private final int rows;
+	private final int columns;
+
+	/**
+	 * The objects in each tile (index row * columns + column) and the number
+	 * of objects in each tile
+	 */
+	private ServerObject[][] tiles;
+	private int[] tileSizes;
+
+	/**
+	 * Used to build an object's new slots while it moves
+	 */
+	private int[] newSlots = new int[16];
+
+	/**
+	 * Constructor for an empty grid
+	 * 
+	 * @param rows the number of rows of object tiles
+	 * @param columns the number of columns of object tiles
+	 */
+	public ServerObjectGrid(int rows, int columns)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		tiles = new ServerObject[rows * columns][];
+		tileSizes = new int[rows * columns];
+	}
+
+	/**
+	 * Move an object to a range of tiles (or add it if it is in no tiles).
+	 * Only the tiles that the object has left or entered are changed
+	 * 
+	 * @param object the object
+	 * @param startRow the first row the object is in
+	 * @param endRow the last row the object is in
+	 * @param startColumn the first column the object is in
+	 * @param endColumn the last column the object is in
+	 */
+	public void move(ServerObject object, int startRow, int endRow,
+			int startColumn, int endColumn)
+	{
+		int oldStartRow = object.getTileStartRow();
+		int oldEndRow = object.getTileEndRow();
+		int oldStartColumn = object.getTileStartColumn();
+		int oldEndColumn = object.getTileEndColumn();
+
+		if (startRow == oldStartRow && endRow == oldEndRow
+				&& startColumn == oldStartColumn && endColumn == oldEndColumn)
+		{
+			return;
+		}
+
+		int[] oldSlots = object.getGridSlots();
+		int oldWidth = oldEndColumn - oldStartColumn + 1;
+
+		// Remove the object from the tiles that it has left
+		for (int row = oldStartRow; row <= oldEndRow; row++)
+		{
+			for (int column = oldStartColumn; column <= oldEndColumn; column++)
+			{
+				if (row < startRow || row > endRow || column < startColumn
+						|| column > endColumn)
+				{
+					removeFromTile(row, column, oldSlots[(row - oldStartRow)
+							* oldWidth + column - oldStartColumn]);
+				}
+			}
+		}
+
+		// Keep the slots of the tiles the object stays in and add the object
+		// to the tiles that it enters
+		int width = endColumn - startColumn + 1;
+		int noOfTiles = (endRow - startRow + 1) * width;
+		if (newSlots.length < noOfTiles)
+		{
+			newSlots = new int[noOfTiles * 2];
+		}
+		for (int row = startRow; row <= endRow; row++)
+		{
+			for (int column = startColumn; column <= endColumn; column++)
+			{
+				int slot;
+				if (row < oldStartRow || row > oldEndRow
+						|| column < oldStartColumn || column > oldEndColumn)
+				{
+					slot = addToTile(row, column, object);
+				}
+				else
+				{
+					slot = oldSlots[(row - oldStartRow) * oldWidth + column
+							- oldStartColumn];
+				}
+				newSlots[(row - startRow) * width + column - startColumn] = slot;
+			}
+		}
+
+		int[] slots = oldSlots;
+		if (slots == null || slots.length < noOfTiles)
+		{
+			slots = new int[Math.max(noOfTiles, 4)];
+		}
+		System.arraycopy(newSlots, 0, slots, 0, noOfTiles);
+		object.setGridSlots(slots);
+		object.setObjectTiles(startRow, endRow, startColumn, endColumn);
+	}
+
+	/**
+	 * Remove an object from all the tiles it is in
+	 * 
+	 * @param object the object
+	 */
+	public void remove(ServerObject object)
+	{
+		int startRow = object.getTileStartRow();
+		int startColumn = object.getTileStartColumn();
+		int width = object.getTileEndColumn() - startColumn + 1;
+		int[] slots = object.getGridSlots();
+
+		for (int row = startRow; row <= object.getTileEndRow(); row++)
+		{
+			for (int column = startColumn; column <= object.getTileEndColumn(); column++)
+			{
+				removeFromTile(row, column, slots[(row - startRow) * width
+						+ column - startColumn]);
+			}
+		}
+		object.clearObjectTiles();
+	}
+
+	/**
+	 * Add an object to the end of a tile
+	 * 
+	 * @return the object's slot in the tile
+	 */
+	private int addToTile(int row, int column, ServerObject object)
+	{
+		int tile = row * columns + column;
+		ServerObject[] tileObjects = tiles[tile];
+		int size = tileSizes[tile];
+		if (tileObjects == null)
+		{
+			tileObjects = new ServerObject[INITIAL_TILE_CAPACITY];
+			tiles[tile] = tileObjects;
+		}
+		else if (size == tileObjects.length)
+		{
+			ServerObject[] larger = new ServerObject[size * 2];
+			System.arraycopy(tileObjects, 0, larger, 0, size);
+			tileObjects = larger;
+			tiles[tile] = tileObjects;
+		}
+		tileObjects[size] = object;
+		tileSizes[tile] = size + 1;
+		return size;
+	}
+
+	/**
+	 * Remove the object in a slot of a tile by moving the last object in the
+	 * tile into the slot
+	 */
+	private void removeFromTile(int row, int column, int slot)
+	{
+		int tile = row * columns + column;
+		ServerObject[] tileObjects = tiles[tile];
+		int last = tileSizes[tile] - 1;
+		ServerObject moved = tileObjects[last];
+		tileObjects[last] = null;
+		tileSizes[tile] = last;
+
+		if (slot != last)
+		{
+			tileObjects[slot] = moved;
+
+			// Update the moved object's slot for this tile
+			moved.getGridSlots()[(row - moved.getTileStartRow())
+					* (moved.getTileEndColumn() - moved.getTileStartColumn() + 1)
+					+ column - moved.getTileStartColumn()] = slot;
+		}
+	}
+
+	/**
+	 * Get the number of objects in a tile
+	 * 
+	 * @param row the row of the tile
+	 * @param column the column of the tile
+	 * @return the number of objects (0 if the tile is outside the grid)
+	 */
+	public int getCount(int row, int column)
+	{
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+		{
+			return 0;
+		}
+		return tileSizes[row * columns + column];
+	}
+
+	/**
+	 * Get an object in a tile
+	 * 
+	 * @param row the row of the tile
+	 * @param column the column of the tile
+	 * @param index the index of the object, from 0 to getCount(row, column) - 1
+	 * @return the object, or null if it was removed by another thread
+	 */
+	public ServerObject get(int row, int column, int index)
+	{
+		ServerObject[] tileObjects = tiles[row * columns + column];
+		if (tileObjects == null || index >= tileObjects.length)
+		{
+			return null;
+		}
+		return tileObjects[index];
+	}
+
+	/**
+	 * Check if a tile is the first tile (top left) that an object is in within
+	 * a range of tiles. Used to only handle each object once when going
+	 * through a range of tiles
+	 * 
+	 * @param object the object
+	 * @param row the row of the tile
+	 * @param column the column of the tile
+	 * @param startRow the first row of the range
+	 * @param startColumn the first column of the range
+	 */
+	public static boolean isFirstTile(ServerObject object, int row, int column,
+			int startRow, int startColumn)
+	{
+		return row == Math.max(startRow, object.getTileStartRow())
+				&& column == Math.max(startColumn, object.getTileStartColumn());
+	}
+
+	/**
+	 * Find all the objects in a range of tiles. Each object is only added
+	 * once, even if it is in more than one of the tiles
+	 * 
+	 * @param startRow the first row
+	 * @param endRow the last row
+	 * @param startColumn the first column
+	 * @param endColumn the last column
+	 * @param objects the list to put the objects in (cleared first)
+	 */
+	public void getObjects(int startRow, int endRow, int startColumn,
+			int endColumn, ArrayList<ServerObject> objects)
+	{
+		objects.clear();
+		startRow = Math.max(startRow, 0);
+		endRow = Math.min(endRow, rows - 1);
+		startColumn = Math.max(startColumn, 0);
+		endColumn = Math.min(endColumn, columns - 1);
+
+		for (int row = startRow; row <= endRow; row++)
+		{
+			for (int column = startColumn; column <= endColumn; column++)
+			{
+				int count = getCount(row, column);
+				for (int index = 0; index < count; index++)
+				{
+					ServerObject object = get(row, column, index);
+					if (object != null
+							&& isFirstTile(object, row, column, startRow,
+									startColumn))
+					{
+						objects.add(object);
+					}
+				}
+			}
+		}
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	public int getRows()
+	{
+		return rows;
+	}
+
+	public int getColumns()
+	{
+		return columns;
+	}
+}
@@ -0,0 +1,128 @@
+package Server;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of short-lived objects of one kind (like projectiles) that have been
+ * removed from the world, so they can be set up again instead of
+ * constructing new ones. Objects are put back by the world once they have
+ * been removed and their ID has been freed, and the pool keeps count of how
+ * often an object could be reused
+ *
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerObjectPool<T extends ServerObject>
+{
+	/**
+	 * The name shown in the statistics
+	 */
+	private final String name;
+
+	/**
+	 * The most objects kept in the pool at once
+	 */
+	private final int capacity;
+
+	/**
+	 * The objects waiting to be reused
+	 */
+	private ArrayDeque<T> freeObjects = new ArrayDeque<T>();
+
+	// Statistics for the pool
+	private long hits = 0;
+	private long misses = 0;
+	private long discarded = 0;
+
+	/**
+	 * Constructor for a pool
+	 *
+	 * @param name the name shown in the statistics
+	 * @param capacity the most objects to keep in the pool
+	 */
+	public ServerObjectPool(String name, int capacity)
+	{
+		this.name = name;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Take an object out of the pool to be set up again
+	 *
+	 * @return the object, or null if the pool is empty and a new object has
+	 *         to be constructed
+	 */
+	public synchronized T take()
+	{
+		T object = freeObjects.poll();
+		if (object == null)
+		{
+			misses++;
+		}
+		else
+		{
+			hits++;
+		}
+		return object;
+	}
+
+	/**
+	 * Put an object that was removed from the world back in the pool
+	 *
+	 * @param object the object
+	 */
+	public synchronized void release(T object)
+	{
+		if (freeObjects.size() < capacity)
+		{
+			freeObjects.add(object);
+		}
+		else
+		{
+			discarded++;
+		}
+	}
+
+	/**
+	 * Empty the pool
+	 */
+	public synchronized void clear()
+	{
+		freeObjects.clear();
+	}
+
+	/**
+	 * Get a summary of the pool statistics
+	 *
+	 * @return the summary
+	 */
+	public synchronized String getStatistics()
+	{
+		long total = hits + misses;
+		return String.format("%s pool: %d free, %d hits, %d misses (%.1f%% reused), %d discarded", name,
+				freeObjects.size(), hits, misses, total == 0 ? 0 : hits * 100.0 / total, discarded);
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	public synchronized int getFree()
+	{
+		return freeObjects.size();
+	}
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public synchronized long getDiscarded()
+	{
+		return discarded;
+	}
+}
@@ -0,0 +1,191 @@
+package Server;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Gives every object type (the type strings in ServerWorld) a number and a set
+ * of category bits. These are worked out once when an object gets its type, so
+ * the game loop can check what an object is by comparing ints instead of
+ * strings. The type strings are still what is sent to the clients
+ * 
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerObjectType
+{
+	// The categories (an object can be in more than one)
+	public static final int PROJECTILE = 1;
+	public static final int PIERCING = 1 << 1;
+	public static final int CREATURE = 1 << 2;
+	/**
+	 * Players and player ghosts
+	 */
+	public static final int PLAYER = 1 << 3;
+	public static final int NPC = 1 << 4;
+	public static final int GOBLIN = 1 << 5;
+	public static final int BUILDING = 1 << 6;
+	public static final int ITEM = 1 << 7;
+	public static final int STACK = 1 << 8;
+	public static final int ANIMATION = 1 << 9;
+	public static final int WEAPON_SWING = 1 << 10;
+	public static final int TEXT = 1 << 11;
+	public static final int SOUND = 1 << 12;
+	public static final int HOLOGRAM = 1 << 13;
+
+	/**
+	 * The number for each type string
+	 */
+	private static HashMap<String, Integer> typeIDs = new HashMap<String, Integer>();
+
+	/**
+	 * The categories of each type, indexed by the type's number
+	 */
+	private static int[] typeCategories = new int[64];
+
+	// The numbers of the types that are checked for exactly (registered
+	// first, in this order, so they can be used in switch statements)
+	public static final int PLAYER_ID = 0;
+	public static final int PLAYER_AI_ID = 1;
+	public static final int SLIME_ID = 2;
+	public static final int BAT_ID = 3;
+	public static final int GOBLIN_ARCHER_ID = 4;
+	public static final int GOBLIN_GIANT_ID = 5;
+	public static final int GOBLIN_SAMURAI_ID = 6;
+	public static final int CASTLE_ID = 7;
+	public static final int CHEST_ID = 8;
+	public static final int MONEY_ID = 9;
+	public static final int SPAWN_ID = 10;
+	public static final int EXPLOSION_ID = 11;
+	public static final int HOLOGRAM_ID = 12;
+
+	static
+	{
+		register(ServerWorld.PLAYER_TYPE, PLAYER_ID);
+		register(ServerWorld.PLAYER_AI_TYPE, PLAYER_AI_ID);
+		register(ServerWorld.SLIME_TYPE, SLIME_ID);
+		register(ServerWorld.BAT_TYPE, BAT_ID);
+		register(ServerWorld.GOBLIN_ARCHER_TYPE, GOBLIN_ARCHER_ID);
+		register(ServerWorld.GOBLIN_GIANT_TYPE, GOBLIN_GIANT_ID);
+		register(ServerWorld.GOBLIN_SAMURAI_TYPE, GOBLIN_SAMURAI_ID);
+		register(ServerWorld.CASTLE_TYPE, CASTLE_ID);
+		register(ServerWorld.CHEST_TYPE, CHEST_ID);
+		register(ServerWorld.MONEY_TYPE, MONEY_ID);
+		register(ServerWorld.SPAWN_TYPE + "", SPAWN_ID);
+		register(ServerWorld.EXPLOSION_TYPE, EXPLOSION_ID);
+		register(ServerWorld.HOLOGRAM_TYPE, HOLOGRAM_ID);
+	}
+
+	/**
+	 * Register one of the types with a fixed number
+	 */
+	private static void register(String type, int id)
+	{
+		if (getID(type) != id)
+		{
+			throw new IllegalStateException("Type " + type + " registered out of order");
+		}
+	}
+
+	/**
+	 * Get the number for a type, giving it one if it doesn't have one yet
+	 * 
+	 * @param type the type string
+	 * @return the number
+	 */
+	public static synchronized int getID(String type)
+	{
+		Integer id = typeIDs.get(type);
+		if (id == null)
+		{
+			id = typeIDs.size();
+			typeIDs.put(type, id);
+			if (id == typeCategories.length)
+			{
+				typeCategories = Arrays.copyOf(typeCategories, id * 2);
+			}
+			typeCategories[id] = findCategories(type);
+		}
+		return id;
+	}
+
+	/**
+	 * Get the categories of a type
+	 * 
+	 * @param id the number of the type
+	 * @return the category bits
+	 */
+	public static synchronized int getCategories(int id)
+	{
+		return typeCategories[id];
+	}
+
+	/**
+	 * Work out the categories of a type from its string (the type strings
+	 * start with the type they belong to)
+	 */
+	private static int findCategories(String type)
+	{
+		if (type.isEmpty())
+		{
+			return 0;
+		}
+
+		int categories = 0;
+		switch (type.charAt(0))
+		{
+		case ServerWorld.PROJECTILE_TYPE:
+			categories |= PROJECTILE;
+			if (type.startsWith(ServerWorld.PIERCING_TYPE))
+			{
+				categories |= PIERCING;
+			}
+			break;
+		case ServerWorld.CREATURE_TYPE:
+			categories |= CREATURE;
+			if (type.startsWith(ServerWorld.PLAYER_TYPE))
+			{
+				categories |= PLAYER;
+			}
+			else if (type.startsWith(ServerWorld.NPC_TYPE))
+			{
+				categories |= NPC;
+				if (type.startsWith(ServerWorld.GOBLIN_TYPE))
+				{
+					categories |= GOBLIN;
+				}
+			}
+			else if (type.startsWith(ServerWorld.BUILDING_TYPE))
+			{
+				categories |= BUILDING;
+			}
+			break;
+		case ServerWorld.ITEM_TYPE:
+			categories |= ITEM;
+			if (type.startsWith(ServerWorld.STACK_TYPE))
+			{
+				categories |= STACK;
+			}
+			break;
+		case ServerWorld.ANIMATION_TYPE:
+			categories |= ANIMATION;
+			if (type.startsWith(ServerWorld.WEAPON_SWING_TYPE))
+			{
+				categories |= WEAPON_SWING;
+			}
+			break;
+		case ServerWorld.TEXT_TYPE:
+			categories |= TEXT;
+			break;
+		case ServerWorld.SOUND_TYPE:
+			categories |= SOUND;
+			break;
+		}
+
+		if (type.contains(ServerWorld.HOLOGRAM_TYPE))
+		{
+			categories |= HOLOGRAM;
+		}
+		return categories;
+	}
+}
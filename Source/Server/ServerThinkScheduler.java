@@ -0,0 +1,155 @@
+package Server;
+
+import Server.Creatures.ServerCreature;
+
+/**
+ * Decides when each A.I. creature gets to make its expensive decisions
+ * (finding a target, choosing an action). Instead of every creature thinking
+ * on the same tick (like when the world counter is a multiple of 15), each
+ * creature thinks on its own tick, offset by a hash of its ID, and no more
+ * than a set number of creatures think in one tick. Creatures over the
+ * budget think on the next tick instead. Movement still happens every tick
+ *
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerThinkScheduler
+{
+	/**
+	 * The default most number of creatures that can think in one tick (can be
+	 * changed with -DthinkBudget=...)
+	 */
+	public static final int DEFAULT_BUDGET = 64;
+
+	/**
+	 * The number of ticks between looking for a new target
+	 */
+	public static final int TARGET_PERIOD = 15;
+
+	/**
+	 * The kinds of decisions a creature makes. Each kind is scheduled on its
+	 * own, so one kind of decision never pushes back the other
+	 */
+	public static final int TARGET_THINK = 0;
+	public static final int ACTION_THINK = 1;
+
+	/**
+	 * The most number of creatures that can think in one tick
+	 */
+	private int budget = Integer.getInteger("thinkBudget", DEFAULT_BUDGET);
+
+	/**
+	 * The current world tick
+	 */
+	private long tick = 0;
+
+	/**
+	 * The number of creatures that have thought this tick
+	 */
+	private int thoughtThisTick = 0;
+
+	// Statistics for the scheduler
+	private long thinks = 0;
+	private long deferred = 0;
+	private int mostInOneTick = 0;
+	private long ticks = 0;
+
+	/**
+	 * Start a new tick
+	 *
+	 * @param worldCounter the world counter for the tick
+	 */
+	public void nextTick(long worldCounter)
+	{
+		tick = worldCounter;
+		if (thoughtThisTick > mostInOneTick)
+		{
+			mostInOneTick = thoughtThisTick;
+		}
+		thoughtThisTick = 0;
+		ticks++;
+	}
+
+	/**
+	 * Check whether or not a creature should make a kind of decision this
+	 * tick. Once it does, its next decision of that kind is a period later
+	 *
+	 * @param creature the creature
+	 * @param kind the kind of decision (TARGET_THINK or ACTION_THINK)
+	 * @param period the number of ticks between the creature's decisions of
+	 *            this kind
+	 * @return whether or not the creature should think
+	 */
+	public boolean shouldThink(ServerCreature creature, int kind, int period)
+	{
+		long nextThink = creature.getNextThink(kind);
+		if (nextThink < 0)
+		{
+			// Spread the creatures (and their kinds of decisions) out over
+			// the period by their IDs
+			nextThink = tick + getPhase(creature.getID() * 2 + kind, period);
+			creature.setNextThink(kind, nextThink);
+		}
+		if (tick < nextThink)
+		{
+			return false;
+		}
+		if (thoughtThisTick >= budget)
+		{
+			deferred++;
+			return false;
+		}
+		thoughtThisTick++;
+		thinks++;
+		creature.setNextThink(kind, tick + period);
+		return true;
+	}
+
+	/**
+	 * Get the tick (within the period) an ID thinks on
+	 */
+	private static int getPhase(int id, int period)
+	{
+		int hash = id * 0x9E3779B9;
+		hash ^= hash >>> 16;
+		return (hash & Integer.MAX_VALUE) % period;
+	}
+
+	/**
+	 * Get a summary of the scheduler statistics, and start counting the most
+	 * thinks in one tick again
+	 *
+	 * @return the summary
+	 */
+	public String getStatistics()
+	{
+		String statistics = String.format(
+				"A.I. thinks: %.1f/tick (most %d, budget %d), %d deferred, %d total",
+				ticks == 0 ? 0 : (double) thinks / ticks, mostInOneTick, budget, deferred, thinks);
+		mostInOneTick = 0;
+		return statistics;
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	public int getBudget()
+	{
+		return budget;
+	}
+
+	public void setBudget(int budget)
+	{
+		this.budget = budget;
+	}
+
+	public long getThinks()
+	{
+		return thinks;
+	}
+
+	public long getDeferred()
+	{
+		return deferred;
+	}
+}
@@ -0,0 +1,335 @@
+package Server;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a room's game loop at a fixed timestep. Every room shares one pool of
+ * tick threads sized to the number of cores, so independent rooms tick in
+ * parallel. Each loop reschedules itself after it finishes a tick, so a room
+ * never ticks concurrently with itself and a slow or crashing room only holds
+ * up its own thread. Tick deadlines are absolute (based on System.nanoTime)
+ * so the loop does not drift, ticks that were missed are caught up, and if
+ * the room falls too far behind the extra ticks are skipped instead of piling
+ * up
+ *
+ * @author William Xu & Alex Raita
+ *
+ */
+public class ServerTickLoop implements Runnable
+{
+	/**
+	 * The most ticks that will be run back to back to catch up before the
+	 * rest are skipped
+	 */
+	public static final int MAX_CATCH_UP_TICKS = 5;
+
+	/**
+	 * Number of nanoseconds in a second
+	 */
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	/**
+	 * The number of threads used to tick all the rooms
+	 */
+	public static final int TICK_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The pool shared by every room's tick loop
+	 */
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	/**
+	 * The engine being ticked
+	 */
+	private ServerEngine engine;
+
+	/**
+	 * The length of a tick in nanoseconds
+	 */
+	private final long tickNanos;
+
+	/**
+	 * Whether or not the loop should keep running
+	 */
+	private volatile boolean running = false;
+
+	/**
+	 * The next scheduled tick of the loop
+	 */
+	private ScheduledFuture<?> nextRun;
+
+	/**
+	 * The time (in nanoseconds) the next tick is due
+	 */
+	private long nextTick;
+
+	// Used for the per second statistics
+	private long secondStart;
+	private int ticksThisSecond = 0;
+	private long tickTimeThisSecond = 0;
+	private long maxThisSecond = 0;
+
+	/**
+	 * The upper limits of the tick time histogram buckets, in percent of the
+	 * tick length. The last bucket counts every tick that went over
+	 */
+	private static final int[] HISTOGRAM_LIMITS = { 10, 25, 50, 75, 100 };
+
+	/**
+	 * The number of ticks in each bucket since the histogram was last read
+	 */
+	private final long[] histogram = new long[HISTOGRAM_LIMITS.length + 1];
+
+	// Statistics for the loop (only written by the tick that is running)
+	private volatile long totalTicks = 0;
+	private volatile long overrunTicks = 0;
+	private volatile long skippedTicks = 0;
+	private volatile int ticksPerSecond = 0;
+	private volatile long lastTickNanos = 0;
+	private volatile long maxTickNanos = 0;
+	private volatile long averageTickNanos = 0;
+
+	/**
+	 * Constructor for the loop
+	 *
+	 * @param engine the engine to tick
+	 * @param tickMillis the length of each tick in milliseconds
+	 */
+	public ServerTickLoop(ServerEngine engine, int tickMillis)
+	{
+		this.engine = engine;
+		this.tickNanos = tickMillis * 1000000L;
+	}
+
+	/**
+	 * Get the pool shared by all the tick loops, creating it if needed
+	 *
+	 * @return the pool
+	 */
+	private static synchronized ScheduledThreadPoolExecutor getScheduler()
+	{
+		if (scheduler == null)
+		{
+			scheduler = new ScheduledThreadPoolExecutor(TICK_THREADS, new ThreadFactory()
+			{
+				private AtomicInteger threadNumber = new AtomicInteger(1);
+
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "Room tick " + threadNumber.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			scheduler.setRemoveOnCancelPolicy(true);
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Start running the loop on the shared tick pool
+	 */
+	public synchronized void start()
+	{
+		if (running)
+		{
+			return;
+		}
+		running = true;
+		nextTick = System.nanoTime();
+		secondStart = nextTick;
+		nextRun = getScheduler().schedule(this, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stop the loop after the current tick
+	 */
+	public synchronized void stop()
+	{
+		running = false;
+		if (nextRun != null)
+		{
+			nextRun.cancel(false);
+			nextRun = null;
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		if (!running)
+		{
+			return;
+		}
+
+		long now = System.nanoTime();
+
+		// Skip the ticks we can't catch up on
+		long dueTicks = (now - nextTick) / tickNanos + 1;
+		if (dueTicks > MAX_CATCH_UP_TICKS)
+		{
+			long skip = dueTicks - MAX_CATCH_UP_TICKS;
+			skippedTicks += skip;
+			nextTick += skip * tickNanos;
+		}
+
+		long startTime = System.nanoTime();
+		try
+		{
+			engine.tick();
+		}
+		catch (Throwable e)
+		{
+			// Keep the rest of the rooms (and this room's next tick) running
+			System.out.println("Exception during room tick");
+			e.printStackTrace();
+		}
+		long endTime = System.nanoTime();
+		long tickTime = endTime - startTime;
+
+		// Schedule from the deadline rather than the current time so the
+		// loop doesn't drift
+		nextTick += tickNanos;
+
+		totalTicks++;
+		lastTickNanos = tickTime;
+		histogram[getHistogramBucket(tickTime)]++;
+		if (tickTime > tickNanos)
+		{
+			overrunTicks++;
+		}
+		if (tickTime > maxThisSecond)
+		{
+			maxThisSecond = tickTime;
+		}
+		tickTimeThisSecond += tickTime;
+		ticksThisSecond++;
+
+		// Update the per second statistics
+		if (endTime - secondStart >= NANOS_PER_SECOND)
+		{
+			ticksPerSecond = (int) (ticksThisSecond * NANOS_PER_SECOND / (endTime - secondStart));
+			averageTickNanos = tickTimeThisSecond / ticksThisSecond;
+			maxTickNanos = maxThisSecond;
+			ticksThisSecond = 0;
+			tickTimeThisSecond = 0;
+			maxThisSecond = 0;
+			secondStart = endTime;
+		}
+
+		synchronized (this)
+		{
+			if (running)
+			{
+				nextRun = getScheduler().schedule(this, Math.max(0, nextTick - System.nanoTime()),
+						TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Get the histogram bucket for a tick time
+	 */
+	private int getHistogramBucket(long tickTime)
+	{
+		for (int bucket = 0; bucket < HISTOGRAM_LIMITS.length; bucket++)
+		{
+			if (tickTime * 100 <= tickNanos * HISTOGRAM_LIMITS[bucket])
+			{
+				return bucket;
+			}
+		}
+		return HISTOGRAM_LIMITS.length;
+	}
+
+	/**
+	 * Get the number of ticks that took each fraction of the tick length since
+	 * the last time the histogram was read, and start counting again. Only
+	 * called from the room's tick
+	 *
+	 * @return the histogram
+	 */
+	public String getHistogram()
+	{
+		StringBuilder summary = new StringBuilder("Tick times:");
+		for (int bucket = 0; bucket < histogram.length; bucket++)
+		{
+			if (bucket < HISTOGRAM_LIMITS.length)
+			{
+				summary.append(" <=").append(HISTOGRAM_LIMITS[bucket]).append("%: ");
+			}
+			else
+			{
+				summary.append(" >100%: ");
+			}
+			summary.append(histogram[bucket]);
+			histogram[bucket] = 0;
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Get a summary of the loop statistics
+	 *
+	 * @return the summary
+	 */
+	public String getStatistics()
+	{
+		return String.format("TPS: %d/%d Avg: %.2fms Max: %.2fms Overruns: %d Skipped: %d Ticks: %d",
+				ticksPerSecond, getTargetTicksPerSecond(), averageTickNanos / 1000000.0,
+				maxTickNanos / 1000000.0, overrunTicks, skippedTicks, totalTicks);
+	}
+
+	// ///////////////////////
+	// GETTERS AND SETTERS //
+	// ///////////////////////
+	public boolean isRunning()
+	{
+		return running;
+	}
+
+	public int getTargetTicksPerSecond()
+	{
+		return (int) (NANOS_PER_SECOND / tickNanos);
+	}
+
+	public int getTicksPerSecond()
+	{
+		return ticksPerSecond;
+	}
+
+	public long getTotalTicks()
+	{
+		return totalTicks;
+	}
+
+	public long getOverrunTicks()
+	{
+		return overrunTicks;
+	}
+
+	public long getSkippedTicks()
+	{
+		return skippedTicks;
+	}
+
+	public long getLastTickNanos()
+	{
+		return lastTickNanos;
+	}
+
+	public long getMaxTickNanos()
+	{
+		return maxTickNanos;
+	}
+
+	public long getAverageTickNanos()
+	{
+		return averageTickNanos;
+	}
+}
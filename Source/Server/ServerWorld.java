@@ -8,7 +8,6 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.LinkedList;
-import java.util.StringTokenizer;
 import java.util.HashMap;
 
 import Imports.ImageReferencePair;
@@ -20,7 +19,8 @@ import Server.Creatures.ServerCreature;
 import Server.Creatures.ServerEnemy;
 import Server.Creatures.ServerPlayer;
 import Server.Creatures.ServerVendor;
-import Server.Effects.ServerSound;
+import Server.Effects.ServerEffects;
+import Server.Effects.ServerSmoke;
 import Server.Items.ServerItem;
 import Server.Items.ServerMoney;
 import Server.Items.ServerProjectile;
@@ -29,8 +29,6 @@ import Server.Spawners.ServerBatSpawner;
 import Server.Spawners.ServerGoblinSpawner;
 import Server.Spawners.ServerSlimeSpawner;
 import Server.Spawners.ServerSpawner;
-import Tools.BinaryTree;
-import Tools.RowCol;
 
 /**
  * Stores all the data about the world
@@ -214,21 +212,17 @@ public class ServerWorld
 	 */
 	private String mapFile;
 
+	/**
+	 * The map (shared with the other rooms playing it). Its tile and
+	 * collision grids can only be read through it
+	 */
+	private GameMap gameMap;
+
 	private int redCastleX;
 	private int blueCastleX;
 	private int redCastleY;
 	private int blueCastleY;
 
-	/**
-	 * Grid of tiles
-	 */
-	private char[][] tileGrid;
-
-	/**
-	 * Grid of tiles for simpler collision detection
-	 */
-	private char[][] collisionGrid;
-
 	public static final char SOLID_TILE = '#';
 	public static final char BACKGROUND_TILE = ' ';
 	public static final char PLATFORM_TILE = '_';
@@ -244,9 +238,9 @@ public class ServerWorld
 	public static final int TILE_SIZE = 24;
 
 	/**
-	 * Grid of objects
+	 * Grid of objects, used to find the objects in an area
 	 */
-	private LinkedList<ServerObject>[][] objectGrid;
+	private ServerObjectGrid objectGrid;
 
 	/**
 	 * All the creatures in red team
@@ -317,6 +311,12 @@ public class ServerWorld
 	 */
 	private LinkedList<ServerObject> objects;
 
+	/**
+	 * The number of the last collision check. Every object found during a check
+	 * is marked with its number so it is only collided with once per check
+	 */
+	private int collisionCheck = 0;
+
 	/**
 	 * List of objects to add to the world next refresh (based on the user's
 	 * input)
@@ -328,6 +328,34 @@ public class ServerWorld
 	 */
 	private ArrayList<ServerObject> objectsToRemove = new ArrayList<ServerObject>();
 
+	/**
+	 * The text and sounds created this tick, and the ones from the last tick
+	 * that are being sent to the clients (guarded by effectsLock)
+	 */
+	private final Object effectsLock = new Object();
+	private ServerEffects effects = new ServerEffects();
+	private ServerEffects publishedEffects = new ServerEffects();
+
+	/**
+	 * The most objects of each kind kept for reuse
+	 */
+	public final static int POOL_CAPACITY = 512;
+
+	/**
+	 * Spreads the A.I. creatures' decisions out over the ticks
+	 */
+	private ServerThinkScheduler thinkScheduler = new ServerThinkScheduler();
+
+	/**
+	 * Short-lived objects that were removed from the world, kept to be reused
+	 */
+	private ServerObjectPool<ServerProjectile> projectilePool = new ServerObjectPool<ServerProjectile>(
+			"Projectile", POOL_CAPACITY);
+	private ServerObjectPool<ServerWeaponSwing> weaponSwingPool = new ServerObjectPool<ServerWeaponSwing>(
+			"Weapon swing", POOL_CAPACITY);
+	private ServerObjectPool<ServerSmoke> smokePool = new ServerObjectPool<ServerSmoke>(
+			"Smoke", POOL_CAPACITY);
+
 	/**
 	 * The counter showing how many frames the server has run
 	 */
@@ -409,22 +437,19 @@ public class ServerWorld
 	 */
 	public void newWorld() throws IOException
 	{
-		// Get the map from pre-existing loading
+		// Get the map from pre-existing loading. The tile and collision grids
+		// are shared with the other rooms on the map, but every room has its
+		// own object grid
 		GameMap map = GameMaps.getMapWithName(mapFile);
-		tileGrid = map.getTileGrid();
-		collisionGrid = map.getCollisionGrid();
-		objectGrid = map.getObjectGrid();
-		ArrayList<String> startingObjects = map.getStartingObjects();
-
-		StringTokenizer tokenizer = null;
+		gameMap = map;
+		objectGrid = map.newObjectGrid();
 
 		// Add objects to the grid
-		for (String object : startingObjects)
+		for (int object = 0; object < map.getNoOfStartingObjects(); object++)
 		{
-			tokenizer = new StringTokenizer(object);
-			int row = Integer.parseInt(tokenizer.nextToken()) + 3;
-			int col = Integer.parseInt(tokenizer.nextToken()) + 3;
-			char ref = tokenizer.nextToken().charAt(0);
+			int row = map.getStartingRow(object);
+			int col = map.getStartingColumn(object);
+			char ref = map.getStartingReference(object);
 			for (ServerObject obj : objectTypes)
 			{
 				blueTeam.remove(obj);
@@ -438,7 +463,7 @@ public class ServerWorld
 					
 					int tileUnder = (int)((newObject.getY() + newObject.getHeight()) / ServerWorld.TILE_SIZE);
 					
-					if (collisionGrid[tileUnder][col] == SOLID_TILE)
+					if (gameMap.getCollision(tileUnder, col) == SOLID_TILE)
 					{
 						newObject.setY(tileUnder * ServerWorld.TILE_SIZE - newObject.getHeight());
 					}
@@ -497,14 +522,17 @@ public class ServerWorld
 	 */
 	public synchronized void update()
 	{
+		thinkScheduler.nextTick(worldCounter);
+
 		// Remove all the objects that no longer exist
 		for (ServerObject object : objectsToRemove)
 		{
-			removeFromObjectTiles(object);
+			objectGrid.remove(object);
 			this.remove(object);
 			blueTeam.remove(object);
 			redTeam.remove(object);
 			engine.removeID(object.getID());
+			recycle(object);
 		}
 		objectsToRemove.clear();
 
@@ -512,7 +540,7 @@ public class ServerWorld
 		while (!objectsToAdd.isEmpty())
 		{
 			ServerObject newObject = objectsToAdd.poll();
-			if (newObject.getType().charAt(0) == ServerWorld.ITEM_TYPE)
+			if (newObject.is(ServerObjectType.ITEM))
 			{
 				((ServerItem) newObject).setDropTime(worldCounter);
 			}
@@ -538,9 +566,9 @@ public class ServerWorld
 						int endColumn = (int) ((object.getX() + object.getWidth()) / OBJECT_TILE_SIZE);
 	
 						// Destroy the object if it is not in the world
-						if (startRow < 0 || endRow > objectGrid.length - 1
+						if (startRow < 0 || endRow > objectGrid.getRows() - 1
 								|| startColumn < 0
-								|| endColumn > objectGrid[0].length - 1)
+								|| endColumn > objectGrid.getColumns() - 1)
 						{
 							object.destroy();
 							continue;
@@ -549,25 +577,25 @@ public class ServerWorld
 						// Update all locations of objects based on the object grid
 						// (for
 						// collisions)
-						updateObjectTiles(object, startRow, endRow, startColumn,
+						objectGrid.move(object, startRow, endRow, startColumn,
 								endColumn);
 	
 						// //////FIX THIS LATER//////////////
-						if (object.getType().equals(SPAWN_TYPE+""))
+						if (object.getTypeID() == ServerObjectType.SPAWN_ID)
 						{
 							object.update();
 							continue;
 						}
-						else if (object.getType().charAt(0) == ITEM_TYPE
+						else if (object.is(ServerObjectType.ITEM)
 								&& object.isOnSurface())
 						{
 							((ServerItem) object).update(worldCounter);
 							object.setHSpeed(0);
 						}
 	
-						// Store the objects that the tile has already collided with
-						// so there are no repeats when checking in tiles
-						BinaryTree<ServerObject> collidedAlready = new BinaryTree<ServerObject>();
+						// Objects already collided with are marked with this
+						// check so there are no repeats when checking in tiles
+						int check = nextCollisionCheck();
 	
 						// Check collisions with other objects in tiles that they
 						// both touch
@@ -575,21 +603,23 @@ public class ServerWorld
 						{
 							for (int column = startColumn; column <= endColumn; column++)
 							{
-								for (ServerObject otherObject : objectGrid[row][column])
+								int count = objectGrid.getCount(row, column);
+								for (int index = 0; index < count; index++)
 								{
+									ServerObject otherObject = objectGrid.get(row, column, index);
 									if (otherObject.exists()
 											&& otherObject.getID() != object
 											.getID()
-											&& !collidedAlready
-											.contains(otherObject) && object.collidesWith(otherObject))
+											&& otherObject.getCollisionMark() != check
+											&& object.collidesWith(otherObject))
 									{
-										collidedAlready.add(otherObject);
+										otherObject.setCollisionMark(check);
 	
 										// Switch statements for the first character
 										switch (object.getType().charAt(0))
 										{
 										case PROJECTILE_TYPE:
-											if (otherObject.getType().charAt(0) == CREATURE_TYPE
+											if (otherObject.is(ServerObjectType.CREATURE)
 											&& ((ServerCreature) otherObject)
 											.isAttackable()
 											&& otherObject.getID() != ((ServerProjectile) object)
@@ -598,8 +628,7 @@ public class ServerWorld
 											.getTeam() != ((ServerProjectile) object)
 											.getOwner().getTeam())
 											{
-												if (object.getType().contains(
-														PIERCING_TYPE))
+												if (object.is(ServerObjectType.PIERCING))
 												{
 													if (!((ServerProjectile) object)
 															.hasCollided(otherObject))
@@ -646,10 +675,9 @@ public class ServerWorld
 											break;
 										case ANIMATION_TYPE:
 											// Collision of weapons and creatures
-											if (object.getType().charAt(1) == WEAPON_SWING_TYPE
-											.charAt(1))
+											if (object.is(ServerObjectType.WEAPON_SWING))
 											{
-												if (otherObject.getType().charAt(0) == CREATURE_TYPE
+												if (otherObject.is(ServerObjectType.CREATURE)
 														&& ((ServerCreature) otherObject)
 														.isAttackable()
 														&& otherObject.getID() != ((ServerWeaponSwing) object)
@@ -674,10 +702,10 @@ public class ServerWorld
 										}
 	
 										// Switch statements for the entire type
-										switch (object.getType())
+										switch (object.getTypeID())
 										{
-										case EXPLOSION_TYPE:
-											if (otherObject.getType().charAt(0) == CREATURE_TYPE
+										case ServerObjectType.EXPLOSION_ID:
+											if (otherObject.is(ServerObjectType.CREATURE)
 											&& ((ServerCreature) otherObject)
 											.isAttackable()
 											&& otherObject.getID() != ((ServerProjectile) object)
@@ -698,11 +726,10 @@ public class ServerWorld
 												.addCollided(otherObject);
 											}
 											break;
-										case SLIME_TYPE:
-										case BAT_TYPE:
+										case ServerObjectType.SLIME_ID:
+										case ServerObjectType.BAT_ID:
 	
-											if (otherObject.getType().equals(
-													PLAYER_TYPE)
+											if (otherObject.getTypeID() == ServerObjectType.PLAYER_ID
 													&& getWorldCounter() % 20 == 0)
 											{
 	
@@ -714,8 +741,8 @@ public class ServerWorld
 	
 											}
 											break;
-										case PLAYER_TYPE:
-											if (otherObject.getType().charAt(0) == ITEM_TYPE
+										case ServerObjectType.PLAYER_ID:
+											if (otherObject.is(ServerObjectType.ITEM)
 											&& ((ServerCreature) object)
 											.isAlive())
 											{
@@ -764,9 +791,8 @@ public class ServerWorld
 												}
 											}
 											break;
-										case CASTLE_TYPE:
-											if (otherObject.getType().equals(
-													MONEY_TYPE)
+										case ServerObjectType.CASTLE_ID:
+											if (otherObject.getTypeID() == ServerObjectType.MONEY_ID
 													&& !((ServerMoney) otherObject)
 													.hasCoolDown())
 											{
@@ -775,10 +801,10 @@ public class ServerWorld
 												otherObject.destroy();
 											}
 											break;
-										case HOLOGRAM_TYPE:
+										case ServerObjectType.HOLOGRAM_ID:
 											// Check other object collisions
 											if (((ServerHologram) object)
-													.canPlace() && (otherObject.getType().contains(BUILDING_TYPE)))
+													.canPlace() && (otherObject.is(ServerObjectType.BUILDING)))
 											{
 												// System.out.println("HOLOGRAM
 												// COLLISION");
@@ -797,7 +823,7 @@ public class ServerWorld
 						boolean moveHorizontal = true;
 	
 						// Check tile collisions for the hologram
-						if (object.getType().equals(HOLOGRAM_TYPE)
+						if (object.getTypeID() == ServerObjectType.HOLOGRAM_ID
 								&& ((ServerHologram) object).canPlace())
 						{
 							double x1 = object.getX();
@@ -814,17 +840,17 @@ public class ServerWorld
 							{
 								startRow1 = 0;
 							}
-							else if (endRow1 > collisionGrid.length - 1)
+							else if (endRow1 > gameMap.getRows() - 1)
 							{
-								endRow1 = collisionGrid.length - 1;
+								endRow1 = gameMap.getRows() - 1;
 							}
 							if (startColumn1 < 0)
 							{
 								startColumn1 = 0;
 							}
-							else if (endColumn1 > collisionGrid[0].length - 1)
+							else if (endColumn1 > gameMap.getColumns() - 1)
 							{
-								endColumn1 = collisionGrid[0].length - 1;
+								endColumn1 = gameMap.getColumns() - 1;
 							}
 	
 							for (int row1 = startRow1; row1 <= endRow1; row1++)
@@ -832,15 +858,15 @@ public class ServerWorld
 								for (int column1 = startColumn1; column1 <= endColumn1; column1++)
 								{
 									if (row1 < endRow1
-											&& collisionGrid[row1][column1] == SOLID_TILE
-											|| (collisionGrid[row1][column1] == PLATFORM_TILE))
+											&& gameMap.getCollision(row1, column1) == SOLID_TILE
+											|| (gameMap.getCollision(row1, column1) == PLATFORM_TILE))
 									{
 										((ServerHologram) object)
 										.setCanPlace(false);
 										break;
 									}
 									else if (row1 == endRow1
-											&& collisionGrid[endRow1][column1] != SOLID_TILE)
+											&& gameMap.getCollision(endRow1, column1) != SOLID_TILE)
 									{
 										((ServerHologram) object)
 										.setCanPlace(false);
@@ -853,7 +879,7 @@ public class ServerWorld
 						}
 	
 						// Player movement should be atm controlled by the client
-						if (object.getType().equals(PLAYER_TYPE))
+						if (object.getTypeID() == ServerObjectType.PLAYER_ID)
 						{
 							ServerPlayer player = (ServerPlayer)object;
 							if (player.isAlive())
@@ -935,17 +961,17 @@ public class ServerWorld
 							{
 								startRow = 0;
 							}
-							else if (endRow > collisionGrid.length - 1)
+							else if (endRow > gameMap.getRows() - 1)
 							{
-								endRow = collisionGrid.length - 1;
+								endRow = gameMap.getRows() - 1;
 							}
 							if (startColumn < 0)
 							{
 								startColumn = 0;
 							}
-							else if (endColumn > collisionGrid[0].length - 1)
+							else if (endColumn > gameMap.getColumns() - 1)
 							{
-								endColumn = collisionGrid[0].length - 1;
+								endColumn = gameMap.getColumns() - 1;
 							}
 	
 							// Check for collions with the tiles determined above
@@ -959,15 +985,13 @@ public class ServerWorld
 								{
 									for (int column = startColumn; column <= endColumn; column++)
 									{
-										if (((collisionGrid[row][column] == SOLID_TILE
-												|| (collisionGrid[row][column] == PLATFORM_TILE
-												&& !((((object.getType().equals(
-														PLAYER_TYPE)
+										if (((gameMap.getCollision(row, column) == SOLID_TILE
+												|| (gameMap.getCollision(row, column) == PLATFORM_TILE
+												&& !((((object.getTypeID() == ServerObjectType.PLAYER_ID
 														&& ((ServerPlayer) object)
 														.isDropping())
-														|| object.getType().charAt(0) == PROJECTILE_TYPE
-														|| object.getType()
-														.equals(BAT_TYPE))))))
+														|| object.is(ServerObjectType.PROJECTILE)
+														|| object.getTypeID() == ServerObjectType.BAT_ID)))))
 												&& column * TILE_SIZE < x2 && column
 												* TILE_SIZE + TILE_SIZE > x1))
 										{
@@ -1008,7 +1032,7 @@ public class ServerWorld
 								{
 									for (int column = startColumn; column <= endColumn; column++)
 									{
-										if (collisionGrid[row][column] == SOLID_TILE
+										if (gameMap.getCollision(row, column) == SOLID_TILE
 												&& column * TILE_SIZE < x2
 												&& column * TILE_SIZE + TILE_SIZE > x1)
 										{
@@ -1047,7 +1071,7 @@ public class ServerWorld
 								{
 									for (int column = startColumn; column <= endColumn; column++)
 									{
-										if (collisionGrid[row][column] == SOLID_TILE
+										if (gameMap.getCollision(row, column) == SOLID_TILE
 												&& row * TILE_SIZE < y2
 												&& row * TILE_SIZE + TILE_SIZE > y1)
 										{
@@ -1083,7 +1107,7 @@ public class ServerWorld
 								{
 									for (int column = endColumn; column >= startColumn; column--)
 									{
-										if (collisionGrid[row][column] == SOLID_TILE
+										if (gameMap.getCollision(row, column) == SOLID_TILE
 												&& row * TILE_SIZE < y2
 												&& row * TILE_SIZE + TILE_SIZE > y1)
 										{
@@ -1119,7 +1143,7 @@ public class ServerWorld
 						{
 							// Don't let the player move when trying to swing a
 							// sword
-							if (!(object.getType().contains(PLAYER_TYPE))
+							if (!(object.is(ServerObjectType.PLAYER))
 									|| !((ServerPlayer) object).inAction())
 							{
 								object.setX(object.getX() + object.getHSpeed());
@@ -1130,7 +1154,7 @@ public class ServerWorld
 							object.setY(object.getY() + object.getVSpeed());
 						}
 	
-						if (object.getType().charAt(0) == PROJECTILE_TYPE)
+						if (object.is(ServerObjectType.PROJECTILE))
 						{
 							if ((!moveHorizontal || !moveVertical))
 							{
@@ -1142,8 +1166,8 @@ public class ServerWorld
 	
 					// Remove this object from the game if its 'exists' variable is
 					// false, unless it's a castle or a chest
-					else if (!object.getType().equals(CASTLE_TYPE)
-							&& !object.getType().equals(CHEST_TYPE))
+					else if (object.getTypeID() != ServerObjectType.CASTLE_ID
+							&& object.getTypeID() != ServerObjectType.CHEST_ID)
 					{
 						objectsToRemove.add(object);
 					}
@@ -1173,7 +1197,7 @@ public class ServerWorld
 			DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
 			LocalDateTime now = LocalDateTime.now(Clock.systemUTC());
 			System.out.println(dtf.format(now));
-			System.out.println("Next object id: " + this.engine.getNextID());
+			System.out.println(engine.getIDPool().getStatistics());
 		}
 
 		// Increase the world counter by 1 after this game tick
@@ -1213,111 +1237,25 @@ public class ServerWorld
 	}
 
 	/**
-	 * Updates the object's location on the object grid
-	 * 
-	 * @param object the object to object
-	 * @param startRow the row to start checking for the object
-	 * @param endRow the row to end checking for the object
-	 * @param startColumn the column to start checking for the object
-	 * @param endColumn the column to end checking for the object
-	 */
-	public void updateObjectTiles(ServerObject object, int startRow,
-			int endRow, int startColumn, int endColumn)
-	{
-		ArrayList<RowCol> indexesToRemove = new ArrayList<RowCol>();
-		ArrayList<RowCol> objectTiles = object.getObjectTiles();
-
-		// Choose the object tiles to remove the object from
-		for (RowCol tile : objectTiles)
-		{
-			if (!(object.collidesWith(tile.getColumn() * OBJECT_TILE_SIZE,
-					tile.getRow() * OBJECT_TILE_SIZE,
-					tile.getColumn() * OBJECT_TILE_SIZE + OBJECT_TILE_SIZE,
-					tile.getRow() * OBJECT_TILE_SIZE + OBJECT_TILE_SIZE)))
-				;
-			{
-				indexesToRemove.add(tile);
-			}
-		}
-
-		// Remove all the tiles that the object has left
-		for (RowCol tile : indexesToRemove)
-		{
-			objectTiles.remove(tile);
-			removeFromObjectTile(object, tile);
-		}
-
-		// Add the object to the tiles that the object enters
-		for (int row = startRow; row <= endRow; row++)
-		{
-			for (int column = startColumn; column <= endColumn; column++)
-			{
-				RowCol tile = new RowCol(row, column);
-
-				if (!objectTiles.contains(tile))
-				{
-					objectTiles.add(tile);
-					addToObjectTile(object, tile);
-				}
-			}
-		}
-	}
-
-	/**
-	 * Just remove an object from
+	 * Start a new collision check
 	 * 
-	 * @param object
+	 * @return the number of the check
 	 */
-	public void removeFromObjectTiles(ServerObject object)
+	private int nextCollisionCheck()
 	{
-		ArrayList<RowCol> indexesToRemove = new ArrayList<RowCol>();
-		ArrayList<RowCol> objectTiles = object.getObjectTiles();
+		collisionCheck++;
 
-		// Choose the object tiles to remove the object from
-		for (RowCol tile : objectTiles)
+		// When the counter wraps around, clear the old marks so they can't be
+		// mistaken for the new checks
+		if (collisionCheck == 0)
 		{
-			if (!object.exists()
-					|| !(object
-							.collidesWith(tile.getColumn() * OBJECT_TILE_SIZE,
-									tile.getRow() * OBJECT_TILE_SIZE,
-									tile.getColumn() * OBJECT_TILE_SIZE
-									+ OBJECT_TILE_SIZE,
-									tile.getRow() * OBJECT_TILE_SIZE
-									+ OBJECT_TILE_SIZE)))
-				;
+			for (ServerObject object : objects)
 			{
-				indexesToRemove.add(tile);
+				object.setCollisionMark(0);
 			}
+			collisionCheck = 1;
 		}
-
-		// Remove all the tiles that the object has left
-		for (RowCol tile : indexesToRemove)
-		{
-			objectTiles.remove(tile);
-			removeFromObjectTile(object, tile);
-		}
-	}
-
-	/**
-	 * Add an object to a certain object tile's arraylist
-	 * 
-	 * @param object
-	 * @param objectTile
-	 */
-	public void addToObjectTile(ServerObject object, RowCol objectTile)
-	{
-		objectGrid[objectTile.getRow()][objectTile.getColumn()].add(object);
-	}
-
-	/**
-	 * Remove an object from a certain object tile's arraylist
-	 * 
-	 * @param object
-	 * @param objectTile
-	 */
-	public void removeFromObjectTile(ServerObject object, RowCol objectTile)
-	{
-		objectGrid[objectTile.getRow()][objectTile.getColumn()].remove(object);
+		return collisionCheck;
 	}
 
 	/**
@@ -1380,22 +1318,248 @@ public class ServerWorld
 		return name;
 	}
 
+	/**
+	 * Create a projectile, reusing one from the pool if there is one
+	 * 
+	 * @return the projectile (not yet added to the world)
+	 */
+	public ServerProjectile newProjectile(double x, double y,
+			ServerCreature owner, double angle, String type)
+	{
+		ServerProjectile projectile = projectilePool.take();
+		if (projectile == null)
+		{
+			return new ServerProjectile(x, y, owner, angle, type, this);
+		}
+		projectile.reuse(x, y, owner, angle, type, this);
+		return projectile;
+	}
+
+	/**
+	 * Create a weapon swing, reusing one from the pool if there is one
+	 * 
+	 * @return the weapon swing (not yet added to the world)
+	 */
+	public ServerWeaponSwing newWeaponSwing(ServerCreature owner,
+			double relativeX, double relativeY, String image, int angle,
+			int timeInFrames, int damage)
+	{
+		ServerWeaponSwing weaponSwing = weaponSwingPool.take();
+		if (weaponSwing == null)
+		{
+			return new ServerWeaponSwing(owner, relativeX, relativeY, image,
+					angle, timeInFrames, damage);
+		}
+		weaponSwing.reuse(owner, relativeX, relativeY, image, angle,
+				timeInFrames, damage);
+		return weaponSwing;
+	}
+
+	/**
+	 * Create a puff of smoke, reusing one from the pool if there is one
+	 * 
+	 * @return the smoke (not yet added to the world)
+	 */
+	public ServerSmoke newSmoke(double x, double y, boolean isRight)
+	{
+		ServerSmoke smoke = smokePool.take();
+		if (smoke == null)
+		{
+			return new ServerSmoke(x, y, isRight, this);
+		}
+		smoke.reuse(x, y, isRight, this);
+		return smoke;
+	}
+
+	/**
+	 * Put an object that was just removed from the world (and had its ID
+	 * freed) back in its pool, if it has one
+	 * 
+	 * @param object the object
+	 */
+	private void recycle(ServerObject object)
+	{
+		if (object instanceof ServerProjectile)
+		{
+			((ServerProjectile) object).release();
+			projectilePool.release((ServerProjectile) object);
+		}
+		else if (object instanceof ServerWeaponSwing)
+		{
+			((ServerWeaponSwing) object).release();
+			weaponSwingPool.release((ServerWeaponSwing) object);
+		}
+		else if (object instanceof ServerSmoke)
+		{
+			smokePool.release((ServerSmoke) object);
+		}
+	}
+
+	/**
+	 * Get a summary of the object pool statistics
+	 * 
+	 * @return the summary
+	 */
+	public String getPoolStatistics()
+	{
+		return projectilePool.getStatistics() + "\n"
+				+ weaponSwingPool.getStatistics() + "\n"
+				+ smokePool.getStatistics();
+	}
+
+	/**
+	 * Find the closest living, attackable creature of the other team that is
+	 * within range of an object (using the same box as quickInRange). Only
+	 * the object tiles in range are searched, instead of the whole enemy team
+	 * 
+	 * @param seeker the object looking for a target
+	 * @param team the seeker's team
+	 * @param range the range
+	 * @return the closest enemy, or null if there are none in range
+	 */
+	public ServerCreature findNearestEnemy(ServerObject seeker, int team,
+			double range)
+	{
+		int enemyTeam;
+		if (team == ServerCreature.BLUE_TEAM)
+		{
+			enemyTeam = ServerCreature.RED_TEAM;
+		}
+		else if (team == ServerCreature.RED_TEAM)
+		{
+			enemyTeam = ServerCreature.BLUE_TEAM;
+		}
+		else
+		{
+			return null;
+		}
+
+		int startRow = Math.max(0, (int) ((seeker.getY() - range) / OBJECT_TILE_SIZE));
+		int endRow = Math.min(objectGrid.getRows() - 1, (int) ((seeker.getY()
+				+ seeker.getHeight() + range) / OBJECT_TILE_SIZE));
+		int startColumn = Math.max(0, (int) ((seeker.getX() - range) / OBJECT_TILE_SIZE));
+		int endColumn = Math.min(objectGrid.getColumns() - 1, (int) ((seeker.getX()
+				+ seeker.getWidth() + range) / OBJECT_TILE_SIZE));
+
+		double centreX = seeker.getX() + seeker.getWidth() / 2.0;
+		double centreY = seeker.getY() + seeker.getHeight() / 2.0;
+
+		ServerCreature nearest = null;
+		double nearestDistance = Double.MAX_VALUE;
+		for (int row = startRow; row <= endRow; row++)
+		{
+			for (int column = startColumn; column <= endColumn; column++)
+			{
+				int count = objectGrid.getCount(row, column);
+				for (int index = 0; index < count; index++)
+				{
+					ServerObject object = objectGrid.get(row, column, index);
+					if (!object.is(ServerObjectType.CREATURE)
+							|| !ServerObjectGrid.isFirstTile(object, row, column,
+									startRow, startColumn))
+					{
+						continue;
+					}
+					ServerCreature creature = (ServerCreature) object;
+					if (creature.getTeam() != enemyTeam || !creature.exists()
+							|| !creature.isAlive() || !creature.isAttackable()
+							|| !seeker.quickInRange(creature, range))
+					{
+						continue;
+					}
+
+					double xDistance = creature.getX() + creature.getWidth() / 2.0 - centreX;
+					double yDistance = creature.getY() + creature.getHeight() / 2.0 - centreY;
+					double distance = xDistance * xDistance + yDistance * yDistance;
+					if (distance < nearestDistance)
+					{
+						nearest = creature;
+						nearestDistance = distance;
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Play a sound for the clients near it
+	 * 
+	 * @param name the name of the sound
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 */
 	public void playSound(String name, double x, double y)
 	{
-		add(new ServerSound(x, y, name, getEngine()));
+		synchronized (effectsLock)
+		{
+			effects.addSound(name, x, y);
+		}
+	}
+
+	/**
+	 * Show a piece of floating text to the clients near it
+	 * 
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param text the text
+	 * @param colour the colour of the text
+	 */
+	public void addText(double x, double y, String text, char colour)
+	{
+		synchronized (effectsLock)
+		{
+			effects.addText(x, y, text, colour);
+		}
+	}
+
+	/**
+	 * Hand the effects created this tick over to be sent to the clients, and
+	 * start a new batch for the next tick
+	 */
+	public void publishEffects()
+	{
+		synchronized (effectsLock)
+		{
+			ServerEffects finished = effects;
+			effects = publishedEffects;
+			effects.clear();
+			publishedEffects = finished;
+		}
 	}
 
 	// //////////////////////
 	// GETTERS AND SETTERS//
 	// //////////////////////
-	public char[][] getGrid()
+	public GameMap getGameMap()
+	{
+		return gameMap;
+	}
+
+	/**
+	 * Get a tile from the map's tile grid
+	 */
+	public char getTile(int row, int column)
 	{
-		return tileGrid;
+		return gameMap.getTile(row, column);
 	}
 
-	public void setGrid(char[][] grid)
+	/**
+	 * Get a tile from the map's collision grid
+	 */
+	public char getCollision(int row, int column)
 	{
-		this.tileGrid = grid;
+		return gameMap.getCollision(row, column);
+	}
+
+	public int getRows()
+	{
+		return gameMap.getRows();
+	}
+
+	public int getColumns()
+	{
+		return gameMap.getColumns();
 	}
 
 	public LinkedList<ServerObject> getObjects()
@@ -1408,12 +1572,35 @@ public class ServerWorld
 		return worldCounter;
 	}
 
-	public LinkedList<ServerObject>[][] getObjectGrid()
+	public ServerThinkScheduler getThinkScheduler()
+	{
+		return thinkScheduler;
+	}
+
+	/**
+	 * Get the map's navigation graph for a creature's movement
+	 *
+	 * @param jumpSpeed the vertical speed of the creature's jump
+	 * @param movementSpeed the creature's horizontal speed
+	 * @param height the height of the creature
+	 * @return the graph, or null if it isn't built yet
+	 */
+	public ServerNavGraph getNavGraph(double jumpSpeed, double movementSpeed, double height)
+	{
+		return gameMap.getNavGraph((int) jumpSpeed, (int) movementSpeed, (int) Math.ceil(height / TILE_SIZE));
+	}
+
+	public ServerEffects getPublishedEffects()
+	{
+		return publishedEffects;
+	}
+
+	public ServerObjectGrid getObjectGrid()
 	{
 		return objectGrid;
 	}
 
-	public void setObjectGrid(LinkedList<ServerObject>[][] objectGrid)
+	public void setObjectGrid(ServerObjectGrid objectGrid)
 	{
 		this.objectGrid = objectGrid;
 	}
@@ -1628,16 +1815,6 @@ public class ServerWorld
 		return engine;
 	}
 
-	public char[][] getCollisionGrid()
-	{
-		return collisionGrid;
-	}
-
-	public void setCollisionGrid(char[][] collisionGrid)
-	{
-		this.collisionGrid = collisionGrid;
-	}
-
 	/**
 	 * Closes everything in the world
 	 */
@@ -1651,6 +1828,9 @@ public class ServerWorld
 		blueSpawners.clear();
 		objects.clear();
 		objectsToAdd.clear();
+		projectilePool.clear();
+		weaponSwingPool.clear();
+		smokePool.clear();
 		engine = null;
 		blueCastle = null;
 		redCastle = null;
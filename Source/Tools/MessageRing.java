@@ -0,0 +1,115 @@
+package Tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A fixed size queue between exactly one thread adding messages (the
+ * producer) and one thread taking them (the consumer). Neither side ever
+ * locks: each side only writes its own position, and a message is always
+ * stored before the position that makes it visible to the other side. The
+ * consumer can wait for messages, and is woken up by the producer
+ * @author William Xu & Alex Raita
+ *
+ * @param <E> the type of message
+ */
+public class MessageRing<E>
+{
+	/**
+	 * The messages, indexed by position modulo the capacity
+	 */
+	private final Object[] messages;
+	private final int mask;
+
+	/**
+	 * The position of the next message to take (only written by the
+	 * consumer) and the next message to add (only written by the producer)
+	 */
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * The consumer while it is waiting for messages
+	 */
+	private volatile Thread waitingConsumer;
+
+	/**
+	 * Constructor for a ring
+	 * @param capacity the most messages held at once (rounded up to a power
+	 *            of two)
+	 */
+	public MessageRing(int capacity)
+	{
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		messages = new Object[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Add a message (producer only). If the ring is full, wait for the
+	 * consumer to make room
+	 * @param message the message
+	 */
+	public void put(E message)
+	{
+		long position = tail.get();
+		while (position - head.get() >= messages.length)
+		{
+			LockSupport.parkNanos(1000000);
+		}
+		messages[(int) position & mask] = message;
+
+		// A full write (not lazySet) so the check for a waiting consumer
+		// can't happen before the consumer could see the message
+		tail.set(position + 1);
+
+		Thread consumer = waitingConsumer;
+		if (consumer != null)
+		{
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Take the next message (consumer only)
+	 * @return the message, or null if there are none
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll()
+	{
+		long position = head.get();
+		if (position == tail.get())
+		{
+			return null;
+		}
+		int index = (int) position & mask;
+		E message = (E) messages[index];
+		messages[index] = null;
+		head.lazySet(position + 1);
+		return message;
+	}
+
+	/**
+	 * Wait until there is a message or the time runs out (consumer only)
+	 * @param nanos the longest time to wait in nanoseconds
+	 */
+	public void await(long nanos)
+	{
+		waitingConsumer = Thread.currentThread();
+		if (isEmpty())
+		{
+			LockSupport.parkNanos(this, nanos);
+		}
+		waitingConsumer = null;
+	}
+
+	public boolean isEmpty()
+	{
+		return head.get() == tail.get();
+	}
+
+	public int size()
+	{
+		return (int) (tail.get() - head.get());
+	}
+}
@@ -0,0 +1,709 @@
+package Tools;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The state of everything a player can see for one server tick, along with
+ * the binary format used to send it. Snapshots are delta encoded against an
+ * older snapshot the client has acknowledged, so only the fields that changed
+ * are sent. Numbers are written as variable length integers (small numbers
+ * take fewer bytes) and entities are sorted by ID so each ID is sent as the
+ * gap from the previous one
+ * @author William Xu & Alex Raita
+ *
+ */
+public class Snapshot
+{
+	/**
+	 * The version of the format, sent as the first byte of every snapshot
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The sequence number used when there is no baseline
+	 */
+	public static final int NO_BASELINE = 0;
+
+	// Bits for the fields of an entity that changed
+	public static final int FIELD_X = 1;
+	public static final int FIELD_Y = 1 << 1;
+	public static final int FIELD_IMAGE = 1 << 2;
+	public static final int FIELD_TEAM = 1 << 3;
+	public static final int FIELD_HP = 1 << 4;
+	public static final int FIELD_FLAGS = 1 << 5;
+	public static final int FIELD_TYPE = 1 << 6;
+	public static final int FIELD_NAME = 1 << 7;
+	public static final int ALL_FIELDS = (1 << 8) - 1;
+
+	/**
+	 * Flag for when the player receiving the snapshot is in an action
+	 */
+	public static final int FLAG_IN_ACTION = 1;
+
+	/**
+	 * Flag for objects attached to the player receiving the snapshot (its
+	 * weapon swings and held weapon), which are drawn with the player
+	 */
+	public static final int FLAG_ATTACHED = 1 << 1;
+
+	// Indexes of the player and castle stats
+	public static final int MANA = 0;
+	public static final int MAX_MANA = 1;
+	public static final int HP = 2;
+	public static final int MAX_HP = 3;
+	public static final int SPEED = 4;
+	public static final int JUMP = 5;
+	public static final int ARMOUR = 6;
+	public static final int DAMAGE = 7;
+	public static final int BASE_DAMAGE = 8;
+	public static final int WORLD_TIME = 9;
+	public static final int BLUE_HP = 10;
+	public static final int BLUE_TIER = 11;
+	public static final int BLUE_MONEY = 12;
+	public static final int BLUE_MAX_HP = 13;
+	public static final int BLUE_XP = 14;
+	public static final int BLUE_X = 15;
+	public static final int RED_HP = 16;
+	public static final int RED_TIER = 17;
+	public static final int RED_MONEY = 18;
+	public static final int RED_MAX_HP = 19;
+	public static final int RED_XP = 20;
+	public static final int RED_X = 21;
+	public static final int RED_POP = 22;
+	public static final int RED_POP_LIMIT = 23;
+	public static final int BLUE_POP = 24;
+	public static final int BLUE_POP_LIMIT = 25;
+	public static final int NUMBER_OF_STATS = 26;
+
+	/**
+	 * The sequence number of the snapshot (starts at 1)
+	 */
+	private int sequence;
+
+	/**
+	 * The server tick the snapshot was taken on
+	 */
+	private int tick;
+
+	/**
+	 * The player and castle stats
+	 */
+	private int[] stats = new int[NUMBER_OF_STATS];
+
+	/**
+	 * The number of entities in the snapshot
+	 */
+	private int size;
+
+	// The fields of each entity
+	private int[] ids;
+	private int[] xs;
+	private int[] ys;
+	private int[] images;
+	private int[] teams;
+	private int[] hps;
+	private int[] flags;
+	private String[] types;
+	private String[] names;
+
+	/**
+	 * Used for sorting the entities by ID
+	 */
+	private long[] sortKeys;
+
+	// Spare entity arrays that the entities are sorted into
+	private int[] spareIds;
+	private int[] spareXs;
+	private int[] spareYs;
+	private int[] spareImages;
+	private int[] spareTeams;
+	private int[] spareHps;
+	private int[] spareFlags;
+	private String[] spareTypes;
+	private String[] spareNames;
+
+	/**
+	 * Buffer that the snapshot is encoded into
+	 */
+	private byte[] buffer = new byte[1024];
+
+	/**
+	 * The encoded snapshot being decoded
+	 */
+	private byte[] input;
+
+	/**
+	 * Current position in the buffer being written or read
+	 */
+	private int position;
+
+	/**
+	 * Constructor for an empty snapshot
+	 */
+	public Snapshot()
+	{
+		allocate(64);
+	}
+
+	/**
+	 * Create new entity arrays, keeping the current entities
+	 * @param capacity the number of entities that can be stored
+	 */
+	private void allocate(int capacity)
+	{
+		ids = grow(ids, capacity);
+		xs = grow(xs, capacity);
+		ys = grow(ys, capacity);
+		images = grow(images, capacity);
+		teams = grow(teams, capacity);
+		hps = grow(hps, capacity);
+		flags = grow(flags, capacity);
+		types = grow(types, capacity);
+		names = grow(names, capacity);
+	}
+
+	private static int[] grow(int[] array, int capacity)
+	{
+		return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+	private static String[] grow(String[] array, int capacity)
+	{
+		return array == null ? new String[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+	/**
+	 * Clear the snapshot so it can be reused
+	 * @param sequence the new sequence number
+	 * @param tick the server tick
+	 */
+	public void reset(int sequence, int tick)
+	{
+		this.sequence = sequence;
+		this.tick = tick;
+		Arrays.fill(types, 0, size, null);
+		Arrays.fill(names, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Add an entity to the snapshot
+	 * @param id the ID of the object
+	 * @param x the x position to draw the object
+	 * @param y the y position to draw the object
+	 * @param image the image index of the object
+	 * @param team the team of the object
+	 * @param type the type of the object
+	 * @param name the name of the object (empty if it has no name)
+	 * @param hp the hp of the object out of 100
+	 * @param flag extra flags for the object
+	 */
+	public void addEntity(int id, int x, int y, int image, int team, String type, String name, int hp, int flag)
+	{
+		if (size == ids.length)
+		{
+			allocate(size * 2);
+		}
+		ids[size] = id;
+		xs[size] = x;
+		ys[size] = y;
+		images[size] = image;
+		teams[size] = team;
+		types[size] = type;
+		names[size] = name;
+		hps[size] = hp;
+		flags[size] = flag;
+		size++;
+	}
+
+	/**
+	 * Sort the entities by ID and remove duplicates (objects that are in
+	 * more than one object tile are added more than once). Must be called
+	 * after all the entities are added
+	 */
+	public void finish()
+	{
+		if (sortKeys == null || sortKeys.length < size)
+		{
+			sortKeys = new long[ids.length];
+		}
+
+		boolean sorted = true;
+		for (int index = 0; index < size; index++)
+		{
+			sortKeys[index] = ((long) ids[index] << 32) | index;
+			if (index > 0 && ids[index] <= ids[index - 1])
+			{
+				sorted = false;
+			}
+		}
+		if (sorted)
+		{
+			return;
+		}
+		Arrays.sort(sortKeys, 0, size);
+
+		// Copy the entities in order into the spare arrays and swap them in
+		if (spareIds == null || spareIds.length != ids.length)
+		{
+			spareIds = new int[ids.length];
+			spareXs = new int[ids.length];
+			spareYs = new int[ids.length];
+			spareImages = new int[ids.length];
+			spareTeams = new int[ids.length];
+			spareHps = new int[ids.length];
+			spareFlags = new int[ids.length];
+			spareTypes = new String[ids.length];
+			spareNames = new String[ids.length];
+		}
+		int sortedSize = 0;
+		for (int index = 0; index < size; index++)
+		{
+			int from = (int) sortKeys[index];
+			if (sortedSize > 0 && spareIds[sortedSize - 1] == ids[from])
+			{
+				continue;
+			}
+			spareIds[sortedSize] = ids[from];
+			spareXs[sortedSize] = xs[from];
+			spareYs[sortedSize] = ys[from];
+			spareImages[sortedSize] = images[from];
+			spareTeams[sortedSize] = teams[from];
+			spareHps[sortedSize] = hps[from];
+			spareFlags[sortedSize] = flags[from];
+			spareTypes[sortedSize] = types[from];
+			spareNames[sortedSize] = names[from];
+			sortedSize++;
+		}
+		Arrays.fill(types, 0, size, null);
+		Arrays.fill(names, 0, size, null);
+
+		int[] swap = ids;
+		ids = spareIds;
+		spareIds = swap;
+		swap = xs;
+		xs = spareXs;
+		spareXs = swap;
+		swap = ys;
+		ys = spareYs;
+		spareYs = swap;
+		swap = images;
+		images = spareImages;
+		spareImages = swap;
+		swap = teams;
+		teams = spareTeams;
+		spareTeams = swap;
+		swap = hps;
+		hps = spareHps;
+		spareHps = swap;
+		swap = flags;
+		flags = spareFlags;
+		spareFlags = swap;
+		String[] swapStrings = types;
+		types = spareTypes;
+		spareTypes = swapStrings;
+		swapStrings = names;
+		names = spareNames;
+		spareNames = swapStrings;
+		size = sortedSize;
+	}
+
+	/**
+	 * Encode this snapshot
+	 * @param baseline the snapshot the client already has (null to send
+	 *            everything)
+	 * @return the number of bytes written to the buffer (see getBuffer)
+	 */
+	public int encode(Snapshot baseline)
+	{
+		position = 0;
+		writeByte(VERSION);
+		writeVarInt(sequence);
+		writeVarInt(baseline == null ? NO_BASELINE : baseline.sequence);
+		writeVarInt(tick);
+
+		// Stats that changed
+		int statsMask = 0;
+		for (int stat = 0; stat < NUMBER_OF_STATS; stat++)
+		{
+			if (baseline == null || stats[stat] != baseline.stats[stat])
+			{
+				statsMask |= 1 << stat;
+			}
+		}
+		writeVarInt(statsMask);
+		for (int stat = 0; stat < NUMBER_OF_STATS; stat++)
+		{
+			if ((statsMask & (1 << stat)) != 0)
+			{
+				writeSignedVarInt(stats[stat] - (baseline == null ? 0 : baseline.stats[stat]));
+			}
+		}
+
+		// Entities, merged against the baseline by ID
+		writeVarInt(size);
+		int baseIndex = 0;
+		int lastID = 0;
+		for (int index = 0; index < size; index++)
+		{
+			int id = ids[index];
+			while (baseline != null && baseIndex < baseline.size && baseline.ids[baseIndex] < id)
+			{
+				baseIndex++;
+			}
+			boolean inBaseline = baseline != null && baseIndex < baseline.size && baseline.ids[baseIndex] == id;
+
+			int mask = ALL_FIELDS;
+			int baseX = 0, baseY = 0, baseImage = 0, baseTeam = 0, baseHP = 0, baseFlags = 0;
+			if (inBaseline)
+			{
+				baseX = baseline.xs[baseIndex];
+				baseY = baseline.ys[baseIndex];
+				baseImage = baseline.images[baseIndex];
+				baseTeam = baseline.teams[baseIndex];
+				baseHP = baseline.hps[baseIndex];
+				baseFlags = baseline.flags[baseIndex];
+
+				mask = 0;
+				if (xs[index] != baseX)
+					mask |= FIELD_X;
+				if (ys[index] != baseY)
+					mask |= FIELD_Y;
+				if (images[index] != baseImage)
+					mask |= FIELD_IMAGE;
+				if (teams[index] != baseTeam)
+					mask |= FIELD_TEAM;
+				if (hps[index] != baseHP)
+					mask |= FIELD_HP;
+				if (flags[index] != baseFlags)
+					mask |= FIELD_FLAGS;
+				if (!types[index].equals(baseline.types[baseIndex]))
+					mask |= FIELD_TYPE;
+				if (!names[index].equals(baseline.names[baseIndex]))
+					mask |= FIELD_NAME;
+			}
+
+			writeVarInt(id - lastID);
+			lastID = id;
+			writeVarInt(mask);
+			if ((mask & FIELD_X) != 0)
+				writeSignedVarInt(xs[index] - baseX);
+			if ((mask & FIELD_Y) != 0)
+				writeSignedVarInt(ys[index] - baseY);
+			if ((mask & FIELD_IMAGE) != 0)
+				writeSignedVarInt(images[index] - baseImage);
+			if ((mask & FIELD_TEAM) != 0)
+				writeSignedVarInt(teams[index] - baseTeam);
+			if ((mask & FIELD_HP) != 0)
+				writeSignedVarInt(hps[index] - baseHP);
+			if ((mask & FIELD_FLAGS) != 0)
+				writeVarInt(flags[index]);
+			if ((mask & FIELD_TYPE) != 0)
+				writeString(types[index]);
+			if ((mask & FIELD_NAME) != 0)
+				writeString(names[index]);
+		}
+		return position;
+	}
+
+	/**
+	 * Read the sequence number of an encoded snapshot
+	 * @param data the encoded snapshot
+	 * @return the sequence number
+	 */
+	public static int readSequence(byte[] data)
+	{
+		return readHeader(data, 0);
+	}
+
+	/**
+	 * Read the sequence number of the baseline an encoded snapshot was
+	 * delta encoded against
+	 * @param data the encoded snapshot
+	 * @return the baseline sequence number or NO_BASELINE
+	 */
+	public static int readBaselineSequence(byte[] data)
+	{
+		return readHeader(data, 1);
+	}
+
+	/**
+	 * Read one of the numbers at the start of an encoded snapshot
+	 * @param data the encoded snapshot
+	 * @param field the number of varints to skip after the version
+	 * @return the number
+	 */
+	private static int readHeader(byte[] data, int field)
+	{
+		if ((data[0] & 0xFF) != VERSION)
+		{
+			throw new IllegalArgumentException("Unknown snapshot version");
+		}
+		int position = 1;
+		int value = 0;
+		for (int read = 0; read <= field; read++)
+		{
+			value = 0;
+			int next;
+			int shift = 0;
+			do
+			{
+				next = data[position++];
+				value |= (next & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((next & 0x80) != 0);
+		}
+		return value;
+	}
+
+	/**
+	 * Decode a snapshot into this one
+	 * @param data the encoded snapshot
+	 * @param baseline the snapshot it was encoded against (null if there
+	 *            was no baseline)
+	 */
+	public void decode(byte[] data, Snapshot baseline)
+	{
+		input = data;
+		position = 0;
+		if (readByte() != VERSION)
+		{
+			throw new IllegalArgumentException("Unknown snapshot version");
+		}
+		int sequence = readVarInt();
+		readVarInt();
+		reset(sequence, readVarInt());
+
+		int statsMask = readVarInt();
+		for (int stat = 0; stat < NUMBER_OF_STATS; stat++)
+		{
+			int base = baseline == null ? 0 : baseline.stats[stat];
+			if ((statsMask & (1 << stat)) != 0)
+			{
+				stats[stat] = base + readSignedVarInt();
+			}
+			else
+			{
+				stats[stat] = base;
+			}
+		}
+
+		int count = readVarInt();
+		int baseIndex = 0;
+		int id = 0;
+		for (int index = 0; index < count; index++)
+		{
+			id += readVarInt();
+			while (baseline != null && baseIndex < baseline.size && baseline.ids[baseIndex] < id)
+			{
+				baseIndex++;
+			}
+			boolean inBaseline = baseline != null && baseIndex < baseline.size && baseline.ids[baseIndex] == id;
+
+			int mask = readVarInt();
+			int x = 0, y = 0, image = 0, team = 0, hp = 0, flag = 0;
+			String type = "", name = "";
+			if (inBaseline)
+			{
+				x = baseline.xs[baseIndex];
+				y = baseline.ys[baseIndex];
+				image = baseline.images[baseIndex];
+				team = baseline.teams[baseIndex];
+				hp = baseline.hps[baseIndex];
+				flag = baseline.flags[baseIndex];
+				type = baseline.types[baseIndex];
+				name = baseline.names[baseIndex];
+			}
+			if ((mask & FIELD_X) != 0)
+				x += readSignedVarInt();
+			if ((mask & FIELD_Y) != 0)
+				y += readSignedVarInt();
+			if ((mask & FIELD_IMAGE) != 0)
+				image += readSignedVarInt();
+			if ((mask & FIELD_TEAM) != 0)
+				team += readSignedVarInt();
+			if ((mask & FIELD_HP) != 0)
+				hp += readSignedVarInt();
+			if ((mask & FIELD_FLAGS) != 0)
+				flag = readVarInt();
+			if ((mask & FIELD_TYPE) != 0)
+				type = readString();
+			if ((mask & FIELD_NAME) != 0)
+				name = readString();
+
+			addEntity(id, x, y, image, team, type, name, hp, flag);
+		}
+		input = null;
+	}
+
+	/**
+	 * Check if an entity is in the snapshot (entities must be sorted)
+	 * @param id the ID of the entity
+	 * @return whether or not it is in the snapshot
+	 */
+	public boolean contains(int id)
+	{
+		return Arrays.binarySearch(ids, 0, size, id) >= 0;
+	}
+
+	//////////////////////
+	// READING/WRITING  //
+	//////////////////////
+	private void ensureSpace(int bytes)
+	{
+		if (position + bytes > buffer.length)
+		{
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+		}
+	}
+
+	private void writeByte(int value)
+	{
+		ensureSpace(1);
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeVarInt(int value)
+	{
+		ensureSpace(5);
+		while ((value & ~0x7F) != 0)
+		{
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeSignedVarInt(int value)
+	{
+		// Zigzag encoding so small negative numbers stay small
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+
+	private void writeString(String value)
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		ensureSpace(bytes.length);
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	private int readByte()
+	{
+		return input[position++] & 0xFF;
+	}
+
+	private int readVarInt()
+	{
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7)
+		{
+			int next = input[position++];
+			value |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed snapshot varint");
+	}
+
+	private int readSignedVarInt()
+	{
+		int value = readVarInt();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private String readString()
+	{
+		int length = readVarInt();
+		String value = new String(input, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return value;
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	public int getSequence()
+	{
+		return sequence;
+	}
+
+	public int getTick()
+	{
+		return tick;
+	}
+
+	public int getStat(int stat)
+	{
+		return stats[stat];
+	}
+
+	public void setStat(int stat, int value)
+	{
+		stats[stat] = value;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int getID(int index)
+	{
+		return ids[index];
+	}
+
+	public int getX(int index)
+	{
+		return xs[index];
+	}
+
+	public int getY(int index)
+	{
+		return ys[index];
+	}
+
+	public int getImage(int index)
+	{
+		return images[index];
+	}
+
+	public int getTeam(int index)
+	{
+		return teams[index];
+	}
+
+	public int getHP(int index)
+	{
+		return hps[index];
+	}
+
+	public int getFlags(int index)
+	{
+		return flags[index];
+	}
+
+	public String getType(int index)
+	{
+		return types[index];
+	}
+
+	public String getName(int index)
+	{
+		return names[index];
+	}
+
+	/**
+	 * Get the buffer holding the last encoded snapshot
+	 * @return the buffer
+	 */
+	public byte[] getBuffer()
+	{
+		return buffer;
+	}
+}
@@ -0,0 +1,62 @@
+package Tools;
+
+/**
+ * A ring of the most recent snapshots, kept so that new snapshots can be
+ * delta encoded (or decoded) against an older one. The snapshot objects are
+ * reused as the ring wraps around
+ * @author William Xu & Alex Raita
+ *
+ */
+public class SnapshotHistory
+{
+	/**
+	 * The number of snapshots kept
+	 */
+	public static final int SIZE = 32;
+
+	/**
+	 * The snapshots, indexed by sequence number modulo SIZE
+	 */
+	private Snapshot[] snapshots = new Snapshot[SIZE];
+
+	/**
+	 * Constructor for the history
+	 */
+	public SnapshotHistory()
+	{
+		for (int index = 0; index < SIZE; index++)
+		{
+			snapshots[index] = new Snapshot();
+		}
+	}
+
+	/**
+	 * Get the snapshot to use for a new sequence number. This overwrites
+	 * the snapshot from SIZE sequence numbers ago
+	 * @param sequence the new sequence number
+	 * @return the snapshot to fill in
+	 */
+	public Snapshot next(int sequence)
+	{
+		return snapshots[sequence % SIZE];
+	}
+
+	/**
+	 * Get a snapshot that is still in the history
+	 * @param sequence the sequence number of the snapshot
+	 * @return the snapshot, or null if it is no longer (or was never) kept
+	 */
+	public Snapshot get(int sequence)
+	{
+		if (sequence <= Snapshot.NO_BASELINE)
+		{
+			return null;
+		}
+		Snapshot snapshot = snapshots[sequence % SIZE];
+		if (snapshot.getSequence() != sequence)
+		{
+			return null;
+		}
+		return snapshot;
+	}
+}
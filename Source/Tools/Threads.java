@@ -0,0 +1,99 @@
+package Tools;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates the threads used for connections. When virtual threads are turned
+ * on (run with -DvirtualThreads=true) and the Java version supports them,
+ * the threads are virtual threads, which cost almost nothing while they are
+ * blocked waiting for input. Otherwise normal threads are used
+ * @author William Xu & Alex Raita
+ *
+ */
+public class Threads
+{
+	/**
+	 * Whether or not to use virtual threads when they are available
+	 */
+	private static boolean useVirtualThreads = Boolean.getBoolean("virtualThreads");
+
+	// Thread.ofVirtual(), Thread.Builder.name(String) and
+	// Thread.Builder.unstarted(Runnable), looked up so the game still runs on
+	// Java versions without virtual threads
+	private static Method ofVirtual;
+	private static Method name;
+	private static Method unstarted;
+
+	static
+	{
+		try
+		{
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			name = builder.getMethod("name", String.class);
+			unstarted = builder.getMethod("unstarted", Runnable.class);
+		}
+		catch (Exception e)
+		{
+			ofVirtual = null;
+		}
+	}
+
+	/**
+	 * Create a thread (not started) for a task
+	 * @param task the task to run
+	 * @param threadName the name of the thread
+	 * @return the thread
+	 */
+	public static Thread newThread(Runnable task, String threadName)
+	{
+		if (isVirtual())
+		{
+			try
+			{
+				Object builder = name.invoke(ofVirtual.invoke(null), threadName);
+				return (Thread) unstarted.invoke(builder, task);
+			}
+			catch (Exception e)
+			{
+				System.out.println("Could not create a virtual thread, using a normal thread");
+				e.printStackTrace();
+			}
+		}
+		return new Thread(task, threadName);
+	}
+
+	/**
+	 * Create and start a thread for a task
+	 * @param task the task to run
+	 * @param threadName the name of the thread
+	 * @return the started thread
+	 */
+	public static Thread start(Runnable task, String threadName)
+	{
+		Thread thread = newThread(task, threadName);
+		thread.start();
+		return thread;
+	}
+
+	/////////////////////////
+	// GETTERS AND SETTERS //
+	/////////////////////////
+	/**
+	 * Check if new threads will be virtual threads
+	 */
+	public static boolean isVirtual()
+	{
+		return useVirtualThreads && ofVirtual != null;
+	}
+
+	public static boolean isVirtualSupported()
+	{
+		return ofVirtual != null;
+	}
+
+	public static void setUseVirtualThreads(boolean useVirtualThreads)
+	{
+		Threads.useVirtualThreads = useVirtualThreads;
+	}
+}